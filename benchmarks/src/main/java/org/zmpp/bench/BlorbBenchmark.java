@@ -0,0 +1,203 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.zmpp.base.DefaultMemory;
+import org.zmpp.blorb.BlorbImages;
+import org.zmpp.blorb.BlorbResources;
+import org.zmpp.blorb.NativeImage;
+import org.zmpp.blorb.NativeImageFactory;
+import org.zmpp.blorb.SoundEffectFactory;
+import org.zmpp.iff.Chunk;
+import org.zmpp.iff.DefaultFormChunk;
+import org.zmpp.iff.FormChunk;
+import org.zmpp.media.SoundEffect;
+import org.zmpp.media.SoundStopListener;
+
+/**
+ * Measures opening the resources of a Blorb file and decoding its pictures.
+ * Journey.blb contains pictures, Lurking.blb contains sounds. The sound
+ * factory only copies the sample data, so no audio device is needed.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlorbBenchmark {
+
+	@Param({ "Journey.blb", "Lurking.blb" })
+	public String blorb;
+
+	private byte[] blorbData;
+	private File blorbFile;
+	private BlorbImages images;
+
+	/**
+	 * Decodes pictures with ImageIO.
+	 */
+	private static class ImageIOFactory implements NativeImageFactory {
+		/** {@inheritDoc} */
+		public NativeImage createImage(InputStream inputStream) throws IOException {
+			final BufferedImage image = ImageIO.read(inputStream);
+			return new NativeImage() {
+				public int getWidth() {
+					return image.getWidth();
+				}
+
+				public int getHeight() {
+					return image.getHeight();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Copies the sample data of a sound into an array.
+	 */
+	private static class SampleCopyFactory implements SoundEffectFactory {
+		/** {@inheritDoc} */
+		public SoundEffect createSoundEffect(Chunk aiffChunk) throws IOException {
+			final byte[] data = new byte[aiffChunk.getSize() + Chunk.CHUNK_HEADER_LENGTH];
+			aiffChunk.getMemory().copyBytesToArray(data, 0, 0, data.length);
+			return new SoundEffect() {
+				public void play(int number, int volume) {
+				}
+
+				public void stop() {
+				}
+
+				public void release() {
+				}
+
+				public void addSoundStopListener(SoundStopListener l) {
+				}
+
+				public void removeSoundStopListener(SoundStopListener l) {
+				}
+			};
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		ImageIO.setUseCache(false);
+		blorbData = StoryFixture.loadResource(blorb);
+		// a cache of size 0 only keeps the last picture, so each one is
+		// decoded
+		images = new BlorbImages(new ImageIOFactory(), openFormChunk(), 0);
+		blorbFile = File.createTempFile("zmpp", ".blb");
+		final FileOutputStream out = new FileOutputStream(blorbFile);
+		try {
+			out.write(blorbData);
+		} finally {
+			out.close();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		blorbFile.delete();
+	}
+
+	private FormChunk openFormChunk() throws IOException {
+		return new DefaultFormChunk(new DefaultMemory(blorbData));
+	}
+
+	/**
+	 * Reads the Blorb form and its resource index and creates the media
+	 * collections.
+	 * 
+	 * @return the resources
+	 * @throws IOException
+	 *             if the Blorb data is invalid
+	 */
+	@Benchmark
+	public BlorbResources openResources() throws IOException {
+		return new BlorbResources(new ImageIOFactory(), new SampleCopyFactory(), openFormChunk());
+	}
+
+	/**
+	 * Decodes every picture once.
+	 * 
+	 * @param blackhole
+	 *            the JMH blackhole
+	 */
+	@Benchmark
+	public void decodePictures(Blackhole blackhole) {
+		for (int i = 0, n = images.getNumResources(); i < n; i++) {
+			blackhole.consume(images.getResource(images.getResourceNumber(i)).getImage());
+		}
+	}
+
+	/**
+	 * Indexes the Blorb file from its file channel, which only reads the chunk
+	 * headers.
+	 * 
+	 * @return the form chunk
+	 * @throws IOException
+	 *             if the Blorb file is invalid
+	 */
+	@Benchmark
+	public FormChunk indexFile() throws IOException {
+		final RandomAccessFile file = new RandomAccessFile(blorbFile, "r");
+		try {
+			return new DefaultFormChunk(file.getChannel());
+		} finally {
+			file.close();
+		}
+	}
+}
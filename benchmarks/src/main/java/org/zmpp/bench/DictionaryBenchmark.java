@@ -0,0 +1,100 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures dictionary lookups of words that are in the dictionary and of
+ * words that are not.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBenchmark {
+
+	private String[] misses;
+
+	@Setup
+	public void setUp(StoryState state) {
+		misses = new String[state.words.length];
+		for (int i = 0; i < misses.length; i++) {
+			misses[i] = "q" + state.words[i] + "x";
+		}
+	}
+
+	/**
+	 * Looks up all dictionary words. One operation is one pass.
+	 * 
+	 * @param state
+	 *            the story state
+	 * @param blackhole
+	 *            the JMH blackhole
+	 */
+	@Benchmark
+	public void lookupHits(StoryState state, Blackhole blackhole) {
+		for (String word : state.words) {
+			blackhole.consume(state.dictionary.lookup(word));
+		}
+	}
+
+	/**
+	 * Looks up as many words that are not in the dictionary. One operation is
+	 * one pass.
+	 * 
+	 * @param state
+	 *            the story state
+	 * @param blackhole
+	 *            the JMH blackhole
+	 */
+	@Benchmark
+	public void lookupMisses(StoryState state, Blackhole blackhole) {
+		for (String word : misses) {
+			blackhole.consume(state.dictionary.lookup(word));
+		}
+	}
+}
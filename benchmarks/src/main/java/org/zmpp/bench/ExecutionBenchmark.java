@@ -0,0 +1,142 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zmpp.ExecutionControl;
+import org.zmpp.vm.MachineRunState;
+
+/**
+ * Measures instruction decoding and execution through ExecutionControl. One
+ * operation starts the story on a fresh machine and plays the scripted
+ * session, so it includes the cost of warming the instruction cache. The
+ * replay benchmark restarts a single machine instead, there the hot routines
+ * are compiled once the compile threshold is reached. With direct dispatch,
+ * the interpreter loop runs without instruction objects and does not compile.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionBenchmark {
+
+	@Param({ "minizork.z3", "curses.z5" })
+	public String story;
+
+	/** The routine compile threshold, 0 interprets all routines. */
+	@Param({ "0", "500" })
+	public int compileThreshold;
+
+	/** Selects the direct dispatch engine. */
+	@Param({ "false", "true" })
+	public boolean directDispatch;
+
+	private byte[] storyData;
+	private ExecutionControl control;
+	private ExecutionControl warmControl;
+
+	@Setup
+	public void setUp() throws Exception {
+		storyData = StoryFixture.loadResource(story);
+		warmControl = StoryFixture.createExecutionControl(story, storyData);
+		warmControl.setCompileThreshold(compileThreshold);
+		warmControl.setDirectDispatch(directDispatch);
+	}
+
+	@Setup(Level.Invocation)
+	public void createMachine() throws Exception {
+		control = StoryFixture.createExecutionControl(story, storyData);
+		control.setCompileThreshold(compileThreshold);
+		control.setDirectDispatch(directDispatch);
+	}
+
+	@TearDown(Level.Invocation)
+	public void quitMachine() {
+		control.getMachine().quit();
+	}
+
+	/**
+	 * Plays the scripted session.
+	 * 
+	 * @return the number of executed instructions
+	 */
+	@Benchmark
+	public int playScript() {
+		return play(control);
+	}
+
+	/**
+	 * Restarts the same machine and plays the scripted session.
+	 * 
+	 * @return the number of executed instructions
+	 */
+	@Benchmark
+	public int replayScript() {
+		warmControl.getMachine().restart();
+		warmControl.getMachine().setRunState(MachineRunState.RUNNING);
+		return play(warmControl);
+	}
+
+	/**
+	 * Plays the scripted session.
+	 * 
+	 * @param executionControl
+	 *            the execution control
+	 * @return the number of executed instructions
+	 */
+	private static int play(final ExecutionControl executionControl) {
+		MachineRunState runState = executionControl.run();
+		for (String command : StoryFixture.SCRIPT) {
+			if (!runState.isReadLine()) {
+				break;
+			}
+			runState = executionControl.resumeWithInput(command);
+		}
+		return executionControl.getStep();
+	}
+}
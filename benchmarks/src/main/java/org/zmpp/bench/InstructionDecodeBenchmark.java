@@ -0,0 +1,92 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.zmpp.instructions.InstructionDecoder;
+import org.zmpp.io.LineBufferInputStream;
+import org.zmpp.vm.Machine;
+
+/**
+ * Measures the throughput of the instruction decoder. The decoded addresses
+ * are the instructions executed during the scripted session, so the mix of
+ * instruction forms matches a real game.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstructionDecodeBenchmark {
+
+	@Param({ "minizork.z3", "curses.z5" })
+	public String story;
+
+	private InstructionDecoder decoder;
+	private int[] addresses;
+
+	@Setup
+	public void setUp() throws Exception {
+		byte[] storyData = StoryFixture.loadResource(story);
+		addresses = StoryFixture.collectInstructionAddresses(storyData, 1000000);
+		Machine machine = StoryFixture.createMachine(storyData, new LineBufferInputStream());
+		decoder = new InstructionDecoder();
+		decoder.initialize(machine);
+	}
+
+	/**
+	 * Decodes every collected instruction once. One operation is one pass.
+	 * 
+	 * @param blackhole
+	 *            the JMH blackhole
+	 */
+	@Benchmark
+	public void decodeAll(Blackhole blackhole) {
+		for (int address : addresses) {
+			blackhole.consume(decoder.decodeInstruction(address));
+		}
+	}
+}
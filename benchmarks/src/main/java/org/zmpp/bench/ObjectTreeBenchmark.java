@@ -0,0 +1,132 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.zmpp.vm.Machine;
+
+/**
+ * Measures property lookups in the object tree. Each operation looks up every
+ * property number of every object, so it covers both properties that are
+ * defined and properties that fall back to their defaults.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectTreeBenchmark {
+
+	private int maxProperty;
+
+	@Setup
+	public void setUp(StoryState state) {
+		maxProperty = state.machine.getVersion() <= 3 ? 31 : 63;
+	}
+
+	/**
+	 * Looks up the address of every property of every object.
+	 * 
+	 * @param state
+	 *            the story state
+	 * @param blackhole
+	 *            the JMH blackhole
+	 */
+	@Benchmark
+	public void getPropertyAddress(StoryState state, Blackhole blackhole) {
+		final Machine machine = state.machine;
+		for (int obj = 1; obj <= state.numObjects; obj++) {
+			for (int prop = 1; prop <= maxProperty; prop++) {
+				blackhole.consume(machine.getPropertyAddress(obj, prop));
+			}
+		}
+	}
+
+	/**
+	 * Reads every property of every object that is either undefined or at most
+	 * two bytes long.
+	 * 
+	 * @param state
+	 *            the story state
+	 * @param blackhole
+	 *            the JMH blackhole
+	 */
+	@Benchmark
+	public void getProperty(StoryState state, Blackhole blackhole) {
+		final Machine machine = state.machine;
+		for (int obj = 1; obj <= state.numObjects; obj++) {
+			for (int prop = 1; prop <= maxProperty; prop++) {
+				final int address = machine.getPropertyAddress(obj, prop);
+				if (address == 0 || machine.getPropertyLength(address) <= 2) {
+					blackhole.consume(machine.getProperty(obj, prop));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Walks the property list of every object. Property numbers are stored in
+	 * descending order, the walk stops at the first one that is not, since
+	 * some stories define a property twice.
+	 * 
+	 * @param state
+	 *            the story state
+	 * @param blackhole
+	 *            the JMH blackhole
+	 */
+	@Benchmark
+	public void getNextProperty(StoryState state, Blackhole blackhole) {
+		final Machine machine = state.machine;
+		for (int obj = 1; obj <= state.numObjects; obj++) {
+			int previous = Integer.MAX_VALUE;
+			int prop = machine.getNextProperty(obj, 0);
+			while (prop != 0 && prop < previous) {
+				blackhole.consume(prop);
+				previous = prop;
+				prop = machine.getNextProperty(obj, prop);
+			}
+		}
+	}
+}
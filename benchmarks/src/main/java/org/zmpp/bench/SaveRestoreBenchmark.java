@@ -0,0 +1,123 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zmpp.ExecutionControl;
+import org.zmpp.base.DefaultMemory;
+import org.zmpp.iff.DefaultFormChunk;
+import org.zmpp.vm.Machine;
+import org.zmpp.vm.PortableGameState;
+
+/**
+ * Measures saving to and restoring from Quetzal data. The machine waits for
+ * its first input, so the stack holds the frames of a real game.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveRestoreBenchmark {
+
+	@Param({ "minizork.z3", "curses.z5" })
+	public String story;
+
+	private Machine machine;
+	private DefaultMemory storyImage;
+	private byte[] saveData;
+
+	@Setup
+	public void setUp() throws Exception {
+		final byte[] storyData = StoryFixture.loadResource(story);
+		storyImage = new DefaultMemory(storyData.clone());
+		ExecutionControl control = StoryFixture.createExecutionControl(story, storyData);
+		control.run();
+		machine = control.getMachine();
+		saveData = save();
+	}
+
+	/**
+	 * Captures the machine state and writes it as a Quetzal form.
+	 * 
+	 * @return the form data
+	 */
+	@Benchmark
+	public byte[] save() {
+		PortableGameState gameState = new PortableGameState();
+		gameState.captureMachineState(machine, machine.getPC());
+		return gameState.exportToFormChunk().getBytes();
+	}
+
+	/**
+	 * Captures the machine state and writes it as a Quetzal form with
+	 * compressed dynamic memory.
+	 * 
+	 * @return the form data
+	 */
+	@Benchmark
+	public byte[] saveCompressed() {
+		PortableGameState gameState = new PortableGameState();
+		gameState.captureMachineState(machine, machine.getPC());
+		return gameState.exportToFormChunk(storyImage).getBytes();
+	}
+
+	/**
+	 * Reads a Quetzal form and transfers the state to the machine. Like a
+	 * restore in the game, this starts from an empty stack.
+	 * 
+	 * @return the restored program counter
+	 * @throws Exception
+	 *             if the form could not be read
+	 */
+	@Benchmark
+	public int restore() throws Exception {
+		PortableGameState gameState = new PortableGameState();
+		gameState.readSaveGame(new DefaultFormChunk(new DefaultMemory(saveData)));
+		machine.resetStack();
+		gameState.transferStateToMachine(machine);
+		return gameState.getProgramCounter();
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.zmpp.ExecutionControl;
+import org.zmpp.instructions.InstructionDecoder;
+import org.zmpp.io.LineBufferInputStream;
+import org.zmpp.vm.InvalidStoryException;
+import org.zmpp.vm.Machine;
+import org.zmpp.vm.MachineFactory;
+import org.zmpp.vm.MachineFactory.MachineInitStruct;
+import org.zmpp.vm.MachineRunState;
+import org.zmpp.vmutil.FileUtils;
+import org.zmpp.windowing.BufferedScreenModel;
+
+/**
+ * Helper functions to load the bundled story files into headless machines.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public final class StoryFixture {
+
+	/** A short scripted session that exercises the parser. */
+	public static final String[] SCRIPT = { "look", "inventory", "open mailbox", "read leaflet", "north",
+			"examine door", "east", "south", "west" };
+
+	/**
+	 * Private constructor.
+	 */
+	private StoryFixture() {
+	}
+
+	/**
+	 * Reads the specified bundled resource.
+	 * 
+	 * @param name
+	 *            the resource name
+	 * @return the resource data
+	 * @throws IOException
+	 *             if the resource could not be read
+	 */
+	public static byte[] loadResource(String name) throws IOException {
+		InputStream in = StoryFixture.class.getClassLoader().getResourceAsStream(name);
+		if (in == null) {
+			throw new IOException("resource not found: " + name);
+		}
+		try {
+			return FileUtils.readFileBytes(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Creates a headless machine which prints into a BufferedScreenModel.
+	 * 
+	 * @param storyData
+	 *            the story data
+	 * @param keyboard
+	 *            the keyboard input stream
+	 * @return the started machine
+	 * @throws IOException
+	 *             if i/o error occurred
+	 * @throws InvalidStoryException
+	 *             invalid story file
+	 */
+	public static Machine createMachine(byte[] storyData, LineBufferInputStream keyboard)
+			throws IOException, InvalidStoryException {
+		BufferedScreenModel screenModel = new BufferedScreenModel();
+		MachineInitStruct initStruct = new MachineInitStruct();
+		initStruct.storyFile = new ByteArrayInputStream(storyData);
+		initStruct.keyboardInputStream = keyboard;
+		initStruct.screenModel = screenModel;
+		initStruct.statusLine = screenModel;
+		Machine machine = new MachineFactory(initStruct).buildMachine();
+		screenModel.init(machine, machine);
+		machine.start();
+		return machine;
+	}
+
+	/**
+	 * Creates a headless execution control which prints into a
+	 * BufferedScreenModel.
+	 * 
+	 * @param name
+	 *            the resource name, Blorb files end with ".blb"
+	 * @param data
+	 *            the story or Blorb data
+	 * @return the execution control
+	 * @throws IOException
+	 *             if i/o error occurred
+	 * @throws InvalidStoryException
+	 *             invalid story file
+	 */
+	public static ExecutionControl createExecutionControl(String name, byte[] data)
+			throws IOException, InvalidStoryException {
+		BufferedScreenModel screenModel = new BufferedScreenModel();
+		MachineInitStruct initStruct = new MachineInitStruct();
+		if (name.endsWith(".blb")) {
+			initStruct.blorbFile = new ByteArrayInputStream(data);
+		} else {
+			initStruct.storyFile = new ByteArrayInputStream(data);
+		}
+		initStruct.screenModel = screenModel;
+		initStruct.statusLine = screenModel;
+		ExecutionControl control = new ExecutionControl(initStruct);
+		screenModel.init(control.getMachine(), control.getZsciiEncoding());
+		return control;
+	}
+
+	/**
+	 * Runs the story through the scripted session and returns the addresses of
+	 * all instructions that were executed, in the order of first execution.
+	 * 
+	 * @param storyData
+	 *            the story data
+	 * @param maxSteps
+	 *            the maximum number of instructions to execute
+	 * @return the instruction addresses
+	 * @throws IOException
+	 *             if i/o error occurred
+	 * @throws InvalidStoryException
+	 *             invalid story file
+	 */
+	public static int[] collectInstructionAddresses(byte[] storyData, int maxSteps)
+			throws IOException, InvalidStoryException {
+		LineBufferInputStream keyboard = new LineBufferInputStream();
+		Machine machine = createMachine(storyData, keyboard);
+		InstructionDecoder decoder = new InstructionDecoder();
+		decoder.initialize(machine);
+		Set<Integer> addresses = new LinkedHashSet<Integer>();
+		int line = 0;
+		for (int step = 0; step < maxSteps && machine.getRunState() != MachineRunState.STOPPED; step++) {
+			if (machine.getRunState().isWaitingForInput()) {
+				if (line == SCRIPT.length) {
+					break;
+				}
+				keyboard.addInputLine(toInputLine(machine, SCRIPT[line++]));
+			}
+			int pc = machine.getPC();
+			addresses.add(pc);
+			decoder.decodeInstruction(pc).execute();
+		}
+		int[] result = new int[addresses.size()];
+		int i = 0;
+		for (int address : addresses) {
+			result[i++] = address;
+		}
+		return result;
+	}
+
+	/**
+	 * Converts a command into the ZSCII input line format of the keyboard
+	 * stream.
+	 * 
+	 * @param machine
+	 *            the machine
+	 * @param command
+	 *            the command
+	 * @return the input line
+	 */
+	public static String toInputLine(Machine machine, String command) {
+		return machine.convertToZscii(command.toLowerCase(Locale.getDefault())) + "\r";
+	}
+}
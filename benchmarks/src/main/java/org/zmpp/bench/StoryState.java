@@ -0,0 +1,141 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.zmpp.base.StoryFileHeader;
+import org.zmpp.encoding.DefaultAccentTable;
+import org.zmpp.encoding.DefaultAlphabetTable;
+import org.zmpp.encoding.DefaultZCharDecoder;
+import org.zmpp.encoding.DefaultZCharTranslator;
+import org.zmpp.encoding.DictionarySizes;
+import org.zmpp.encoding.ZCharDecoder;
+import org.zmpp.encoding.ZCharEncoder;
+import org.zmpp.encoding.ZCharTranslator;
+import org.zmpp.encoding.ZsciiEncoding;
+import org.zmpp.io.LineBufferInputStream;
+import org.zmpp.vm.Abbreviations;
+import org.zmpp.vm.DefaultDictionary;
+import org.zmpp.vm.DictionarySizesV1ToV3;
+import org.zmpp.vm.DictionarySizesV4ToV8;
+import org.zmpp.vm.Machine;
+
+/**
+ * A started machine together with the text system objects and the data the
+ * text, dictionary and object benchmarks work on. The bundled stories use the
+ * default alphabet and accent tables, so the encoding system is built from
+ * those.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+@State(Scope.Benchmark)
+public class StoryState {
+
+	/** The story file. */
+	@Param({ "minizork.z3", "curses.z5" })
+	public String story;
+
+	Machine machine;
+	DictionarySizes dictionarySizes;
+	ZCharDecoder decoder;
+	ZCharEncoder encoder;
+	DefaultDictionary dictionary;
+	int dictionaryAddress;
+	int numObjects;
+
+	/** The decoded dictionary words. */
+	String[] words;
+
+	/** The addresses of the dictionary entries. */
+	int[] entryAddresses;
+
+	/** The addresses of the object short names. */
+	int[] objectNameAddresses;
+
+	@Setup
+	public void setUp() throws Exception {
+		machine = StoryFixture.createMachine(StoryFixture.loadResource(story), new LineBufferInputStream());
+		dictionarySizes = machine.getVersion() <= 3 ? new DictionarySizesV1ToV3() : new DictionarySizesV4ToV8();
+		final ZCharTranslator translator = new DefaultZCharTranslator(new DefaultAlphabetTable());
+		decoder = new DefaultZCharDecoder(new ZsciiEncoding(new DefaultAccentTable()), translator,
+				new Abbreviations(machine, machine.readUnsigned16(StoryFileHeader.ABBREVIATIONS)));
+		encoder = new ZCharEncoder(translator, dictionarySizes);
+		dictionaryAddress = machine.readUnsigned16(StoryFileHeader.DICTIONARY);
+		dictionary = new DefaultDictionary(machine, dictionaryAddress, decoder, encoder, dictionarySizes);
+
+		final int numEntries = dictionary.getNumberOfEntries();
+		words = new String[numEntries];
+		entryAddresses = new int[numEntries];
+		for (int i = 0; i < numEntries; i++) {
+			entryAddresses[i] = dictionary.getEntryAddress(i);
+			words[i] = decoder.decode2Zscii(machine, entryAddresses[i], dictionarySizes.getNumEntryBytes());
+		}
+
+		numObjects = countObjects();
+		final List<Integer> nameAddresses = new ArrayList<Integer>();
+		for (int obj = 1; obj <= numObjects; obj++) {
+			// a zero length name is stored as just the length byte
+			final int address = machine.getPropertiesDescriptionAddress(obj);
+			if (machine.readUnsigned8(address - 1) > 0) {
+				nameAddresses.add(address);
+			}
+		}
+		objectNameAddresses = new int[nameAddresses.size()];
+		for (int i = 0; i < objectNameAddresses.length; i++) {
+			objectNameAddresses[i] = nameAddresses.get(i);
+		}
+	}
+
+	/**
+	 * Determines the number of objects. The object entries end where the
+	 * lowest property table starts.
+	 * 
+	 * @return the number of objects
+	 */
+	private int countObjects() {
+		final boolean classic = machine.getVersion() <= 3;
+		final int propertyDefaultsSize = classic ? 31 * 2 : 63 * 2;
+		final int entrySize = classic ? 9 : 14;
+		final int treeStart = machine.readUnsigned16(StoryFileHeader.OBJECT_TABLE) + propertyDefaultsSize;
+		int end = machine.getPropertiesDescriptionAddress(1) - 1;
+		int numObjects = 0;
+		while (treeStart + numObjects * entrySize < end) {
+			numObjects++;
+			end = Math.min(end, machine.getPropertiesDescriptionAddress(numObjects) - 1);
+		}
+		return numObjects;
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.zmpp.base.DefaultMemory;
+import org.zmpp.base.Memory;
+import org.zmpp.encoding.ZCharDecoder.ZsciiSink;
+
+/**
+ * Measures the Z-string decoder and encoder on the object short names and the
+ * dictionary words of a story.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+
+	private Memory target;
+	private ZsciiSink sink;
+	private int checksum;
+
+	@Setup
+	public void setUp() {
+		target = new DefaultMemory(new byte[16]);
+		sink = new ZsciiSink() {
+			public void append(char zsciiChar) {
+				checksum += zsciiChar;
+			}
+		};
+	}
+
+	/**
+	 * Decodes all object short names. One operation is one pass.
+	 * 
+	 * @param state
+	 *            the story state
+	 * @param blackhole
+	 *            the JMH blackhole
+	 */
+	@Benchmark
+	public void decodeObjectNames(StoryState state, Blackhole blackhole) {
+		for (int address : state.objectNameAddresses) {
+			blackhole.consume(state.decoder.decode2Zscii(state.machine, address, 0));
+		}
+	}
+
+	/**
+	 * Decodes all object short names into a sink. One operation is one pass.
+	 * 
+	 * @param state
+	 *            the story state
+	 * @return the checksum of the decoded characters
+	 */
+	@Benchmark
+	public int decodeObjectNamesToSink(StoryState state) {
+		for (int address : state.objectNameAddresses) {
+			state.decoder.decode(state.machine, address, 0, sink);
+		}
+		return checksum;
+	}
+
+	/**
+	 * Decodes all dictionary entries. One operation is one pass.
+	 * 
+	 * @param state
+	 *            the story state
+	 * @param blackhole
+	 *            the JMH blackhole
+	 */
+	@Benchmark
+	public void decodeDictionary(StoryState state, Blackhole blackhole) {
+		final int numEntryBytes = state.dictionarySizes.getNumEntryBytes();
+		for (int address : state.entryAddresses) {
+			blackhole.consume(state.decoder.decode2Zscii(state.machine, address, numEntryBytes));
+		}
+	}
+
+	/**
+	 * Encodes all dictionary words. One operation is one pass.
+	 * 
+	 * @param state
+	 *            the story state
+	 * @param blackhole
+	 *            the JMH blackhole
+	 */
+	@Benchmark
+	public void encodeDictionary(StoryState state, Blackhole blackhole) {
+		for (String word : state.words) {
+			state.encoder.encode(word, target, 0);
+			blackhole.consume(target.readUnsigned16(0));
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zmpp.base.StoryFileHeader;
+import org.zmpp.vm.Machine;
+
+/**
+ * Measures the tokenizer on the commands of the scripted session. The text
+ * buffers are written to the end of dynamic memory once, so the benchmark
+ * only measures tokenizing and the dictionary lookups.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizeBenchmark {
+
+	private static final int TEXT_BUFFER_SIZE = 32;
+	private static final int MAX_TOKENS = 8;
+
+	private int[] textBuffers;
+	private int parseBuffer;
+
+	@Setup
+	public void setUp(StoryState state) {
+		final Machine machine = state.machine;
+		final int textStart = machine.getVersion() >= 5 ? 2 : 1;
+		parseBuffer = machine.readUnsigned16(StoryFileHeader.STATIC_MEM) - 4 * MAX_TOKENS - 2;
+		textBuffers = new int[StoryFixture.SCRIPT.length];
+		for (int i = 0; i < textBuffers.length; i++) {
+			final String command = StoryFixture.SCRIPT[i];
+			final int textBuffer = parseBuffer - (i + 1) * TEXT_BUFFER_SIZE;
+			machine.writeUnsigned8(textBuffer, (char) (TEXT_BUFFER_SIZE - textStart - 1));
+			if (textStart == 2) {
+				machine.writeUnsigned8(textBuffer + 1, (char) command.length());
+			}
+			for (int j = 0; j < command.length(); j++) {
+				machine.writeUnsigned8(textBuffer + textStart + j, command.charAt(j));
+			}
+			machine.writeUnsigned8(textBuffer + textStart + command.length(), (char) 0);
+			textBuffers[i] = textBuffer;
+		}
+		machine.writeUnsigned8(parseBuffer, (char) MAX_TOKENS);
+	}
+
+	/**
+	 * Tokenizes all commands. One operation is one pass.
+	 * 
+	 * @param state
+	 *            the story state
+	 * @return the number of tokens of the last command
+	 */
+	@Benchmark
+	public int tokenizeScript(StoryState state) {
+		for (int textBuffer : textBuffers) {
+			state.machine.tokenize(textBuffer, parseBuffer, 0, false);
+		}
+		return state.machine.readUnsigned8(parseBuffer + 1);
+	}
+}
@@ -36,8 +36,12 @@ import java.util.Locale;
 import org.zmpp.base.StoryFileHeader;
 import org.zmpp.base.StoryFileHeader.Attribute;
 import org.zmpp.encoding.IZsciiEncoding;
+import org.zmpp.instructions.DirectInterpreter;
+import org.zmpp.instructions.InstructionCache;
 import org.zmpp.instructions.InstructionDecoder;
+import org.zmpp.instructions.RoutineCompiler;
 import org.zmpp.io.LineBufferInputStream;
+import org.zmpp.media.SoundSystem;
 import org.zmpp.vm.Instruction;
 import org.zmpp.vm.InvalidStoryException;
 import org.zmpp.vm.Machine;
@@ -59,8 +63,13 @@ public class ExecutionControl implements Serializable {
 
 	private static final long serialVersionUID = 7354983950243255037L;
 	private static final Logger LOG = Logger.getLogger("org.zmpp.control");
+	private static final int TIME_CHECK_INTERVAL = 1024;
 	private Machine machine;
 	private InstructionDecoder instructionDecoder = new InstructionDecoder();
+	private transient InstructionCache instructionCache;
+	private transient RoutineCompiler routineCompiler;
+	private transient DirectInterpreter directInterpreter;
+	private int compileThreshold;
 	private LineBufferInputStream inputStream = new LineBufferInputStream();
 	private int step = 1;
 
@@ -89,6 +98,11 @@ public class ExecutionControl implements Serializable {
 		machine = factory.buildMachine();
 		machine.start();
 		instructionDecoder.initialize(machine);
+		instructionCache = new InstructionCache(instructionDecoder,
+				machine.readUnsigned16(StoryFileHeader.STATIC_MEM));
+		machine.addMemoryWriteListener(instructionCache);
+		routineCompiler = new RoutineCompiler(machine, instructionDecoder, instructionCache);
+		setCompileThreshold(RoutineCompiler.DEFAULT_THRESHOLD);
 		int version = machine.getVersion();
 		// ZMPP should support everything by default
 		if (version <= 3) {
@@ -113,6 +127,60 @@ public class ExecutionControl implements Serializable {
 		machine.getScreen().setForeground(defaultForeground, -1);
 	}
 
+	/**
+	 * Sets the number of entries after which a routine is compiled to a JVM
+	 * class. A compiled routine runs in one step of the execution loop until
+	 * it calls, returns or reaches the next input, the instructions it ran are
+	 * counted as steps. By default, routines are compiled after
+	 * RoutineCompiler.DEFAULT_THRESHOLD entries.
+	 * 
+	 * @param threshold
+	 *            the number of entries, 0 to only interpret
+	 */
+	public void setCompileThreshold(int threshold) {
+		compileThreshold = threshold;
+		if (directInterpreter == null) {
+			machine.setHotRoutineListener(threshold > 0 ? routineCompiler : null, threshold);
+		}
+	}
+
+	/**
+	 * Selects the execution engine. The direct dispatch engine decodes and
+	 * executes the common instructions without instruction objects and only
+	 * uses the instruction cache for the others. Routines are not compiled
+	 * while it is selected.
+	 * 
+	 * @param flag
+	 *            true for direct dispatch, false to execute instruction objects
+	 */
+	public void setDirectDispatch(boolean flag) {
+		if (flag && directInterpreter == null) {
+			directInterpreter = new DirectInterpreter(machine, instructionCache);
+			machine.setHotRoutineListener(null, 0);
+		} else if (!flag && directInterpreter != null) {
+			directInterpreter = null;
+			setCompileThreshold(compileThreshold);
+		}
+	}
+
+	/**
+	 * Determines whether the direct dispatch engine is selected.
+	 * 
+	 * @return true if direct dispatch, false if instruction objects
+	 */
+	public boolean isDirectDispatch() {
+		return directInterpreter != null;
+	}
+
+	/**
+	 * Returns the number of routines that were compiled.
+	 * 
+	 * @return the number of compiled routines
+	 */
+	public int getNumCompiledRoutines() {
+		return routineCompiler.getNumCompiled();
+	}
+
 	/**
 	 * Enables the specified header flag.
 	 * 
@@ -228,26 +296,179 @@ public class ExecutionControl implements Serializable {
 
 	/**
 	 * The execution loop. It runs until either an input state is reached or the
-	 * machine is set to stop state.
+	 * machine is set to stop state. It is run(int, long) without a budget, so
+	 * it never returns YIELDED.
 	 * 
 	 * @return the new MachineRunState
 	 */
 	public MachineRunState run() {
+		MachineRunState runState;
+		do {
+			runState = run(Integer.MAX_VALUE, 0);
+		} while (runState == MachineRunState.YIELDED);
+		return runState;
+	}
+
+	/**
+	 * The execution loop with a step budget. It runs until either an input
+	 * state is reached, the machine is set to stop state or maxSteps
+	 * instructions were executed. In the last case, YIELDED is returned and the
+	 * next call continues at the current program counter.
+	 * 
+	 * @param maxSteps
+	 *            the maximum number of instructions to execute
+	 * @return the new MachineRunState
+	 */
+	public MachineRunState run(final int maxSteps) {
+		return run(maxSteps, 0);
+	}
+
+	/**
+	 * The execution loop with a step and time budget. It runs until either an
+	 * input state is reached, the machine is set to stop state, maxSteps
+	 * instructions were executed or the time slice is used up. In the last two
+	 * cases, YIELDED is returned and the next call continues at the current
+	 * program counter.
+	 * 
+	 * @param maxSteps
+	 *            the maximum number of instructions to execute
+	 * @param timeSlice
+	 *            the maximum number of milliseconds to run, 0 for no limit
+	 * @return the new MachineRunState
+	 */
+	public MachineRunState run(final int maxSteps, final long timeSlice) {
+		callSoundInterrupts();
+		if (directInterpreter != null) {
+			return runDirect(maxSteps, timeSlice);
+		}
+		final long deadline = System.nanoTime() + timeSlice * 1000000L;
+		int numSteps = 0;
+		int nextCheck = TIME_CHECK_INTERVAL;
 		while (machine.getRunState() != MachineRunState.STOPPED) {
+			// compiled routines can run past the budget, the differences are
+			// compared, so this works when numSteps overflows as well
+			if (numSteps - maxSteps >= 0) {
+				return MachineRunState.YIELDED;
+			}
+			// reading the clock is comparatively expensive, so only check it
+			// and the sound interrupts every TIME_CHECK_INTERVAL instructions
+			if (numSteps - nextCheck >= 0) {
+				if (timeSlice > 0 && System.nanoTime() - deadline >= 0) {
+					return MachineRunState.YIELDED;
+				}
+				callSoundInterrupts();
+				nextCheck = numSteps + TIME_CHECK_INTERVAL;
+			}
 			int pc = machine.getPC();
-			Instruction instr = instructionDecoder.decodeInstruction(pc);
+			Instruction instr = instructionCache.getInstruction(pc);
 			instr.execute();
+			final int executed = getNumExecuted();
 
-			// handle input situations here
+			// handle input situations here, the input instruction is not
+			// counted
 			if (machine.getRunState().isWaitingForInput()) {
+				step += executed - 1;
 				break;
 			} else {
-				step++;
+				step += executed;
+				numSteps += executed;
+			}
+		}
+		return machine.getRunState();
+	}
+
+	/**
+	 * Returns the number of instructions the last step executed. This is 1
+	 * for an interpreted instruction and the number of instructions a
+	 * compiled routine ran otherwise.
+	 * 
+	 * @return the number of executed instructions
+	 */
+	private int getNumExecuted() {
+		final int numCompiled = routineCompiler.takeNumExecuted();
+		return numCompiled > 0 ? numCompiled : 1;
+	}
+
+	/**
+	 * Calls the interrupt routines of the sounds that finished playing since
+	 * the last call. The sound system queues them, because sounds finish on
+	 * other threads than the interpreter's. The queue is polled when a run
+	 * starts and every TIME_CHECK_INTERVAL instructions while it runs.
+	 */
+	private void callSoundInterrupts() {
+		final SoundSystem soundSystem = machine.getSoundSystem();
+		int routine;
+		while (machine.getRunState() != MachineRunState.STOPPED
+				&& (routine = soundSystem.nextInterruptRoutine()) != 0) {
+			callInterrupt((char) routine);
+		}
+	}
+
+	/**
+	 * The execution loop of the direct dispatch engine. The engine runs
+	 * TIME_CHECK_INTERVAL instructions at a time, the budgets and the sound
+	 * interrupts are checked in between.
+	 * 
+	 * @param maxSteps
+	 *            the maximum number of instructions to execute
+	 * @param timeSlice
+	 *            the maximum number of milliseconds to run, 0 for no limit
+	 * @return the new MachineRunState
+	 */
+	private MachineRunState runDirect(final int maxSteps, final long timeSlice) {
+		final long deadline = System.nanoTime() + timeSlice * 1000000L;
+		int numSteps = 0;
+		while (machine.getRunState() != MachineRunState.STOPPED) {
+			if (numSteps >= maxSteps) {
+				return MachineRunState.YIELDED;
+			}
+			if (numSteps > 0) {
+				if (timeSlice > 0 && System.nanoTime() - deadline >= 0) {
+					return MachineRunState.YIELDED;
+				}
+				callSoundInterrupts();
+			}
+			final int executed = directInterpreter.run(Math.min(maxSteps - numSteps, TIME_CHECK_INTERVAL));
+			step += executed;
+			numSteps += executed;
+			if (machine.getRunState().isWaitingForInput()) {
+				break;
 			}
 		}
 		return machine.getRunState();
 	}
 
+	/**
+	 * Resumes from an input state using the specified Unicode input string and
+	 * runs with a step budget.
+	 * 
+	 * @param input
+	 *            the Unicode input string
+	 * @param maxSteps
+	 *            the maximum number of instructions to execute
+	 * @return the new MachineRunState
+	 */
+	public MachineRunState resumeWithInput(String input, int maxSteps) {
+		return resumeWithInput(input, maxSteps, 0);
+	}
+
+	/**
+	 * Resumes from an input state using the specified Unicode input string and
+	 * runs with a step and time budget.
+	 * 
+	 * @param input
+	 *            the Unicode input string
+	 * @param maxSteps
+	 *            the maximum number of instructions to execute
+	 * @param timeSlice
+	 *            the maximum number of milliseconds to run, 0 for no limit
+	 * @return the new MachineRunState
+	 */
+	public MachineRunState resumeWithInput(String input, int maxSteps, long timeSlice) {
+		inputStream.addInputLine(convertToZsciiInputLine(input));
+		return run(maxSteps, timeSlice);
+	}
+
 	/**
 	 * Resumes from an input state to the run state using the specified Unicode
 	 * input string.
@@ -327,11 +548,10 @@ public class ExecutionControl implements Serializable {
 	public char callInterrupt(final char routineAddress) {
 		interruptDidOutput = false;
 		final int originalRoutineStackSize = machine.getRoutineContexts().size();
-		final RoutineContext routineContext = machine.call(routineAddress, machine.getPC(), new char[0],
-				RoutineContext.DISCARD_RESULT);
+		machine.call(routineAddress, machine.getPC(), new char[0], RoutineContext.DISCARD_RESULT);
 
 		for (;;) {
-			final Instruction instr = instructionDecoder.decodeInstruction(machine.getPC());
+			final Instruction instr = instructionCache.getInstruction(machine.getPC());
 			instr.execute();
 			// check if something was printed
 			if (instr.isOutput()) {
@@ -341,6 +561,9 @@ public class ExecutionControl implements Serializable {
 				break;
 			}
 		}
-		return routineContext.getReturnValue();
+		// interrupt routines are not counted as steps, whether they were
+		// interpreted or compiled
+		routineCompiler.takeNumExecuted();
+		return machine.getLastReturnValue();
 	}
 }
@@ -28,6 +28,8 @@
  */
 package org.zmpp.base;
 
+import java.nio.ByteBuffer;
+
 /**
  * This class is the default implementation for MemoryAccess.
  * 
@@ -82,15 +84,35 @@ public class DefaultMemory implements Memory {
 
 	/** {@inheritDoc} */
 	public void copyBytesFromMemory(Memory srcMem, int srcOffset, int dstOffset, int numBytes) {
-		// This copy method might not be as efficient, because the source
-		// memory object could be based on something else than a byte array
-		for (int i = 0; i < numBytes; i++) {
-			data[dstOffset + i] = (byte) (srcMem.readUnsigned8(srcOffset + i) & 0xff);
-		}
+		srcMem.copyBytesToArray(data, dstOffset, srcOffset, numBytes);
 	}
 
 	/** {@inheritDoc} */
 	public void copyArea(int src, int dst, int numBytes) {
 		System.arraycopy(data, src, data, dst, numBytes);
 	}
+
+	/**
+	 * Returns the data array, so that other memories in this package can read
+	 * it without a method call per access. The array must not be modified.
+	 * 
+	 * @return the data array
+	 */
+	byte[] getData() {
+		return data;
+	}
+
+	/**
+	 * Returns a read-only view on the specified range. The view shares the
+	 * data with this memory, nothing is copied.
+	 * 
+	 * @param offset
+	 *            the start of the range
+	 * @param length
+	 *            the length of the range
+	 * @return the ByteBuffer view, positioned at 0
+	 */
+	public ByteBuffer getByteBuffer(final int offset, final int length) {
+		return ByteBuffer.wrap(data, offset, length).slice().asReadOnlyBuffer();
+	}
 }
@@ -0,0 +1,126 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.base;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only Memory that is backed by a ByteBuffer, typically a
+ * MappedByteBuffer of a story or Blorb file. Mapped files are held by the
+ * operating system's page cache, so they neither occupy the heap nor need to
+ * be read completely before they can be used, and several machines that map
+ * the same file share a single copy.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class MappedMemory implements Memory {
+
+	/** The data buffer, only accessed with absolute positions. */
+	private ByteBuffer buffer;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param buffer
+	 *            the data buffer
+	 */
+	public MappedMemory(final ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Returns the size of this memory.
+	 * 
+	 * @return the size in bytes
+	 */
+	public int getSize() {
+		return buffer.limit();
+	}
+
+	/** {@inheritDoc} */
+	public char readUnsigned16(final int address) {
+		return (char) (((buffer.get(address) & 0xff) << 8 | (buffer.get(address + 1) & 0xff)) & 0xffff);
+	}
+
+	/** {@inheritDoc} */
+	public char readUnsigned8(final int address) {
+		return (char) (buffer.get(address) & 0xff);
+	}
+
+	/** {@inheritDoc} */
+	public void writeUnsigned16(final int address, final char value) {
+		throw new UnsupportedOperationException("write to read-only memory at " + address);
+	}
+
+	/** {@inheritDoc} */
+	public void writeUnsigned8(final int address, final char value) {
+		throw new UnsupportedOperationException("write to read-only memory at " + address);
+	}
+
+	/** {@inheritDoc} */
+	public void copyBytesToArray(byte[] dstData, int dstOffset, int srcOffset, int numBytes) {
+		// work on a duplicate, so concurrent readers do not share a position
+		final ByteBuffer src = buffer.duplicate();
+		((Buffer) src).position(srcOffset);
+		src.get(dstData, dstOffset, numBytes);
+	}
+
+	/** {@inheritDoc} */
+	public void copyBytesFromArray(byte[] srcData, int srcOffset, int dstOffset, int numBytes) {
+		throw new UnsupportedOperationException("write to read-only memory at " + dstOffset);
+	}
+
+	/** {@inheritDoc} */
+	public void copyBytesFromMemory(Memory srcMem, int srcOffset, int dstOffset, int numBytes) {
+		throw new UnsupportedOperationException("write to read-only memory at " + dstOffset);
+	}
+
+	/** {@inheritDoc} */
+	public void copyArea(int src, int dst, int numBytes) {
+		throw new UnsupportedOperationException("write to read-only memory at " + dst);
+	}
+
+	/**
+	 * Returns a read-only view on the specified range.
+	 * 
+	 * @param offset
+	 *            the start of the range
+	 * @param length
+	 *            the length of the range
+	 * @return the ByteBuffer view, positioned at 0
+	 */
+	public ByteBuffer getByteBuffer(final int offset, final int length) {
+		final ByteBuffer view = buffer.duplicate();
+		((Buffer) view).limit(offset + length);
+		((Buffer) view).position(offset);
+		return view.slice().asReadOnlyBuffer();
+	}
+}
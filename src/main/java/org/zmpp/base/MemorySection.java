@@ -28,6 +28,8 @@
  */
 package org.zmpp.base;
 
+import java.nio.ByteBuffer;
+
 /**
  * A MemorySection object wraps a Memory object, a length and a start to support
  * subsections within memory. All access functions will be relative to the
@@ -106,4 +108,18 @@ public class MemorySection implements Memory {
 	public void copyArea(int src, int dst, int numBytes) {
 		memory.copyArea(src + start, dst + start, numBytes);
 	}
+
+	/**
+	 * Returns a read-only view on the specified range of this section. The
+	 * data is only copied if the wrapped memory can not provide a view.
+	 * 
+	 * @param offset
+	 *            the start of the range relative to the section start
+	 * @param numBytes
+	 *            the length of the range
+	 * @return the ByteBuffer, positioned at 0
+	 */
+	public ByteBuffer getByteBuffer(final int offset, final int numBytes) {
+		return MemoryUtil.toByteBuffer(memory, offset + start, numBytes);
+	}
 }
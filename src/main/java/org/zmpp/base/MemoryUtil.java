@@ -28,6 +28,8 @@
  */
 package org.zmpp.base;
 
+import java.nio.ByteBuffer;
+
 /**
  * Utility functions for address conversion.
  * 
@@ -40,6 +42,32 @@ public final class MemoryUtil {
 	private MemoryUtil() {
 	}
 
+	/**
+	 * Returns the specified range of a Memory object as a read-only
+	 * ByteBuffer. Memory objects that are backed by an array or a buffer
+	 * return a view, others are copied.
+	 * 
+	 * @param memory
+	 *            the Memory object
+	 * @param offset
+	 *            the start of the range
+	 * @param length
+	 *            the length of the range
+	 * @return the ByteBuffer, positioned at 0
+	 */
+	public static ByteBuffer toByteBuffer(final Memory memory, final int offset, final int length) {
+		if (memory instanceof DefaultMemory) {
+			return ((DefaultMemory) memory).getByteBuffer(offset, length);
+		} else if (memory instanceof MemorySection) {
+			return ((MemorySection) memory).getByteBuffer(offset, length);
+		} else if (memory instanceof MappedMemory) {
+			return ((MappedMemory) memory).getByteBuffer(offset, length);
+		}
+		final byte[] data = new byte[length];
+		memory.copyBytesToArray(data, 0, offset, length);
+		return ByteBuffer.wrap(data).asReadOnlyBuffer();
+	}
+
 	/**
 	 * Convert an integer value to a char, which is an unsigned 16 bit value.
 	 * 
@@ -0,0 +1,238 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.base;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DefaultMemory that supports cheap snapshots of a tracked region at the
+ * start of memory, which in practice is the story's dynamic memory. Taking a
+ * snapshot does not copy anything. Instead, the first write to a page after a
+ * snapshot was taken saves the page's previous contents to the newest
+ * snapshot, so a snapshot only holds the pages that were modified while it was
+ * the newest one. Restoring writes the saved pages back in place.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class SnapshotMemory extends DefaultMemory {
+
+	/** The number of address bits within a page. */
+	public static final int PAGE_BITS = 8;
+
+	/** The page size in bytes. */
+	public static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+	private int trackedSize;
+	private int numPages;
+
+	/** The snapshots, oldest first. */
+	private List<byte[][]> snapshots = new ArrayList<byte[][]>();
+
+	/** The newest snapshot, which receives the pages written from now on. */
+	private byte[][] current;
+
+	/** The number of bytes held by all snapshots. */
+	private int snapshotBytes;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param data
+	 *            the story file data
+	 * @param trackedSize
+	 *            the size of the region at the start of memory that is covered
+	 *            by snapshots
+	 */
+	public SnapshotMemory(final byte[] data, final int trackedSize) {
+		super(data);
+		this.trackedSize = trackedSize;
+		this.numPages = (trackedSize + PAGE_SIZE - 1) >> PAGE_BITS;
+	}
+
+	/**
+	 * Takes a snapshot of the tracked region.
+	 */
+	public void takeSnapshot() {
+		current = new byte[numPages][];
+		snapshots.add(current);
+	}
+
+	/**
+	 * Restores the tracked region to the state of the newest snapshot and
+	 * removes that snapshot.
+	 * 
+	 * @return true if a snapshot was restored, false if there was none
+	 */
+	public boolean restoreSnapshot() {
+		if (snapshots.isEmpty()) {
+			return false;
+		}
+		final byte[][] pages = snapshots.remove(snapshots.size() - 1);
+		current = snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+		for (int page = 0; page < numPages; page++) {
+			if (pages[page] != null) {
+				// bypass the write barrier, the restored contents are already
+				// saved in the previous snapshot if they need to be
+				super.copyBytesFromArray(pages[page], 0, page << PAGE_BITS, pages[page].length);
+				snapshotBytes -= pages[page].length;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Discards the oldest snapshot. The remaining snapshots can still be
+	 * restored.
+	 */
+	public void discardOldestSnapshot() {
+		if (!snapshots.isEmpty()) {
+			snapshotBytes -= countBytes(snapshots.remove(0));
+			if (snapshots.isEmpty()) {
+				current = null;
+			}
+		}
+	}
+
+	/**
+	 * Discards all snapshots.
+	 */
+	public void clearSnapshots() {
+		snapshots.clear();
+		current = null;
+		snapshotBytes = 0;
+	}
+
+	/**
+	 * Returns the number of snapshots.
+	 * 
+	 * @return the number of snapshots
+	 */
+	public int getNumSnapshots() {
+		return snapshots.size();
+	}
+
+	/**
+	 * Returns the number of bytes held by the saved pages of all snapshots.
+	 * 
+	 * @return the number of bytes
+	 */
+	public int getSnapshotBytes() {
+		return snapshotBytes;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void writeUnsigned16(final int address, final char value) {
+		if (current != null) {
+			savePages(address, 2);
+		}
+		super.writeUnsigned16(address, value);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void writeUnsigned8(final int address, final char value) {
+		if (current != null) {
+			savePages(address, 1);
+		}
+		super.writeUnsigned8(address, value);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void copyBytesFromArray(byte[] srcData, int srcOffset, int dstOffset, int numBytes) {
+		if (current != null) {
+			savePages(dstOffset, numBytes);
+		}
+		super.copyBytesFromArray(srcData, srcOffset, dstOffset, numBytes);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void copyBytesFromMemory(Memory srcMem, int srcOffset, int dstOffset, int numBytes) {
+		if (current != null) {
+			savePages(dstOffset, numBytes);
+		}
+		super.copyBytesFromMemory(srcMem, srcOffset, dstOffset, numBytes);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void copyArea(int src, int dst, int numBytes) {
+		if (current != null) {
+			savePages(dst, numBytes);
+		}
+		super.copyArea(src, dst, numBytes);
+	}
+
+	/**
+	 * Saves the pages in the specified range to the newest snapshot unless they
+	 * were already saved there.
+	 * 
+	 * @param address
+	 *            the start address of the write
+	 * @param numBytes
+	 *            the number of bytes to be written
+	 */
+	private void savePages(final int address, final int numBytes) {
+		final int end = Math.min(address + numBytes, trackedSize);
+		if (address < 0 || address >= end) {
+			return;
+		}
+		final int lastPage = (end - 1) >> PAGE_BITS;
+		for (int page = address >> PAGE_BITS; page <= lastPage; page++) {
+			if (current[page] == null) {
+				final int pageStart = page << PAGE_BITS;
+				final byte[] contents = new byte[Math.min(PAGE_SIZE, trackedSize - pageStart)];
+				copyBytesToArray(contents, 0, pageStart, contents.length);
+				current[page] = contents;
+				snapshotBytes += contents.length;
+			}
+		}
+	}
+
+	/**
+	 * Counts the saved bytes in a snapshot.
+	 * 
+	 * @param pages
+	 *            the snapshot pages
+	 * @return the number of bytes
+	 */
+	private static int countBytes(final byte[][] pages) {
+		int result = 0;
+		for (byte[] page : pages) {
+			if (page != null) {
+				result += page.length;
+			}
+		}
+		return result;
+	}
+}
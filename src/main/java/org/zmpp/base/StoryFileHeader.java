@@ -45,6 +45,7 @@ public interface StoryFileHeader {
 	int OBJECT_TABLE = 0x0a;
 	int GLOBALS = 0x0c;
 	int STATIC_MEM = 0x0e;
+	int FLAGS2 = 0x10; // 16 bit
 	int ABBREVIATIONS = 0x18;
 	int CHECKSUM = 0x1c;
 	int INTERPRETER_NUMBER = 0x1e;
@@ -0,0 +1,246 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.base;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A process-wide registry of story images. Story images are never modified,
+ * so all machines that run the same story can share a single image and only
+ * need a private copy of dynamic memory. Images are looked up by the story's
+ * checksum, release, serial number and file length, and a registered image is
+ * only shared if the digest of its contents equals the digest of the acquired
+ * story, since patched builds or stories without a checksum can have the same
+ * header. The digest is computed before the registry is locked, so sessions
+ * that start at the same time do not wait for each other. Images are
+ * reference counted: an image is dropped from the registry when the last
+ * machine releases it.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public final class StoryImages {
+
+	/** The header address of the serial number. */
+	private static final int SERIAL_NUMBER = 0x12;
+
+	/** The header address of the file length. */
+	private static final int FILE_LENGTH = 0x1a;
+
+	/** The size of the buffer the contents are digested in. */
+	private static final int DIGEST_BUFFER_SIZE = 8192;
+
+	/**
+	 * Identifies a story by its header.
+	 */
+	private static class StoryKey {
+		private int checksum;
+		private int release;
+		private int fileLength;
+		private byte[] serial = new byte[6];
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param image
+		 *            the story image
+		 */
+		public StoryKey(final Memory image) {
+			checksum = image.readUnsigned16(StoryFileHeader.CHECKSUM);
+			release = image.readUnsigned16(StoryFileHeader.RELEASE);
+			fileLength = image.readUnsigned16(FILE_LENGTH);
+			image.copyBytesToArray(serial, 0, SERIAL_NUMBER, serial.length);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof StoryKey)) {
+				return false;
+			}
+			final StoryKey key = (StoryKey) o;
+			return checksum == key.checksum && release == key.release && fileLength == key.fileLength
+					&& Arrays.equals(serial, key.serial);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int hashCode() {
+			return ((checksum * 31 + release) * 31 + fileLength) * 31 + Arrays.hashCode(serial);
+		}
+	}
+
+	/**
+	 * A registered image and its number of references.
+	 */
+	private static class Entry {
+		private Memory image;
+		private byte[] digest;
+		private int refCount;
+	}
+
+	private static Map<StoryKey, Entry> images = new HashMap<StoryKey, Entry>();
+
+	/** This class only contains static methods. */
+	private StoryImages() {
+	}
+
+	/**
+	 * Acquires the shared image for the specified story data. If an image of
+	 * the same story is registered, that image is returned and the specified
+	 * data can be discarded by the caller. Otherwise the data is registered as
+	 * the shared image, unless a different story with the same header is
+	 * registered, in which case the data is returned without being shared.
+	 * 
+	 * @param storyData
+	 *            the story data
+	 * @return the shared image
+	 */
+	public static Memory acquire(final Memory storyData) {
+		final StoryKey key = new StoryKey(storyData);
+		final byte[] digest = digest(storyData);
+		synchronized (StoryImages.class) {
+			Entry entry = images.get(key);
+			if (entry == null) {
+				entry = new Entry();
+				entry.image = storyData;
+				entry.digest = digest;
+				images.put(key, entry);
+			} else if (digest == null || !Arrays.equals(entry.digest, digest)) {
+				return storyData;
+			}
+			entry.refCount++;
+			return entry.image;
+		}
+	}
+
+	/**
+	 * Returns the length of the story. It is the length specified in the
+	 * header, but never more than the size of the data.
+	 * 
+	 * @param image
+	 *            the story image
+	 * @return the length in bytes, 0 if it is unknown
+	 */
+	private static int getStoryLength(final Memory image) {
+		final int size = getSize(image);
+		final int fileLength = new DefaultStoryFileHeader(image).getFileLength();
+		if (fileLength == 0) {
+			// early stories do not specify their length
+			return size == Integer.MAX_VALUE ? 0 : size;
+		}
+		return Math.min(fileLength, size);
+	}
+
+	/**
+	 * Returns the size of the data of the specified memory.
+	 * 
+	 * @param memory
+	 *            the memory
+	 * @return the size in bytes, Integer.MAX_VALUE if it is unknown
+	 */
+	private static int getSize(final Memory memory) {
+		if (memory instanceof DefaultMemory) {
+			return ((DefaultMemory) memory).getData().length;
+		} else if (memory instanceof MappedMemory) {
+			return ((MappedMemory) memory).getSize();
+		} else if (memory instanceof MemorySection) {
+			return ((MemorySection) memory).getLength();
+		}
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Computes the digest of the story's contents.
+	 * 
+	 * @param image
+	 *            the story image
+	 * @return the digest, null if the length of the story is unknown
+	 */
+	private static byte[] digest(final Memory image) {
+		final int numBytes = getStoryLength(image);
+		if (numBytes == 0) {
+			return null;
+		}
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(ex);
+		}
+		final byte[] buffer = new byte[Math.min(numBytes, DIGEST_BUFFER_SIZE)];
+		for (int offset = 0; offset < numBytes; offset += buffer.length) {
+			final int length = Math.min(buffer.length, numBytes - offset);
+			image.copyBytesToArray(buffer, 0, offset, length);
+			digest.update(buffer, 0, length);
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Releases a shared image that was returned by acquire(). Machines that
+	 * still hold the image can continue to use it.
+	 * 
+	 * @param image
+	 *            the shared image
+	 */
+	public static synchronized void release(final Memory image) {
+		final StoryKey key = new StoryKey(image);
+		final Entry entry = images.get(key);
+		if (entry != null && entry.image == image && --entry.refCount == 0) {
+			images.remove(key);
+		}
+	}
+
+	/**
+	 * Returns the number of references to the specified image.
+	 * 
+	 * @param image
+	 *            the image
+	 * @return the number of references, 0 if the image is not registered
+	 */
+	public static synchronized int getReferenceCount(final Memory image) {
+		final Entry entry = images.get(new StoryKey(image));
+		return (entry != null && entry.image == image) ? entry.refCount : 0;
+	}
+
+	/**
+	 * Returns the number of registered images.
+	 * 
+	 * @return the number of images
+	 */
+	public static synchronized int getNumImages() {
+		return images.size();
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.base;
+
+/**
+ * The memory of a running story. Addresses below the size of the dynamic
+ * segment are routed to the dynamic segment, which is the only writable
+ * part. All other addresses are routed to the story image, which holds the
+ * original story file and is never modified, so it can be a read-only
+ * mapping of the file.
+ * 
+ * Memory that is backed by an array, such as the dynamic segment, is read from
+ * the array directly, so the reads on the interpreter's hot paths do not pay
+ * for the routing with an additional call.
+ * 
+ * Writes to static or high memory are forbidden by the standard. Other
+ * interpreters report them as a fatal error, and since the story image can be
+ * shared with other machines, they raise an IllegalArgumentException here
+ * instead of modifying the image.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class StoryMemory implements Memory {
+
+	private final Memory dynamicMemory;
+	private final Memory storyImage;
+	private final int dynamicSize;
+
+	/** The arrays behind the segments, null if a segment has none. */
+	private final byte[] dynamicData;
+	private final byte[] imageData;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param dynamicMemory
+	 *            the dynamic segment, starting at address 0
+	 * @param dynamicSize
+	 *            the size of the dynamic segment
+	 * @param storyImage
+	 *            the original story file
+	 */
+	public StoryMemory(final Memory dynamicMemory, final int dynamicSize, final Memory storyImage) {
+		this.dynamicMemory = dynamicMemory;
+		this.dynamicSize = dynamicSize;
+		this.storyImage = storyImage;
+		this.dynamicData = getData(dynamicMemory);
+		this.imageData = getData(storyImage);
+	}
+
+	/**
+	 * Returns the array behind the specified memory.
+	 * 
+	 * @param memory
+	 *            the memory
+	 * @return the array or null if the memory is not backed by an array
+	 */
+	private static byte[] getData(final Memory memory) {
+		return (memory instanceof DefaultMemory) ? ((DefaultMemory) memory).getData() : null;
+	}
+
+	/** {@inheritDoc} */
+	public char readUnsigned16(final int address) {
+		if (address + 1 < dynamicSize) {
+			if (dynamicData != null) {
+				return (char) ((dynamicData[address] & 0xff) << 8 | (dynamicData[address + 1] & 0xff));
+			}
+			return dynamicMemory.readUnsigned16(address);
+		} else if (address >= dynamicSize) {
+			if (imageData != null) {
+				return (char) ((imageData[address] & 0xff) << 8 | (imageData[address + 1] & 0xff));
+			}
+			return storyImage.readUnsigned16(address);
+		}
+		// the word spans both segments
+		return (char) ((readUnsigned8(address) << 8) | readUnsigned8(address + 1));
+	}
+
+	/** {@inheritDoc} */
+	public char readUnsigned8(final int address) {
+		if (address < dynamicSize) {
+			return dynamicData != null ? (char) (dynamicData[address] & 0xff) : dynamicMemory.readUnsigned8(address);
+		}
+		return imageData != null ? (char) (imageData[address] & 0xff) : storyImage.readUnsigned8(address);
+	}
+
+	/** {@inheritDoc} */
+	public void writeUnsigned16(final int address, final char value) {
+		checkWritable(address, 2);
+		dynamicMemory.writeUnsigned16(address, value);
+	}
+
+	/** {@inheritDoc} */
+	public void writeUnsigned8(final int address, final char value) {
+		checkWritable(address, 1);
+		dynamicMemory.writeUnsigned8(address, value);
+	}
+
+	/** {@inheritDoc} */
+	public void copyBytesToArray(byte[] dstData, int dstOffset, int srcOffset, int numBytes) {
+		final int numDynamic = Math.max(0, Math.min(numBytes, dynamicSize - srcOffset));
+		if (numDynamic > 0) {
+			dynamicMemory.copyBytesToArray(dstData, dstOffset, srcOffset, numDynamic);
+		}
+		if (numDynamic < numBytes) {
+			storyImage.copyBytesToArray(dstData, dstOffset + numDynamic, srcOffset + numDynamic,
+					numBytes - numDynamic);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void copyBytesFromArray(byte[] srcData, int srcOffset, int dstOffset, int numBytes) {
+		checkWritable(dstOffset, numBytes);
+		dynamicMemory.copyBytesFromArray(srcData, srcOffset, dstOffset, numBytes);
+	}
+
+	/** {@inheritDoc} */
+	public void copyBytesFromMemory(Memory srcMem, int srcOffset, int dstOffset, int numBytes) {
+		checkWritable(dstOffset, numBytes);
+		dynamicMemory.copyBytesFromMemory(srcMem, srcOffset, dstOffset, numBytes);
+	}
+
+	/** {@inheritDoc} */
+	public void copyArea(int src, int dst, int numBytes) {
+		checkWritable(dst, numBytes);
+		if (src + numBytes <= dynamicSize) {
+			dynamicMemory.copyArea(src, dst, numBytes);
+		} else {
+			final byte[] buffer = new byte[numBytes];
+			copyBytesToArray(buffer, 0, src, numBytes);
+			dynamicMemory.copyBytesFromArray(buffer, 0, dst, numBytes);
+		}
+	}
+
+	/**
+	 * Verifies that the specified range lies within the dynamic segment.
+	 * 
+	 * @param address
+	 *            the start address
+	 * @param numBytes
+	 *            the number of bytes
+	 */
+	private void checkWritable(final int address, final int numBytes) {
+		if (address + numBytes > dynamicSize) {
+			throw new IllegalArgumentException(
+					String.format("write to static memory at $%04x, dynamic memory ends at $%04x", address,
+							dynamicSize));
+		}
+	}
+}
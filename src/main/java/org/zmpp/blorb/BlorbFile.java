@@ -28,6 +28,8 @@
  */
 package org.zmpp.blorb;
 
+import org.zmpp.base.Memory;
+import org.zmpp.base.MemorySection;
 import org.zmpp.iff.Chunk;
 import org.zmpp.iff.FormChunk;
 
@@ -51,6 +53,17 @@ public class BlorbFile {
 		this.formChunk = formchunk;
 	}
 
+	/**
+	 * Returns the story data contained in the Blorb as a view into the Blorb's
+	 * memory, so the data is not copied.
+	 * 
+	 * @return the story data
+	 */
+	public Memory getStoryMemory() {
+		final Chunk chunk = formChunk.getSubChunk("ZCOD");
+		return new MemorySection(chunk.getMemory(), Chunk.CHUNK_HEADER_LENGTH, chunk.getSize());
+	}
+
 	/**
 	 * Returns the story data contained in the Blorb.
 	 * 
@@ -276,6 +276,8 @@ public class BlorbImage implements ZmppImage {
 	private NativeImage image;
 	private Resolution resolution;
 	private ScaleInfo scaleinfo;
+	private BlorbImages source;
+	private int resourceNumber;
 
 	/**
 	 * Constructor.
@@ -300,11 +302,32 @@ public class BlorbImage implements ZmppImage {
 	}
 
 	/**
-	 * Returns the wrapped NativeImage.
+	 * Constructor for an image that is decoded on demand by the specified
+	 * collection.
+	 * 
+	 * @param source
+	 *            the collection that decodes the image
+	 * @param resourceNumber
+	 *            the resource number
+	 * @param resolution
+	 *            the image size, or null if it is only known after decoding
+	 */
+	BlorbImage(BlorbImages source, int resourceNumber, Resolution resolution) {
+		this.source = source;
+		this.resourceNumber = resourceNumber;
+		this.resolution = resolution;
+	}
+
+	/**
+	 * Returns the wrapped NativeImage. Images that are decoded on demand are
+	 * decoded here if they are not cached.
 	 * 
 	 * @return NativeImage
 	 */
 	public NativeImage getImage() {
+		if (image == null && source != null) {
+			return source.decodeImage(resourceNumber);
+		}
 		return image;
 	}
 
@@ -327,21 +350,32 @@ public class BlorbImage implements ZmppImage {
 	 * @return the scaled size
 	 */
 	public Resolution getSize(int screenwidth, int screenheight) {
+		final Resolution size = getOriginalSize();
 		if (scaleinfo != null) {
 			float ratio = scaleinfo.computeScaleRatio(screenwidth, screenheight);
-			if (image != null) {
-				return new Resolution((int) (image.getWidth() * ratio), (int) (image.getHeight() * ratio));
-
-			} else {
-				return new Resolution((int) (resolution.getWidth() * ratio), (int) (resolution.getHeight() * ratio));
-			}
+			return new Resolution((int) (size.getWidth() * ratio), (int) (size.getHeight() * ratio));
 		} else {
-			if (image != null) {
-				return new Resolution(image.getWidth(), image.getHeight());
-			} else {
-				return new Resolution(resolution.getWidth(), resolution.getHeight());
-			}
+			return new Resolution(size.getWidth(), size.getHeight());
+		}
+	}
+
+	/**
+	 * Returns the unscaled size of the image. Images that are decoded on
+	 * demand only need to be decoded if their size could not be determined
+	 * from the image header.
+	 * 
+	 * @return the unscaled size
+	 */
+	private Resolution getOriginalSize() {
+		if (image != null) {
+			return new Resolution(image.getWidth(), image.getHeight());
+		}
+		if (resolution == null) {
+			final NativeImage decoded = getImage();
+			resolution = (decoded == null) ? new Resolution(0, 0)
+					: new Resolution(decoded.getWidth(), decoded.getHeight());
 		}
+		return resolution;
 	}
 
 	/**
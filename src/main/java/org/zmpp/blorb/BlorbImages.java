@@ -32,6 +32,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.logging.Logger;
 
 import org.zmpp.base.Memory;
 import static org.zmpp.base.MemoryUtil.readUnsigned32;
@@ -41,6 +42,7 @@ import org.zmpp.blorb.BlorbImage.ScaleInfo;
 import org.zmpp.iff.Chunk;
 import org.zmpp.iff.FormChunk;
 import org.zmpp.media.Resolution;
+import org.zmpp.vmutil.LruCache;
 
 /**
  * This class implements the Image collection.
@@ -50,11 +52,29 @@ import org.zmpp.media.Resolution;
  */
 public class BlorbImages extends BlorbMediaCollection<BlorbImage> {
 
+	private static final Logger LOG = Logger.getLogger("org.zmpp");
+
+	/** The default number of bytes the decoded images may occupy. */
+	public static final int DEFAULT_CACHE_SIZE = 16 * 1024 * 1024;
+
+	/** The number of bytes a decoded pixel is assumed to occupy. */
+	private static final int BYTES_PER_PIXEL = 4;
+
 	/**
 	 * This map implements the image database.
 	 */
 	private Map<Integer, BlorbImage> images;
 
+	/**
+	 * The picture chunks, images are decoded from these on demand.
+	 */
+	private Map<Integer, Chunk> pictureChunks;
+
+	/**
+	 * The decoded images.
+	 */
+	private LruCache<Integer, NativeImage> decodedImages;
+
 	/**
 	 * Constructor.
 	 * 
@@ -64,7 +84,22 @@ public class BlorbImages extends BlorbMediaCollection<BlorbImage> {
 	 *            the form chunk
 	 */
 	public BlorbImages(NativeImageFactory imageFactory, FormChunk formchunk) {
+		this(imageFactory, formchunk, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param imageFactory
+	 *            the NativeImageFactory object
+	 * @param formchunk
+	 *            the form chunk
+	 * @param cacheSize
+	 *            the number of bytes the decoded images may occupy
+	 */
+	public BlorbImages(NativeImageFactory imageFactory, FormChunk formchunk, int cacheSize) {
 		super(imageFactory, null, formchunk);
+		decodedImages = new LruCache<Integer, NativeImage>(cacheSize);
 		handleResoChunk();
 	}
 
@@ -75,6 +110,10 @@ public class BlorbImages extends BlorbMediaCollection<BlorbImage> {
 	public void clear() {
 		super.clear();
 		images.clear();
+		pictureChunks.clear();
+		synchronized (this) {
+			decodedImages.clear();
+		}
 	}
 
 	/**
@@ -82,6 +121,65 @@ public class BlorbImages extends BlorbMediaCollection<BlorbImage> {
 	 */
 	protected void initDatabase() {
 		images = new HashMap<Integer, BlorbImage>();
+		pictureChunks = new HashMap<Integer, Chunk>();
+	}
+
+	/**
+	 * Decodes the specified picture into the image cache.
+	 * 
+	 * @param resourcenumber
+	 *            the resource number
+	 */
+	@Override
+	public void loadResource(final int resourcenumber) {
+		if (pictureChunks.containsKey(resourcenumber)) {
+			decodeImage(resourcenumber);
+		}
+	}
+
+	/**
+	 * Removes the specified picture from the image cache.
+	 * 
+	 * @param resourcenumber
+	 *            the resource number
+	 */
+	@Override
+	public synchronized void unloadResource(final int resourcenumber) {
+		decodedImages.remove(resourcenumber);
+	}
+
+	/**
+	 * Returns the number of bytes the decoded images in the cache occupy.
+	 * 
+	 * @return the number of bytes
+	 */
+	public synchronized long getCacheSize() {
+		return decodedImages.getSize();
+	}
+
+	/**
+	 * Returns the decoded image for the specified picture. The image is taken
+	 * from the cache or decoded from the picture chunk.
+	 * 
+	 * @param resourcenumber
+	 *            the resource number
+	 * @return the decoded image or null if it could not be decoded
+	 */
+	synchronized NativeImage decodeImage(final int resourcenumber) {
+		NativeImage image = decodedImages.get(resourcenumber);
+		if (image == null) {
+			final Chunk chunk = pictureChunks.get(resourcenumber);
+			final InputStream is = new MemoryInputStream(chunk.getMemory(), Chunk.CHUNK_HEADER_LENGTH,
+					chunk.getSize() + Chunk.CHUNK_HEADER_LENGTH);
+			try {
+				image = imageFactory.createImage(is);
+			} catch (IOException ex) {
+				LOG.warning("could not decode picture " + resourcenumber + ": " + ex.getMessage());
+				return null;
+			}
+			decodedImages.put(resourcenumber, image, image.getWidth() * image.getHeight() * BYTES_PER_PIXEL);
+		}
+		return image;
 	}
 
 	/**
@@ -131,7 +229,8 @@ public class BlorbImages extends BlorbMediaCollection<BlorbImage> {
 	}
 
 	/**
-	 * Processes the picture contained in the specified chunk.
+	 * Processes the picture contained in the specified chunk. The picture is
+	 * not decoded here, only its size is read from the image header.
 	 * 
 	 * @param chunk
 	 *            the Chunk
@@ -140,16 +239,61 @@ public class BlorbImages extends BlorbMediaCollection<BlorbImage> {
 	 * @return true if successful, false otherwise
 	 */
 	private boolean handlePicture(final Chunk chunk, final int resnum) {
-		final InputStream is = new MemoryInputStream(chunk.getMemory(), Chunk.CHUNK_HEADER_LENGTH,
-				chunk.getSize() + Chunk.CHUNK_HEADER_LENGTH);
-		try {
-			images.put(resnum, new BlorbImage(imageFactory.createImage(is)));
-			return true;
-		} catch (IOException ex) {
+		pictureChunks.put(resnum, chunk);
+		images.put(resnum, new BlorbImage(this, resnum, readImageSize(chunk)));
+		return true;
+	}
 
-			ex.printStackTrace();
+	/**
+	 * Reads the image size from the header of a PNG or JPEG picture.
+	 * 
+	 * @param chunk
+	 *            the picture chunk
+	 * @return the size or null if it could not be determined
+	 */
+	private static Resolution readImageSize(final Chunk chunk) {
+		final Memory memory = chunk.getMemory();
+		final int start = Chunk.CHUNK_HEADER_LENGTH;
+		final int end = start + chunk.getSize();
+		if ("PNG ".equals(chunk.getId()) && end >= start + 24) {
+			// the IHDR chunk always follows the 8 byte signature
+			return new Resolution((int) readUnsigned32(memory, start + 16), (int) readUnsigned32(memory, start + 20));
+		} else if ("JPEG".equals(chunk.getId())) {
+			return readJpegSize(memory, start, end);
 		}
-		return false;
+		return null;
+	}
+
+	/**
+	 * Reads the image size from the start of frame segment of a JPEG picture.
+	 * 
+	 * @param memory
+	 *            the chunk memory
+	 * @param start
+	 *            the start of the JPEG data
+	 * @param end
+	 *            the end of the JPEG data
+	 * @return the size or null if it could not be determined
+	 */
+	private static Resolution readJpegSize(final Memory memory, final int start, final int end) {
+		// skip the start of image marker
+		int offset = start + 2;
+		while (offset + 9 <= end) {
+			if (memory.readUnsigned8(offset) != 0xff) {
+				return null;
+			}
+			final int marker = memory.readUnsigned8(offset + 1);
+			if (marker == 0xff) {
+				// fill byte
+				offset++;
+			} else if (marker >= 0xc0 && marker <= 0xcf && marker != 0xc4 && marker != 0xc8 && marker != 0xcc) {
+				// start of frame: length, precision, height, width
+				return new Resolution(memory.readUnsigned16(offset + 7), memory.readUnsigned16(offset + 5));
+			} else {
+				offset += 2 + memory.readUnsigned16(offset + 2);
+			}
+		}
+		return null;
 	}
 
 	/**
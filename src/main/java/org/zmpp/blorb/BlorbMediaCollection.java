@@ -133,14 +133,14 @@ public abstract class BlorbMediaCollection<T> implements MediaCollection<T> {
 	 * {@inheritDoc}
 	 */
 	public void loadResource(final int resourcenumber) {
-		// intentionally left empty for possible future use
+		// collections that cache their resources override this
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public void unloadResource(final int resourcenumber) {
-		// intentionally left empty for possible future use
+		// collections that cache their resources override this
 	}
 
 	/**
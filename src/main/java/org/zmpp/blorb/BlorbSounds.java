@@ -30,23 +30,42 @@ package org.zmpp.blorb;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.logging.Logger;
 
 import org.zmpp.iff.Chunk;
 import org.zmpp.iff.FormChunk;
 import org.zmpp.media.SoundEffect;
+import org.zmpp.vmutil.LruCache;
 
 /**
- * This class implements the Blorb sound collection.
+ * This class implements the Blorb sound collection. Sound effects are created
+ * from their chunks on first use. Short sounds, which a SoundEffectFactory may
+ * decode completely, are kept in a cache that is bounded by the size of their
+ * chunks, longer sounds are created for each use and are expected to be
+ * streamed.
  *
  * @author Wei-ju Wu
  * @version 1.5
  */
 public class BlorbSounds extends BlorbMediaCollection<SoundEffect> {
 
+	private static final Logger LOG = Logger.getLogger("org.zmpp");
+
+	/** The default number of bytes the cached sounds may occupy. */
+	public static final int DEFAULT_CACHE_SIZE = 4 * 1024 * 1024;
+
+	/** The maximum chunk size of a sound that is cached. */
+	public static final int MAX_CACHED_SIZE = 256 * 1024;
+
+	/**
+	 * The sound chunks, sound effects are created from these on demand.
+	 */
+	private Map<Integer, Chunk> soundChunks;
+
 	/**
-	 * This map implements the database.
+	 * The created short sound effects.
 	 */
-	private Map<Integer, SoundEffect> sounds;
+	private LruCache<Integer, SoundEffect> sounds;
 
 	/**
 	 * Constructor.
@@ -57,19 +76,78 @@ public class BlorbSounds extends BlorbMediaCollection<SoundEffect> {
 	 *            the form chunk
 	 */
 	public BlorbSounds(SoundEffectFactory factory, FormChunk formchunk) {
+		this(factory, formchunk, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param factory
+	 *            the SoundEffectFactory
+	 * @param formchunk
+	 *            the form chunk
+	 * @param cacheSize
+	 *            the number of bytes the cached sounds may occupy
+	 */
+	public BlorbSounds(SoundEffectFactory factory, FormChunk formchunk, int cacheSize) {
 		super(null, factory, formchunk);
+		sounds = new LruCache<Integer, SoundEffect>(cacheSize) {
+			@Override
+			protected void evicted(final Integer resourcenumber, final SoundEffect sound) {
+				sound.release();
+			}
+		};
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void clear() {
 		super.clear();
-		sounds.clear();
+		synchronized (this) {
+			for (Integer resourcenumber : soundChunks.keySet()) {
+				unloadResource(resourcenumber);
+			}
+			soundChunks.clear();
+		}
 	}
 
 	/** {@inheritDoc} */
 	protected void initDatabase() {
-		sounds = new HashMap<Integer, SoundEffect>();
+		soundChunks = new HashMap<Integer, Chunk>();
+	}
+
+	/**
+	 * Creates the specified sound effect, so it starts without delay.
+	 * 
+	 * @param resourcenumber
+	 *            the resource number
+	 */
+	@Override
+	public void loadResource(final int resourcenumber) {
+		getResource(resourcenumber);
+	}
+
+	/**
+	 * Releases the specified sound effect and removes it from the cache.
+	 * 
+	 * @param resourcenumber
+	 *            the resource number
+	 */
+	@Override
+	public synchronized void unloadResource(final int resourcenumber) {
+		final SoundEffect sound = sounds.remove(resourcenumber);
+		if (sound != null) {
+			sound.release();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes the cached sounds occupy.
+	 * 
+	 * @return the number of bytes
+	 */
+	public synchronized long getCacheSize() {
+		return sounds.getSize();
 	}
 
 	/** {@inheritDoc} */
@@ -77,19 +155,38 @@ public class BlorbSounds extends BlorbMediaCollection<SoundEffect> {
 		return usageId[0] == 'S' && usageId[1] == 'n' && usageId[2] == 'd' && usageId[3] == ' ';
 	}
 
-	/** {@inheritDoc} */
-	public SoundEffect getResource(final int resourcenumber) {
-		return sounds.get(resourcenumber);
+	/**
+	 * Returns the specified sound effect. Short sounds are taken from the
+	 * cache, longer ones are created for each call.
+	 * 
+	 * @param resourcenumber
+	 *            the resource number
+	 * @return the sound effect or null if it does not exist or could not be
+	 *         created
+	 */
+	public synchronized SoundEffect getResource(final int resourcenumber) {
+		SoundEffect sound = sounds.get(resourcenumber);
+		if (sound == null) {
+			final Chunk chunk = soundChunks.get(resourcenumber);
+			if (chunk == null) {
+				return null;
+			}
+			try {
+				sound = soundEffectFactory.createSoundEffect(chunk);
+			} catch (Exception ex) {
+				LOG.warning("could not create sound " + resourcenumber + ": " + ex.getMessage());
+				return null;
+			}
+			if (chunk.getSize() <= MAX_CACHED_SIZE) {
+				sounds.put(resourcenumber, sound, chunk.getSize());
+			}
+		}
+		return sound;
 	}
 
 	/** {@inheritDoc} */
 	protected boolean putToDatabase(final Chunk aiffChunk, final int resnum) {
-		try {
-			sounds.put(resnum, soundEffectFactory.createSoundEffect(aiffChunk));
-			return true;
-		} catch (Exception ex) {
-			ex.printStackTrace();
-		}
-		return false;
+		soundChunks.put(resnum, aiffChunk);
+		return true;
 	}
 }
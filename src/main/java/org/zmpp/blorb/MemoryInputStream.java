@@ -76,6 +76,41 @@ public class MemoryInputStream extends InputStream {
 		return memory.readUnsigned8(position++);
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (position >= size) {
+			return -1;
+		}
+		final int numBytes = Math.min(len, size - position);
+		memory.copyBytesToArray(b, off, position, numBytes);
+		position += numBytes;
+		return numBytes;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long skip(final long n) {
+		final int numBytes = (int) Math.max(0, Math.min(n, size - position));
+		position += numBytes;
+		return numBytes;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int available() {
+		return Math.max(0, size - position);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
 	/** {@inheritDoc} */
 	public void mark(final int readLimit) {
 		mark = position;
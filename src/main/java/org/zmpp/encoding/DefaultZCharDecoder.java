@@ -28,26 +28,56 @@
  */
 package org.zmpp.encoding;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import org.zmpp.base.Memory;
+import org.zmpp.base.MemoryWriteListener;
 
 /**
  * This is the default implementation of the ZCharDecoder interface. The central
- * method is decode2Unicode which handles abbreviations, 10 Bit escape
- * characters and alphabet table characters. Alphabet table characters and shift
- * states are handled by the ZCharTranslator object.
+ * method is decode which handles abbreviations, 10 Bit escape characters and
+ * alphabet table characters. Alphabet table characters and shift states are
+ * handled by the ZCharTranslator object. The Z characters are read from memory
+ * as they are decoded, so decoding into a ZsciiSink does not allocate.
+ * Abbreviations are decoded once, on their first use, and expanded from the
+ * decoded characters after that. Writes to the abbreviations table or to the
+ * memory of a decoded abbreviation discard the decoded abbreviations and
+ * change the abbreviations version.
  *
  * @author Wei-ju Wu
  * @version 1.5
  */
-public final class DefaultZCharDecoder implements ZCharDecoder {
+public final class DefaultZCharDecoder implements ZCharDecoder, MemoryWriteListener {
+
+	private static final int NUM_ABBREVIATIONS = 96;
 
 	private ZCharTranslator translator;
 	private ZsciiEncoding encoding;
 	private AbbreviationsTable abbreviations;
-	private ZCharDecoder abbreviationDecoder;
+	private DefaultZCharDecoder abbreviationDecoder;
+	private StringSink stringSink = new StringSink();
+	private int currentWordAddress = -1;
+	private char currentWord;
+
+	/** The decoded abbreviations and the addresses they were decoded from. */
+	private char[][] abbreviationChars = new char[NUM_ABBREVIATIONS][];
+	private int[] abbreviationAddresses = new int[NUM_ABBREVIATIONS];
+
+	/** The address range covered by the decoded abbreviations. */
+	private int abbreviationsLow = Integer.MAX_VALUE, abbreviationsHigh = 0;
+	private int abbreviationsVersion;
+
+	/**
+	 * Collects the decoded characters for decode2Zscii.
+	 */
+	private static class StringSink implements ZsciiSink {
+		private StringBuilder builder = new StringBuilder();
+
+		/** {@inheritDoc} */
+		public void append(final char zsciiChar) {
+			builder.append(zsciiChar);
+		}
+	}
 
 	/**
 	 * Constructor.
@@ -68,137 +98,137 @@ public final class DefaultZCharDecoder implements ZCharDecoder {
 
 	/** {@inheritDoc} */
 	public String decode2Zscii(final Memory memory, final int address, final int length) {
-		final StringBuilder builder = new StringBuilder();
-		translator.reset();
-		final char[] zbytes = extractZbytes(memory, address, length);
-		char zchar;
-		int i = 0, newpos;
+		stringSink.builder.setLength(0);
+		decode(memory, address, length, stringSink);
+		return stringSink.builder.toString();
+	}
 
-		while (i < zbytes.length) {
-			boolean decoded = false;
-			zchar = zbytes[i];
-			newpos = handleAbbreviation(builder, memory, zbytes, i);
-			decoded = (newpos > i);
-			i = newpos;
+	/** {@inheritDoc} */
+	public void decode(final Memory memory, final int address, final int length, final ZsciiSink sink) {
+		translator.reset();
+		currentWordAddress = -1;
+		final int numZchars = 3 * getNumZWords(memory, address, length);
+		int i = 0;
 
-			if (!decoded) {
-				newpos = handleEscapeA2(builder, zbytes, i);
-				decoded = newpos > i;
-				i = newpos;
-			}
-			if (!decoded) {
-				decodeZchar(builder, zchar);
+		while (i < numZchars) {
+			final char zchar = getZChar(memory, address, i);
+			if (translator.isAbbreviation(zchar)) {
+				// we need to check if we are at the end of the buffer, even if
+				// an abbreviation is suggested. This happens e.g. in Zork I
+				if (i < numZchars - 1 && abbreviations != null) {
+					final int entryNum = 32 * (zchar - 1) + getZChar(memory, address, i + 1);
+					final char[] chars = getAbbreviation(memory, entryNum);
+					for (int j = 0; j < chars.length; j++) {
+						sink.append(chars[j]);
+					}
+				}
+				i += 2;
+			} else if (translator.willEscapeA2(zchar)) {
+				// If the data is truncated, skip only the escape character
+				if (i < numZchars - 2) {
+					sink.append((char) (getZChar(memory, address, i + 1) << 5 | getZChar(memory, address, i + 2)));
+					i += 3;
+				} else {
+					i++;
+				}
+				translator.resetToLastAlphabet();
+			} else {
+				final char c = decodeZChar(zchar);
+				if (c != 0) {
+					sink.append(c);
+				}
 				i++;
 			}
 		}
-		return builder.toString();
 	}
 
 	/**
-	 * Process the abbreviation at the specified memory position.
+	 * Returns the decoded characters of the specified abbreviation. An
+	 * abbreviation is decoded again if the abbreviations table now points to
+	 * a different address.
 	 * 
-	 * @param builder
-	 *            StringBuilder
 	 * @param memory
-	 *            memory object
-	 * @param data
-	 *            byte data
-	 * @param pos
-	 *            original position
-	 * @return new position
+	 *            the Memory object
+	 * @param entryNum
+	 *            the abbreviation number
+	 * @return the decoded characters
 	 */
-	private int handleAbbreviation(final StringBuilder builder, final Memory memory, final char[] data, final int pos) {
-		int position = pos;
-		final char zchar = data[position];
-
-		if (translator.isAbbreviation(zchar)) {
-
-			// we need to check if we are at the end of the buffer, even if an
-			// abbreviation is suggested. This happens e.g. in Zork I
-			if (position < (data.length - 1)) {
-				position++; // retrieve the next byte to determine the
-							// abbreviation
-
-				// the abbreviations table could be null, simply skip that part
-				// in this
-				// case
-				if (abbreviations != null) {
-					final int x = data[position];
-					final int entryNum = 32 * (zchar - 1) + x;
-					final int entryAddress = abbreviations.getWordAddress(entryNum);
-					createAbbreviationDecoderIfNotExists();
-					appendAbbreviationAtAddress(memory, entryAddress, builder);
-				}
-			}
-			position++;
+	private char[] getAbbreviation(final Memory memory, final int entryNum) {
+		final int entryAddress = abbreviations.getWordAddress(entryNum);
+		char[] chars = abbreviationChars[entryNum];
+		if (chars == null || abbreviationAddresses[entryNum] != entryAddress) {
+			chars = decodeAbbreviation(memory, entryAddress);
+			abbreviationChars[entryNum] = chars;
+			abbreviationAddresses[entryNum] = entryAddress;
+			abbreviationsLow = Math.min(abbreviationsLow, entryAddress);
+			abbreviationsHigh = Math.max(abbreviationsHigh, entryAddress + getNumZEncodedBytes(memory, entryAddress));
 		}
-		return position;
+		return chars;
 	}
 
 	/**
-	 * Creates the abbreviation decoder if it does not exist. TODO: How can we
-	 * do this in a more elegant way ?
+	 * Decodes the abbreviation at the specified address. The abbreviation
+	 * decoder works on a copy of the translator, so it does not influence the
+	 * shift state of the string that contains the abbreviation.
+	 * 
+	 * @param memory
+	 *            the Memory object
+	 * @param entryAddress
+	 *            the abbreviation's address
+	 * @return the decoded characters
 	 */
-	private void createAbbreviationDecoderIfNotExists() {
+	private char[] decodeAbbreviation(final Memory memory, final int entryAddress) {
 		if (abbreviationDecoder == null) {
-
-			// We only use one abbreviation decoder instance here, we need
-			// to clone the alphabet table, so the abbreviation decoding
-			// will not influence the continuation of the decoding process
 			try {
 				abbreviationDecoder = new DefaultZCharDecoder(encoding, (ZCharTranslator) translator.clone(), null);
 			} catch (CloneNotSupportedException ex) {
 				// should never happen
 				ex.printStackTrace();
+				return new char[0];
 			}
 		}
+		return abbreviationDecoder.decode2Zscii(memory, entryAddress, 0).toCharArray();
 	}
 
-	/**
-	 * Appends the abbreviation at the specified memory address to the
-	 * StringBuilder.
-	 * 
-	 * @param memory
-	 *            Memory object
-	 * @param entryAddress
-	 *            entry address
-	 * @param builder
-	 *            StringBuilder to append to
-	 */
-	private void appendAbbreviationAtAddress(Memory memory, int entryAddress, StringBuilder builder) {
-		if (abbreviationDecoder != null) {
-			final String abbrev = abbreviationDecoder.decode2Zscii(memory, entryAddress, 0);
-			builder.append(abbrev);
+	/** {@inheritDoc} */
+	public void memoryWritten(final int address, final int numBytes) {
+		// abbreviationsHigh is 0 as long as no abbreviation was decoded
+		if (abbreviationsHigh > 0) {
+			final int tableAddress = abbreviations.getTableAddress();
+			if ((address < abbreviationsHigh && address + numBytes > abbreviationsLow)
+					|| (address < tableAddress + 2 * NUM_ABBREVIATIONS && address + numBytes > tableAddress)) {
+				Arrays.fill(abbreviationChars, null);
+				abbreviationsLow = Integer.MAX_VALUE;
+				abbreviationsHigh = 0;
+				abbreviationsVersion++;
+			}
 		}
 	}
 
+	/** {@inheritDoc} */
+	public int getAbbreviationsVersion() {
+		return abbreviationsVersion;
+	}
+
 	/**
-	 * Handles the escape character from alphabet 2 and appends the result to
-	 * the StringBuidler.
+	 * Returns the Z character at the specified index of the string. The word
+	 * that was read last is kept, so each word is read once.
 	 * 
-	 * @param builder
-	 *            a StringBuilder to append to
-	 * @param data
-	 *            byte data
-	 * @param pos
-	 *            old position
-	 * @return new position
+	 * @param memory
+	 *            the Memory object
+	 * @param address
+	 *            the string address
+	 * @param index
+	 *            the Z character index
+	 * @return the Z character
 	 */
-	private int handleEscapeA2(final StringBuilder builder, final char[] data, final int pos) {
-		int position = pos;
-		if (translator.willEscapeA2(data[position])) {
-
-			// If the data is truncated, do not continue (check if the
-			// constant should be 2 or 3)
-			if (position < data.length - 2) {
-				joinToZsciiChar(builder, data[position + 1], data[position + 2]);
-				// skip the three characters read (including the loop increment)
-				position += 2;
-			}
-			position++;
-			translator.resetToLastAlphabet();
+	private char getZChar(final Memory memory, final int address, final int index) {
+		final int wordAddress = address + 2 * (index / 3);
+		if (wordAddress != currentWordAddress) {
+			currentWord = memory.readUnsigned16(wordAddress);
+			currentWordAddress = wordAddress;
 		}
-		return position;
+		return (char) ((currentWord >> (10 - 5 * (index % 3))) & 0x1f);
 	}
 
 	/** {@inheritDoc} */
@@ -210,22 +240,6 @@ public final class DefaultZCharDecoder implements ZCharDecoder {
 		}
 	}
 
-	/**
-	 * Decodes an encoded character and adds it to the specified builder object.
-	 * 
-	 * @param builder
-	 *            a ZsciiStringBuilder object
-	 * @param zchar
-	 *            the encoded character to decode and add
-	 * @return decoded character
-	 */
-	private char decodeZchar(final StringBuilder builder, final char zchar) {
-		final char c = decodeZChar(zchar);
-		if (c != 0)
-			builder.append(c);
-		return c;
-	}
-
 	/** {@inheritDoc} */
 	public ZCharTranslator getTranslator() {
 		return translator;
@@ -247,8 +261,7 @@ public final class DefaultZCharDecoder implements ZCharDecoder {
 	}
 
 	/**
-	 * This function unfortunately generates a List object on each invocation,
-	 * the advantage is that it will return all the characters of the Z string.
+	 * Returns all the Z characters of the string at the specified address.
 	 * 
 	 * @param memory
 	 *            the memory access object
@@ -260,13 +273,18 @@ public final class DefaultZCharDecoder implements ZCharDecoder {
 	 * @return the z characters of the string
 	 */
 	public static char[] extractZbytes(final Memory memory, final int address, final int length) {
+		char[] result = new char[12];
 		char zword = 0;
 		int currentAddr = address;
-		final List<char[]> byteList = new ArrayList<char[]>();
-
+		int numZchars = 0;
 		do {
 			zword = memory.readUnsigned16(currentAddr);
-			byteList.add(extractZEncodedBytes(zword));
+			if (numZchars == result.length) {
+				result = Arrays.copyOf(result, 2 * result.length);
+			}
+			result[numZchars++] = (char) ((zword >> 10) & 0x1f);
+			result[numZchars++] = (char) ((zword >> 5) & 0x1f);
+			result[numZchars++] = (char) (zword & 0x1f);
 			currentAddr += 2; // increment pointer
 
 			// if this is a dictionary entry, we need to provide the
@@ -275,14 +293,34 @@ public final class DefaultZCharDecoder implements ZCharDecoder {
 				break;
 			}
 		} while (!isEndWord(zword));
+		return Arrays.copyOf(result, numZchars);
+	}
 
-		final char[] result = new char[byteList.size() * 3];
-		int i = 0;
-		for (char[] triplet : byteList) {
-			for (char b : triplet)
-				result[i++] = (char) b;
-		}
-		return result;
+	/**
+	 * Returns the number of words of the string at the specified address.
+	 * 
+	 * @param memory
+	 *            the memory access object
+	 * @param address
+	 *            the address of the z string
+	 * @param length
+	 *            the maximum length in bytes or 0 for unspecified
+	 * @return the number of words
+	 */
+	private static int getNumZWords(final Memory memory, final int address, final int length) {
+		char zword = 0;
+		int currentAddr = address;
+		do {
+			zword = memory.readUnsigned16(currentAddr);
+			currentAddr += 2; // increment pointer
+
+			// if this is a dictionary entry, we need to provide the
+			// length and cancel the loop earlier
+			if (length > 0 && (currentAddr - address) >= length) {
+				break;
+			}
+		} while (!isEndWord(zword));
+		return (currentAddr - address) / 2;
 	}
 
 	/** {@inheritDoc} */
@@ -295,35 +333,4 @@ public final class DefaultZCharDecoder implements ZCharDecoder {
 		} while (!isEndWord(zword));
 		return currentAddress - address;
 	}
-
-	/**
-	 * Extracts three 5 bit fields from the given 16 bit word and returns an
-	 * array of three bytes containing these characters.
-	 * 
-	 * @param zword
-	 *            a 16 bit word
-	 * @return an array of three bytes containing the three 5-bit ZSCII
-	 *         characters encoded in the word
-	 */
-	private static char[] extractZEncodedBytes(final char zword) {
-		final char[] result = new char[3];
-		result[2] = (char) (zword & 0x1f);
-		result[1] = (char) ((zword >> 5) & 0x1f);
-		result[0] = (char) ((zword >> 10) & 0x1f);
-		return result;
-	}
-
-	/**
-	 * Joins the specified two bytes into a 10 bit ZSCII character.
-	 * 
-	 * @param builder
-	 *            the StringBuilder to write to
-	 * @param top
-	 *            the byte holding the top 5 bit of the zchar
-	 * @param bottom
-	 *            the byte holding the bottom 5 bit of the zchar
-	 */
-	private void joinToZsciiChar(final StringBuilder builder, final char top, final char bottom) {
-		builder.append((char) (top << 5 | bottom));
-	}
 }
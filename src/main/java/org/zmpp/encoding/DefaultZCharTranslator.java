@@ -28,17 +28,32 @@
  */
 package org.zmpp.encoding;
 
+import java.util.Arrays;
+
 import org.zmpp.encoding.AlphabetTable.Alphabet;
 
 /**
- * The default implementation of ZCharTranslator.
+ * The default implementation of ZCharTranslator. The alphabet table is
+ * translated into lookup tables when the translator is created, so both
+ * directions of the translation are array accesses.
  *
  * @author Wei-ju Wu
  * @version 1.5
  */
 public class DefaultZCharTranslator implements Cloneable, ZCharTranslator {
 
+	private static final Alphabet[] ALPHABETS = Alphabet.values();
+	private static final int ALPHABET_SIZE = AlphabetTable.ALPHABET_END + 1;
+	private static final int NUM_ZSCII_CHARS = 256;
+
 	private AlphabetTable alphabetTable;
+
+	/** The characters of A0, A1 and A2, indexed by alphabet and Z character. */
+	private char[] alphabetChars;
+
+	/** The packed alphabet codes, indexed by ZSCII character. */
+	private int[] alphabetCodes;
+
 	private Alphabet currentAlphabet;
 	private Alphabet lockAlphabet;
 	private boolean shiftLock;
@@ -51,9 +66,70 @@ public class DefaultZCharTranslator implements Cloneable, ZCharTranslator {
 	 */
 	public DefaultZCharTranslator(final AlphabetTable alphabetTable) {
 		this.alphabetTable = alphabetTable;
+		createTables();
 		reset();
 	}
 
+	/**
+	 * Creates the lookup tables from the alphabet table. Z characters between
+	 * 1 and 5 can be shifts or abbreviations, they are not part of the table
+	 * and resolved through the alphabet table. If a ZSCII character occurs
+	 * more than once, the first occurrence in the order A0, A1, A2 is used for
+	 * encoding.
+	 */
+	private void createTables() {
+		alphabetChars = new char[ALPHABETS.length * ALPHABET_SIZE];
+		alphabetCodes = new int[NUM_ZSCII_CHARS];
+		Arrays.fill(alphabetCodes, -1);
+		for (Alphabet alphabet : ALPHABETS) {
+			final int offset = alphabet.ordinal() * ALPHABET_SIZE;
+			alphabetChars[offset] = getAlphabetChar(alphabet, (char) 0);
+			for (int zchar = AlphabetTable.ALPHABET_START; zchar <= AlphabetTable.ALPHABET_END; zchar++) {
+				final char zsciiChar = getAlphabetChar(alphabet, (char) zchar);
+				alphabetChars[offset + zchar] = zsciiChar;
+				if (zsciiChar < NUM_ZSCII_CHARS && alphabetCodes[zsciiChar] < 0) {
+					alphabetCodes[zsciiChar] = packAlphabetCode(alphabet, zchar);
+				}
+			}
+		}
+		// Special handling for newline !!
+		alphabetCodes['\n'] = packAlphabetCode(Alphabet.A2, 7);
+	}
+
+	/**
+	 * Packs an alphabet and a Z character code into an int.
+	 * 
+	 * @param alphabet
+	 *            the alphabet
+	 * @param zcharCode
+	 *            the Z character code
+	 * @return the packed alphabet code
+	 */
+	private static int packAlphabetCode(final Alphabet alphabet, final int zcharCode) {
+		return alphabet.ordinal() << 5 | zcharCode;
+	}
+
+	/**
+	 * Retrieves a character from the alphabet table.
+	 * 
+	 * @param alphabet
+	 *            the alphabet
+	 * @param zchar
+	 *            the Z character
+	 * @return the ZSCII character
+	 */
+	private char getAlphabetChar(final Alphabet alphabet, final char zchar) {
+		switch (alphabet) {
+		case A0:
+			return (char) alphabetTable.getA0Char((byte) zchar);
+		case A1:
+			return (char) alphabetTable.getA1Char((byte) zchar);
+		case A2:
+		default:
+			return (char) alphabetTable.getA2Char((byte) zchar);
+		}
+	}
+
 	/** {@inheritDoc} */
 	public final void reset() {
 		currentAlphabet = Alphabet.A0;
@@ -92,19 +168,10 @@ public class DefaultZCharTranslator implements Cloneable, ZCharTranslator {
 			return '\0';
 
 		char result;
-		if (isInAlphabetRange(zchar)) {
-			switch (currentAlphabet) {
-			case A0:
-				result = (char) alphabetTable.getA0Char((byte) zchar);
-				break;
-			case A1:
-				result = (char) alphabetTable.getA1Char((byte) zchar);
-				break;
-			case A2:
-			default:
-				result = (char) alphabetTable.getA2Char((byte) zchar);
-				break;
-			}
+		if (zchar == 0 || (zchar >= AlphabetTable.ALPHABET_START && zchar <= AlphabetTable.ALPHABET_END)) {
+			result = alphabetChars[currentAlphabet.ordinal() * ALPHABET_SIZE + zchar];
+		} else if (isInAlphabetRange(zchar)) {
+			result = getAlphabetChar(currentAlphabet, zchar);
 		} else {
 			result = '?';
 		}
@@ -126,34 +193,18 @@ public class DefaultZCharTranslator implements Cloneable, ZCharTranslator {
 
 	/** {@inheritDoc} */
 	public AlphabetElement getAlphabetElementFor(final char zsciiChar) {
-		// Special handling for newline !!
-		if (zsciiChar == '\n') {
-			return new AlphabetElement(Alphabet.A2, (char) 7);
-		}
-
-		Alphabet alphabet = null;
-		int zcharCode = alphabetTable.getA0CharCode(zsciiChar);
-
-		if (zcharCode >= 0) {
-			alphabet = Alphabet.A0;
-		} else {
-			zcharCode = alphabetTable.getA1CharCode(zsciiChar);
-			if (zcharCode >= 0) {
-				alphabet = Alphabet.A1;
-			} else {
-				zcharCode = alphabetTable.getA2CharCode(zsciiChar);
-				if (zcharCode >= 0) {
-					alphabet = Alphabet.A2;
-				}
-			}
-		}
-
-		if (alphabet == null) {
+		final int alphabetCode = getAlphabetCodeFor(zsciiChar);
+		if (alphabetCode < 0) {
 			// It is not in any alphabet table, we are fine with taking the code
 			// number for the moment
-			zcharCode = zsciiChar;
+			return new AlphabetElement(null, zsciiChar);
 		}
-		return new AlphabetElement(alphabet, (char) zcharCode);
+		return new AlphabetElement(ALPHABETS[alphabetCode >>> 5], (char) (alphabetCode & 0x1f));
+	}
+
+	/** {@inheritDoc} */
+	public int getAlphabetCodeFor(final char zsciiChar) {
+		return zsciiChar < NUM_ZSCII_CHARS ? alphabetCodes[zsciiChar] : -1;
 	}
 
 	/**
@@ -58,6 +58,27 @@ public interface ZCharDecoder {
 		 * @return word address
 		 */
 		int getWordAddress(int entryNum);
+
+		/**
+		 * Returns the start address of the table.
+		 * 
+		 * @return the table address
+		 */
+		int getTableAddress();
+	}
+
+	/**
+	 * Receives the characters of a decoded string. Decoding into a sink avoids
+	 * creating a String for text that is only printed.
+	 */
+	public interface ZsciiSink {
+		/**
+		 * Appends a decoded character.
+		 * 
+		 * @param zsciiChar
+		 *            the ZSCII character
+		 */
+		void append(char zsciiChar);
 	}
 
 	/**
@@ -77,6 +98,21 @@ public interface ZCharDecoder {
 	 */
 	String decode2Zscii(Memory memory, int address, int length);
 
+	/**
+	 * Decodes the string at the specified position into a ZsciiSink. The
+	 * length has the same meaning as in decode2Zscii.
+	 * 
+	 * @param memory
+	 *            a Memory object
+	 * @param address
+	 *            the address of the string
+	 * @param length
+	 *            the maximum length in bytes or 0 for unspecified
+	 * @param sink
+	 *            the sink that receives the decoded characters
+	 */
+	void decode(Memory memory, int address, int length, ZsciiSink sink);
+
 	/**
 	 * Returns the number of Z encoded bytes at the specified position.
 	 * 
@@ -98,6 +134,16 @@ public interface ZCharDecoder {
 	 */
 	char decodeZChar(char zchar);
 
+	/**
+	 * Returns the version of the abbreviation expansions. The version changes
+	 * whenever the story writes to the abbreviations table or to the text of
+	 * an abbreviation that was decoded, so decoded strings that contain
+	 * abbreviations are only valid while the version stays the same.
+	 * 
+	 * @return the abbreviations version
+	 */
+	int getAbbreviationsVersion();
+
 	/**
 	 * Returns the ZStringTranslator.
 	 * 
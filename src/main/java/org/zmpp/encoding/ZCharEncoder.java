@@ -48,6 +48,8 @@ public class ZCharEncoder {
 	private static final int SLOTS_PER_WORD16 = 3;
 	private ZCharTranslator translator;
 	private DictionarySizes dictionarySizes;
+	private EncodingState memoryState = new EncodingState();
+	private StringEncodingState stringState = new StringEncodingState();
 
 	/**
 	 * Constructor.
@@ -77,9 +79,8 @@ public class ZCharEncoder {
 	 */
 	public void encode(final Memory memory, final int sourceAddress, final int length, final int targetAddress) {
 		final int maxlen = Math.min(length, dictionarySizes.getMaxEntryChars());
-		final EncodingState state = new EncodingState();
-		state.init(memory, sourceAddress, targetAddress, dictionarySizes.getNumEntryBytes(), maxlen);
-		encode(state, translator);
+		memoryState.init(memory, sourceAddress, targetAddress, dictionarySizes.getNumEntryBytes(), maxlen);
+		encode(memoryState, translator);
 	}
 
 	/**
@@ -94,9 +95,8 @@ public class ZCharEncoder {
 	 *            target address
 	 */
 	public void encode(final String str, final Memory memory, final int targetAddress) {
-		final StringEncodingState state = new StringEncodingState();
-		state.init(str, memory, targetAddress, dictionarySizes);
-		encode(state, translator);
+		stringState.init(str, memory, targetAddress, dictionarySizes);
+		encode(stringState, translator);
 	}
 
 	/**
@@ -142,9 +142,8 @@ public class ZCharEncoder {
 	 */
 	private static void processChar(ZCharTranslator translator, final EncodingState state) {
 		final char zsciiChar = state.nextChar();
-		final AlphabetElement element = translator.getAlphabetElementFor(zsciiChar);
-		if (element.getAlphabet() == null) {
-			final char zcharCode = element.getZCharCode();
+		final int alphabetCode = translator.getAlphabetCodeFor(zsciiChar);
+		if (alphabetCode < 0) {
 			// This is a ZMPP specialty, we do not want to end the string
 			// in the middle of encoding, so we only encode if there is
 			// enough space in the target (4 5-bit slots are needed to do an
@@ -157,8 +156,8 @@ public class ZCharEncoder {
 				// Escape A2
 				processWord(state, AlphabetTable.SHIFT_5);
 				processWord(state, AlphabetTable.A2_ESCAPE);
-				processWord(state, getUpper5Bit(zcharCode));
-				processWord(state, getLower5Bit(zcharCode));
+				processWord(state, getUpper5Bit(zsciiChar));
+				processWord(state, getLower5Bit(zsciiChar));
 			} else {
 				// pad remaining slots with SHIFT_5's
 				for (int i = 0; i < numRemainingSlots; i++) {
@@ -166,14 +165,13 @@ public class ZCharEncoder {
 				}
 			}
 		} else {
-			final Alphabet alphabet = element.getAlphabet();
-			final char zcharCode = element.getZCharCode();
-			if (alphabet == Alphabet.A1) {
+			final int alphabet = alphabetCode >>> 5;
+			if (alphabet == Alphabet.A1.ordinal()) {
 				processWord(state, AlphabetTable.SHIFT_4);
-			} else if (alphabet == Alphabet.A2) {
+			} else if (alphabet == Alphabet.A2.ordinal()) {
 				processWord(state, AlphabetTable.SHIFT_5);
 			}
-			processWord(state, zcharCode);
+			processWord(state, (char) (alphabetCode & 0x1f));
 		}
 	}
 
@@ -300,6 +298,8 @@ class EncodingState {
 		targetStart = trgt;
 		numEntryBytes = maxEntryBytes;
 		maxLength = maxEntryChars;
+		currentWord = 0;
+		wordPosition = 0;
 	}
 
 	/**
@@ -127,4 +127,16 @@ public interface ZCharTranslator extends Cloneable {
 	 * @return the reverse translation
 	 */
 	AlphabetElement getAlphabetElementFor(char zsciiChar);
+
+	/**
+	 * Provides the reverse translation without creating an AlphabetElement.
+	 * The result holds the ordinal of the alphabet in bits 5 and 6 and the
+	 * index to the alphabet in the lower 5 bits.
+	 * 
+	 * @param zsciiChar
+	 *            a ZSCII character
+	 * @return the packed reverse translation or -1 if zsciiChar is a plain
+	 *         ZSCII character
+	 */
+	int getAlphabetCodeFor(char zsciiChar);
 }
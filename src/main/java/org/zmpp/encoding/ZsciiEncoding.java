@@ -36,13 +36,27 @@ package org.zmpp.encoding;
  * ZsciiConverter and ZsciiString handle story file encoded strings.
  *
  * This class has a nonmodifiable state, so it can be shared throughout the
- * whole application.
+ * whole application. The accent table is translated into lookup tables when
+ * the encoding is created: a table from ZSCII to Unicode and a two-level
+ * table from Unicode to ZSCII, which only holds the 256 character pages that
+ * contain convertible characters.
  *
  * @author Wei-ju Wu
  * @version 1.5
  */
 public class ZsciiEncoding implements IZsciiEncoding {
-	private AccentTable accentTable;
+	private static final int PAGE_BITS = 8;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int NUM_ZSCII_CHARS = 256;
+
+	/** Unicode characters, indexed by ZSCII character. */
+	private char[] unicodeChars = new char[NUM_ZSCII_CHARS];
+
+	/** Lower case ZSCII characters, indexed by ZSCII character. */
+	private char[] lowerCaseChars = new char[NUM_ZSCII_CHARS];
+
+	/** ZSCII characters, indexed by the upper and lower Unicode byte. */
+	private char[][] zsciiPages = new char[PAGE_SIZE][];
 
 	/**
 	 * Constructor.
@@ -51,7 +65,59 @@ public class ZsciiEncoding implements IZsciiEncoding {
 	 *            the accent table.
 	 */
 	public ZsciiEncoding(final AccentTable accentTable) {
-		this.accentTable = accentTable;
+		createTables(accentTable);
+	}
+
+	/**
+	 * Creates the lookup tables. If the accent table maps more than one ZSCII
+	 * character to the same Unicode character, the first one is used.
+	 * 
+	 * @param accentTable
+	 *            the accent table
+	 */
+	private void createTables(final AccentTable accentTable) {
+		final int numAccents = accentTable.getLength();
+		for (char zchar = 0; zchar < NUM_ZSCII_CHARS; zchar++) {
+			unicodeChars[zchar] = '?';
+			lowerCaseChars[zchar] = zchar;
+			if (isAscii(zchar)) {
+				unicodeChars[zchar] = zchar;
+				lowerCaseChars[zchar] = Character.toLowerCase(zchar);
+				setZsciiChar(zchar, zchar);
+			}
+		}
+		unicodeChars[NULL] = '\0';
+		unicodeChars[NEWLINE] = '\n';
+		unicodeChars[NEWLINE_10] = '\n';
+		for (int i = 0; i < numAccents && i <= ACCENT_END - ACCENT_START; i++) {
+			final char zchar = (char) (ACCENT_START + i);
+			final char c = accentTable.getAccent(i);
+			unicodeChars[zchar] = c;
+			lowerCaseChars[zchar] = (char) (accentTable.getIndexOfLowerCase(i) + ACCENT_START);
+			if (getZsciiChar(c) == 0) {
+				setZsciiChar(c, zchar);
+			}
+		}
+		if (getZsciiChar('\n') == 0) {
+			setZsciiChar('\n', NEWLINE);
+		}
+	}
+
+	/**
+	 * Sets the ZSCII character for a Unicode character.
+	 * 
+	 * @param c
+	 *            the Unicode character
+	 * @param zchar
+	 *            the ZSCII character
+	 */
+	private void setZsciiChar(final char c, final char zchar) {
+		char[] page = zsciiPages[c >>> PAGE_BITS];
+		if (page == null) {
+			page = new char[PAGE_SIZE];
+			zsciiPages[c >>> PAGE_BITS] = page;
+		}
+		page[c & (PAGE_SIZE - 1)] = zchar;
 	}
 
 	/**
@@ -82,7 +148,7 @@ public class ZsciiEncoding implements IZsciiEncoding {
 	 * @return true if c can be converted, false, otherwise
 	 */
 	public boolean isConvertableToZscii(final char c) {
-		return isAscii(c) || isInTranslationTable(c) || c == '\n' || c == 0 || isUnicodeCharacter(c);
+		return c == 0 || isUnicodeCharacter(c) || getZsciiChar(c) != 0;
 	}
 
 	/**
@@ -94,21 +160,7 @@ public class ZsciiEncoding implements IZsciiEncoding {
 	 * @return the unicode representation
 	 */
 	public char getUnicodeChar(final char zchar) {
-		if (isAscii(zchar))
-			return zchar;
-		if (isAccent(zchar)) {
-			final int index = zchar - ACCENT_START;
-			if (index < accentTable.getLength()) {
-				return (char) accentTable.getAccent(index);
-			}
-		}
-		if (zchar == NULL)
-			return '\0';
-		if (zchar == NEWLINE || zchar == NEWLINE_10)
-			return '\n';
-		if (isUnicodeCharacter(zchar))
-			return zchar;
-		return '?';
+		return zchar < NUM_ZSCII_CHARS ? unicodeChars[zchar] : zchar;
 	}
 
 	/**
@@ -119,11 +171,11 @@ public class ZsciiEncoding implements IZsciiEncoding {
 	 * @return the ZSCII representation
 	 */
 	public String convertToZscii(final String str) {
-		StringBuilder result = new StringBuilder();
-		for (int i = 0; i < str.length(); i++) {
-			result.append(getZsciiChar(str.charAt(i)));
+		final char[] result = new char[str.length()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = getZsciiChar(str.charAt(i));
 		}
-		return result.toString();
+		return new String(result);
 	}
 
 	/**
@@ -135,40 +187,8 @@ public class ZsciiEncoding implements IZsciiEncoding {
 	 * @return the ZSCII character
 	 */
 	public char getZsciiChar(final char c) {
-		if (isAscii(c)) {
-			return c;
-		} else if (isInTranslationTable(c)) {
-			return (char) (getIndexInTranslationTable(c) + ACCENT_START);
-		} else if (c == '\n') {
-			return NEWLINE;
-		}
-		return 0;
-	}
-
-	/**
-	 * Determines whether the specified character is in the translation table.
-	 * 
-	 * @param c
-	 *            character
-	 * @return true if in translation table, false otherwise
-	 */
-	private boolean isInTranslationTable(final char c) {
-		return getIndexInTranslationTable(c) >= 0;
-	}
-
-	/**
-	 * Determines the index of character c in the translation table.
-	 * 
-	 * @param c
-	 *            character
-	 * @return index in translation table
-	 */
-	private int getIndexInTranslationTable(final char c) {
-		for (int i = 0; i < accentTable.getLength(); i++) {
-			if (accentTable.getAccent(i) == c)
-				return i;
-		}
-		return -1;
+		final char[] page = zsciiPages[c >>> PAGE_BITS];
+		return page == null ? 0 : page[c & (PAGE_SIZE - 1)];
 	}
 
 	/**
@@ -234,12 +254,6 @@ public class ZsciiEncoding implements IZsciiEncoding {
 	 * @return the lower case character
 	 */
 	public char toLower(final char zsciiChar) {
-		if (isAscii(zsciiChar)) {
-			return Character.toLowerCase(zsciiChar);
-		}
-		if (isAccent(zsciiChar)) {
-			return (char) (accentTable.getIndexOfLowerCase(zsciiChar - ACCENT_START) + ACCENT_START);
-		}
-		return zsciiChar;
+		return zsciiChar < NUM_ZSCII_CHARS ? lowerCaseChars[zsciiChar] : zsciiChar;
 	}
 }
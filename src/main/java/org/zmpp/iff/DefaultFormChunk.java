@@ -29,15 +29,21 @@
 package org.zmpp.iff;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import org.zmpp.base.MappedMemory;
 import org.zmpp.base.Memory;
-import org.zmpp.base.MemorySection;
+import static org.zmpp.base.MemoryUtil.readUnsigned32;
 
 /**
- * This class implements the FormChunk interface.
+ * This class implements the FormChunk interface. Only the chunk headers are
+ * read when the chunk is created, the sub chunks are indexed by id and by
+ * address and create their memory objects on first access.
  *
  * @author Wei-ju Wu
  * @version 1.5
@@ -48,7 +54,13 @@ public class DefaultFormChunk extends DefaultChunk implements FormChunk {
 	private byte[] subId;
 
 	/** The list of sub chunks. */
-	private List<Chunk> subChunks;
+	private List<Chunk> subChunks = new ArrayList<Chunk>();
+
+	/** The first sub chunk of each id, keyed by the id value. */
+	private Map<Integer, Chunk> chunksById = new HashMap<Integer, Chunk>();
+
+	/** The sub chunks, keyed by address. */
+	private Map<Integer, Chunk> chunksByAddress = new HashMap<Integer, Chunk>();
 
 	/**
 	 * Constructor.
@@ -64,6 +76,38 @@ public class DefaultFormChunk extends DefaultChunk implements FormChunk {
 		readSubChunks();
 	}
 
+	/**
+	 * Constructor. The form chunk starts at the channel's current position.
+	 * The file is mapped read-only and the mapping stays valid after the
+	 * channel was closed. Only the pages that hold the sub chunk headers are
+	 * read while the chunks are indexed.
+	 * 
+	 * @param channel
+	 *            a file channel
+	 * @throws IOException
+	 *             if i/o exception occurred
+	 */
+	public DefaultFormChunk(final FileChannel channel) throws IOException {
+		this(map(channel));
+	}
+
+	/**
+	 * Maps the remaining contents of the specified channel.
+	 * 
+	 * @param channel
+	 *            the file channel
+	 * @return the mapped memory
+	 * @throws IOException
+	 *             if i/o exception occurred
+	 */
+	private static Memory map(final FileChannel channel) throws IOException {
+		final long position = channel.position();
+		if (channel.size() - position < CHUNK_HEADER_LENGTH + CHUNK_ID_LENGTH) {
+			throw new IOException("not a valid IFF format");
+		}
+		return new MappedMemory(channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position));
+	}
+
 	/**
 	 * Initialize the id field.
 	 * 
@@ -80,28 +124,85 @@ public class DefaultFormChunk extends DefaultChunk implements FormChunk {
 	}
 
 	/**
-	 * Read this form chunk's sub chunks.
+	 * Read this form chunk's sub chunks from its memory.
 	 */
 	private void readSubChunks() {
-		subChunks = new ArrayList<Chunk>();
-
-		// skip the identifying information
-		final int length = getSize();
-		int offset = CHUNK_HEADER_LENGTH + CHUNK_ID_LENGTH;
-		int chunkTotalSize = 0;
-
-		while (offset < length) {
-			final Memory memarray = new MemorySection(memory, offset, length - offset);
-			final Chunk subchunk = new DefaultChunk(memarray, offset);
-			subChunks.add(subchunk);
-			chunkTotalSize = subchunk.getSize() + CHUNK_HEADER_LENGTH;
-
-			// Determine if padding is necessary
-			chunkTotalSize = (chunkTotalSize % 2) == 0 ? chunkTotalSize : chunkTotalSize + 1;
-			offset += chunkTotalSize;
+		// skip the identifying information, a mapped file can end before the
+		// size in the form header
+		long end = CHUNK_HEADER_LENGTH + (getSize() & 0xffffffffL);
+		if (memory instanceof MappedMemory) {
+			end = Math.min(end, ((MappedMemory) memory).getSize());
+		}
+		long offset = CHUNK_HEADER_LENGTH + CHUNK_ID_LENGTH;
+
+		while (offset + CHUNK_HEADER_LENGTH <= end) {
+			final int address = (int) offset;
+			final int idValue = (int) readUnsigned32(memory, address);
+			final long size = readUnsigned32(memory, address + CHUNK_ID_LENGTH);
+			addSubChunk(idValue, size, address);
+			offset += getTotalSize(size);
 		}
 	}
 
+	/**
+	 * Adds a sub chunk to the list and the indexes.
+	 * 
+	 * @param idValue
+	 *            the id as a 4 byte integer
+	 * @param size
+	 *            the chunk size
+	 * @param address
+	 *            the chunk address
+	 */
+	private void addSubChunk(final int idValue, final long size, final int address) {
+		final Chunk subchunk = new LazyChunk(memory, idValue, (int) size, address);
+		subChunks.add(subchunk);
+		if (!chunksById.containsKey(idValue)) {
+			chunksById.put(idValue, subchunk);
+		}
+		chunksByAddress.put(address, subchunk);
+	}
+
+	/**
+	 * Returns the number of bytes a chunk with the specified size occupies,
+	 * including its header and padding.
+	 * 
+	 * @param size
+	 *            the chunk size
+	 * @return the total size
+	 */
+	private static long getTotalSize(final long size) {
+		// Determine if padding is necessary
+		return CHUNK_HEADER_LENGTH + size + (size & 1);
+	}
+
+	/**
+	 * Returns the 4 byte integer value of a chunk id.
+	 * 
+	 * @param id
+	 *            the id
+	 * @return the id value or 0 if the id does not have 4 characters
+	 */
+	static int toIdValue(final String id) {
+		if (id == null || id.length() != CHUNK_ID_LENGTH) {
+			return 0;
+		}
+		return (id.charAt(0) & 0xff) << 24 | (id.charAt(1) & 0xff) << 16 | (id.charAt(2) & 0xff) << 8
+				| (id.charAt(3) & 0xff);
+	}
+
+	/**
+	 * Returns the chunk id of a 4 byte integer value.
+	 * 
+	 * @param idValue
+	 *            the id value
+	 * @return the id
+	 */
+	static String toId(final int idValue) {
+		return new String(new byte[] { (byte) (idValue >>> 24), (byte) (idValue >>> 16), (byte) (idValue >>> 8),
+				(byte) idValue });
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public boolean isValid() {
@@ -120,21 +221,13 @@ public class DefaultFormChunk extends DefaultChunk implements FormChunk {
 
 	/** {@inheritDoc} */
 	public Chunk getSubChunk(final String id) {
-		for (Chunk chunk : subChunks) {
-			if (chunk.getId().equals(id)) {
-				return chunk;
-			}
-		}
-		return null;
+		final Chunk chunk = chunksById.get(toIdValue(id));
+		// ids that are not 4 characters long map to 0 and never match
+		return chunk != null && chunk.getId().equals(id) ? chunk : null;
 	}
 
 	/** {@inheritDoc} */
 	public Chunk getSubChunk(final int address) {
-		for (Chunk chunk : subChunks) {
-			if (chunk.getAddress() == address) {
-				return chunk;
-			}
-		}
-		return null;
+		return chunksByAddress.get(address);
 	}
 }
@@ -0,0 +1,127 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.iff;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.zmpp.base.MemoryUtil.toByteBuffer;
+
+/**
+ * Writes FORM chunks to a channel. The sizes are computed before anything is
+ * written, and the sub chunks are written from views on their memory, so no
+ * buffer for the whole file is needed. If the channel is a
+ * GatheringByteChannel, all parts are handed over in a single write call.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class IffWriter {
+
+	/** The padding for chunks with an odd size. */
+	private static final byte[] PAD = { 0 };
+
+	private WritableByteChannel channel;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param channel
+	 *            the channel to write to
+	 */
+	public IffWriter(final WritableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Writes the specified FORM chunk.
+	 * 
+	 * @param formChunk
+	 *            the FORM chunk
+	 * @return the number of bytes written
+	 * @throws IOException
+	 *             if writing failed
+	 */
+	public long write(final FormChunk formChunk) throws IOException {
+		final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+		final ByteBuffer header = ByteBuffer.allocate(Chunk.CHUNK_HEADER_LENGTH + Chunk.CHUNK_ID_LENGTH);
+		header.put(formChunk.getId().getBytes());
+		header.putInt(formChunk.getSize());
+		header.put(formChunk.getSubId().getBytes());
+		((Buffer) header).flip();
+		buffers.add(header);
+
+		for (Iterator<Chunk> iter = formChunk.getSubChunks(); iter.hasNext();) {
+			final Chunk chunk = iter.next();
+			final int chunkSize = chunk.getSize();
+			// the chunk memory starts with the chunk header
+			buffers.add(toByteBuffer(chunk.getMemory(), 0, Chunk.CHUNK_HEADER_LENGTH + chunkSize));
+			if ((chunkSize % 2) != 0) {
+				buffers.add(ByteBuffer.wrap(PAD));
+			}
+		}
+		return writeBuffers(buffers.toArray(new ByteBuffer[buffers.size()]));
+	}
+
+	/**
+	 * Writes the specified buffers completely.
+	 * 
+	 * @param buffers
+	 *            the buffers
+	 * @return the number of bytes written
+	 * @throws IOException
+	 *             if writing failed
+	 */
+	private long writeBuffers(final ByteBuffer[] buffers) throws IOException {
+		long numWritten = 0;
+		if (channel instanceof GatheringByteChannel) {
+			final GatheringByteChannel gatheringChannel = (GatheringByteChannel) channel;
+			long remaining = 0;
+			for (ByteBuffer buffer : buffers) {
+				remaining += buffer.remaining();
+			}
+			while (numWritten < remaining) {
+				numWritten += gatheringChannel.write(buffers);
+			}
+		} else {
+			for (ByteBuffer buffer : buffers) {
+				while (buffer.hasRemaining()) {
+					numWritten += channel.write(buffer);
+				}
+			}
+		}
+		return numWritten;
+	}
+}
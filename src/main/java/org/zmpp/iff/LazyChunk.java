@@ -0,0 +1,120 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.iff;
+
+import org.zmpp.base.Memory;
+import org.zmpp.base.MemorySection;
+
+/**
+ * A sub chunk of a DefaultFormChunk that was found by scanning the chunk
+ * headers. It only knows its id, size and address, the Memory object for its
+ * data is created on first access.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+class LazyChunk implements Chunk {
+
+	/** The form chunk's memory. */
+	private Memory formMemory;
+
+	/** The chunk id as a 4 byte integer. */
+	private int idValue;
+
+	/** The chunk size. */
+	private int chunkSize;
+
+	/** The start address within the form chunk. */
+	private int address;
+
+	/** The chunk id, created on first access. */
+	private String id;
+
+	/** The chunk memory, created on first access. */
+	private Memory memory;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param formMemory
+	 *            the form chunk's memory
+	 * @param idValue
+	 *            the chunk id as a 4 byte integer
+	 * @param chunkSize
+	 *            the chunk size, excluding id and size word
+	 * @param address
+	 *            the address within the form chunk
+	 */
+	LazyChunk(final Memory formMemory, final int idValue, final int chunkSize, final int address) {
+		this.formMemory = formMemory;
+		this.idValue = idValue;
+		this.chunkSize = chunkSize;
+		this.address = address;
+	}
+
+	/**
+	 * Returns the chunk id as a 4 byte integer.
+	 * 
+	 * @return the id value
+	 */
+	int getIdValue() {
+		return idValue;
+	}
+
+	/** {@inheritDoc} */
+	public boolean isValid() {
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	public String getId() {
+		if (id == null) {
+			id = DefaultFormChunk.toId(idValue);
+		}
+		return id;
+	}
+
+	/** {@inheritDoc} */
+	public int getSize() {
+		return chunkSize;
+	}
+
+	/** {@inheritDoc} */
+	public Memory getMemory() {
+		if (memory == null) {
+			memory = new MemorySection(formMemory, address, chunkSize + CHUNK_HEADER_LENGTH);
+		}
+		return memory;
+	}
+
+	/** {@inheritDoc} */
+	public int getAddress() {
+		return address;
+	}
+}
@@ -28,6 +28,8 @@
  */
 package org.zmpp.iff;
 
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -47,6 +49,7 @@ public class WritableFormChunk implements FormChunk {
 	private byte[] subId;
 	private static final String FORM_ID = "FORM";
 	private List<Chunk> subChunks;
+	private Memory memory;
 
 	/**
 	 * Constructor.
@@ -67,6 +70,7 @@ public class WritableFormChunk implements FormChunk {
 	 */
 	public void addChunk(final Chunk chunk) {
 		subChunks.add(chunk);
+		memory = null;
 	}
 
 	/** {@inheritDoc} */
@@ -118,9 +122,29 @@ public class WritableFormChunk implements FormChunk {
 		return true;
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc} The memory is created on the first call and reused until
+	 * another sub chunk is added.
+	 */
 	public Memory getMemory() {
-		return new DefaultMemory(getBytes());
+		if (memory == null) {
+			memory = new DefaultMemory(getBytes());
+		}
+		return memory;
+	}
+
+	/**
+	 * Writes this chunk to the specified channel without building the whole
+	 * chunk in memory first.
+	 * 
+	 * @param channel
+	 *            the channel
+	 * @return the number of bytes written
+	 * @throws IOException
+	 *             if writing failed
+	 */
+	public long writeTo(final WritableByteChannel channel) throws IOException {
+		return new IffWriter(channel).write(this);
 	}
 
 	/**
@@ -131,40 +155,25 @@ public class WritableFormChunk implements FormChunk {
 	public byte[] getBytes() {
 		final int datasize = Chunk.CHUNK_HEADER_LENGTH + getSize();
 		final byte[] data = new byte[datasize];
-		final Memory memory = new DefaultMemory(data);
-		memory.writeUnsigned8(0, 'F');
-		memory.writeUnsigned8(1, 'O');
-		memory.writeUnsigned8(2, 'R');
-		memory.writeUnsigned8(3, 'M');
-		writeUnsigned32(memory, 4, getSize());
+		final Memory dataMem = new DefaultMemory(data);
+		dataMem.writeUnsigned8(0, 'F');
+		dataMem.writeUnsigned8(1, 'O');
+		dataMem.writeUnsigned8(2, 'R');
+		dataMem.writeUnsigned8(3, 'M');
+		writeUnsigned32(dataMem, 4, getSize());
 
 		int offset = Chunk.CHUNK_HEADER_LENGTH;
 
 		// Write sub id
-		memory.copyBytesFromArray(subId, 0, offset, subId.length);
+		dataMem.copyBytesFromArray(subId, 0, offset, subId.length);
 		offset += subId.length;
 
-		// Write sub chunk data
+		// Write sub chunks, the chunk memory starts with the chunk header,
+		// the pad byte is already 0
 		for (Chunk chunk : subChunks) {
-			final byte[] chunkId = chunk.getId().getBytes();
 			final int chunkSize = chunk.getSize();
-
-			// Write id
-			memory.copyBytesFromArray(chunkId, 0, offset, chunkId.length);
-			offset += chunkId.length;
-
-			// Write chunk size
-			writeUnsigned32(memory, offset, chunkSize);
-			offset += 4; // add the size word length
-
-			// Write chunk data
-			final Memory chunkMem = chunk.getMemory();
-			memory.copyBytesFromMemory(chunkMem, Chunk.CHUNK_HEADER_LENGTH, offset, chunkSize);
-			offset += chunkSize;
-			// Pad if necessary
-			if ((chunkSize % 2) != 0) {
-				memory.writeUnsigned8(offset++, (char) 0);
-			}
+			chunk.getMemory().copyBytesToArray(data, offset, 0, Chunk.CHUNK_HEADER_LENGTH + chunkSize);
+			offset += Chunk.CHUNK_HEADER_LENGTH + chunkSize + (chunkSize % 2);
 		}
 		return data;
 	}
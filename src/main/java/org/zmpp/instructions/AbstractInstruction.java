@@ -150,6 +150,33 @@ public abstract class AbstractInstruction implements Instruction {
 		return opcodeNum;
 	}
 
+	/**
+	 * Returns the operands. Used by the routine compiler.
+	 * 
+	 * @return the operands
+	 */
+	Operand[] getOperands() {
+		return operands;
+	}
+
+	/**
+	 * Returns the store variable. Used by the routine compiler.
+	 * 
+	 * @return the store variable
+	 */
+	char getStoreVariable() {
+		return storeVariable;
+	}
+
+	/**
+	 * Returns the branch information. Used by the routine compiler.
+	 * 
+	 * @return the branch information
+	 */
+	BranchInfo getBranchInfo() {
+		return branchInfo;
+	}
+
 	/**
 	 * Determines whether this instruction stores a result.
 	 * 
@@ -63,6 +63,15 @@ public class C0OpInstruction extends AbstractInstruction {
 		this.str = str;
 	}
 
+	/**
+	 * Returns the decoded string of print and print_ret.
+	 *
+	 * @return the string or null
+	 */
+	String getString() {
+		return str;
+	}
+
 	/** {@inheritDoc} */
 	protected OperandCount getOperandCount() {
 		return OperandCount.C0OP;
@@ -0,0 +1,98 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.instructions;
+
+import org.zmpp.vm.Instruction;
+
+/**
+ * The entry of a compiled routine at one of its instructions. It replaces the
+ * interpreted instruction in the InstructionCache and runs the compiled routine
+ * from its address. The number of instructions the routine executed is
+ * reported to the RoutineCompiler, so the execution loop can count them.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+class CompiledInstruction implements Instruction {
+
+	private final RoutineCompiler compiler;
+	private final CompiledRoutine routine;
+	private final int address;
+	private final Instruction instruction;
+	private final boolean isOutput;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param compiler
+	 *            the compiler that counts the executed instructions
+	 * @param routine
+	 *            the compiled routine
+	 * @param address
+	 *            the instruction address
+	 * @param instruction
+	 *            the interpreted instruction at the address
+	 * @param isOutput
+	 *            true if the routine contains output instructions
+	 */
+	CompiledInstruction(RoutineCompiler compiler, CompiledRoutine routine, int address, Instruction instruction,
+			boolean isOutput) {
+		this.compiler = compiler;
+		this.routine = routine;
+		this.address = address;
+		this.instruction = instruction;
+		this.isOutput = isOutput;
+	}
+
+	/** {@inheritDoc} */
+	public void execute() {
+		compiler.addNumExecuted(routine.execute(address));
+	}
+
+	/**
+	 * The compiled routine can run beyond this instruction, so this returns
+	 * true if any instruction in the routine is an output instruction.
+	 * 
+	 * @return true if the routine can produce output
+	 */
+	public boolean isOutput() {
+		return isOutput;
+	}
+
+	/** {@inheritDoc} */
+	public int getLength() {
+		return instruction.getLength();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		return instruction.toString();
+	}
+}
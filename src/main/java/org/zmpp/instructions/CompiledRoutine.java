@@ -0,0 +1,98 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.instructions;
+
+import org.zmpp.vm.Instruction;
+import org.zmpp.vm.Machine;
+import org.zmpp.vm.MachineRunState;
+
+/**
+ * Base class of the routines that are generated by the RoutineCompiler. A
+ * generated routine keeps the local variables of its routine in JVM locals and
+ * executes the instructions it can translate directly. The operations that
+ * need the machine are provided by OpcodeSupport, everything else is executed
+ * by the interpreter's instruction objects.
+ * 
+ * The generated code leaves the routine whenever the control flow leaves it,
+ * that is on calls, returns and when an interpreted instruction changed the
+ * call frames or the run state. Before it leaves, it writes its local
+ * variables back to the call frame and sets the program counter, so the
+ * interpreter can continue seamlessly.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public abstract class CompiledRoutine extends OpcodeSupport {
+
+	private final Instruction[] instructions;
+	private final int[] addresses;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param machine
+	 *            the machine
+	 * @param instructions
+	 *            the decoded instructions of the routine
+	 * @param addresses
+	 *            the instruction addresses
+	 */
+	protected CompiledRoutine(final Machine machine, final Instruction[] instructions, final int[] addresses) {
+		super(machine);
+		this.instructions = instructions;
+		this.addresses = addresses;
+	}
+
+	/**
+	 * Executes the routine, starting at the instruction at the specified
+	 * address.
+	 * 
+	 * @param pc
+	 *            the address of an instruction in this routine
+	 * @return the number of instructions that were executed
+	 */
+	public abstract int execute(int pc);
+
+	/**
+	 * Executes an instruction that was not translated with the interpreter.
+	 * The local variables must have been written back before.
+	 * 
+	 * @param index
+	 *            the instruction index
+	 * @param frameDepth
+	 *            the number of call frames when the routine was entered
+	 * @return true if execution can continue in this routine at the program
+	 *         counter, false if the routine has to be left
+	 */
+	protected final boolean executeInstruction(final int index, final int frameDepth) {
+		setPC(addresses[index]);
+		instructions[index].execute();
+		return getMachine().getRunState() == MachineRunState.RUNNING && getFrameDepth() == frameDepth;
+	}
+}
@@ -0,0 +1,825 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.instructions;
+
+import org.zmpp.base.Memory;
+import org.zmpp.base.StoryFileHeader;
+import org.zmpp.instructions.InstructionInfoDb.InstructionInfo;
+import org.zmpp.vm.Instruction;
+import org.zmpp.vm.Instruction.OperandCount;
+import org.zmpp.vm.Machine;
+import org.zmpp.vm.MachineRunState;
+import org.zmpp.vm.RoutineContext;
+
+/**
+ * An execution engine that interprets instructions without instruction
+ * objects. It reads the opcode bytes from the shared story image, decodes the
+ * operand types with precomputed tables and dispatches with a single switch to
+ * the opcode implementations it shares with the compiled routines. Operands
+ * are evaluated when the implementation reads them, in the same order as the
+ * instruction objects do.
+ * 
+ * Instructions that are rare or complex, such as input, save and restore,
+ * windowing and all extended instructions, are executed by the instruction
+ * objects from the InstructionCache, which also remains the source for
+ * debugging and disassembly.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class DirectInterpreter extends OpcodeSupport {
+
+	// Instruction keys, the operand count in the upper bits, the opcode number
+	// in the lower five bits
+	private static final int C0 = 0x00;
+	private static final int C1 = 0x20;
+	private static final int C2 = 0x40;
+	private static final int VAR = 0x60;
+	private static final int NUM_KEYS = 0x80;
+
+	private static final int FLAG_DIRECT = 1;
+	private static final int FLAG_STORE = 2;
+	private static final int FLAG_BRANCH = 4;
+
+	private static final int EXTENDED = 0xbe;
+	private static final int MAX_OPERANDS = 8;
+	private static final int LARGE = Operand.TYPENUM_LARGE_CONSTANT;
+	private static final int SMALL = Operand.TYPENUM_SMALL_CONSTANT;
+	private static final int VARIABLE = Operand.TYPENUM_VARIABLE;
+	private static final int OMITTED = Operand.TYPENUM_OMITTED;
+
+	/** The instruction key of each first opcode byte. */
+	private static final int[] KEYS = new int[256];
+
+	/** The number of operands each operand type byte specifies. */
+	private static final int[] NUM_OPERANDS = new int[256];
+
+	/** The number of operands the implementation of each key reads. */
+	private static final int[] REQUIRED_OPERANDS = new int[NUM_KEYS];
+
+	static {
+		for (int byte1 = 0; byte1 < 256; byte1++) {
+			if ((byte1 & 0xc0) == 0xc0) {
+				KEYS[byte1] = ((byte1 & 0x20) != 0 ? VAR : C2) | (byte1 & 0x1f);
+			} else if ((byte1 & 0x80) != 0) {
+				KEYS[byte1] = (((byte1 >>> 4) & 0x03) == OMITTED ? C0 : C1) | (byte1 & 0x0f);
+			} else {
+				KEYS[byte1] = C2 | (byte1 & 0x1f);
+			}
+			int numOperands = 0;
+			while (numOperands < 4 && ((byte1 >>> (6 - numOperands * 2)) & 0x03) != OMITTED) {
+				numOperands++;
+			}
+			NUM_OPERANDS[byte1] = numOperands;
+		}
+		for (int key = C1; key < C2; key++) {
+			REQUIRED_OPERANDS[key] = 1;
+		}
+		for (int key = C2; key < VAR; key++) {
+			REQUIRED_OPERANDS[key] = 2;
+		}
+		for (int key = VAR; key < NUM_KEYS; key++) {
+			REQUIRED_OPERANDS[key] = 1;
+		}
+		REQUIRED_OPERANDS[VAR | Instruction.VAR_STOREW] = 3;
+		REQUIRED_OPERANDS[VAR | Instruction.VAR_STOREB] = 3;
+		REQUIRED_OPERANDS[VAR | Instruction.VAR_PUT_PROP] = 3;
+	}
+
+	private final InstructionCache instructionCache;
+	private final int version;
+	private final int staticMemStart;
+	private final Memory storyImage;
+	private final int[] flags = new int[NUM_KEYS];
+	private final char[][] arguments = new char[MAX_OPERANDS][];
+
+	// the decoded current instruction
+	private int pc;
+	private int instructionFlags;
+	private int length;
+	private int numOperands;
+	private final int[] operandTypes = new int[MAX_OPERANDS];
+	private final int[] operandValues = new int[MAX_OPERANDS];
+	private int storeVariable;
+	private boolean branchOnTrue;
+	private int branchOffset;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param machine
+	 *            the machine
+	 * @param instructionCache
+	 *            the cache for the instructions that are not executed directly
+	 */
+	public DirectInterpreter(final Machine machine, final InstructionCache instructionCache) {
+		super(machine);
+		this.instructionCache = instructionCache;
+		this.version = machine.getVersion();
+		this.staticMemStart = machine.readUnsigned16(StoryFileHeader.STATIC_MEM);
+
+		// static and high memory never change, dynamic memory is read from the
+		// machine
+		this.storyImage = machine.getStoryImage();
+		for (int i = 0; i < MAX_OPERANDS; i++) {
+			arguments[i] = new char[i];
+		}
+		final InstructionInfoDb infoDb = InstructionInfoDb.getInstance();
+		final OperandCount[] operandCounts = { OperandCount.C0OP, OperandCount.C1OP, OperandCount.C2OP,
+				OperandCount.VAR };
+		for (int key = 0; key < NUM_KEYS; key++) {
+			final InstructionInfo info = infoDb.getInfo(operandCounts[key >>> 5], key & 0x1f, version);
+			if (info != null) {
+				flags[key] = (isDirect(key) ? FLAG_DIRECT : 0) | (info.isStore() ? FLAG_STORE : 0)
+						| (info.isBranch() ? FLAG_BRANCH : 0);
+			}
+		}
+	}
+
+	/**
+	 * Determines whether the instruction with the specified key is executed
+	 * directly in the story version.
+	 * 
+	 * @param key
+	 *            the instruction key
+	 * @return true if executed directly, false if by the instruction object
+	 */
+	private boolean isDirect(final int key) {
+		switch (key) {
+		case C0 | Instruction.C0OP_RTRUE:
+		case C0 | Instruction.C0OP_RFALSE:
+		case C0 | Instruction.C0OP_NOP:
+		case C0 | Instruction.C0OP_RET_POPPED:
+		case C0 | Instruction.C0OP_NEW_LINE:
+		case VAR | Instruction.VAR_CALL_VS:
+		case VAR | Instruction.VAR_STOREW:
+		case VAR | Instruction.VAR_STOREB:
+		case VAR | Instruction.VAR_PUT_PROP:
+		case VAR | Instruction.VAR_PRINT_CHAR:
+		case VAR | Instruction.VAR_PRINT_NUM:
+		case VAR | Instruction.VAR_RANDOM:
+		case VAR | Instruction.VAR_PUSH:
+		case VAR | Instruction.VAR_CALL_VS2:
+		case VAR | Instruction.VAR_NOT:
+		case VAR | Instruction.VAR_CALL_VN:
+		case VAR | Instruction.VAR_CALL_VN2:
+		case VAR | Instruction.VAR_CHECK_ARG_COUNT:
+			return true;
+		case C0 | Instruction.C0OP_POP:
+			return version < 5;
+		case VAR | Instruction.VAR_PULL:
+			// pulls from a user stack in version 6
+			return version != 6;
+		default:
+			// all 1OP and 2OP instructions up to call_2n
+			return (key >= C1 && key < C2) || (key > C2 && key <= (C2 | Instruction.C2OP_CALL_2N));
+		}
+	}
+
+	/**
+	 * Executes instructions until the maximum number of instructions was
+	 * executed or the run state changed. An instruction that starts waiting
+	 * for input is not counted, it completes when it is executed again.
+	 * 
+	 * @param maxSteps
+	 *            the maximum number of instructions to execute
+	 * @return the number of executed instructions
+	 */
+	public int run(final int maxSteps) {
+		final Machine machine = getMachine();
+		int numSteps = 0;
+		while (numSteps < maxSteps) {
+			step();
+			final MachineRunState runState = machine.getRunState();
+			if (runState != MachineRunState.RUNNING) {
+				if (!runState.isWaitingForInput()) {
+					numSteps++;
+				}
+				break;
+			}
+			numSteps++;
+		}
+		return numSteps;
+	}
+
+	/**
+	 * Decodes and executes the instruction at the program counter.
+	 */
+	private void step() {
+		pc = getPC();
+		final int byte1 = read8(pc);
+		if (byte1 == EXTENDED) {
+			executeInstructionObject();
+			return;
+		}
+		final int key = KEYS[byte1];
+		final int keyFlags = flags[key];
+		instructionFlags = keyFlags;
+		if ((keyFlags & FLAG_DIRECT) == 0) {
+			executeInstructionObject();
+			return;
+		}
+		int addr = pc + 1;
+		if (byte1 < 0x80) {
+			// long form, two small constants or variables
+			operandTypes[0] = (byte1 & 0x40) != 0 ? VARIABLE : SMALL;
+			operandValues[0] = read8(addr);
+			operandTypes[1] = (byte1 & 0x20) != 0 ? VARIABLE : SMALL;
+			operandValues[1] = read8(addr + 1);
+			numOperands = 2;
+			addr += 2;
+		} else if (byte1 < 0xc0) {
+			// short form, one or no operand
+			final int type = (byte1 >>> 4) & 0x03;
+			if (type == OMITTED) {
+				numOperands = 0;
+			} else {
+				operandTypes[0] = type;
+				if (type == LARGE) {
+					operandValues[0] = (read8(addr) << 8) | read8(addr + 1);
+					addr += 2;
+				} else {
+					operandValues[0] = read8(addr++);
+				}
+				numOperands = 1;
+			}
+		} else if (key == (VAR | Instruction.VAR_CALL_VS2) || key == (VAR | Instruction.VAR_CALL_VN2)) {
+			final int typeByte1 = read8(addr);
+			final int typeByte2 = read8(addr + 1);
+			addr = decodeOperands(addr + 2, typeByte1, 0);
+			addr = decodeOperands(addr, typeByte2, numOperands);
+		} else {
+			addr = decodeOperands(addr + 1, read8(addr), 0);
+		}
+		if (numOperands < REQUIRED_OPERANDS[key]) {
+			executeInstructionObject();
+			return;
+		}
+		if ((keyFlags & FLAG_STORE) != 0) {
+			storeVariable = read8(addr++);
+		}
+		if ((keyFlags & FLAG_BRANCH) != 0) {
+			final int branchByte1 = read8(addr++);
+			branchOnTrue = (branchByte1 & 0x80) != 0;
+			if ((branchByte1 & 0x40) != 0) {
+				branchOffset = branchByte1 & 0x3f;
+			} else {
+				// 14 bit signed offset
+				branchOffset = (((branchByte1 & 0x3f) << 8) | read8(addr++)) << 18 >> 18;
+			}
+		}
+		length = addr - pc;
+		if (!execute(key)) {
+			executeInstructionObject();
+		}
+	}
+
+	/**
+	 * Decodes the operands of an operand type byte.
+	 * 
+	 * @param address
+	 *            the address of the first operand
+	 * @param typeByte
+	 *            the operand type byte
+	 * @param first
+	 *            the number of the first operand
+	 * @return the address after the operands
+	 */
+	private int decodeOperands(final int address, final int typeByte, final int first) {
+		int addr = address;
+		final int last = first + NUM_OPERANDS[typeByte];
+		for (int i = first; i < last; i++) {
+			final int type = (typeByte >>> (6 - (i - first) * 2)) & 0x03;
+			operandTypes[i] = type;
+			if (type == LARGE) {
+				operandValues[i] = (read8(addr) << 8) | read8(addr + 1);
+				addr += 2;
+			} else {
+				operandValues[i] = read8(addr++);
+			}
+		}
+		numOperands = last;
+		return addr;
+	}
+
+	/**
+	 * Executes the instruction at the program counter with its instruction
+	 * object.
+	 */
+	private void executeInstructionObject() {
+		instructionCache.getInstruction(pc).execute();
+	}
+
+	/**
+	 * Executes the decoded instruction.
+	 * 
+	 * @param key
+	 *            the instruction key
+	 * @return false if the instruction object has to execute the instruction
+	 */
+	private boolean execute(final int key) {
+		switch (key) {
+		// ******** Returns
+		case C0 | Instruction.C0OP_RTRUE:
+			returnWith(1);
+			break;
+		case C0 | Instruction.C0OP_RFALSE:
+			returnWith(0);
+			break;
+		case C0 | Instruction.C0OP_RET_POPPED:
+			returnWith(pop());
+			break;
+		case C1 | Instruction.C1OP_RET:
+			returnWith(getOperand(0));
+			break;
+
+		// ******** Output
+		case C0 | Instruction.C0OP_NEW_LINE:
+			newline();
+			nextInstruction();
+			break;
+		case C1 | Instruction.C1OP_PRINT_ADDR:
+			printAddress(getOperand(0));
+			nextInstruction();
+			break;
+		case C1 | Instruction.C1OP_PRINT_PADDR:
+			printPackedAddress(getOperand(0));
+			nextInstruction();
+			break;
+		case C1 | Instruction.C1OP_PRINT_OBJ:
+			printObject(getOperand(0));
+			nextInstruction();
+			break;
+		case VAR | Instruction.VAR_PRINT_CHAR:
+			printChar(getOperand(0));
+			nextInstruction();
+			break;
+		case VAR | Instruction.VAR_PRINT_NUM:
+			printNumber(getOperand(0));
+			nextInstruction();
+			break;
+		case VAR | Instruction.VAR_RANDOM:
+			storeResult(random(getOperand(0)));
+			nextInstruction();
+			break;
+
+		// ******** Jumps and branches
+		case C0 | Instruction.C0OP_NOP:
+			nextInstruction();
+			break;
+		case C1 | Instruction.C1OP_JUMP:
+			getMachine().incrementPC(getSignedOperand(0) + 1);
+			break;
+		case C1 | Instruction.C1OP_JZ:
+			branch(getOperand(0) == 0);
+			break;
+		case C2 | Instruction.C2OP_JE:
+			je();
+			break;
+		case C2 | Instruction.C2OP_JL:
+			branch(getSignedOperand(0) < getSignedOperand(1));
+			break;
+		case C2 | Instruction.C2OP_JG:
+			branch(getSignedOperand(0) > getSignedOperand(1));
+			break;
+		case C2 | Instruction.C2OP_TEST: {
+			final int bitmap = getOperand(0);
+			final int flagsToTest = getOperand(1);
+			branch((bitmap & flagsToTest) == flagsToTest);
+			break;
+		}
+		case C2 | Instruction.C2OP_INC_CHK:
+			incrementAndCompare(1);
+			break;
+		case C2 | Instruction.C2OP_DEC_CHK:
+			incrementAndCompare(-1);
+			break;
+		case VAR | Instruction.VAR_CHECK_ARG_COUNT:
+			branch(getOperand(0) <= getNumArguments());
+			break;
+
+		// ******** Arithmetic
+		case C2 | Instruction.C2OP_ADD:
+			storeResult(getSignedOperand(0) + getSignedOperand(1));
+			nextInstruction();
+			break;
+		case C2 | Instruction.C2OP_SUB:
+			storeResult(getSignedOperand(0) - getSignedOperand(1));
+			nextInstruction();
+			break;
+		case C2 | Instruction.C2OP_MUL:
+			storeResult(getSignedOperand(0) * getSignedOperand(1));
+			nextInstruction();
+			break;
+		case C2 | Instruction.C2OP_DIV:
+			divide(false);
+			break;
+		case C2 | Instruction.C2OP_MOD:
+			divide(true);
+			break;
+		case C2 | Instruction.C2OP_OR:
+			storeResult(getOperand(0) | getOperand(1));
+			nextInstruction();
+			break;
+		case C2 | Instruction.C2OP_AND:
+			storeResult(getOperand(0) & getOperand(1));
+			nextInstruction();
+			break;
+		case C1 | Instruction.C1OP_NOT:
+			if (version >= 5) {
+				// call_1n in version 5 and later
+				call(0);
+			} else {
+				storeResult(getOperand(0) ^ 0xffff);
+				nextInstruction();
+			}
+			break;
+		case VAR | Instruction.VAR_NOT:
+			storeResult(getOperand(0) ^ 0xffff);
+			nextInstruction();
+			break;
+
+		// ******** Variables
+		case C1 | Instruction.C1OP_INC:
+			increment(1);
+			break;
+		case C1 | Instruction.C1OP_DEC:
+			increment(-1);
+			break;
+		case C1 | Instruction.C1OP_LOAD: {
+			final int varnum = getOperand(0);
+			storeResult(varnum == 0 ? getStackTop() : getVariable(varnum));
+			nextInstruction();
+			break;
+		}
+		case C2 | Instruction.C2OP_STORE: {
+			final int varnum = getOperand(0);
+			storeIndirect(varnum, getOperand(1));
+			nextInstruction();
+			break;
+		}
+		case VAR | Instruction.VAR_PULL: {
+			final int varnum = getOperand(0);
+			storeIndirect(varnum, pop());
+			nextInstruction();
+			break;
+		}
+		case VAR | Instruction.VAR_PUSH:
+			push(getOperand(0));
+			nextInstruction();
+			break;
+		case C0 | Instruction.C0OP_POP:
+			pop();
+			nextInstruction();
+			break;
+
+		// ******** Memory
+		case C2 | Instruction.C2OP_LOADW:
+			storeResult(loadw(getOperand(0), getOperand(1)));
+			nextInstruction();
+			break;
+		case C2 | Instruction.C2OP_LOADB:
+			storeResult(loadb(getOperand(0), getOperand(1)));
+			nextInstruction();
+			break;
+		case VAR | Instruction.VAR_STOREW: {
+			final int array = getOperand(0);
+			final int index = getSignedOperand(1);
+			storew(array, index, getOperand(2));
+			nextInstruction();
+			break;
+		}
+		case VAR | Instruction.VAR_STOREB: {
+			final int array = getOperand(0);
+			final int index = getSignedOperand(1);
+			storeb(array, index, getOperand(2));
+			nextInstruction();
+			break;
+		}
+
+		// ******** Objects
+		case C2 | Instruction.C2OP_JIN:
+			branch(jin(getOperand(0), getOperand(1)));
+			break;
+		case C2 | Instruction.C2OP_TEST_ATTR:
+			branch(testAttribute(getOperand(0), getOperand(1)));
+			break;
+		case C1 | Instruction.C1OP_GET_SIBLING:
+			storeAndBranchIfObject(getSibling(getOperand(0)));
+			break;
+		case C1 | Instruction.C1OP_GET_CHILD:
+			storeAndBranchIfObject(getChild(getOperand(0)));
+			break;
+		case C1 | Instruction.C1OP_GET_PARENT:
+			storeResult(getParent(getOperand(0)));
+			nextInstruction();
+			break;
+		case C1 | Instruction.C1OP_GET_PROP_LEN:
+			storeResult(getPropertyLength(getOperand(0)));
+			nextInstruction();
+			break;
+		case C2 | Instruction.C2OP_GET_PROP:
+			storeResultIfValid(getProperty(getOperand(0), getOperand(1)));
+			nextInstruction();
+			break;
+		case C2 | Instruction.C2OP_GET_PROP_ADDR:
+			storeResultIfValid(getPropertyAddress(getOperand(0), getOperand(1)));
+			nextInstruction();
+			break;
+		case C2 | Instruction.C2OP_GET_NEXT_PROP:
+			storeResultIfValid(getNextProperty(getOperand(0), getOperand(1)));
+			nextInstruction();
+			break;
+		case C2 | Instruction.C2OP_SET_ATTR:
+			setAttribute(getOperand(0), getOperand(1));
+			nextInstruction();
+			break;
+		case C2 | Instruction.C2OP_CLEAR_ATTR:
+			clearAttribute(getOperand(0), getOperand(1));
+			nextInstruction();
+			break;
+		case C2 | Instruction.C2OP_INSERT_OBJ:
+			insertObject(getOperand(0), getOperand(1));
+			nextInstruction();
+			break;
+		case C1 | Instruction.C1OP_REMOVE_OBJ:
+			removeObject(getOperand(0));
+			nextInstruction();
+			break;
+		case VAR | Instruction.VAR_PUT_PROP: {
+			final int obj = getOperand(0);
+			final int property = getOperand(1);
+			putProperty(obj, property, getOperand(2));
+			nextInstruction();
+			break;
+		}
+
+		// ******** Calls
+		case C1 | Instruction.C1OP_CALL_1S:
+			call(0);
+			break;
+		case C2 | Instruction.C2OP_CALL_2S:
+		case C2 | Instruction.C2OP_CALL_2N:
+			call(1);
+			break;
+		case VAR | Instruction.VAR_CALL_VS:
+		case VAR | Instruction.VAR_CALL_VS2:
+		case VAR | Instruction.VAR_CALL_VN:
+		case VAR | Instruction.VAR_CALL_VN2:
+			call(numOperands - 1);
+			break;
+		default:
+			return false;
+		}
+		return true;
+	}
+
+	// *********************************************************************
+	// ******** Instructions
+	// ***********************************
+
+	/**
+	 * The je instruction, the operands after the first are only evaluated up
+	 * to the first match.
+	 */
+	private void je() {
+		final int value = getOperand(0);
+		boolean equal = false;
+		for (int i = 1; i < numOperands; i++) {
+			if (getOperand(i) == value) {
+				equal = true;
+				break;
+			}
+		}
+		branch(equal);
+	}
+
+	/**
+	 * The div and mod instructions, a division by zero halts the machine.
+	 * 
+	 * @param remainder
+	 *            true for mod, false for div
+	 */
+	private void divide(final boolean remainder) {
+		final int dividend = getSignedOperand(0);
+		final int divisor = getSignedOperand(1);
+		if (divisor == 0) {
+			halt(remainder ? "@mod division by zero" : "@div division by zero");
+		} else {
+			storeResult(remainder ? dividend % divisor : dividend / divisor);
+			nextInstruction();
+		}
+	}
+
+	/**
+	 * The inc and dec instructions.
+	 * 
+	 * @param delta
+	 *            1 or -1
+	 */
+	private void increment(final int delta) {
+		final int varnum = getOperand(0);
+		setVariable(varnum, getVariable(varnum) + delta);
+		nextInstruction();
+	}
+
+	/**
+	 * The inc_chk and dec_chk instructions.
+	 * 
+	 * @param delta
+	 *            1 or -1
+	 */
+	private void incrementAndCompare(final int delta) {
+		final int varnum = getOperand(0);
+		final int limit = getSignedOperand(1);
+		final int value = (short) ((short) getVariable(varnum) + delta);
+		setVariable(varnum, value);
+		branch(delta > 0 ? value > limit : value < limit);
+	}
+
+	/**
+	 * Stores the object number of get_sibling and get_child and branches if
+	 * it is an object.
+	 * 
+	 * @param obj
+	 *            the object number
+	 */
+	private void storeAndBranchIfObject(final int obj) {
+		storeResult(obj);
+		branch(obj > 0);
+	}
+
+	/**
+	 * Calls the routine in the first operand with the following operands as
+	 * arguments. A call to address 0 stores 0 and continues.
+	 * 
+	 * @param numArgs
+	 *            the number of arguments
+	 */
+	private void call(final int numArgs) {
+		final int packedAddress = getOperand(0);
+		final char[] args = arguments[numArgs];
+		for (int i = 0; i < numArgs; i++) {
+			args[i] = (char) getOperand(i + 1);
+		}
+		final boolean storesResult = (instructionFlags & FLAG_STORE) != 0;
+		if (packedAddress == 0) {
+			if (storesResult) {
+				storeResult(0);
+			}
+			nextInstruction();
+		} else {
+			call(packedAddress, pc + length, args, storesResult ? storeVariable : RoutineContext.DISCARD_RESULT);
+		}
+	}
+
+	// *********************************************************************
+	// ******** Operands and results
+	// ***********************************
+
+	/**
+	 * Returns the unsigned value of an operand, reading a variable operand.
+	 * 
+	 * @param operandNum
+	 *            the operand number
+	 * @return the value
+	 */
+	private int getOperand(final int operandNum) {
+		return operandTypes[operandNum] == VARIABLE ? getVariable(operandValues[operandNum])
+				: operandValues[operandNum];
+	}
+
+	/**
+	 * Returns the signed value of an operand.
+	 * 
+	 * @param operandNum
+	 *            the operand number
+	 * @return the value
+	 */
+	private int getSignedOperand(final int operandNum) {
+		return (short) getOperand(operandNum);
+	}
+
+	/**
+	 * Reads a variable, variable 0 pops the stack.
+	 * 
+	 * @param varnum
+	 *            the variable number
+	 * @return the value
+	 */
+	private int getVariable(final int varnum) {
+		return getMachine().getVariable((char) varnum);
+	}
+
+	/**
+	 * Writes a variable, variable 0 pushes onto the stack.
+	 * 
+	 * @param varnum
+	 *            the variable number
+	 * @param value
+	 *            the value
+	 */
+	private void setVariable(final int varnum, final int value) {
+		getMachine().setVariable((char) varnum, (char) value);
+	}
+
+	/**
+	 * Writes the variable named by an operand, variable 0 replaces the top of
+	 * the stack.
+	 * 
+	 * @param varnum
+	 *            the variable number
+	 * @param value
+	 *            the value
+	 */
+	private void storeIndirect(final int varnum, final int value) {
+		if (varnum == 0) {
+			setStackTop(value);
+		} else {
+			setVariable(varnum, value);
+		}
+	}
+
+	/**
+	 * Stores the result in the store variable.
+	 * 
+	 * @param value
+	 *            the value
+	 */
+	private void storeResult(final int value) {
+		setVariable(storeVariable, value);
+	}
+
+	/**
+	 * Stores the result of get_prop, get_prop_addr and get_next_prop, which is
+	 * -1 if nothing is stored.
+	 * 
+	 * @param value
+	 *            the value
+	 */
+	private void storeResultIfValid(final int value) {
+		if (value >= 0) {
+			storeResult(value);
+		}
+	}
+
+	/**
+	 * Continues with the next instruction.
+	 */
+	private void nextInstruction() {
+		getMachine().incrementPC(length);
+	}
+
+	/**
+	 * Branches if the condition matches the branch condition, offsets 0 and 1
+	 * return false and true.
+	 * 
+	 * @param condition
+	 *            the condition
+	 */
+	private void branch(final boolean condition) {
+		if (condition == branchOnTrue) {
+			getMachine().doBranch((short) branchOffset, length);
+		} else {
+			nextInstruction();
+		}
+	}
+
+	/**
+	 * Reads an instruction byte, static and high memory come from the story
+	 * image.
+	 * 
+	 * @param address
+	 *            the address
+	 * @return the byte value
+	 */
+	private int read8(final int address) {
+		return address >= staticMemStart ? storyImage.readUnsigned8(address) : getMachine().readUnsigned8(address);
+	}
+}
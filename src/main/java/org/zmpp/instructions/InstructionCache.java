@@ -0,0 +1,162 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.instructions;
+
+import org.zmpp.base.MemoryWriteListener;
+import org.zmpp.vm.Instruction;
+
+/**
+ * A cache for decoded instructions, indexed by their program counter.
+ * Instruction objects are immutable after decoding, so an instruction only
+ * needs to be decoded once, the first time it is executed. The table is
+ * organized in pages which are only allocated for code areas.
+ * 
+ * Code in static and high memory never changes, these entries stay valid for
+ * the whole session. Entries in dynamic memory are dropped when the story
+ * writes into the area they occupy.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class InstructionCache implements MemoryWriteListener {
+
+	private static final int PAGE_BITS = 8;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private static final int INITIAL_NUM_PAGES = 256;
+
+	private InstructionDecoder decoder;
+	private int staticMemStart;
+	private Instruction[][] pages = new Instruction[INITIAL_NUM_PAGES][];
+
+	/** The address range covered by cached instructions in dynamic memory. */
+	private int dynamicLow = Integer.MAX_VALUE, dynamicHigh = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param decoder
+	 *            the decoder to fill the cache with
+	 * @param staticMemStart
+	 *            the start address of static memory
+	 */
+	public InstructionCache(InstructionDecoder decoder, int staticMemStart) {
+		this.decoder = decoder;
+		this.staticMemStart = staticMemStart;
+	}
+
+	/**
+	 * Returns the instruction at the specified address, decoding it if it is
+	 * not in the cache yet.
+	 * 
+	 * @param address
+	 *            the instruction address
+	 * @return the instruction
+	 */
+	public Instruction getInstruction(final int address) {
+		final int pageNum = address >>> PAGE_BITS;
+		if (pageNum < pages.length) {
+			final Instruction[] page = pages[pageNum];
+			if (page != null) {
+				final Instruction instr = page[address & PAGE_MASK];
+				if (instr != null) {
+					return instr;
+				}
+			}
+		}
+		final Instruction instr = decoder.decodeInstruction(address);
+		put(address, instr);
+		return instr;
+	}
+
+	/**
+	 * Replaces the instruction at the specified address, this is used to
+	 * install compiled routines.
+	 * 
+	 * @param address
+	 *            the instruction address
+	 * @param instr
+	 *            the instruction
+	 */
+	public void install(final int address, final Instruction instr) {
+		put(address, instr);
+	}
+
+	/**
+	 * Adds an instruction to the cache.
+	 * 
+	 * @param address
+	 *            the instruction address
+	 * @param instr
+	 *            the instruction
+	 */
+	private void put(final int address, final Instruction instr) {
+		final int pageNum = address >>> PAGE_BITS;
+		if (pageNum >= pages.length) {
+			final Instruction[][] newPages = new Instruction[Math.max(pageNum + 1, pages.length * 2)][];
+			System.arraycopy(pages, 0, newPages, 0, pages.length);
+			pages = newPages;
+		}
+		if (pages[pageNum] == null) {
+			pages[pageNum] = new Instruction[PAGE_SIZE];
+		}
+		pages[pageNum][address & PAGE_MASK] = instr;
+		if (address < staticMemStart) {
+			dynamicLow = Math.min(dynamicLow, address);
+			dynamicHigh = Math.max(dynamicHigh, address + instr.getLength());
+		}
+	}
+
+	/**
+	 * Removes all instructions that were decoded in dynamic memory.
+	 */
+	private void clearDynamic() {
+		for (int pageNum = dynamicLow >>> PAGE_BITS; pageNum <= (dynamicHigh - 1) >>> PAGE_BITS; pageNum++) {
+			pages[pageNum] = null;
+		}
+		dynamicLow = Integer.MAX_VALUE;
+		dynamicHigh = 0;
+	}
+
+	/**
+	 * Removes all cached instructions.
+	 */
+	public void clear() {
+		pages = new Instruction[INITIAL_NUM_PAGES][];
+		dynamicLow = Integer.MAX_VALUE;
+		dynamicHigh = 0;
+	}
+
+	/** {@inheritDoc} */
+	public void memoryWritten(final int address, final int numBytes) {
+		if (address < dynamicHigh && address + numBytes > dynamicLow) {
+			clearDynamic();
+		}
+	}
+}
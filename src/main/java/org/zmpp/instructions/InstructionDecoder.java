@@ -121,13 +121,7 @@ public class InstructionDecoder implements Serializable {
 	private Instruction decodeShort(int instrAddress, char byte1) {
 		OperandCount opCount = (byte1 & BITS_4_5) == BITS_4_5 ? C0OP : C1OP;
 		char opcodeNum = (char) (byte1 & LOWER_4_BITS);
-		InstructionInfo info = INFO_DB.getInfo(opCount, opcodeNum, machine.getVersion());
-		if (info == null) {
-			System.out.printf("ILLEGAL SHORT operation, instrAddr: $%04x, OC: %s, " + "opcode: #$%02x, Version: %d\n",
-					instrAddress, opCount.toString(), (int) opcodeNum, machine.getVersion());
-			// infoDb.printKeys();
-			throw new java.lang.UnsupportedOperationException("Exit !!");
-		}
+		InstructionInfo info = getInfo(instrAddress, opCount, opcodeNum);
 		int zsciiLength = 0;
 
 		// extract operand
@@ -146,8 +140,8 @@ public class InstructionDecoder implements Serializable {
 		}
 		int numOperandBytes = getOperandLength(operandType);
 		int currentAddr = instrAddress + LEN_OPCODE + numOperandBytes;
-		return createInstruction(opCount, instrAddress, opcodeNum, currentAddr, numOperandBytes, zsciiLength,
-				operandTypes, operands, str);
+		return createInstruction(info, opCount, opcodeNum, currentAddr, numOperandBytes, zsciiLength, operandTypes,
+				operands, str);
 	}
 
 	/**
@@ -171,8 +165,8 @@ public class InstructionDecoder implements Serializable {
 		int currentAddr = instrAddress + LEN_OPCODE + LEN_LONG_OPERANDS;
 		// System.out.printf("LONG 2OP, opnum: %d, byte1: %d, addr: $%04x\n",
 		// (int) opcodeNum, (int) byte1, instrAddress);
-		return createInstruction(C2OP, instrAddress, opcodeNum, currentAddr, numOperandBytes, 0,
-				new int[] { operandType1, operandType2 }, new char[] { operand1, operand2 }, null);
+		return createInstruction(getInfo(instrAddress, C2OP, opcodeNum), C2OP, opcodeNum, currentAddr, numOperandBytes,
+				0, new int[] { operandType1, operandType2 }, new char[] { operand1, operand2 }, null);
 	}
 
 	/**
@@ -272,18 +266,39 @@ public class InstructionDecoder implements Serializable {
 		// since the first byte is always $be
 		int numExtraOpcodeBytes = isExtended ? 1 : 0;
 		int currentAddr = instrAddress + opTypesOffset + numOperandBytes;
-		return createInstruction(opCount, instrAddress, opcodeNum, currentAddr,
+		return createInstruction(getInfo(instrAddress, opCount, opcodeNum), opCount, opcodeNum, currentAddr,
 				numExtraOpcodeBytes + numOperandBytes + numOperandTypeBytes, 0, operandTypes, operands, null);
 	}
 
+	/**
+	 * Looks up the instruction information for the specified instruction.
+	 * 
+	 * @param instrAddress
+	 *            the instruction address
+	 * @param opCount
+	 *            the OperandCount
+	 * @param opcodeNum
+	 *            the opcode number
+	 * @return the instruction info
+	 */
+	private InstructionInfo getInfo(int instrAddress, OperandCount opCount, char opcodeNum) {
+		InstructionInfo info = INFO_DB.getInfo(opCount, opcodeNum, machine.getVersion());
+		if (info == null) {
+			System.out.printf("ILLEGAL operation, instrAddr: $%04x OC: %s, " + "opcode: #$%02x, Version: %d\n",
+					instrAddress, opCount.toString(), (int) opcodeNum, machine.getVersion());
+			throw new java.lang.UnsupportedOperationException("Exit !!");
+		}
+		return info;
+	}
+
 	/**
 	 * The generic part of instruction decoding, extracting store variable and
 	 * branch offset is always the same for all instruction forms.
 	 * 
+	 * @param info
+	 *            the instruction info
 	 * @param opCount
 	 *            the OperandCount
-	 * @param instrAddress
-	 *            the instruction address
 	 * @param opcodeNum
 	 *            the opcode number
 	 * @param addrAfterOperands
@@ -300,18 +315,13 @@ public class InstructionDecoder implements Serializable {
 	 *            the ZSCII string or null
 	 * @return the instruction
 	 */
-	private Instruction createInstruction(OperandCount opCount, int instrAddress, char opcodeNum, int addrAfterOperands,
-			int numOperandBytes, int zsciiLength, int[] operandTypes, char[] operands, String str) {
+	private Instruction createInstruction(InstructionInfo info, OperandCount opCount, char opcodeNum,
+			int addrAfterOperands, int numOperandBytes, int zsciiLength, int[] operandTypes, char[] operands,
+			String str) {
 		int currentAddr = addrAfterOperands;
 		int storeVarLen = 0;
 		char storeVar = 0;
 		Operand[] instrOperands = createOperands(operandTypes, operands);
-		InstructionInfo info = INFO_DB.getInfo(opCount, opcodeNum, machine.getVersion());
-		if (info == null) {
-			System.out.printf("ILLEGAL operation, instrAddr: $%04x OC: %s, " + "opcode: #$%02x, Version: %d\n",
-					instrAddress, opCount.toString(), (int) opcodeNum, machine.getVersion());
-			throw new java.lang.UnsupportedOperationException("Exit !!");
-		}
 		if (info.isStore()) {
 			storeVar = machine.readUnsigned8(currentAddr);
 			currentAddr++;
@@ -28,8 +28,6 @@
  */
 package org.zmpp.instructions;
 
-import java.util.HashMap;
-import java.util.Map;
 import static org.zmpp.vm.Instruction.*;
 import static org.zmpp.vm.Instruction.OperandCount.*;
 
@@ -55,12 +53,22 @@ public final class InstructionInfoDb {
 	private static final int[] V4 = { 4 };
 	private static final int[] V6 = { 6 };
 
+	// Dimensions of the lookup table
+	private static final int MAX_VERSION = 8;
+	private static final int NUM_OPCODES = 32;
+
+	/** Flag bits of an instruction. */
+	public static final int FLAG_BRANCH = 1;
+	public static final int FLAG_STORE = 2;
+	public static final int FLAG_PRINT = 4;
+	public static final int FLAG_OUTPUT = 8;
+
 	/**
 	 * Information structure about the instruction.
 	 */
 	public static class InstructionInfo {
 		private String name;
-		private boolean isStore, isBranch, isPrint, isOutput;
+		private int flags;
 
 		/**
 		 * Constructor.
@@ -78,10 +86,17 @@ public final class InstructionInfoDb {
 		 */
 		public InstructionInfo(String name, boolean isBranch, boolean isStore, boolean isPrint, boolean isOutput) {
 			this.name = name;
-			this.isBranch = isBranch;
-			this.isStore = isStore;
-			this.isPrint = isPrint;
-			this.isOutput = isOutput;
+			this.flags = (isBranch ? FLAG_BRANCH : 0) | (isStore ? FLAG_STORE : 0) | (isPrint ? FLAG_PRINT : 0)
+					| (isOutput ? FLAG_OUTPUT : 0);
+		}
+
+		/**
+		 * Returns the flag bits of this instruction.
+		 * 
+		 * @return the flags
+		 */
+		public int getFlags() {
+			return flags;
 		}
 
 		/**
@@ -90,7 +105,7 @@ public final class InstructionInfoDb {
 		 * @return true for store, false if not
 		 */
 		public boolean isStore() {
-			return isStore;
+			return (flags & FLAG_STORE) != 0;
 		}
 
 		/**
@@ -99,7 +114,7 @@ public final class InstructionInfoDb {
 		 * @return true for branch, false if not
 		 */
 		public boolean isBranch() {
-			return isBranch;
+			return (flags & FLAG_BRANCH) != 0;
 		}
 
 		/**
@@ -109,7 +124,7 @@ public final class InstructionInfoDb {
 		 * @return true for print, false if not
 		 */
 		public boolean isPrint() {
-			return isPrint;
+			return (flags & FLAG_PRINT) != 0;
 		}
 
 		/**
@@ -119,7 +134,7 @@ public final class InstructionInfoDb {
 		 * @return true for output, false if not
 		 */
 		public boolean isOutput() {
-			return isOutput;
+			return (flags & FLAG_OUTPUT) != 0;
 		}
 
 		/**
@@ -199,8 +214,12 @@ public final class InstructionInfoDb {
 		return new InstructionInfo(name, false, false, false, true);
 	}
 
-	/** The hashmap to represent the database */
-	private Map<String, InstructionInfo> infoMap = new HashMap<String, InstructionInfo>();
+	/**
+	 * The database is a dense table, indexed by [version][operand count][opcode
+	 * number], so a lookup is just a couple of array accesses.
+	 */
+	private InstructionInfo[][][] infoTable = new InstructionInfo[MAX_VERSION + 1][OperandCount.values().length]
+			[NUM_OPCODES];
 
 	/**
 	 * Private constructor.
@@ -369,7 +388,7 @@ public final class InstructionInfoDb {
 	 */
 	private void addInfoFor(InstructionInfo info, OperandCount opCount, int opcodeNum, int[] versions) {
 		for (int version : versions) {
-			infoMap.put(createKey(opCount, opcodeNum, version), info);
+			infoTable[version][opCount.ordinal()][opcodeNum] = info;
 		}
 	}
 
@@ -385,7 +404,7 @@ public final class InstructionInfoDb {
 	}
 
 	/**
-	 * Creates the hash key for the specified instruction information.
+	 * Returns the information struct for the specified instruction.
 	 * 
 	 * @param opCount
 	 *            the operand count
@@ -393,14 +412,17 @@ public final class InstructionInfoDb {
 	 *            the opcode number
 	 * @param version
 	 *            the story version
-	 * @return the key
+	 * @return the instruction info struct
 	 */
-	private String createKey(OperandCount opCount, int opcodeNum, int version) {
-		return opCount.toString() + ":" + opcodeNum + ":" + version;
+	public InstructionInfo getInfo(OperandCount opCount, int opcodeNum, int version) {
+		if (opcodeNum < 0 || opcodeNum >= NUM_OPCODES || version < 1 || version > MAX_VERSION) {
+			return null;
+		}
+		return infoTable[version][opCount.ordinal()][opcodeNum];
 	}
 
 	/**
-	 * Returns the information struct for the specified instruction.
+	 * Returns the flag bits for the specified instruction.
 	 * 
 	 * @param opCount
 	 *            the operand count
@@ -408,12 +430,11 @@ public final class InstructionInfoDb {
 	 *            the opcode number
 	 * @param version
 	 *            the story version
-	 * @return the instruction info struct
+	 * @return the flags or 0 if the instruction is not valid
 	 */
-	public InstructionInfo getInfo(OperandCount opCount, int opcodeNum, int version) {
-		// System.out.println("GENERATING KEY: " +
-		// createKey(opCount, opcodeNum, version));
-		return infoMap.get(createKey(opCount, opcodeNum, version));
+	public int getFlags(OperandCount opCount, int opcodeNum, int version) {
+		final InstructionInfo info = getInfo(opCount, opcodeNum, version);
+		return info == null ? 0 : info.getFlags();
 	}
 
 	/**
@@ -428,7 +449,7 @@ public final class InstructionInfoDb {
 	 * @return true if valid, false otherwise
 	 */
 	public boolean isValid(OperandCount opCount, int opcodeNum, int version) {
-		return infoMap.containsKey(createKey(opCount, opcodeNum, version));
+		return getInfo(opCount, opcodeNum, version) != null;
 	}
 
 	/**
@@ -436,9 +457,10 @@ public final class InstructionInfoDb {
 	 */
 	public void printKeys() {
 		System.out.println("INFO MAP KEYS: ");
-		for (String key : infoMap.keySet()) {
-			if (key.startsWith("C1OP:0"))
-				System.out.println(key);
+		for (int version = 1; version <= MAX_VERSION; version++) {
+			if (infoTable[version][C1OP.ordinal()][0] != null) {
+				System.out.println(C1OP + ":0:" + version);
+			}
 		}
 	}
 }
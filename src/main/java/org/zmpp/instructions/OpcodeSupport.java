@@ -0,0 +1,602 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.instructions;
+
+import org.zmpp.vm.Machine;
+
+/**
+ * Implementations of the instructions that are shared by the execution engines
+ * which do not use the instruction objects, the generated routines of the
+ * RoutineCompiler and the DirectInterpreter. Values are passed as ints, the
+ * methods convert them the same way the instruction objects do and print the
+ * same warnings, so all engines behave identically.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public abstract class OpcodeSupport {
+
+	private final Machine machine;
+	private final int numAttributes;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param machine
+	 *            the machine
+	 */
+	protected OpcodeSupport(final Machine machine) {
+		this.machine = machine;
+		this.numAttributes = machine.getVersion() <= 3 ? 32 : 48;
+	}
+
+	/**
+	 * Returns the machine.
+	 * 
+	 * @return the machine
+	 */
+	protected final Machine getMachine() {
+		return machine;
+	}
+
+	// *********************************************************************
+	// ******** Machine state
+	// ***********************************
+
+	/**
+	 * Returns the number of active call frames.
+	 * 
+	 * @return the number of call frames
+	 */
+	protected final int getFrameDepth() {
+		return machine.getRoutineContexts().size();
+	}
+
+	/**
+	 * Returns the program counter.
+	 * 
+	 * @return the program counter
+	 */
+	protected final int getPC() {
+		return machine.getPC();
+	}
+
+	/**
+	 * Sets the program counter.
+	 * 
+	 * @param address
+	 *            the new program counter
+	 */
+	protected final void setPC(final int address) {
+		machine.setPC(address);
+	}
+
+	/**
+	 * Reads a local variable of the current call frame.
+	 * 
+	 * @param varnum
+	 *            the variable number, 1-15
+	 * @return the value
+	 */
+	protected final int getLocal(final int varnum) {
+		return machine.getVariable((char) varnum);
+	}
+
+	/**
+	 * Writes a local variable of the current call frame.
+	 * 
+	 * @param varnum
+	 *            the variable number, 1-15
+	 * @param value
+	 *            the value
+	 */
+	protected final void setLocal(final int varnum, final int value) {
+		machine.setVariable((char) varnum, (char) value);
+	}
+
+	/**
+	 * Pops a value from the stack.
+	 * 
+	 * @return the value
+	 */
+	protected final int pop() {
+		return machine.getVariable((char) 0);
+	}
+
+	/**
+	 * Pushes a value onto the stack.
+	 * 
+	 * @param value
+	 *            the value
+	 */
+	protected final void push(final int value) {
+		machine.setVariable((char) 0, (char) value);
+	}
+
+	/**
+	 * Returns the top of the stack without removing it.
+	 * 
+	 * @return the value
+	 */
+	protected final int getStackTop() {
+		return machine.getStackTop();
+	}
+
+	/**
+	 * Replaces the top of the stack.
+	 * 
+	 * @param value
+	 *            the value
+	 */
+	protected final void setStackTop(final int value) {
+		machine.setStackTop((char) value);
+	}
+
+	/**
+	 * Returns the number of arguments passed to the current routine.
+	 * 
+	 * @return the number of arguments
+	 */
+	protected final int getNumArguments() {
+		return machine.getCurrentNumArguments();
+	}
+
+	/**
+	 * Halts the machine.
+	 * 
+	 * @param message
+	 *            the error message
+	 */
+	protected final void halt(final String message) {
+		machine.halt(message);
+	}
+
+	// *********************************************************************
+	// ******** Memory
+	// ***********************************
+
+	/**
+	 * Reads a 16 bit word, used for global variables.
+	 * 
+	 * @param address
+	 *            the address
+	 * @return the value
+	 */
+	protected final int readWord(final int address) {
+		return machine.readUnsigned16(address);
+	}
+
+	/**
+	 * Writes a 16 bit word, used for global variables.
+	 * 
+	 * @param address
+	 *            the address
+	 * @param value
+	 *            the value
+	 */
+	protected final void writeWord(final int address, final int value) {
+		machine.writeUnsigned16(address, (char) value);
+	}
+
+	/**
+	 * The loadw instruction.
+	 * 
+	 * @param array
+	 *            the array address
+	 * @param index
+	 *            the word index
+	 * @return the value
+	 */
+	protected final int loadw(final int array, final int index) {
+		return machine.readUnsigned16((array + 2 * index) & 0xffff);
+	}
+
+	/**
+	 * The loadb instruction.
+	 * 
+	 * @param array
+	 *            the array address
+	 * @param index
+	 *            the byte index
+	 * @return the value
+	 */
+	protected final int loadb(final int array, final int index) {
+		return machine.readUnsigned8((array + index) & 0xffff);
+	}
+
+	/**
+	 * The storew instruction.
+	 * 
+	 * @param array
+	 *            the array address
+	 * @param index
+	 *            the signed word index
+	 * @param value
+	 *            the value
+	 */
+	protected final void storew(final int array, final int index, final int value) {
+		machine.writeUnsigned16((array + 2 * index) & 0xffff, (char) value);
+	}
+
+	/**
+	 * The storeb instruction.
+	 * 
+	 * @param array
+	 *            the array address
+	 * @param index
+	 *            the signed byte index
+	 * @param value
+	 *            the value
+	 */
+	protected final void storeb(final int array, final int index, final int value) {
+		machine.writeUnsigned8((array + index) & 0xffff, (char) (value & 0xff));
+	}
+
+	// *********************************************************************
+	// ******** Objects
+	// ***********************************
+
+	/**
+	 * The jin instruction.
+	 * 
+	 * @param obj1
+	 *            the child object
+	 * @param obj2
+	 *            the parent object
+	 * @return true if obj2 is the parent of obj1
+	 */
+	protected final boolean jin(final int obj1, final int obj2) {
+		int parentOfObj1 = 0;
+		if (obj1 > 0) {
+			parentOfObj1 = machine.getParent(obj1);
+		} else {
+			machine.warn("@jin illegal access to object " + obj1);
+		}
+		return parentOfObj1 == obj2;
+	}
+
+	/**
+	 * The get_parent instruction.
+	 * 
+	 * @param obj
+	 *            the object
+	 * @return the parent
+	 */
+	protected final int getParent(final int obj) {
+		if (obj > 0) {
+			return machine.getParent(obj) & 0xffff;
+		}
+		machine.warn("@get_parent illegal access to object " + obj);
+		return 0;
+	}
+
+	/**
+	 * The get_sibling instruction.
+	 * 
+	 * @param obj
+	 *            the object
+	 * @return the sibling
+	 */
+	protected final int getSibling(final int obj) {
+		if (obj > 0) {
+			return machine.getSibling(obj) & 0xffff;
+		}
+		machine.warn("@get_sibling illegal access to object " + obj);
+		return 0;
+	}
+
+	/**
+	 * The get_child instruction.
+	 * 
+	 * @param obj
+	 *            the object
+	 * @return the child
+	 */
+	protected final int getChild(final int obj) {
+		if (obj > 0) {
+			return machine.getChild(obj) & 0xffff;
+		}
+		machine.warn("@get_child illegal access to object " + obj);
+		return 0;
+	}
+
+	/**
+	 * The insert_obj instruction.
+	 * 
+	 * @param obj
+	 *            the object
+	 * @param dest
+	 *            the new parent
+	 */
+	protected final void insertObject(final int obj, final int dest) {
+		if (obj > 0 && dest > 0) {
+			machine.insertObject(dest, obj);
+		} else {
+			machine.warn("@insert_obj with object 0 called, obj: " + obj + ", dest: " + dest);
+		}
+	}
+
+	/**
+	 * The remove_obj instruction.
+	 * 
+	 * @param obj
+	 *            the object
+	 */
+	protected final void removeObject(final int obj) {
+		if (obj > 0) {
+			machine.removeObject(obj);
+		}
+	}
+
+	/**
+	 * The test_attr instruction.
+	 * 
+	 * @param obj
+	 *            the object
+	 * @param attr
+	 *            the attribute
+	 * @return true if the attribute is set
+	 */
+	protected final boolean testAttribute(final int obj, final int attr) {
+		if (obj > 0 && attr < numAttributes) {
+			return machine.isAttributeSet(obj, attr);
+		}
+		machine.warn("@test_attr illegal access to object " + obj);
+		return false;
+	}
+
+	/**
+	 * The set_attr instruction.
+	 * 
+	 * @param obj
+	 *            the object
+	 * @param attr
+	 *            the attribute
+	 */
+	protected final void setAttribute(final int obj, final int attr) {
+		if (obj > 0 && attr < numAttributes) {
+			machine.setAttribute(obj, attr);
+		} else {
+			machine.warn("@set_attr illegal access to object " + obj + " attr: " + attr);
+		}
+	}
+
+	/**
+	 * The clear_attr instruction.
+	 * 
+	 * @param obj
+	 *            the object
+	 * @param attr
+	 *            the attribute
+	 */
+	protected final void clearAttribute(final int obj, final int attr) {
+		if (obj > 0 && attr < numAttributes) {
+			machine.clearAttribute(obj, attr);
+		} else {
+			machine.warn("@clear_attr illegal access to object " + obj + " attr: " + attr);
+		}
+	}
+
+	/**
+	 * The get_prop instruction.
+	 * 
+	 * @param obj
+	 *            the object
+	 * @param property
+	 *            the property
+	 * @return the property value or -1 if nothing should be stored
+	 */
+	protected final int getProperty(final int obj, final int property) {
+		if (obj > 0) {
+			return machine.getProperty(obj, property);
+		}
+		machine.warn("@get_prop illegal access to object " + obj);
+		return -1;
+	}
+
+	/**
+	 * The get_prop_addr instruction.
+	 * 
+	 * @param obj
+	 *            the object
+	 * @param property
+	 *            the property
+	 * @return the property address or -1 if nothing should be stored
+	 */
+	protected final int getPropertyAddress(final int obj, final int property) {
+		if (obj > 0) {
+			return machine.getPropertyAddress(obj, property) & 0xffff;
+		}
+		machine.warn("@get_prop_addr illegal access to object " + obj);
+		return -1;
+	}
+
+	/**
+	 * The get_next_prop instruction.
+	 * 
+	 * @param obj
+	 *            the object
+	 * @param property
+	 *            the property
+	 * @return the next property or -1 if nothing should be stored
+	 */
+	protected final int getNextProperty(final int obj, final int property) {
+		if (obj > 0) {
+			return machine.getNextProperty(obj, property) & 0xffff;
+		}
+		machine.warn("@get_next_prop illegal access to object " + obj);
+		return -1;
+	}
+
+	/**
+	 * The get_prop_len instruction.
+	 * 
+	 * @param propertyAddress
+	 *            the property address
+	 * @return the property length
+	 */
+	protected final int getPropertyLength(final int propertyAddress) {
+		return machine.getPropertyLength(propertyAddress) & 0xffff;
+	}
+
+	/**
+	 * The put_prop instruction.
+	 * 
+	 * @param obj
+	 *            the object
+	 * @param property
+	 *            the property
+	 * @param value
+	 *            the value
+	 */
+	protected final void putProperty(final int obj, final int property, final int value) {
+		if (obj > 0) {
+			machine.setProperty(obj, property, (char) value);
+		} else {
+			machine.warn("@put_prop illegal access to object " + obj);
+		}
+	}
+
+	// *********************************************************************
+	// ******** Output
+	// ***********************************
+
+	/**
+	 * The print instruction.
+	 *
+	 * @param str
+	 *            the decoded string
+	 */
+	protected final void print(final String str) {
+		machine.print(str);
+	}
+
+	/**
+	 * The new_line instruction.
+	 */
+	protected final void newline() {
+		machine.newline();
+	}
+
+	/**
+	 * The print_char instruction.
+	 *
+	 * @param zchar
+	 *            the ZSCII character
+	 */
+	protected final void printChar(final int zchar) {
+		machine.printZsciiChar((char) zchar);
+	}
+
+	/**
+	 * The print_num instruction.
+	 *
+	 * @param number
+	 *            the number
+	 */
+	protected final void printNumber(final int number) {
+		machine.printNumber((short) number);
+	}
+
+	/**
+	 * The print_addr instruction.
+	 *
+	 * @param address
+	 *            the string address
+	 */
+	protected final void printAddress(final int address) {
+		machine.printZString(address);
+	}
+
+	/**
+	 * The print_paddr instruction.
+	 *
+	 * @param packedAddress
+	 *            the packed string address
+	 */
+	protected final void printPackedAddress(final int packedAddress) {
+		machine.printZString(machine.unpackStringAddress((char) packedAddress));
+	}
+
+	/**
+	 * The print_obj instruction.
+	 *
+	 * @param obj
+	 *            the object
+	 */
+	protected final void printObject(final int obj) {
+		if (obj > 0) {
+			machine.printZString(machine.getPropertiesDescriptionAddress(obj));
+		} else {
+			machine.warn("@print_obj illegal access to object " + obj);
+		}
+	}
+
+	/**
+	 * The random instruction.
+	 *
+	 * @param range
+	 *            the range
+	 * @return the random number
+	 */
+	protected final int random(final int range) {
+		return machine.random((short) range);
+	}
+
+	// *********************************************************************
+	// ******** Control flow
+	// ***********************************
+
+	/**
+	 * Returns from the current routine.
+	 * 
+	 * @param value
+	 *            the return value
+	 */
+	protected final void returnWith(final int value) {
+		machine.returnWith((char) value);
+	}
+
+	/**
+	 * Calls a routine.
+	 * 
+	 * @param packedAddress
+	 *            the packed routine address, not 0
+	 * @param returnAddress
+	 *            the return address
+	 * @param args
+	 *            the arguments
+	 * @param returnVariable
+	 *            the return variable or DISCARD_RESULT
+	 */
+	protected final void call(final int packedAddress, final int returnAddress, final char[] args,
+			final int returnVariable) {
+		machine.call((char) packedAddress, returnAddress, args, (char) returnVariable);
+	}
+}
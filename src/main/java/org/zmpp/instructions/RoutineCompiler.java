@@ -0,0 +1,282 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.instructions;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.zmpp.base.StoryFileHeader;
+import org.zmpp.instructions.InstructionInfoDb.InstructionInfo;
+import org.zmpp.vm.HotRoutineListener;
+import org.zmpp.vm.Instruction;
+import org.zmpp.vm.Machine;
+
+/**
+ * Compiles hot routines to JVM classes. The Cpu counts routine entries and
+ * notifies the compiler when a routine became hot. The compiler then decodes
+ * all instructions that are reachable from the routine start, translates them
+ * into a CompiledRoutine and installs an entry to it for each instruction in
+ * the InstructionCache. From then on the execution loop runs the compiled
+ * routine whenever the program counter is within the routine.
+ * 
+ * A compiled routine runs many instructions in one step of the execution
+ * loop, the loop takes the number of instructions it ran from the compiler
+ * after each step and charges them against its budgets.
+ * 
+ * Only routines in static memory are compiled, code in dynamic memory can be
+ * modified by the story. Routines that can not be decoded or are too large
+ * stay interpreted.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class RoutineCompiler implements HotRoutineListener {
+
+	/**
+	 * The default number of entries after which a routine is compiled.
+	 */
+	public static final int DEFAULT_THRESHOLD = 500;
+
+	private static final Logger LOG = Logger.getLogger("org.zmpp");
+
+	// larger routines stay interpreted, the generated method would exceed
+	// the size up to which the JVM compiles methods to native code
+	private static final int MAX_INSTRUCTIONS = 200;
+	private static final String CLASS_PREFIX = "org/zmpp/instructions/Routine_";
+
+	private final Machine machine;
+	private final InstructionDecoder decoder;
+	private final InstructionCache cache;
+	private final int staticMemStart;
+	private final RoutineClassLoader classLoader = new RoutineClassLoader(
+			RoutineCompiler.class.getClassLoader());
+	private int numCompiled;
+	private int numExecuted;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param machine
+	 *            the machine
+	 * @param decoder
+	 *            the instruction decoder
+	 * @param cache
+	 *            the instruction cache to install compiled routines in
+	 */
+	public RoutineCompiler(Machine machine, InstructionDecoder decoder, InstructionCache cache) {
+		this.machine = machine;
+		this.decoder = decoder;
+		this.cache = cache;
+		this.staticMemStart = machine.readUnsigned16(StoryFileHeader.STATIC_MEM);
+	}
+
+	/**
+	 * Returns the number of compiled routines.
+	 * 
+	 * @return the number of compiled routines
+	 */
+	public int getNumCompiled() {
+		return numCompiled;
+	}
+
+	/**
+	 * Adds the number of instructions a compiled routine executed.
+	 * 
+	 * @param numInstructions
+	 *            the number of executed instructions
+	 */
+	void addNumExecuted(final int numInstructions) {
+		numExecuted += numInstructions;
+	}
+
+	/**
+	 * Returns the number of instructions the compiled routines executed since
+	 * the last call and resets it.
+	 * 
+	 * @return the number of executed instructions, 0 if no compiled routine
+	 *         ran
+	 */
+	public int takeNumExecuted() {
+		final int result = numExecuted;
+		if (result != 0) {
+			numExecuted = 0;
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	public void routineHot(final int routineAddress) {
+		try {
+			compile(routineAddress);
+		} catch (RuntimeException ex) {
+			LOG.log(Level.WARNING, String.format("routine $%05x not compiled", routineAddress), ex);
+		} catch (LinkageError ex) {
+			LOG.log(Level.WARNING, String.format("routine $%05x not compiled", routineAddress), ex);
+		}
+	}
+
+	/**
+	 * Compiles the routine at the specified address and installs it in the
+	 * instruction cache.
+	 * 
+	 * @param routineAddress
+	 *            the unpacked routine address
+	 * @return true if compiled, false if the routine stays interpreted
+	 */
+	public boolean compile(final int routineAddress) {
+		final SortedMap<Integer, AbstractInstruction> instructions = decodeRoutine(routineAddress);
+		if (instructions == null) {
+			if (LOG.isLoggable(Level.FINE)) {
+				LOG.fine(String.format("routine $%05x stays interpreted", routineAddress));
+			}
+			return false;
+		}
+		final String className = CLASS_PREFIX + Integer.toHexString(routineAddress);
+		final byte[] classFile = new RoutineTranslator(className, machine.getVersion(),
+				machine.readUnsigned16(StoryFileHeader.GLOBALS), machine.readUnsigned8(routineAddress),
+				instructions).translate();
+		final Instruction[] instrs = instructions.values().toArray(new Instruction[instructions.size()]);
+		final int[] addresses = new int[instrs.length];
+		boolean isOutput = false;
+		int i = 0;
+		for (int address : instructions.keySet()) {
+			addresses[i] = address;
+			isOutput |= isOutput(instructions.get(address));
+			i++;
+		}
+		final CompiledRoutine routine;
+		try {
+			routine = (CompiledRoutine) classLoader.defineClass(className.replace('/', '.'), classFile)
+					.getConstructor(Machine.class, Instruction[].class, int[].class)
+					.newInstance(machine, instrs, addresses);
+		} catch (ReflectiveOperationException ex) {
+			throw new IllegalStateException(ex);
+		}
+		for (i = 0; i < addresses.length; i++) {
+			cache.install(addresses[i], new CompiledInstruction(this, routine, addresses[i], instrs[i], isOutput));
+		}
+		numCompiled++;
+		return true;
+	}
+
+	/**
+	 * Decodes all instructions that can be reached from the routine start
+	 * without calls.
+	 * 
+	 * @param routineAddress
+	 *            the unpacked routine address
+	 * @return the instructions by address, null if the routine can not be
+	 *         compiled
+	 */
+	private SortedMap<Integer, AbstractInstruction> decodeRoutine(final int routineAddress) {
+		if (routineAddress < staticMemStart) {
+			return null;
+		}
+		final int numLocals = machine.readUnsigned8(routineAddress);
+		if (numLocals > 15) {
+			return null;
+		}
+		final SortedMap<Integer, AbstractInstruction> instructions = new TreeMap<Integer, AbstractInstruction>();
+		final Deque<Integer> pending = new ArrayDeque<Integer>();
+		pending.push(machine.getVersion() <= 4 ? routineAddress + 1 + 2 * numLocals : routineAddress + 1);
+		while (!pending.isEmpty()) {
+			final int address = pending.pop();
+			if (instructions.containsKey(address)) {
+				continue;
+			}
+			if (address < staticMemStart || instructions.size() == MAX_INSTRUCTIONS) {
+				return null;
+			}
+			final Instruction instr = decoder.decodeInstruction(address);
+			if (!(instr instanceof AbstractInstruction)) {
+				return null;
+			}
+			final AbstractInstruction abstractInstr = (AbstractInstruction) instr;
+			instructions.put(address, abstractInstr);
+			if (RoutineTranslator.continuesAfter(abstractInstr)) {
+				pending.push(address + instr.getLength());
+			}
+			final int branchTarget = RoutineTranslator.getBranchTarget(address, abstractInstr);
+			if (branchTarget >= 0) {
+				pending.push(branchTarget);
+			}
+			final int jumpTarget = RoutineTranslator.getJumpTarget(address, abstractInstr);
+			if (jumpTarget >= 0) {
+				pending.push(jumpTarget);
+			}
+		}
+		return instructions;
+	}
+
+	/**
+	 * Determines whether the instruction is an output instruction.
+	 * 
+	 * @param instr
+	 *            the instruction
+	 * @return true if output instruction
+	 */
+	private boolean isOutput(final AbstractInstruction instr) {
+		final InstructionInfo info = InstructionInfoDb.getInstance().getInfo(instr.getOperandCount(),
+				instr.getOpcodeNum(), machine.getVersion());
+		return info != null && info.isOutput();
+	}
+
+	/**
+	 * The class loader for the generated classes.
+	 */
+	private static class RoutineClassLoader extends ClassLoader {
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param parent
+		 *            the parent class loader
+		 */
+		RoutineClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		/**
+		 * Defines a generated class.
+		 * 
+		 * @param name
+		 *            the binary class name
+		 * @param classFile
+		 *            the class file
+		 * @return the class
+		 */
+		Class<?> defineClass(String name, byte[] classFile) {
+			return defineClass(name, classFile, 0, classFile.length);
+		}
+	}
+}
@@ -0,0 +1,1369 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.instructions;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.zmpp.instructions.AbstractInstruction.BranchInfo;
+import org.zmpp.instructions.InstructionInfoDb.InstructionInfo;
+import org.zmpp.instructions.Operand.OperandType;
+import org.zmpp.vm.Instruction;
+import org.zmpp.vm.RoutineContext;
+
+/**
+ * Translates the decoded instructions of a routine into a subclass of
+ * CompiledRoutine. The generated execute() method holds the local variables in
+ * JVM locals and dispatches to the entry instruction with a switch. Branches
+ * and jumps within the routine become jumps in the generated code, the common
+ * arithmetic, memory, object, output, branch, call and return instructions are
+ * translated directly. All other instructions are executed by the
+ * interpreter's instruction objects, after the local variables were written
+ * back to the call frame.
+ * 
+ * The generated code counts the instructions it executes and returns the count
+ * to the execution loop, which charges them against its step budget. Backward
+ * jumps check the count, after INSTRUCTION_BUDGET instructions the generated
+ * code returns to the execution loop, so that step and time limits still
+ * apply.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+class RoutineTranslator implements Opcodes {
+
+	private static final String BASE_CLASS = "org/zmpp/instructions/CompiledRoutine";
+	private static final String CONSTRUCTOR_DESC = "(Lorg/zmpp/vm/Machine;[Lorg/zmpp/vm/Instruction;[I)V";
+	private static final String STORE_LOCALS = "storeLocals";
+	private static final int INSTRUCTION_BUDGET = 1024;
+	private static final InstructionInfoDb INFO_DB = InstructionInfoDb.getInstance();
+
+	// Instruction keys, the operand count in the upper bits, the opcode number
+	// in the lower five bits
+	private static final int C0 = 0x00;
+	private static final int C1 = 0x20;
+	private static final int C2 = 0x40;
+	private static final int VAR = 0x60;
+	private static final int EXT = 0x80;
+
+	// JVM local variable slots of the execute() method, the local variable n
+	// of the routine is held in slot SLOT_EXECUTED + n
+	private static final int SLOT_PC = 1;
+	private static final int SLOT_FRAME_DEPTH = 2;
+	private static final int SLOT_EXECUTED = 3;
+
+	private final String className;
+	private final int version;
+	private final int globalsAddress;
+	private final int numLocals;
+	private final SortedMap<Integer, AbstractInstruction> instructions;
+	private final Map<Integer, Label> labels = new HashMap<Integer, Label>();
+	private final boolean[] usedLocals;
+	private final boolean[] writtenLocals;
+	private final int slotTemp0;
+	private final int slotTemp1;
+	private final int slotResult;
+	private final int slotArgs;
+
+	private MethodVisitor mv;
+	private Label reload;
+	private Label exit;
+	private int address;
+	private AbstractInstruction instr;
+	private InstructionInfo info;
+	private int nextAddress;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param className
+	 *            the internal name of the class to generate
+	 * @param version
+	 *            the story version
+	 * @param globalsAddress
+	 *            the address of the global variables
+	 * @param numLocals
+	 *            the number of local variables of the routine
+	 * @param instructions
+	 *            the routine's instructions, by address
+	 */
+	RoutineTranslator(String className, int version, int globalsAddress, int numLocals,
+			SortedMap<Integer, AbstractInstruction> instructions) {
+		this.className = className;
+		this.version = version;
+		this.globalsAddress = globalsAddress;
+		this.numLocals = numLocals;
+		this.instructions = instructions;
+		this.slotTemp0 = SLOT_EXECUTED + numLocals + 1;
+		this.slotTemp1 = slotTemp0 + 1;
+		this.slotResult = slotTemp0 + 2;
+		this.slotArgs = slotTemp0 + 3;
+		this.usedLocals = new boolean[numLocals + 1];
+		this.writtenLocals = new boolean[numLocals + 1];
+	}
+
+	// *********************************************************************
+	// ******** Control flow analysis
+	// ***********************************
+
+	/**
+	 * Returns the key of the instruction, which combines operand count and
+	 * opcode number.
+	 * 
+	 * @param instr
+	 *            the instruction
+	 * @return the key
+	 */
+	private static int getKey(final AbstractInstruction instr) {
+		switch (instr.getOperandCount()) {
+		case C0OP:
+			return C0 | instr.getOpcodeNum();
+		case C1OP:
+			return C1 | instr.getOpcodeNum();
+		case C2OP:
+			return C2 | instr.getOpcodeNum();
+		case VAR:
+			return VAR | instr.getOpcodeNum();
+		default:
+			return EXT | instr.getOpcodeNum();
+		}
+	}
+
+	/**
+	 * Determines whether the instruction following the specified instruction
+	 * can be reached from it.
+	 * 
+	 * @param instr
+	 *            the instruction
+	 * @return false if the instruction always transfers control elsewhere
+	 */
+	static boolean continuesAfter(final AbstractInstruction instr) {
+		switch (getKey(instr)) {
+		case C0 | Instruction.C0OP_RTRUE:
+		case C0 | Instruction.C0OP_RFALSE:
+		case C0 | Instruction.C0OP_PRINT_RET:
+		case C0 | Instruction.C0OP_RESTART:
+		case C0 | Instruction.C0OP_RET_POPPED:
+		case C0 | Instruction.C0OP_QUIT:
+		case C1 | Instruction.C1OP_RET:
+		case C1 | Instruction.C1OP_JUMP:
+		case C2 | Instruction.C2OP_THROW:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the target of a jump instruction with a constant offset.
+	 * 
+	 * @param address
+	 *            the instruction address
+	 * @param instr
+	 *            the instruction
+	 * @return the target address, -1 if the instruction is not such a jump
+	 */
+	static int getJumpTarget(final int address, final AbstractInstruction instr) {
+		if (getKey(instr) == (C1 | Instruction.C1OP_JUMP) && isConstant(instr.getOperands()[0])) {
+			return address + (short) instr.getOperands()[0].getValue() + 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the target of a branch instruction.
+	 * 
+	 * @param address
+	 *            the instruction address
+	 * @param instr
+	 *            the instruction
+	 * @return the target address, -1 if the instruction does not branch or
+	 *         branches by returning
+	 */
+	static int getBranchTarget(final int address, final AbstractInstruction instr) {
+		final BranchInfo branchInfo = instr.getBranchInfo();
+		if (branchInfo.numOffsetBytes == 0 || branchInfo.branchOffset == 0 || branchInfo.branchOffset == 1) {
+			return -1;
+		}
+		return address + instr.getLength() + branchInfo.branchOffset - 2;
+	}
+
+	/**
+	 * Determines whether the operand is a constant.
+	 * 
+	 * @param operand
+	 *            the operand
+	 * @return true if constant, false if variable
+	 */
+	private static boolean isConstant(final Operand operand) {
+		return operand.getType() != OperandType.VARIABLE;
+	}
+
+	// *********************************************************************
+	// ******** Class generation
+	// ***********************************
+
+	/**
+	 * Generates the class.
+	 * 
+	 * @return the class file
+	 */
+	byte[] translate() {
+		final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+			@Override
+			protected String getCommonSuperClass(final String type1, final String type2) {
+				return "java/lang/Object";
+			}
+		};
+		cw.visit(V1_7, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, BASE_CLASS, null);
+		generateConstructor(cw);
+
+		// a first pass finds the local variables the generated code uses,
+		// only those are loaded from and written back to the call frame
+		generateExecute(new ClassWriter(0));
+		if (getNumWrittenLocals() > 0) {
+			generateStoreLocals(cw);
+		}
+		generateExecute(cw);
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Generates the constructor, which passes its arguments to the super
+	 * class.
+	 * 
+	 * @param cw
+	 *            the class writer
+	 */
+	private void generateConstructor(final ClassWriter cw) {
+		final MethodVisitor ctor = cw.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESC, null, null);
+		ctor.visitCode();
+		ctor.visitVarInsn(ALOAD, 0);
+		ctor.visitVarInsn(ALOAD, 1);
+		ctor.visitVarInsn(ALOAD, 2);
+		ctor.visitVarInsn(ALOAD, 3);
+		ctor.visitMethodInsn(INVOKESPECIAL, BASE_CLASS, "<init>", CONSTRUCTOR_DESC, false);
+		ctor.visitInsn(RETURN);
+		ctor.visitMaxs(0, 0);
+		ctor.visitEnd();
+	}
+
+	/**
+	 * Generates the method that writes the local variables, which are passed
+	 * as arguments, back to the call frame.
+	 * 
+	 * @param cw
+	 *            the class writer
+	 */
+	private void generateStoreLocals(final ClassWriter cw) {
+		final MethodVisitor store = cw.visitMethod(ACC_PRIVATE | ACC_FINAL, STORE_LOCALS, getStoreLocalsDesc(), null,
+				null);
+		store.visitCode();
+		int slot = 1;
+		for (int varnum = 1; varnum <= numLocals; varnum++) {
+			if (writtenLocals[varnum]) {
+				store.visitVarInsn(ALOAD, 0);
+				store.visitIntInsn(BIPUSH, varnum);
+				store.visitVarInsn(ILOAD, slot++);
+				store.visitMethodInsn(INVOKEVIRTUAL, BASE_CLASS, "setLocal", "(II)V", false);
+			}
+		}
+		store.visitInsn(RETURN);
+		store.visitMaxs(0, 0);
+		store.visitEnd();
+	}
+
+	/**
+	 * Returns the descriptor of the storeLocals() method.
+	 * 
+	 * @return the descriptor
+	 */
+	private String getStoreLocalsDesc() {
+		final StringBuilder desc = new StringBuilder("(");
+		for (int i = getNumWrittenLocals(); i > 0; i--) {
+			desc.append('I');
+		}
+		return desc.append(")V").toString();
+	}
+
+	/**
+	 * Returns the number of local variables the generated code writes.
+	 * 
+	 * @return the number of written local variables
+	 */
+	private int getNumWrittenLocals() {
+		int count = 0;
+		for (boolean written : writtenLocals) {
+			if (written) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Generates the execute() method.
+	 * 
+	 * @param cw
+	 *            the class writer
+	 */
+	private void generateExecute(final ClassWriter cw) {
+		mv = cw.visitMethod(ACC_PUBLIC, "execute", "(I)I", null, null);
+		mv.visitCode();
+		reload = new Label();
+		exit = new Label();
+		final int[] keys = new int[instructions.size()];
+		final Label[] targets = new Label[keys.length];
+		int i = 0;
+		for (int instrAddress : instructions.keySet()) {
+			keys[i] = instrAddress;
+			targets[i] = new Label();
+			labels.put(instrAddress, targets[i]);
+			i++;
+		}
+		mv.visitVarInsn(ALOAD, 0);
+		invoke("getFrameDepth", "()I");
+		mv.visitVarInsn(ISTORE, SLOT_FRAME_DEPTH);
+		push(0);
+		mv.visitVarInsn(ISTORE, SLOT_EXECUTED);
+
+		// load the local variables and continue at the program counter
+		mv.visitLabel(reload);
+		for (int varnum = 1; varnum <= numLocals; varnum++) {
+			if (usedLocals[varnum]) {
+				mv.visitVarInsn(ALOAD, 0);
+				push(varnum);
+				mv.visitMethodInsn(INVOKEVIRTUAL, BASE_CLASS, "getLocal", "(I)I", false);
+				mv.visitVarInsn(ISTORE, SLOT_EXECUTED + varnum);
+			}
+		}
+		mv.visitVarInsn(ILOAD, SLOT_PC);
+		mv.visitLookupSwitchInsn(exit, keys, targets);
+
+		i = 0;
+		for (int instrAddress : instructions.keySet()) {
+			address = instrAddress;
+			instr = instructions.get(instrAddress);
+			info = INFO_DB.getInfo(instr.getOperandCount(), instr.getOpcodeNum(), version);
+			nextAddress = i + 1 < keys.length ? keys[i + 1] : -1;
+			mv.visitLabel(targets[i]);
+			mv.visitIincInsn(SLOT_EXECUTED, 1);
+			if (isTranslatable()) {
+				translateInstruction();
+			} else {
+				translateGeneric(i);
+			}
+			i++;
+		}
+		mv.visitLabel(exit);
+		leave();
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	// *********************************************************************
+	// ******** Instructions
+	// ***********************************
+
+	/**
+	 * Returns the number of operands the translation of the current
+	 * instruction evaluates.
+	 * 
+	 * @return the number of operands or -1 if the instruction is not
+	 *         translated
+	 */
+	private int getNumOperandsUsed() {
+		final int numOperands = instr.getNumOperands();
+		switch (getKey(instr)) {
+		case C0 | Instruction.C0OP_RTRUE:
+		case C0 | Instruction.C0OP_RFALSE:
+		case C0 | Instruction.C0OP_NOP:
+		case C0 | Instruction.C0OP_RET_POPPED:
+		case C0 | Instruction.C0OP_NEW_LINE:
+			return 0;
+		case C0 | Instruction.C0OP_PRINT:
+		case C0 | Instruction.C0OP_PRINT_RET:
+			return ((C0OpInstruction) instr).getString() != null ? 0 : -1;
+		case C0 | Instruction.C0OP_POP:
+			return version < 5 ? 0 : -1;
+		case C1 | Instruction.C1OP_JZ:
+		case C1 | Instruction.C1OP_GET_SIBLING:
+		case C1 | Instruction.C1OP_GET_CHILD:
+		case C1 | Instruction.C1OP_GET_PARENT:
+		case C1 | Instruction.C1OP_GET_PROP_LEN:
+		case C1 | Instruction.C1OP_CALL_1S:
+		case C1 | Instruction.C1OP_REMOVE_OBJ:
+		case C1 | Instruction.C1OP_RET:
+		case C1 | Instruction.C1OP_NOT:
+		case VAR | Instruction.VAR_PUSH:
+		case VAR | Instruction.VAR_NOT:
+		case VAR | Instruction.VAR_CHECK_ARG_COUNT:
+		case C1 | Instruction.C1OP_PRINT_ADDR:
+		case C1 | Instruction.C1OP_PRINT_PADDR:
+		case C1 | Instruction.C1OP_PRINT_OBJ:
+		case VAR | Instruction.VAR_PRINT_CHAR:
+		case VAR | Instruction.VAR_PRINT_NUM:
+		case VAR | Instruction.VAR_RANDOM:
+			return 1;
+		case C1 | Instruction.C1OP_JUMP:
+			return numOperands > 0 && isConstant(instr.getOperands()[0]) ? 1 : -1;
+		case C1 | Instruction.C1OP_INC:
+		case C1 | Instruction.C1OP_DEC:
+		case C1 | Instruction.C1OP_LOAD:
+			return isIndirectVariable() ? 1 : -1;
+		case C2 | Instruction.C2OP_DEC_CHK:
+		case C2 | Instruction.C2OP_INC_CHK:
+		case C2 | Instruction.C2OP_STORE:
+			return isIndirectVariable() ? 2 : -1;
+		case VAR | Instruction.VAR_PULL:
+			return version != 6 && isIndirectVariable() ? 1 : -1;
+		case C2 | Instruction.C2OP_JE:
+			return numOperands >= 2 ? numOperands : -1;
+		case C2 | Instruction.C2OP_JL:
+		case C2 | Instruction.C2OP_JG:
+		case C2 | Instruction.C2OP_JIN:
+		case C2 | Instruction.C2OP_TEST:
+		case C2 | Instruction.C2OP_OR:
+		case C2 | Instruction.C2OP_AND:
+		case C2 | Instruction.C2OP_TEST_ATTR:
+		case C2 | Instruction.C2OP_SET_ATTR:
+		case C2 | Instruction.C2OP_CLEAR_ATTR:
+		case C2 | Instruction.C2OP_INSERT_OBJ:
+		case C2 | Instruction.C2OP_LOADW:
+		case C2 | Instruction.C2OP_LOADB:
+		case C2 | Instruction.C2OP_GET_PROP:
+		case C2 | Instruction.C2OP_GET_PROP_ADDR:
+		case C2 | Instruction.C2OP_GET_NEXT_PROP:
+		case C2 | Instruction.C2OP_ADD:
+		case C2 | Instruction.C2OP_SUB:
+		case C2 | Instruction.C2OP_MUL:
+		case C2 | Instruction.C2OP_DIV:
+		case C2 | Instruction.C2OP_MOD:
+		case C2 | Instruction.C2OP_CALL_2S:
+		case C2 | Instruction.C2OP_CALL_2N:
+			return 2;
+		case VAR | Instruction.VAR_STOREW:
+		case VAR | Instruction.VAR_STOREB:
+		case VAR | Instruction.VAR_PUT_PROP:
+			return 3;
+		case VAR | Instruction.VAR_CALL_VS:
+		case VAR | Instruction.VAR_CALL_VS2:
+		case VAR | Instruction.VAR_CALL_VN:
+		case VAR | Instruction.VAR_CALL_VN2:
+			return numOperands >= 1 ? numOperands : -1;
+		default:
+			return -1;
+		}
+	}
+
+	/**
+	 * Determines whether the first operand is a constant that names a variable
+	 * which the generated code can access.
+	 * 
+	 * @return true if accessible
+	 */
+	private boolean isIndirectVariable() {
+		final Operand[] operands = instr.getOperands();
+		return operands.length > 0 && isConstant(operands[0]) && isAccessible(operands[0].getValue());
+	}
+
+	/**
+	 * Determines whether the generated code can access the variable. Access
+	 * to local variables the routine does not have is left to the interpreter.
+	 * 
+	 * @param varnum
+	 *            the variable number
+	 * @return true if accessible
+	 */
+	private boolean isAccessible(final int varnum) {
+		return varnum == 0 || varnum <= numLocals || varnum >= 0x10;
+	}
+
+	/**
+	 * Determines whether the current instruction can be translated.
+	 * 
+	 * @return true if translatable, false if the interpreter has to execute it
+	 */
+	private boolean isTranslatable() {
+		if (info == null) {
+			return false;
+		}
+		final int numUsed = getNumOperandsUsed();
+		final Operand[] operands = instr.getOperands();
+		if (numUsed < 0 || numUsed > operands.length) {
+			return false;
+		}
+		for (int i = 0; i < numUsed; i++) {
+			if (!isConstant(operands[i]) && !isAccessible(operands[i].getValue())) {
+				return false;
+			}
+		}
+		return !info.isStore() || isAccessible(instr.getStoreVariable());
+	}
+
+	/**
+	 * Translates the current instruction.
+	 */
+	private void translateInstruction() {
+		final int after = address + instr.getLength();
+		final Label condTrue = new Label();
+		switch (getKey(instr)) {
+		// ******** Returns
+		case C0 | Instruction.C0OP_RTRUE:
+			returnWith(1);
+			break;
+		case C0 | Instruction.C0OP_RFALSE:
+			returnWith(0);
+			break;
+		case C0 | Instruction.C0OP_RET_POPPED:
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ALOAD, 0);
+			invoke("pop", "()I");
+			invoke("returnWith", "(I)V");
+			leave();
+			break;
+		case C1 | Instruction.C1OP_RET:
+			mv.visitVarInsn(ALOAD, 0);
+			loadOperand(0);
+			invoke("returnWith", "(I)V");
+			leave();
+			break;
+		case C0 | Instruction.C0OP_PRINT_RET:
+			print();
+			mv.visitVarInsn(ALOAD, 0);
+			invoke("newline", "()V");
+			returnWith(1);
+			break;
+
+		// ******** Output
+		case C0 | Instruction.C0OP_PRINT:
+			print();
+			continueAt(after, true);
+			break;
+		case C0 | Instruction.C0OP_NEW_LINE:
+			mv.visitVarInsn(ALOAD, 0);
+			invoke("newline", "()V");
+			continueAt(after, true);
+			break;
+		case C1 | Instruction.C1OP_PRINT_ADDR:
+			callHelper("printAddress", "(I)V", 1);
+			continueAt(after, true);
+			break;
+		case C1 | Instruction.C1OP_PRINT_PADDR:
+			callHelper("printPackedAddress", "(I)V", 1);
+			continueAt(after, true);
+			break;
+		case C1 | Instruction.C1OP_PRINT_OBJ:
+			callHelper("printObject", "(I)V", 1);
+			continueAt(after, true);
+			break;
+		case VAR | Instruction.VAR_PRINT_CHAR:
+			callHelper("printChar", "(I)V", 1);
+			continueAt(after, true);
+			break;
+		case VAR | Instruction.VAR_PRINT_NUM:
+			callHelper("printNumber", "(I)V", 1);
+			continueAt(after, true);
+			break;
+		case VAR | Instruction.VAR_RANDOM:
+			callHelper("random", "(I)I", 1);
+			storeResult();
+			continueAt(after, true);
+			break;
+
+		// ******** Jumps and branches
+		case C0 | Instruction.C0OP_NOP:
+			continueAt(after, true);
+			break;
+		case C1 | Instruction.C1OP_JUMP:
+			gotoAddress(getJumpTarget(address, instr));
+			break;
+		case C1 | Instruction.C1OP_JZ:
+			loadOperand(0);
+			mv.visitJumpInsn(IFEQ, condTrue);
+			branch(condTrue);
+			break;
+		case C2 | Instruction.C2OP_JE:
+			loadOperand(0);
+			mv.visitVarInsn(ISTORE, slotTemp0);
+			// the remaining operands are only evaluated up to the first match
+			for (int i = 1; i < instr.getNumOperands(); i++) {
+				mv.visitVarInsn(ILOAD, slotTemp0);
+				loadOperand(i);
+				mv.visitJumpInsn(IF_ICMPEQ, condTrue);
+			}
+			branch(condTrue);
+			break;
+		case C2 | Instruction.C2OP_JL:
+			loadSignedOperand(0);
+			loadSignedOperand(1);
+			mv.visitJumpInsn(IF_ICMPLT, condTrue);
+			branch(condTrue);
+			break;
+		case C2 | Instruction.C2OP_JG:
+			loadSignedOperand(0);
+			loadSignedOperand(1);
+			mv.visitJumpInsn(IF_ICMPGT, condTrue);
+			branch(condTrue);
+			break;
+		case C2 | Instruction.C2OP_TEST:
+			loadOperand(0);
+			mv.visitVarInsn(ISTORE, slotTemp0);
+			loadOperand(1);
+			mv.visitVarInsn(ISTORE, slotTemp1);
+			mv.visitVarInsn(ILOAD, slotTemp0);
+			mv.visitVarInsn(ILOAD, slotTemp1);
+			mv.visitInsn(IAND);
+			mv.visitVarInsn(ILOAD, slotTemp1);
+			mv.visitJumpInsn(IF_ICMPEQ, condTrue);
+			branch(condTrue);
+			break;
+		case C2 | Instruction.C2OP_INC_CHK:
+			incrementAndCompare(IADD, IF_ICMPGT, condTrue);
+			break;
+		case C2 | Instruction.C2OP_DEC_CHK:
+			incrementAndCompare(ISUB, IF_ICMPLT, condTrue);
+			break;
+		case VAR | Instruction.VAR_CHECK_ARG_COUNT:
+			loadOperand(0);
+			mv.visitVarInsn(ALOAD, 0);
+			invoke("getNumArguments", "()I");
+			mv.visitJumpInsn(IF_ICMPLE, condTrue);
+			branch(condTrue);
+			break;
+
+		// ******** Arithmetic
+		case C2 | Instruction.C2OP_ADD:
+			arithmetic(IADD);
+			break;
+		case C2 | Instruction.C2OP_SUB:
+			arithmetic(ISUB);
+			break;
+		case C2 | Instruction.C2OP_MUL:
+			arithmetic(IMUL);
+			break;
+		case C2 | Instruction.C2OP_DIV:
+			division(IDIV, "@div division by zero");
+			break;
+		case C2 | Instruction.C2OP_MOD:
+			division(IREM, "@mod division by zero");
+			break;
+		case C2 | Instruction.C2OP_OR:
+			loadOperand(0);
+			loadOperand(1);
+			mv.visitInsn(IOR);
+			storeResult();
+			continueAt(after, true);
+			break;
+		case C2 | Instruction.C2OP_AND:
+			loadOperand(0);
+			loadOperand(1);
+			mv.visitInsn(IAND);
+			storeResult();
+			continueAt(after, true);
+			break;
+		case C1 | Instruction.C1OP_NOT:
+			if (version >= 5) {
+				// call_1n in version 5 and later
+				translateCall(0);
+			} else {
+				translateNot(after);
+			}
+			break;
+		case VAR | Instruction.VAR_NOT:
+			translateNot(after);
+			break;
+
+		// ******** Variables
+		case C1 | Instruction.C1OP_INC:
+			increment(IADD);
+			break;
+		case C1 | Instruction.C1OP_DEC:
+			increment(ISUB);
+			break;
+		case C1 | Instruction.C1OP_LOAD:
+			if (getIndirectVariable() == 0) {
+				mv.visitVarInsn(ALOAD, 0);
+				invoke("getStackTop", "()I");
+			} else {
+				loadVariable(getIndirectVariable());
+			}
+			storeResult();
+			continueAt(after, true);
+			break;
+		case C2 | Instruction.C2OP_STORE:
+			loadOperand(1);
+			storeIndirect();
+			continueAt(after, true);
+			break;
+		case VAR | Instruction.VAR_PULL:
+			mv.visitVarInsn(ALOAD, 0);
+			invoke("pop", "()I");
+			storeIndirect();
+			continueAt(after, true);
+			break;
+		case VAR | Instruction.VAR_PUSH:
+			loadOperand(0);
+			storeVariable(0);
+			continueAt(after, true);
+			break;
+		case C0 | Instruction.C0OP_POP:
+			mv.visitVarInsn(ALOAD, 0);
+			invoke("pop", "()I");
+			mv.visitInsn(POP);
+			continueAt(after, true);
+			break;
+
+		// ******** Memory
+		case C2 | Instruction.C2OP_LOADW:
+			callHelper("loadw", "(II)I", 2);
+			storeResult();
+			continueAt(after, true);
+			break;
+		case C2 | Instruction.C2OP_LOADB:
+			callHelper("loadb", "(II)I", 2);
+			storeResult();
+			continueAt(after, true);
+			break;
+		case VAR | Instruction.VAR_STOREW:
+			storeArray("storew");
+			break;
+		case VAR | Instruction.VAR_STOREB:
+			storeArray("storeb");
+			break;
+
+		// ******** Objects
+		case C2 | Instruction.C2OP_JIN:
+			callHelper("jin", "(II)Z", 2);
+			mv.visitJumpInsn(IFNE, condTrue);
+			branch(condTrue);
+			break;
+		case C2 | Instruction.C2OP_TEST_ATTR:
+			callHelper("testAttribute", "(II)Z", 2);
+			mv.visitJumpInsn(IFNE, condTrue);
+			branch(condTrue);
+			break;
+		case C1 | Instruction.C1OP_GET_SIBLING:
+			getRelative("getSibling", condTrue);
+			break;
+		case C1 | Instruction.C1OP_GET_CHILD:
+			getRelative("getChild", condTrue);
+			break;
+		case C1 | Instruction.C1OP_GET_PARENT:
+			callHelper("getParent", "(I)I", 1);
+			storeResult();
+			continueAt(after, true);
+			break;
+		case C1 | Instruction.C1OP_GET_PROP_LEN:
+			callHelper("getPropertyLength", "(I)I", 1);
+			storeResult();
+			continueAt(after, true);
+			break;
+		case C2 | Instruction.C2OP_GET_PROP:
+			getPropertyValue("getProperty");
+			break;
+		case C2 | Instruction.C2OP_GET_PROP_ADDR:
+			getPropertyValue("getPropertyAddress");
+			break;
+		case C2 | Instruction.C2OP_GET_NEXT_PROP:
+			getPropertyValue("getNextProperty");
+			break;
+		case C2 | Instruction.C2OP_SET_ATTR:
+			callHelper("setAttribute", "(II)V", 2);
+			continueAt(after, true);
+			break;
+		case C2 | Instruction.C2OP_CLEAR_ATTR:
+			callHelper("clearAttribute", "(II)V", 2);
+			continueAt(after, true);
+			break;
+		case C2 | Instruction.C2OP_INSERT_OBJ:
+			callHelper("insertObject", "(II)V", 2);
+			continueAt(after, true);
+			break;
+		case C1 | Instruction.C1OP_REMOVE_OBJ:
+			callHelper("removeObject", "(I)V", 1);
+			continueAt(after, true);
+			break;
+		case VAR | Instruction.VAR_PUT_PROP:
+			callHelper("putProperty", "(III)V", 3);
+			continueAt(after, true);
+			break;
+
+		// ******** Calls
+		case C1 | Instruction.C1OP_CALL_1S:
+			translateCall(0);
+			break;
+		case C2 | Instruction.C2OP_CALL_2S:
+		case C2 | Instruction.C2OP_CALL_2N:
+			translateCall(1);
+			break;
+		default:
+			// VAR calls, the only remaining translatable instructions
+			translateCall(instr.getNumOperands() - 1);
+			break;
+		}
+	}
+
+	/**
+	 * Translates an instruction that is executed by the interpreter. The
+	 * generated code continues at the program counter when the instruction
+	 * neither changed the call frames nor the run state.
+	 * 
+	 * @param index
+	 *            the instruction index
+	 */
+	private void translateGeneric(final int index) {
+		storeLocals();
+		mv.visitVarInsn(ALOAD, 0);
+		push(index);
+		mv.visitVarInsn(ILOAD, SLOT_FRAME_DEPTH);
+		invoke("executeInstruction", "(II)Z");
+		mv.visitJumpInsn(IFEQ, exit);
+		mv.visitVarInsn(ILOAD, SLOT_EXECUTED);
+		push(INSTRUCTION_BUDGET);
+		mv.visitJumpInsn(IF_ICMPGE, exit);
+		mv.visitVarInsn(ALOAD, 0);
+		invoke("getPC", "()I");
+		mv.visitVarInsn(ISTORE, SLOT_PC);
+		mv.visitJumpInsn(GOTO, reload);
+	}
+
+	/**
+	 * Translates not.
+	 * 
+	 * @param after
+	 *            the address of the next instruction
+	 */
+	private void translateNot(final int after) {
+		loadOperand(0);
+		push(0xffff);
+		mv.visitInsn(IXOR);
+		storeResult();
+		continueAt(after, true);
+	}
+
+	/**
+	 * Translates a routine call. A call to address 0 stores 0 and continues,
+	 * any other call leaves the generated code.
+	 * 
+	 * @param numArgs
+	 *            the number of arguments
+	 */
+	private void translateCall(final int numArgs) {
+		final int after = address + instr.getLength();
+		final Label doCall = new Label();
+		loadOperand(0);
+		mv.visitVarInsn(ISTORE, slotTemp0);
+		push(numArgs);
+		mv.visitIntInsn(NEWARRAY, T_CHAR);
+		for (int i = 0; i < numArgs; i++) {
+			mv.visitInsn(DUP);
+			push(i);
+			loadOperand(i + 1);
+			mv.visitInsn(CASTORE);
+		}
+		mv.visitVarInsn(ASTORE, slotArgs);
+		mv.visitVarInsn(ILOAD, slotTemp0);
+		mv.visitJumpInsn(IFNE, doCall);
+		if (info.isStore()) {
+			push(0);
+			storeResult();
+		}
+		continueAt(after, false);
+
+		mv.visitLabel(doCall);
+		storeLocals();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ILOAD, slotTemp0);
+		push(after);
+		mv.visitVarInsn(ALOAD, slotArgs);
+		push(info.isStore() ? instr.getStoreVariable() : RoutineContext.DISCARD_RESULT);
+		invoke("call", "(II[CI)V");
+		leave();
+	}
+
+	/**
+	 * Translates add, sub and mul.
+	 * 
+	 * @param opcode
+	 *            the JVM opcode
+	 */
+	private void arithmetic(final int opcode) {
+		loadSignedOperand(0);
+		loadSignedOperand(1);
+		mv.visitInsn(opcode);
+		mv.visitInsn(I2C);
+		storeResult();
+		continueAt(address + instr.getLength(), true);
+	}
+
+	/**
+	 * Translates div and mod, a division by zero halts the machine.
+	 * 
+	 * @param opcode
+	 *            the JVM opcode
+	 * @param message
+	 *            the error message
+	 */
+	private void division(final int opcode, final String message) {
+		final Label divisorValid = new Label();
+		loadSignedOperand(0);
+		mv.visitVarInsn(ISTORE, slotTemp0);
+		loadSignedOperand(1);
+		mv.visitVarInsn(ISTORE, slotTemp1);
+		mv.visitVarInsn(ILOAD, slotTemp1);
+		mv.visitJumpInsn(IFNE, divisorValid);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitLdcInsn(message);
+		invoke("halt", "(Ljava/lang/String;)V");
+		exitAt(address);
+
+		mv.visitLabel(divisorValid);
+		mv.visitVarInsn(ILOAD, slotTemp0);
+		mv.visitVarInsn(ILOAD, slotTemp1);
+		mv.visitInsn(opcode);
+		mv.visitInsn(I2C);
+		storeResult();
+		continueAt(address + instr.getLength(), true);
+	}
+
+	/**
+	 * Translates inc and dec.
+	 * 
+	 * @param opcode
+	 *            IADD or ISUB
+	 */
+	private void increment(final int opcode) {
+		final int varnum = getIndirectVariable();
+		loadVariable(varnum);
+		push(1);
+		mv.visitInsn(opcode);
+		mv.visitInsn(I2C);
+		storeVariable(varnum);
+		continueAt(address + instr.getLength(), true);
+	}
+
+	/**
+	 * Translates inc_chk and dec_chk.
+	 * 
+	 * @param opcode
+	 *            IADD or ISUB
+	 * @param compare
+	 *            the comparison of the new value with the operand
+	 * @param condTrue
+	 *            the label for a true condition
+	 */
+	private void incrementAndCompare(final int opcode, final int compare, final Label condTrue) {
+		final int varnum = getIndirectVariable();
+		loadSignedOperand(1);
+		mv.visitVarInsn(ISTORE, slotTemp1);
+		loadVariable(varnum);
+		mv.visitInsn(I2S);
+		push(1);
+		mv.visitInsn(opcode);
+		mv.visitInsn(I2S);
+		mv.visitVarInsn(ISTORE, slotTemp0);
+		mv.visitVarInsn(ILOAD, slotTemp0);
+		mv.visitInsn(I2C);
+		storeVariable(varnum);
+		mv.visitVarInsn(ILOAD, slotTemp0);
+		mv.visitVarInsn(ILOAD, slotTemp1);
+		mv.visitJumpInsn(compare, condTrue);
+		branch(condTrue);
+	}
+
+	/**
+	 * Translates storew and storeb, the index is signed.
+	 * 
+	 * @param helper
+	 *            the helper method
+	 */
+	private void storeArray(final String helper) {
+		mv.visitVarInsn(ALOAD, 0);
+		loadOperand(0);
+		loadSignedOperand(1);
+		loadOperand(2);
+		invoke(helper, "(III)V");
+		continueAt(address + instr.getLength(), true);
+	}
+
+	/**
+	 * Translates get_sibling and get_child, which store the object and branch
+	 * if it exists.
+	 * 
+	 * @param helper
+	 *            the helper method
+	 * @param condTrue
+	 *            the label for a true condition
+	 */
+	private void getRelative(final String helper, final Label condTrue) {
+		callHelper(helper, "(I)I", 1);
+		mv.visitVarInsn(ISTORE, slotTemp0);
+		mv.visitVarInsn(ILOAD, slotTemp0);
+		storeResult();
+		mv.visitVarInsn(ILOAD, slotTemp0);
+		mv.visitJumpInsn(IFGT, condTrue);
+		branch(condTrue);
+	}
+
+	/**
+	 * Translates get_prop, get_prop_addr and get_next_prop, whose helpers
+	 * return -1 if nothing is stored.
+	 * 
+	 * @param helper
+	 *            the helper method
+	 */
+	private void getPropertyValue(final String helper) {
+		final Label noResult = new Label();
+		callHelper(helper, "(II)I", 2);
+		mv.visitVarInsn(ISTORE, slotTemp0);
+		mv.visitVarInsn(ILOAD, slotTemp0);
+		mv.visitJumpInsn(IFLT, noResult);
+		mv.visitVarInsn(ILOAD, slotTemp0);
+		storeResult();
+		mv.visitLabel(noResult);
+		continueAt(address + instr.getLength(), true);
+	}
+
+	// *********************************************************************
+	// ******** Code generation helpers
+	// ***********************************
+
+	/**
+	 * Generates the branch of the current instruction. The condition code
+	 * jumps to condTrue if the condition is true and falls through otherwise.
+	 * 
+	 * @param condTrue
+	 *            the label for a true condition
+	 */
+	private void branch(final Label condTrue) {
+		final BranchInfo branchInfo = instr.getBranchInfo();
+		final int after = address + instr.getLength();
+		if (branchInfo.branchOnTrue) {
+			continueAt(after, false);
+			mv.visitLabel(condTrue);
+			takeBranch(branchInfo);
+		} else {
+			takeBranch(branchInfo);
+			mv.visitLabel(condTrue);
+			continueAt(after, true);
+		}
+	}
+
+	/**
+	 * Generates a taken branch, offsets 0 and 1 return false and true.
+	 * 
+	 * @param branchInfo
+	 *            the branch information
+	 */
+	private void takeBranch(final BranchInfo branchInfo) {
+		if (branchInfo.branchOffset == 0 || branchInfo.branchOffset == 1) {
+			returnWith(branchInfo.branchOffset);
+		} else {
+			gotoAddress(getBranchTarget(address, instr));
+		}
+	}
+
+	/**
+	 * Generates a return.
+	 * 
+	 * @param value
+	 *            the return value
+	 */
+	private void returnWith(final int value) {
+		mv.visitVarInsn(ALOAD, 0);
+		push(value);
+		invoke("returnWith", "(I)V");
+		leave();
+	}
+
+	/**
+	 * Prints the string of the current print or print_ret instruction, which
+	 * is a constant of the generated class.
+	 */
+	private void print() {
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitLdcInsn(((C0OpInstruction) instr).getString());
+		invoke("print", "(Ljava/lang/String;)V");
+	}
+
+	/**
+	 * Continues at the specified address, falls through if it is the next
+	 * translated instruction.
+	 * 
+	 * @param target
+	 *            the target address
+	 * @param isLast
+	 *            true if nothing is generated after this for the current
+	 *            instruction
+	 */
+	private void continueAt(final int target, final boolean isLast) {
+		if (!isLast || target != nextAddress) {
+			gotoAddress(target);
+		}
+	}
+
+	/**
+	 * Jumps to the specified address. Backward jumps check the instruction
+	 * budget, when it is used up or the address is not part of the routine, the
+	 * generated code is left.
+	 * 
+	 * @param target
+	 *            the target address
+	 */
+	private void gotoAddress(final int target) {
+		final Label label = labels.get(target);
+		if (label == null) {
+			exitAt(target);
+		} else if (target <= address) {
+			mv.visitVarInsn(ILOAD, SLOT_EXECUTED);
+			push(INSTRUCTION_BUDGET);
+			mv.visitJumpInsn(IF_ICMPLT, label);
+			exitAt(target);
+		} else {
+			mv.visitJumpInsn(GOTO, label);
+		}
+	}
+
+	/**
+	 * Leaves the generated code and lets the interpreter continue at the
+	 * specified address.
+	 * 
+	 * @param target
+	 *            the address
+	 */
+	private void exitAt(final int target) {
+		storeLocals();
+		mv.visitVarInsn(ALOAD, 0);
+		push(target);
+		invoke("setPC", "(I)V");
+		leave();
+	}
+
+	/**
+	 * Leaves the generated code and returns the number of executed
+	 * instructions.
+	 */
+	private void leave() {
+		mv.visitVarInsn(ILOAD, SLOT_EXECUTED);
+		mv.visitInsn(IRETURN);
+	}
+
+	/**
+	 * Writes the local variables back to the call frame.
+	 */
+	private void storeLocals() {
+		if (getNumWrittenLocals() > 0) {
+			mv.visitVarInsn(ALOAD, 0);
+			for (int varnum = 1; varnum <= numLocals; varnum++) {
+				if (writtenLocals[varnum]) {
+					mv.visitVarInsn(ILOAD, SLOT_EXECUTED + varnum);
+				}
+			}
+			mv.visitMethodInsn(INVOKESPECIAL, className, STORE_LOCALS, getStoreLocalsDesc(), false);
+		}
+	}
+
+	/**
+	 * Calls a helper method with the first numOperands operands as arguments.
+	 * 
+	 * @param name
+	 *            the method name
+	 * @param desc
+	 *            the method descriptor
+	 * @param numOperands
+	 *            the number of operands
+	 */
+	private void callHelper(final String name, final String desc, final int numOperands) {
+		mv.visitVarInsn(ALOAD, 0);
+		for (int i = 0; i < numOperands; i++) {
+			loadOperand(i);
+		}
+		invoke(name, desc);
+	}
+
+	/**
+	 * Invokes a method of CompiledRoutine, the routine object and the
+	 * arguments have to be pushed before.
+	 * 
+	 * @param name
+	 *            the method name
+	 * @param desc
+	 *            the method descriptor
+	 */
+	private void invoke(final String name, final String desc) {
+		mv.visitMethodInsn(INVOKEVIRTUAL, BASE_CLASS, name, desc, false);
+	}
+
+	/**
+	 * Pushes the unsigned value of an operand.
+	 * 
+	 * @param operandNum
+	 *            the operand number
+	 */
+	private void loadOperand(final int operandNum) {
+		final Operand operand = instr.getOperands()[operandNum];
+		if (isConstant(operand)) {
+			push(operand.getValue());
+		} else {
+			loadVariable(operand.getValue());
+		}
+	}
+
+	/**
+	 * Pushes the signed value of an operand.
+	 * 
+	 * @param operandNum
+	 *            the operand number
+	 */
+	private void loadSignedOperand(final int operandNum) {
+		final Operand operand = instr.getOperands()[operandNum];
+		if (isConstant(operand)) {
+			push((short) operand.getValue());
+		} else {
+			loadVariable(operand.getValue());
+			mv.visitInsn(I2S);
+		}
+	}
+
+	/**
+	 * Returns the variable number of the first operand of inc, dec, load,
+	 * store and their relatives.
+	 * 
+	 * @return the variable number
+	 */
+	private int getIndirectVariable() {
+		return instr.getOperands()[0].getValue();
+	}
+
+	/**
+	 * Pushes the value of a variable, reading variable 0 pops the stack.
+	 * 
+	 * @param varnum
+	 *            the variable number
+	 */
+	private void loadVariable(final int varnum) {
+		if (varnum == 0) {
+			mv.visitVarInsn(ALOAD, 0);
+			invoke("pop", "()I");
+		} else if (varnum < 0x10) {
+			usedLocals[varnum] = true;
+			mv.visitVarInsn(ILOAD, SLOT_EXECUTED + varnum);
+		} else {
+			mv.visitVarInsn(ALOAD, 0);
+			push(getGlobalAddress(varnum));
+			invoke("readWord", "(I)I");
+		}
+	}
+
+	/**
+	 * Stores the value on top of the operand stack in a variable, writing
+	 * variable 0 pushes it onto the stack.
+	 * 
+	 * @param varnum
+	 *            the variable number
+	 */
+	private void storeVariable(final int varnum) {
+		if (varnum > 0 && varnum < 0x10) {
+			usedLocals[varnum] = true;
+			writtenLocals[varnum] = true;
+			mv.visitVarInsn(ISTORE, SLOT_EXECUTED + varnum);
+		} else {
+			mv.visitVarInsn(ISTORE, slotResult);
+			mv.visitVarInsn(ALOAD, 0);
+			if (varnum == 0) {
+				mv.visitVarInsn(ILOAD, slotResult);
+				invoke("push", "(I)V");
+			} else {
+				push(getGlobalAddress(varnum));
+				mv.visitVarInsn(ILOAD, slotResult);
+				invoke("writeWord", "(II)V");
+			}
+		}
+	}
+
+	/**
+	 * Stores the value on top of the operand stack in the variable named by
+	 * the first operand, variable 0 replaces the top of the stack.
+	 */
+	private void storeIndirect() {
+		final int varnum = getIndirectVariable();
+		if (varnum == 0) {
+			mv.visitVarInsn(ISTORE, slotResult);
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ILOAD, slotResult);
+			invoke("setStackTop", "(I)V");
+		} else {
+			storeVariable(varnum);
+		}
+	}
+
+	/**
+	 * Stores the value on top of the operand stack in the store variable of
+	 * the current instruction.
+	 */
+	private void storeResult() {
+		storeVariable(instr.getStoreVariable());
+	}
+
+	/**
+	 * Returns the address of a global variable.
+	 * 
+	 * @param varnum
+	 *            the variable number
+	 * @return the address
+	 */
+	private int getGlobalAddress(final int varnum) {
+		return globalsAddress + (varnum - 0x10) * 2;
+	}
+
+	/**
+	 * Pushes an integer constant.
+	 * 
+	 * @param value
+	 *            the value
+	 */
+	private void push(final int value) {
+		if (value >= -1 && value <= 5) {
+			mv.visitInsn(ICONST_0 + value);
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(BIPUSH, value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			mv.visitIntInsn(SIPUSH, value);
+		} else {
+			mv.visitLdcInsn(value);
+		}
+	}
+}
@@ -623,7 +623,7 @@ public class VarInstruction extends AbstractInstruction {
 	/** CHECK_ARG_COUNT instruction. */
 	private void check_arg_count() {
 		final int argumentNumber = getUnsignedValue(0);
-		final int currentNumArgs = getMachine().getCurrentRoutineContext().getNumArguments();
+		final int currentNumArgs = getMachine().getCurrentNumArguments();
 		branchOnTest(argumentNumber <= currentNumArgs);
 	}
 
@@ -45,6 +45,20 @@ public interface OutputStream {
 	 */
 	void print(char zchar);
 
+	/**
+	 * Prints a run of ZSCII characters to the stream. Implementations handle
+	 * the run as a whole, a run is never split into single characters on the
+	 * way to the stream.
+	 * 
+	 * @param zchars
+	 *            the array holding the ZSCII characters
+	 * @param offset
+	 *            the index of the first character to print
+	 * @param length
+	 *            the number of characters to print
+	 */
+	void print(char[] zchars, int offset, int length);
+
 	/** Close underlying resources. */
 	void close();
 
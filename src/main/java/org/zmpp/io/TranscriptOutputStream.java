@@ -29,7 +29,6 @@
 package org.zmpp.io;
 
 import java.io.BufferedWriter;
-import java.io.IOException;
 import java.io.Writer;
 
 import java.util.logging.Logger;
@@ -37,6 +36,10 @@ import org.zmpp.encoding.IZsciiEncoding;
 
 /**
  * This class defines an output stream for transcript output (Stream 2).
+ * Complete lines are handed to a TranscriptWriter, which writes them on a
+ * background thread, so transcripting does not block the interpreter on file
+ * I/O. An incomplete line is handed over when the stream is flushed, which
+ * happens when the machine waits for input.
  *
  * @author Wei-ju Wu
  * @version 1.5
@@ -45,8 +48,7 @@ public class TranscriptOutputStream implements OutputStream {
 
 	private static final Logger LOG = Logger.getLogger("org.zmpp");
 	private IOSystem iosys;
-	private BufferedWriter output;
-	private Writer transcriptWriter;
+	private TranscriptWriter output;
 	private boolean enabled;
 	private StringBuilder linebuffer;
 	private IZsciiEncoding encoding;
@@ -68,10 +70,10 @@ public class TranscriptOutputStream implements OutputStream {
 
 	/** Initializes the output file. */
 	private void initFile() {
-		if (!initialized && transcriptWriter == null) {
-			transcriptWriter = iosys.getTranscriptWriter();
+		if (!initialized && output == null) {
+			final Writer transcriptWriter = iosys.getTranscriptWriter();
 			if (transcriptWriter != null) {
-				output = new BufferedWriter(transcriptWriter);
+				output = new TranscriptWriter(new BufferedWriter(transcriptWriter));
 			}
 			initialized = true;
 		}
@@ -81,14 +83,36 @@ public class TranscriptOutputStream implements OutputStream {
 	public void print(final char zsciiChar) {
 		initFile();
 		if (output != null) {
-			if (zsciiChar == IZsciiEncoding.NEWLINE) {
-				flush();
-			} else if (zsciiChar == IZsciiEncoding.DELETE) {
+			append(zsciiChar);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void print(final char[] zsciiChars, final int offset, final int length) {
+		initFile();
+		if (output != null) {
+			for (int i = offset, end = offset + length; i < end; i++) {
+				append(zsciiChars[i]);
+			}
+		}
+	}
+
+	/**
+	 * Appends a ZSCII character to the line buffer.
+	 * 
+	 * @param zsciiChar
+	 *            the ZSCII character
+	 */
+	private void append(final char zsciiChar) {
+		if (zsciiChar == IZsciiEncoding.NEWLINE) {
+			linebuffer.append('\n');
+			writeLine();
+		} else if (zsciiChar == IZsciiEncoding.DELETE) {
+			if (linebuffer.length() > 0) {
 				linebuffer.deleteCharAt(linebuffer.length() - 1);
-			} else {
-				linebuffer.append(encoding.getUnicodeChar(zsciiChar));
 			}
-			flush();
+		} else {
+			linebuffer.append(encoding.getUnicodeChar(zsciiChar));
 		}
 	}
 
@@ -102,15 +126,21 @@ public class TranscriptOutputStream implements OutputStream {
 		return enabled;
 	}
 
+	/**
+	 * Hands the contents of the line buffer to the transcript writer.
+	 */
+	private void writeLine() {
+		if (linebuffer.length() > 0) {
+			output.write(linebuffer.toString());
+			linebuffer.setLength(0);
+		}
+	}
+
 	/** {@inheritDoc} */
 	public void flush() {
-		try {
-			if (output != null) {
-				output.write(linebuffer.toString());
-				linebuffer = new StringBuilder();
-			}
-		} catch (IOException ex) {
-			LOG.throwing("TranscriptOutputStream", "flush", ex);
+		if (output != null) {
+			writeLine();
+			output.flush();
 		}
 	}
 
@@ -118,20 +148,12 @@ public class TranscriptOutputStream implements OutputStream {
 	public void close() {
 		if (output != null) {
 			try {
+				writeLine();
 				output.close();
-				output = null;
-			} catch (Exception ex) {
-				LOG.throwing("TranscriptOutputStream", "close", ex);
-			}
-		}
-
-		if (transcriptWriter != null) {
-			try {
-				transcriptWriter.close();
-				transcriptWriter = null;
 			} catch (Exception ex) {
 				LOG.throwing("TranscriptOutputStream", "close", ex);
 			}
+			output = null;
 		}
 		initialized = false;
 	}
@@ -0,0 +1,229 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes transcript text on a background thread. Text is put on a bounded
+ * queue by the interpreter thread and written to the target Writer by a
+ * daemon thread, which wakes up when a batch of lines is pending, when a
+ * flush is requested or when the flush interval has passed. Only close()
+ * waits for the writer thread, it is the point after which all text that
+ * was written is in the target Writer.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class TranscriptWriter {
+
+	private static final Logger LOG = Logger.getLogger("org.zmpp");
+
+	/** The default maximum number of pending chunks. */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/** The default number of milliseconds between two timed flushes. */
+	public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+	/** The number of pending chunks that wakes up the writer thread. */
+	private static final int BATCH_SIZE = 32;
+
+	/** Time a producer waits for the writer thread if the queue is full. */
+	private static final long FULL_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private Writer writer;
+	private int capacity;
+	private long flushIntervalNanos;
+	private Queue<String> pending = new ConcurrentLinkedQueue<String>();
+	private AtomicInteger numPending = new AtomicInteger();
+	private Thread thread;
+	private volatile boolean closed;
+	private boolean failed;
+
+	/**
+	 * Constructor with the default capacity and flush interval.
+	 * 
+	 * @param writer
+	 *            the target Writer
+	 */
+	public TranscriptWriter(final Writer writer) {
+		this(writer, DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param writer
+	 *            the target Writer, it is closed by close()
+	 * @param capacity
+	 *            the maximum number of pending chunks
+	 * @param flushInterval
+	 *            the maximum number of milliseconds written text stays
+	 *            unflushed
+	 */
+	public TranscriptWriter(final Writer writer, final int capacity, final long flushInterval) {
+		this.writer = writer;
+		this.capacity = capacity;
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+		thread = new Thread(new Runnable() {
+			public void run() {
+				writeLoop();
+			}
+		}, "zmpp-transcript");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Puts a chunk of text on the queue. If the queue is full, this waits
+	 * until the writer thread made room, so no text is lost.
+	 * 
+	 * @param text
+	 *            the text
+	 */
+	public void write(final String text) {
+		if (closed) {
+			throw new IllegalStateException("transcript writer is closed");
+		}
+		while (numPending.get() >= capacity) {
+			LockSupport.unpark(thread);
+			LockSupport.parkNanos(FULL_WAIT_NANOS);
+		}
+		pending.add(text);
+		if (numPending.incrementAndGet() % BATCH_SIZE == 0) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * Requests that the pending text is written and flushed. This does not
+	 * wait for the writer thread.
+	 */
+	public void flush() {
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Writes and flushes all pending text and closes the target Writer. This
+	 * waits for the writer thread to finish.
+	 */
+	public void close() {
+		closed = true;
+		LockSupport.unpark(thread);
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the number of chunks which were not written yet.
+	 * 
+	 * @return the number of pending chunks
+	 */
+	public int getNumPending() {
+		return numPending.get();
+	}
+
+	// ************************************************************************
+	// ****** Private functions
+	// ************************************************
+
+	/**
+	 * The writer thread's main loop.
+	 */
+	private void writeLoop() {
+		while (true) {
+			final boolean finish = closed;
+			if (drain()) {
+				flushWriter();
+			}
+			if (finish) {
+				break;
+			}
+			LockSupport.parkNanos(this, flushIntervalNanos);
+		}
+		try {
+			writer.close();
+		} catch (IOException ex) {
+			LOG.log(Level.WARNING, "could not close transcript", ex);
+		}
+	}
+
+	/**
+	 * Writes all pending chunks to the target Writer. After a write error,
+	 * chunks are discarded, so producers are never blocked.
+	 * 
+	 * @return true if something was written
+	 */
+	private boolean drain() {
+		boolean written = false;
+		String text;
+		while ((text = pending.poll()) != null) {
+			numPending.decrementAndGet();
+			if (!failed) {
+				try {
+					writer.write(text);
+					written = true;
+				} catch (IOException ex) {
+					failed = true;
+					LOG.log(Level.WARNING, "could not write transcript", ex);
+				}
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Flushes the target Writer.
+	 */
+	private void flushWriter() {
+		try {
+			writer.flush();
+		} catch (IOException ex) {
+			failed = true;
+			LOG.log(Level.WARNING, "could not flush transcript", ex);
+		}
+	}
+}
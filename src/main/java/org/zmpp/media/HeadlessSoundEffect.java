@@ -0,0 +1,164 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.media;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+
+/**
+ * A SoundEffect that plays nothing. It reports that it stopped after the
+ * specified duration, which makes it usable on hosts without an audio device
+ * and for testing the sound system.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class HeadlessSoundEffect implements SoundEffect {
+
+	private long duration;
+	private SoundScheduler scheduler;
+	private List<SoundStopListener> listeners = new CopyOnWriteArrayList<SoundStopListener>();
+	private Future<?> playing;
+	private int numPlays;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param duration
+	 *            the duration of one play in milliseconds
+	 */
+	public HeadlessSoundEffect(final long duration) {
+		this(duration, SoundScheduler.getInstance());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param duration
+	 *            the duration of one play in milliseconds
+	 * @param scheduler
+	 *            the scheduler that signals the end of the sound
+	 */
+	public HeadlessSoundEffect(final long duration, final SoundScheduler scheduler) {
+		this.duration = duration;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * {@inheritDoc} A number of 0 or less plays the sound until it is stopped.
+	 */
+	public synchronized void play(final int number, final int volume) {
+		if (playing != null) {
+			playing.cancel(false);
+		}
+		final int play = ++numPlays;
+		if (number <= 0) {
+			playing = scheduler.submit(new Runnable() {
+				public void run() {
+					// loops until stopped
+				}
+			});
+		} else {
+			playing = scheduler.schedule(new Runnable() {
+				public void run() {
+					finished(play);
+				}
+			}, duration * number);
+		}
+	}
+
+	/**
+	 * Called when the specified play ended.
+	 * 
+	 * @param play
+	 *            the play number
+	 */
+	private void finished(final int play) {
+		synchronized (this) {
+			if (playing == null || play != numPlays) {
+				return;
+			}
+			playing = null;
+		}
+		notifySoundStopped();
+	}
+
+	/** {@inheritDoc} */
+	public void stop() {
+		synchronized (this) {
+			if (playing == null) {
+				return;
+			}
+			playing.cancel(false);
+			playing = null;
+		}
+		notifySoundStopped();
+	}
+
+	/** {@inheritDoc} */
+	public void release() {
+		stop();
+	}
+
+	/**
+	 * Returns whether the sound is playing.
+	 * 
+	 * @return true if playing, false otherwise
+	 */
+	public synchronized boolean isPlaying() {
+		return playing != null;
+	}
+
+	/**
+	 * Returns how often the sound was started.
+	 * 
+	 * @return the number of plays
+	 */
+	public synchronized int getNumPlays() {
+		return numPlays;
+	}
+
+	/** {@inheritDoc} */
+	public void addSoundStopListener(final SoundStopListener l) {
+		listeners.add(l);
+	}
+
+	/** {@inheritDoc} */
+	public void removeSoundStopListener(final SoundStopListener l) {
+		listeners.remove(l);
+	}
+
+	/** Notifies the listeners that the sound stopped. */
+	private void notifySoundStopped() {
+		for (SoundStopListener l : listeners) {
+			l.soundStopped(this);
+		}
+	}
+}
@@ -78,7 +78,9 @@ public class PictureManagerImpl implements PictureManager {
 
 	/** {@inheritDoc} */
 	public void preload(final int[] picnumbers) {
-		// no preloading at the moment
+		for (int picnum : picnumbers) {
+			pictures.loadResource(picnum);
+		}
 	}
 
 	/** {@inheritDoc} */
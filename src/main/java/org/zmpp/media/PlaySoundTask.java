@@ -32,7 +32,9 @@ import java.util.logging.Logger;
 import org.zmpp.base.Interruptable;
 
 /**
- * Class to play sounds.
+ * Class to play sounds. The task only starts the sound, it is finished when
+ * the sound reports that it stopped, so no thread is blocked while the sound
+ * is playing.
  * 
  * @author Wei-ju Wu
  * @version 1.5
@@ -48,6 +50,7 @@ public class PlaySoundTask implements Runnable, SoundStopListener {
 	private Interruptable interruptable;
 	private int routine;
 	private boolean stopped;
+	private boolean started;
 
 	/**
 	 * Constructor.
@@ -77,10 +80,9 @@ public class PlaySoundTask implements Runnable, SoundStopListener {
 	 * @param repeats
 	 *            number of repeats
 	 * @param interruptable
-	 *            interruptable object (should not be used anymore)
+	 *            receives the interrupt routine when the sound finished
 	 * @param routine
 	 *            the interrupt routine
-	 * @deprecated interrupts should be implemented differently
 	 */
 	public PlaySoundTask(int resourceNum, SoundEffect sound, int volume, int repeats, Interruptable interruptable,
 			int routine) {
@@ -104,20 +106,14 @@ public class PlaySoundTask implements Runnable, SoundStopListener {
 	/** {@inheritDoc} */
 	public void run() {
 		sound.addSoundStopListener(this);
-		sound.play(repeats, volume);
-
 		synchronized (this) {
-			while (!wasPlayed()) {
-				try {
-					wait();
-				} catch (Exception ex) {
-					LOG.throwing("PlaySoundTask", "run", ex);
-				}
+			if (wasStopped()) {
+				// stopped before the task was started
+				sound.removeSoundStopListener(this);
+				return;
 			}
-		}
-		sound.removeSoundStopListener(this);
-		if (!wasStopped() && interruptable != null && routine > 0) {
-			interruptable.setInterruptRoutine(routine);
+			started = true;
+			sound.play(repeats, volume);
 		}
 	}
 
@@ -165,7 +161,11 @@ public class PlaySoundTask implements Runnable, SoundStopListener {
 	public synchronized void stop() {
 		if (!wasPlayed()) {
 			setStopped(true);
-			sound.stop();
+			if (started) {
+				sound.stop();
+			} else {
+				setPlayed(true);
+			}
 		}
 	}
 
@@ -182,6 +182,17 @@ public class PlaySoundTask implements Runnable, SoundStopListener {
 
 	/** {@inheritDoc} */
 	public void soundStopped(final SoundEffect aSound) {
-		setPlayed(true);
+		sound.removeSoundStopListener(this);
+		synchronized (this) {
+			if (wasPlayed()) {
+				return;
+			}
+			// the routine is queued while the task is locked, so a concurrent
+			// stop() either prevents it or happens after it was queued
+			if (!wasStopped() && interruptable != null && routine > 0) {
+				interruptable.setInterruptRoutine(routine);
+			}
+			setPlayed(true);
+		}
 	}
 }
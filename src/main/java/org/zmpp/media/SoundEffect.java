@@ -49,6 +49,12 @@ public interface SoundEffect {
 	/** Stops a sound. */
 	void stop();
 
+	/**
+	 * Stops the sound and releases the audio resources it holds. A released
+	 * sound is not played again.
+	 */
+	void release();
+
 	/**
 	 * Adds a listener to listen for the sound stop event.
 	 * 
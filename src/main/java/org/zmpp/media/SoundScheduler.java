@@ -0,0 +1,133 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.media;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The scheduler for sound tasks. All sound systems of a process share one
+ * instance, which runs the tasks on a bounded number of daemon threads. A
+ * sound task only starts a sound, its completion is signalled by the sound's
+ * SoundStopListener, so no thread waits while a sound plays. Idle threads
+ * terminate after a few seconds, so a process that stopped playing sounds
+ * holds no sound threads.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class SoundScheduler {
+
+	/** The default maximum number of threads. */
+	public static final int DEFAULT_MAX_THREADS = 2;
+
+	/** The number of seconds an idle thread is kept. */
+	private static final long KEEP_ALIVE_SECONDS = 5;
+
+	private static SoundScheduler instance;
+
+	private ScheduledThreadPoolExecutor executor;
+
+	/**
+	 * Returns the scheduler that is shared by the sound systems.
+	 * 
+	 * @return the shared scheduler
+	 */
+	public static synchronized SoundScheduler getInstance() {
+		if (instance == null) {
+			instance = new SoundScheduler(DEFAULT_MAX_THREADS);
+		}
+		return instance;
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxThreads
+	 *            the maximum number of threads
+	 */
+	public SoundScheduler(final int maxThreads) {
+		final AtomicInteger threadNum = new AtomicInteger();
+		executor = new ScheduledThreadPoolExecutor(maxThreads, new ThreadFactory() {
+			public Thread newThread(final Runnable r) {
+				final Thread thread = new Thread(r, "ZMPP sound " + threadNum.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+		executor.allowCoreThreadTimeOut(true);
+		executor.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Runs the specified task as soon as a thread is available.
+	 * 
+	 * @param task
+	 *            the task
+	 * @return the Future to cancel the task
+	 */
+	public Future<?> submit(final Runnable task) {
+		return executor.submit(task);
+	}
+
+	/**
+	 * Runs the specified task after the specified delay.
+	 * 
+	 * @param task
+	 *            the task
+	 * @param delay
+	 *            the delay in milliseconds
+	 * @return the Future to cancel the task
+	 */
+	public ScheduledFuture<?> schedule(final Runnable task, final long delay) {
+		return executor.schedule(task, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the number of threads that currently exist.
+	 * 
+	 * @return the number of threads
+	 */
+	public int getNumThreads() {
+		return executor.getPoolSize();
+	}
+
+	/**
+	 * Shuts the scheduler down. Tasks that were not started yet are
+	 * discarded.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
@@ -80,6 +80,14 @@ public interface SoundSystem {
 	 */
 	void play(int number, int effect, int volume, int repeats, int routine);
 
-	/** Resets the sound system. */
+	/**
+	 * Returns the next pending interrupt routine of a sound that finished
+	 * playing and removes it from the queue.
+	 *
+	 * @return the routine address or 0 if there is none
+	 */
+	int nextInterruptRoutine();
+
+	/** Resets the sound system, the current sound is stopped. */
 	void reset();
 }
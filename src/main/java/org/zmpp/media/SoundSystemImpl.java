@@ -28,15 +28,17 @@
  */
 package org.zmpp.media;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
 
 import org.zmpp.base.Interruptable;
 
 /**
- * This class implements the SoundSystem interface. The implementation is using
- * a Java 5 thread executor which makes it very easy to assign a control task to
- * each sound which can handle the stopping of a sound easily.
+ * This class implements the SoundSystem interface. Each sound is started by a
+ * control task which handles the stopping of the sound. The tasks run on a
+ * SoundScheduler that is shared by all sound systems. Interrupt routines of
+ * finished sounds are queued until the interpreter calls them.
  *
  * @author Wei-ju Wu
  * @version 1.5
@@ -46,15 +48,25 @@ public class SoundSystemImpl implements SoundSystem {
 	/** The resource database. */
 	private MediaCollection<SoundEffect> sounds;
 
-	/** The executor service. */
-	private ExecutorService executor;
+	/** The scheduler that runs the sound tasks. */
+	private SoundScheduler scheduler;
 
-	/** The interruptable. */
-	private Interruptable interruptable;
+	/** The pending interrupt routines. */
+	private Queue<Integer> interruptRoutines = new ConcurrentLinkedQueue<Integer>();
+
+	/** Queues the interrupt routines of the sound tasks. */
+	private Interruptable interruptable = new Interruptable() {
+		public void setInterruptRoutine(final int routine) {
+			interruptRoutines.add(routine);
+		}
+	};
 
 	/** The current sound task. */
 	protected PlaySoundTask currentTask;
 
+	/** The Future of the current sound task. */
+	private Future<?> currentFuture;
+
 	/**
 	 * Constructor.
 	 * 
@@ -62,11 +74,20 @@ public class SoundSystemImpl implements SoundSystem {
 	 *            the sound resources
 	 */
 	public SoundSystemImpl(final MediaCollection<SoundEffect> sounds) {
+		this(sounds, SoundScheduler.getInstance());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param sounds
+	 *            the sound resources
+	 * @param scheduler
+	 *            the scheduler for the sound tasks
+	 */
+	public SoundSystemImpl(final MediaCollection<SoundEffect> sounds, final SoundScheduler scheduler) {
 		this.sounds = sounds;
-		// That's pretty cool:
-		// We can control the number of concurrent sounds to be played
-		// simultaneously by the size of the thread pool.
-		this.executor = Executors.newSingleThreadExecutor();
+		this.scheduler = scheduler;
 	}
 
 	/**
@@ -78,36 +99,52 @@ public class SoundSystemImpl implements SoundSystem {
 		currentTask.stop();
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc} The current task is stopped before the queue is cleared,
+	 * so it cannot queue its routine afterwards.
+	 */
 	public void reset() {
-		// no resetting supported
+		if (currentTask != null) {
+			currentTask.stop();
+			currentFuture.cancel(false);
+			currentTask = null;
+			currentFuture = null;
+		}
+		interruptRoutines.clear();
+	}
+
+	/** {@inheritDoc} */
+	public int nextInterruptRoutine() {
+		final Integer routine = interruptRoutines.poll();
+		return routine == null ? 0 : routine;
 	}
 
 	/** {@inheritDoc} */
 	public void play(final int number, final int effect, final int volume, final int repeats, final int routine) {
-		SoundEffect sound = null;
 		// @sound_effect 0 3 followed by @sound_effect 0 4 is called
 		// by "The Lurking Horror" and hints that all sound effects should
-		// be stopped and unloaded. ZMPP's sound system implementation does
-		// nothing at the moment (hey, we have plenty of memory and are
-		// in a Java environment)
+		// be stopped and unloaded. The sounds are cached within a size
+		// limit, so ZMPP does not need to handle this.
 		if (number == 0)
 			return;
 
-		if (sounds != null) {
-			sound = sounds.getResource(number);
-		}
-		if (sound == null) {
-			System.out.println("*BEEP* (playing non-sound)");
-		} else {
-			if (effect == SoundSystem.EFFECT_START) {
+		if (effect == SoundSystem.EFFECT_START) {
+			// the sound is only created when it is started or prepared
+			final SoundEffect sound = sounds != null ? sounds.getResource(number) : null;
+			if (sound == null) {
+				System.out.println("*BEEP* (playing non-sound)");
+			} else {
 				startSound(number, sound, volume, repeats, routine);
-			} else if (effect == SoundSystem.EFFECT_STOP) {
-				stopSound(number);
-			} else if (effect == SoundSystem.EFFECT_PREPARE) {
+			}
+		} else if (effect == SoundSystem.EFFECT_STOP) {
+			stopSound(number);
+		} else if (effect == SoundSystem.EFFECT_PREPARE) {
+			if (sounds != null) {
 				sounds.loadResource(number);
-			} else if (effect == SoundSystem.EFFECT_FINISH) {
-				stopSound(number);
+			}
+		} else if (effect == SoundSystem.EFFECT_FINISH) {
+			stopSound(number);
+			if (sounds != null) {
 				sounds.unloadResource(number);
 			}
 		}
@@ -134,7 +171,7 @@ public class SoundSystemImpl implements SoundSystem {
 		}
 		currentTask = (routine <= 0) ? new PlaySoundTask(number, sound, volume, repeats)
 				: new PlaySoundTask(number, sound, volume, repeats, interruptable, routine);
-		executor.submit(currentTask);
+		currentFuture = scheduler.submit(currentTask);
 	}
 
 	/**
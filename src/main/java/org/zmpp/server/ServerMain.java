@@ -0,0 +1,165 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Starts a session server. Without a port, the protocol is served on standard
+ * input and output, otherwise each connection on the loopback interface is
+ * served by its own thread.
+ * 
+ * <pre>
+ * ServerMain [-port &lt;port&gt;] [-threads &lt;n&gt;] [-steps &lt;n&gt;] [-slice &lt;ms&gt;]
+ * </pre>
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public final class ServerMain {
+
+	private static final Logger LOG = Logger.getLogger("org.zmpp.server");
+	private static final String ENCODING = "UTF-8";
+
+	/**
+	 * Private constructor.
+	 */
+	private ServerMain() {
+	}
+
+	/**
+	 * Serves a single connection.
+	 */
+	private static class Connection implements Runnable {
+		private SessionServer server;
+		private Socket socket;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param server
+		 *            the session server
+		 * @param socket
+		 *            the client socket
+		 */
+		public Connection(final SessionServer server, final Socket socket) {
+			this.server = server;
+			this.socket = socket;
+		}
+
+		/** {@inheritDoc} */
+		public void run() {
+			try {
+				try {
+					serve(server, new BufferedReader(new InputStreamReader(socket.getInputStream(), ENCODING)),
+							new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), ENCODING)));
+				} finally {
+					socket.close();
+				}
+			} catch (IOException ex) {
+				LOG.log(Level.INFO, "connection failed", ex);
+			}
+		}
+	}
+
+	/**
+	 * Main method.
+	 * 
+	 * @param args
+	 *            the command line arguments
+	 * @throws Exception
+	 *             if the server failed
+	 */
+	public static void main(final String[] args) throws Exception {
+		int port = -1;
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		int stepBudget = SessionServer.DEFAULT_STEP_BUDGET;
+		int timeSlice = 0;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			final int value = Integer.parseInt(args[i + 1]);
+			if ("-port".equals(args[i])) {
+				port = value;
+			} else if ("-threads".equals(args[i])) {
+				numThreads = value;
+			} else if ("-steps".equals(args[i])) {
+				stepBudget = value;
+			} else if ("-slice".equals(args[i])) {
+				timeSlice = value;
+			} else {
+				throw new IllegalArgumentException("unknown option: " + args[i]);
+			}
+		}
+		final SessionServer server = new SessionServer(numThreads, stepBudget, timeSlice);
+		try {
+			if (port < 0) {
+				serve(server, new BufferedReader(new InputStreamReader(System.in, ENCODING)),
+						new PrintWriter(new OutputStreamWriter(System.out, ENCODING)));
+			} else {
+				final ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+				try {
+					while (true) {
+						final Thread thread = new Thread(new Connection(server, serverSocket.accept()));
+						thread.setDaemon(true);
+						thread.start();
+					}
+				} finally {
+					serverSocket.close();
+				}
+			}
+		} finally {
+			server.shutdown();
+		}
+	}
+
+	/**
+	 * Serves the protocol on the specified streams.
+	 * 
+	 * @param server
+	 *            the session server
+	 * @param in
+	 *            the request reader
+	 * @param out
+	 *            the response writer
+	 * @throws IOException
+	 *             if reading a request failed
+	 */
+	private static void serve(final SessionServer server, final BufferedReader in, final PrintWriter out)
+			throws IOException {
+		new ServerProtocol(server, in, out).serve();
+	}
+}
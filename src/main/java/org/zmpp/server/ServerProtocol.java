@@ -0,0 +1,232 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.zmpp.vm.InvalidStoryException;
+import org.zmpp.vm.MachineRunState;
+
+/**
+ * The line protocol of the session server. Each request is a single line:
+ * 
+ * <pre>
+ * open &lt;id&gt; &lt;story file&gt;   opens and starts a session
+ * input &lt;id&gt; [&lt;text&gt;]       sends an input line to a session
+ * close &lt;id&gt;               closes a session
+ * stats &lt;id&gt;               reports the session's execution metrics
+ * quit                     closes all sessions of this connection
+ * </pre>
+ * 
+ * Responses and events are single lines as well:
+ * 
+ * <pre>
+ * OK &lt;request&gt; &lt;id&gt;
+ * ERROR &lt;message&gt;
+ * OUTPUT &lt;id&gt; &lt;line&gt;       one event per line of game output
+ * WAITING &lt;id&gt; line|char    the session waits for input
+ * ENDED &lt;id&gt;               the session ended
+ * STATS &lt;id&gt; &lt;steps&gt; &lt;slices&gt; &lt;yields&gt;
+ * </pre>
+ * 
+ * Session ids must not contain spaces. A connection can only send requests
+ * to the sessions it opened itself, and all of them are closed when the
+ * connection ends.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class ServerProtocol implements SessionListener {
+
+	private SessionServer server;
+	private BufferedReader in;
+	private PrintWriter out;
+	private Set<String> sessionIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param server
+	 *            the session server
+	 * @param in
+	 *            the request reader
+	 * @param out
+	 *            the response writer
+	 */
+	public ServerProtocol(final SessionServer server, final BufferedReader in, final PrintWriter out) {
+		this.server = server;
+		this.in = in;
+		this.out = out;
+	}
+
+	/**
+	 * Processes requests until the connection ends or quit is requested.
+	 * 
+	 * @throws IOException
+	 *             if reading a request failed
+	 */
+	public void serve() throws IOException {
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (!processRequest(line)) {
+					break;
+				}
+			}
+		} finally {
+			for (String id : sessionIds) {
+				server.closeSession(id);
+			}
+		}
+	}
+
+	/**
+	 * Processes a single request.
+	 * 
+	 * @param line
+	 *            the request line
+	 * @return false if the connection should end, true otherwise
+	 */
+	public boolean processRequest(final String line) {
+		final String[] parts = line.split(" ", 3);
+		final String request = parts[0];
+		if ("quit".equals(request)) {
+			return false;
+		} else if (parts.length < 2) {
+			if (request.length() > 0) {
+				send("ERROR invalid request: " + line);
+			}
+		} else if ("open".equals(request) && parts.length == 3) {
+			open(parts[1], parts[2]);
+		} else if ("input".equals(request)) {
+			if (!isOwnSession(parts[1]) || !server.sendInput(parts[1], parts.length == 3 ? parts[2] : "")) {
+				send("ERROR unknown session: " + parts[1]);
+			}
+		} else if ("close".equals(request)) {
+			if (isOwnSession(parts[1]) && server.closeSession(parts[1])) {
+				send("OK close " + parts[1]);
+			} else {
+				send("ERROR unknown session: " + parts[1]);
+			}
+		} else if ("stats".equals(request)) {
+			final Session session = isOwnSession(parts[1]) ? server.getSession(parts[1]) : null;
+			if (session != null) {
+				send("STATS " + parts[1] + " " + session.getNumSteps() + " " + session.getNumSlices() + " "
+						+ session.getNumYields());
+			} else {
+				send("ERROR unknown session: " + parts[1]);
+			}
+		} else {
+			send("ERROR invalid request: " + line);
+		}
+		return true;
+	}
+
+	/**
+	 * Determines whether the session was opened through this connection. The
+	 * sessions of other connections are treated as unknown.
+	 * 
+	 * @param id
+	 *            the session id
+	 * @return true if opened through this connection, false otherwise
+	 */
+	private boolean isOwnSession(final String id) {
+		return sessionIds.contains(id);
+	}
+
+	/**
+	 * Opens a session.
+	 * 
+	 * @param id
+	 *            the session id
+	 * @param path
+	 *            the story file path
+	 */
+	private void open(final String id, final String path) {
+		final Session session;
+		try {
+			session = server.createSession(id, new File(path), this);
+		} catch (IOException ex) {
+			send("ERROR " + ex.getMessage());
+			return;
+		} catch (InvalidStoryException ex) {
+			send("ERROR invalid story: " + path);
+			return;
+		} catch (IllegalArgumentException ex) {
+			send("ERROR " + ex.getMessage());
+			return;
+		}
+		// the session produces events once it is started, so the response
+		// precedes them
+		sessionIds.add(id);
+		send("OK open " + id);
+		session.start();
+	}
+
+	/** {@inheritDoc} */
+	public void sessionOutput(final Session session, final String text) {
+		synchronized (out) {
+			// a trailing partial line, usually the prompt, is sent as well
+			for (String outputLine : text.split("\n")) {
+				out.println("OUTPUT " + session.getId() + " " + outputLine);
+			}
+			out.flush();
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void sessionWaiting(final Session session, final MachineRunState runState) {
+		send("WAITING " + session.getId() + (runState.isReadChar() ? " char" : " line"));
+	}
+
+	/** {@inheritDoc} */
+	public void sessionEnded(final Session session) {
+		sessionIds.remove(session.getId());
+		send("ENDED " + session.getId());
+	}
+
+	/**
+	 * Sends a response line.
+	 * 
+	 * @param response
+	 *            the response
+	 */
+	private void send(final String response) {
+		synchronized (out) {
+			out.println(response);
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,292 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.server;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.zmpp.ExecutionControl;
+import org.zmpp.vm.InvalidStoryException;
+import org.zmpp.vm.Machine;
+import org.zmpp.vm.MachineFactory.MachineInitStruct;
+import org.zmpp.vm.MachineRunState;
+import org.zmpp.windowing.AnnotatedText;
+import org.zmpp.windowing.BufferedScreenModel;
+
+/**
+ * A game session. A session runs in slices of at most a fixed number of
+ * instructions and, optionally, a fixed time on an Executor. At most one slice of a session is scheduled at
+ * any time. A session that waits for input is not scheduled until input
+ * arrives, and a session that used up its step budget is scheduled again, so
+ * it continues after the other sessions had their turn.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class Session {
+
+	private static final Logger LOG = Logger.getLogger("org.zmpp.server");
+
+	private String id;
+	private ExecutionControl executionControl;
+	private BufferedScreenModel screenModel;
+	private SessionListener listener;
+	private Executor executor;
+	private int stepBudget;
+	private long timeSlice;
+	private Queue<String> pendingInput = new ConcurrentLinkedQueue<String>();
+	private AtomicBoolean scheduled = new AtomicBoolean();
+	private volatile boolean closed;
+	private volatile boolean ended;
+	private boolean started;
+	private volatile int numSteps;
+	private volatile int numSlices;
+	private volatile int numYields;
+	private MachineRunState runState = MachineRunState.RUNNING;
+
+	private Runnable slice = new Runnable() {
+		public void run() {
+			runSlice();
+		}
+	};
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param id
+	 *            the session id
+	 * @param initStruct
+	 *            the initialization data, screen model and status line are set
+	 *            by the session
+	 * @param listener
+	 *            the SessionListener
+	 * @param executor
+	 *            the Executor that runs the session's slices
+	 * @param stepBudget
+	 *            the maximum number of instructions executed in one slice
+	 * @param timeSlice
+	 *            the maximum number of milliseconds a slice runs, 0 for no
+	 *            limit
+	 * @throws IOException
+	 *             if the story could not be read
+	 * @throws InvalidStoryException
+	 *             if the story is invalid
+	 */
+	public Session(String id, MachineInitStruct initStruct, SessionListener listener, Executor executor,
+			int stepBudget, long timeSlice) throws IOException, InvalidStoryException {
+		this.id = id;
+		this.listener = listener;
+		this.executor = executor;
+		this.stepBudget = stepBudget;
+		this.timeSlice = timeSlice;
+		screenModel = new BufferedScreenModel();
+		initStruct.screenModel = screenModel;
+		initStruct.statusLine = screenModel;
+		executionControl = new ExecutionControl(initStruct);
+		screenModel.init(executionControl.getMachine(), executionControl.getZsciiEncoding());
+	}
+
+	/**
+	 * Returns the session id.
+	 * 
+	 * @return the id
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the execution control.
+	 * 
+	 * @return the execution control
+	 */
+	public ExecutionControl getExecutionControl() {
+		return executionControl;
+	}
+
+	/**
+	 * Returns the number of instructions the session executed so far.
+	 * 
+	 * @return the number of steps
+	 */
+	public int getNumSteps() {
+		return numSteps;
+	}
+
+	/**
+	 * Returns the number of slices the session ran so far.
+	 * 
+	 * @return the number of slices
+	 */
+	public int getNumSlices() {
+		return numSlices;
+	}
+
+	/**
+	 * Returns the number of slices that ended because the budget was spent.
+	 * 
+	 * @return the number of yields
+	 */
+	public int getNumYields() {
+		return numYields;
+	}
+
+	/**
+	 * Determines whether the session has ended.
+	 * 
+	 * @return true if ended, false otherwise
+	 */
+	public boolean isEnded() {
+		return ended;
+	}
+
+	/**
+	 * Starts the session.
+	 */
+	public void start() {
+		schedule();
+	}
+
+	/**
+	 * Adds an input line. For character input, the first character of the line
+	 * is used.
+	 * 
+	 * @param line
+	 *            the input line
+	 */
+	public void addInput(final String line) {
+		pendingInput.add(line);
+		schedule();
+	}
+
+	/**
+	 * Closes the session. The game is stopped after the current slice.
+	 */
+	public void close() {
+		closed = true;
+		schedule();
+	}
+
+	/**
+	 * Schedules a slice unless one is scheduled already.
+	 */
+	private void schedule() {
+		if (!ended && scheduled.compareAndSet(false, true)) {
+			executor.execute(slice);
+		}
+	}
+
+	/**
+	 * Runs a slice and schedules the next one if the session can continue.
+	 */
+	private void runSlice() {
+		try {
+			if (closed) {
+				end();
+				return;
+			}
+			runState = executeSlice();
+			numSteps = executionControl.getStep();
+			numSlices++;
+			if (runState == MachineRunState.YIELDED) {
+				numYields++;
+			}
+			deliverOutput();
+		} catch (RuntimeException ex) {
+			LOG.log(Level.WARNING, "session " + id + " failed", ex);
+			end();
+			return;
+		} finally {
+			scheduled.set(false);
+		}
+		if (runState == MachineRunState.STOPPED || closed) {
+			end();
+		} else if (runState == MachineRunState.YIELDED || !pendingInput.isEmpty()) {
+			schedule();
+		} else {
+			listener.sessionWaiting(this, runState);
+		}
+	}
+
+	/**
+	 * Executes the next slice of instructions.
+	 * 
+	 * @return the run state after the slice
+	 */
+	private MachineRunState executeSlice() {
+		if (!started) {
+			started = true;
+			return executionControl.run(stepBudget, timeSlice);
+		}
+		if (runState.isWaitingForInput()) {
+			final String input = pendingInput.poll();
+			return input == null ? runState : executionControl.resumeWithInput(input, stepBudget, timeSlice);
+		}
+		return executionControl.run(stepBudget, timeSlice);
+	}
+
+	/**
+	 * Passes the text in the screen model's lower buffer to the listener.
+	 */
+	private void deliverOutput() {
+		final List<AnnotatedText> buffer = screenModel.getLowerBuffer();
+		if (!buffer.isEmpty()) {
+			final StringBuilder text = new StringBuilder();
+			for (AnnotatedText segment : buffer) {
+				text.append(segment.getText());
+			}
+			listener.sessionOutput(this, text.toString().replace('\r', '\n'));
+		}
+	}
+
+	/**
+	 * Stops the game if it still runs, releases the machine and notifies the
+	 * listener.
+	 */
+	private synchronized void end() {
+		if (!ended) {
+			ended = true;
+			final Machine machine = executionControl.getMachine();
+			try {
+				if (machine.getRunState() != MachineRunState.STOPPED) {
+					machine.quit();
+				}
+			} finally {
+				machine.close();
+			}
+			listener.sessionEnded(this);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.server;
+
+import org.zmpp.vm.MachineRunState;
+
+/**
+ * Receives the events of a game session. The methods are invoked from the
+ * server's worker threads, so implementations need to be thread-safe.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public interface SessionListener {
+
+	/**
+	 * The session printed text to the lower window.
+	 * 
+	 * @param session
+	 *            the session
+	 * @param text
+	 *            the text, lines are separated by '\n'
+	 */
+	void sessionOutput(Session session, String text);
+
+	/**
+	 * The session waits for input.
+	 * 
+	 * @param session
+	 *            the session
+	 * @param runState
+	 *            the input state
+	 */
+	void sessionWaiting(Session session, MachineRunState runState);
+
+	/**
+	 * The session ended, either because the game quit or because the session
+	 * was closed.
+	 * 
+	 * @param session
+	 *            the session
+	 */
+	void sessionEnded(Session session);
+}
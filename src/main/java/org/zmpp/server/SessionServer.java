@@ -0,0 +1,268 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.server;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.zmpp.vm.InvalidStoryException;
+import org.zmpp.vm.MachineFactory.MachineInitStruct;
+import org.zmpp.vm.MachineRunState;
+
+/**
+ * Hosts game sessions. All sessions share a work-stealing thread pool in
+ * asynchronous mode, so slices are executed in the order they were scheduled
+ * and a session that used up its step budget queues up behind the others.
+ * Sessions that run the same story share its story image.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class SessionServer {
+
+	/** The default number of instructions executed in one slice. */
+	public static final int DEFAULT_STEP_BUDGET = 10000;
+
+	private ForkJoinPool pool;
+	private int stepBudget;
+	private long timeSlice;
+	private ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<String, Session>();
+
+	/**
+	 * Removes ended sessions from the server before passing the events on.
+	 */
+	private class ServerListener implements SessionListener {
+		private SessionListener listener;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param listener
+		 *            the listener of the session
+		 */
+		public ServerListener(final SessionListener listener) {
+			this.listener = listener;
+		}
+
+		/** {@inheritDoc} */
+		public void sessionOutput(Session session, String text) {
+			listener.sessionOutput(session, text);
+		}
+
+		/** {@inheritDoc} */
+		public void sessionWaiting(Session session, MachineRunState runState) {
+			listener.sessionWaiting(session, runState);
+		}
+
+		/** {@inheritDoc} */
+		public void sessionEnded(Session session) {
+			sessions.remove(session.getId(), session);
+			listener.sessionEnded(session);
+		}
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param numThreads
+	 *            the number of worker threads
+	 * @param stepBudget
+	 *            the maximum number of instructions a session executes in one
+	 *            slice
+	 */
+	public SessionServer(final int numThreads, final int stepBudget) {
+		this(numThreads, stepBudget, 0);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param numThreads
+	 *            the number of worker threads
+	 * @param stepBudget
+	 *            the maximum number of instructions a session executes in one
+	 *            slice
+	 * @param timeSlice
+	 *            the maximum number of milliseconds a slice runs, 0 for no
+	 *            limit
+	 */
+	public SessionServer(final int numThreads, final int stepBudget, final long timeSlice) {
+		this.pool = new ForkJoinPool(numThreads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+		this.stepBudget = stepBudget;
+		this.timeSlice = timeSlice;
+	}
+
+	/**
+	 * Opens and starts a session.
+	 * 
+	 * @param id
+	 *            the session id
+	 * @param storyFile
+	 *            the story or Blorb file
+	 * @param listener
+	 *            the session's listener
+	 * @return the session
+	 * @throws IOException
+	 *             if the story could not be read
+	 * @throws InvalidStoryException
+	 *             if the story is invalid
+	 */
+	public Session openSession(final String id, final File storyFile, final SessionListener listener)
+			throws IOException, InvalidStoryException {
+		final Session session = createSession(id, storyFile, listener);
+		session.start();
+		return session;
+	}
+
+	/**
+	 * Opens a session without starting it. The session is registered, but it
+	 * does not run and produce events before start() is called.
+	 * 
+	 * @param id
+	 *            the session id
+	 * @param storyFile
+	 *            the story or Blorb file
+	 * @param listener
+	 *            the session's listener
+	 * @return the session
+	 * @throws IOException
+	 *             if the story could not be read
+	 * @throws InvalidStoryException
+	 *             if the story is invalid
+	 */
+	public Session createSession(final String id, final File storyFile, final SessionListener listener)
+			throws IOException, InvalidStoryException {
+		if (sessions.containsKey(id)) {
+			throw new IllegalArgumentException("session exists: " + id);
+		}
+		final MachineInitStruct initStruct = new MachineInitStruct();
+		final FileInputStream storyStream = new FileInputStream(storyFile);
+		final Session session;
+		try {
+			if (isBlorb(storyFile)) {
+				initStruct.blorbFile = storyStream;
+			} else {
+				initStruct.storyFile = storyStream;
+			}
+			session = new Session(id, initStruct, new ServerListener(listener), pool, stepBudget,
+					timeSlice);
+		} finally {
+			// the file is mapped, so it can be closed right away
+			storyStream.close();
+		}
+		if (sessions.putIfAbsent(id, session) != null) {
+			session.getExecutionControl().getMachine().close();
+			throw new IllegalArgumentException("session exists: " + id);
+		}
+		return session;
+	}
+
+	/**
+	 * Returns the session with the specified id.
+	 * 
+	 * @param id
+	 *            the session id
+	 * @return the session or null if it does not exist
+	 */
+	public Session getSession(final String id) {
+		return sessions.get(id);
+	}
+
+	/**
+	 * Returns the number of open sessions.
+	 * 
+	 * @return the number of sessions
+	 */
+	public int getNumSessions() {
+		return sessions.size();
+	}
+
+	/**
+	 * Sends an input line to a session.
+	 * 
+	 * @param id
+	 *            the session id
+	 * @param line
+	 *            the input line
+	 * @return true if the session exists, false otherwise
+	 */
+	public boolean sendInput(final String id, final String line) {
+		final Session session = sessions.get(id);
+		if (session != null) {
+			session.addInput(line);
+		}
+		return session != null;
+	}
+
+	/**
+	 * Closes a session.
+	 * 
+	 * @param id
+	 *            the session id
+	 * @return true if the session existed, false otherwise
+	 */
+	public boolean closeSession(final String id) {
+		final Session session = sessions.get(id);
+		if (session != null) {
+			session.close();
+		}
+		return session != null;
+	}
+
+	/**
+	 * Closes all sessions and stops the worker threads.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the sessions to end
+	 */
+	public void shutdown() throws InterruptedException {
+		for (Session session : sessions.values()) {
+			session.close();
+		}
+		pool.shutdown();
+		pool.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Determines whether the specified file is a Blorb file by its name.
+	 * 
+	 * @param file
+	 *            the file
+	 * @return true if Blorb, false otherwise
+	 */
+	private static boolean isBlorb(final File file) {
+		final String name = file.getName().toLowerCase();
+		return name.endsWith("blorb") || name.endsWith("blb");
+	}
+}
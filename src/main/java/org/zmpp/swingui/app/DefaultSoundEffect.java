@@ -18,11 +18,12 @@
  */
 package org.zmpp.swingui.app;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.sound.sampled.Clip;
 import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.Line;
 import javax.sound.sampled.LineEvent;
 import javax.sound.sampled.LineListener;
 
@@ -62,7 +63,7 @@ public class DefaultSoundEffect implements SoundEffect, LineListener {
 
     super();
     this.clip = clip;
-    listeners = new ArrayList<SoundStopListener>();
+    listeners = new CopyOnWriteArrayList<SoundStopListener>();
     clip.addLineListener(this);
   }
 
@@ -92,14 +93,29 @@ public class DefaultSoundEffect implements SoundEffect, LineListener {
    */
   private void setVolume(final int vol) {
 
+    setVolume(clip, vol);
+  }
+
+  /**
+   * Sets the volume of an audio line.
+   *
+   * @param line the line
+   * @param vol the volume
+   */
+  static void setVolume(final Line line, final int vol) {
+
     int volume = vol;
     if (volume < 0) {
 
       volume = MAX_VOLUME;
     }
     float gainDb = 0.0f;
+    if (!line.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
+
+      return;
+    }
     final FloatControl gain = (FloatControl)
-        clip.getControl(FloatControl.Type.MASTER_GAIN);
+        line.getControl(FloatControl.Type.MASTER_GAIN);
 
     if (volume == 0) {
 
@@ -125,6 +141,15 @@ public class DefaultSoundEffect implements SoundEffect, LineListener {
     clip.stop();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public void release() {
+
+    clip.stop();
+    clip.close();
+  }
+
   /**
    * {@inheritDoc}
    */
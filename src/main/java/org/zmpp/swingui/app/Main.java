@@ -39,6 +39,7 @@ import javax.sound.sampled.UnsupportedAudioFileException;
 import javax.swing.JOptionPane;
 import javax.swing.UIManager;
 
+import org.zmpp.blorb.BlorbSounds;
 import org.zmpp.blorb.MemoryInputStream;
 import org.zmpp.blorb.NativeImage;
 import org.zmpp.blorb.NativeImageFactory;
@@ -90,11 +91,16 @@ public final class Main {
   }
 
   /**
-   * Sound effect factory.
+   * Sound effect factory. Short AIFF sounds are decoded into clips, long
+   * sounds and other formats are streamed.
    */
   static class DefaultSoundEffectFactory implements SoundEffectFactory {
     public SoundEffect createSoundEffect(Chunk aiffChunk)
         throws IOException {
+      if (aiffChunk.getSize() > BlorbSounds.MAX_CACHED_SIZE
+          || !"FORM".equals(aiffChunk.getId())) {
+        return new StreamingSoundEffect(aiffChunk);
+      }
       final InputStream aiffStream =
         new  MemoryInputStream(aiffChunk.getMemory(), 0,
           aiffChunk.getSize() + Chunk.CHUNK_HEADER_LENGTH);
@@ -0,0 +1,375 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2005-2010 by Wei-ju Wu
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.swingui.app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.zmpp.blorb.MemoryInputStream;
+import org.zmpp.iff.Chunk;
+import org.zmpp.media.SoundEffect;
+import org.zmpp.media.SoundScheduler;
+import org.zmpp.media.SoundStopListener;
+
+/**
+ * This class implements the SoundEffect interface for long sounds. Instead of
+ * decoding the whole sound into a clip, it decodes the chunk data while it
+ * plays and writes it to a SourceDataLine with a small buffer, so only a
+ * fraction of a second of audio is held in memory. AIFF sounds are always
+ * supported, Ogg Vorbis and MOD sounds only if an audio service provider for
+ * them is installed. The line is refilled by short tasks on the SoundScheduler
+ * that only write as much as the line accepts without blocking, so no thread
+ * is occupied while the sound plays.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class StreamingSoundEffect implements SoundEffect {
+
+  private static final Logger LOG = Logger.getLogger("org.zmpp");
+
+  /**
+   * The number of milliseconds of audio the line buffers.
+   */
+  private static final int LINE_BUFFER_MILLIS = 250;
+
+  /**
+   * The number of milliseconds between two refills of the line, a quarter of
+   * the line buffer, so the line never runs empty.
+   */
+  private static final int FEED_INTERVAL_MILLIS = LINE_BUFFER_MILLIS / 4;
+
+  /**
+   * The sound chunk.
+   */
+  private Chunk chunk;
+
+  /**
+   * The scheduler that runs the refill tasks.
+   */
+  private SoundScheduler scheduler;
+
+  /**
+   * The listeners.
+   */
+  private List<SoundStopListener> listeners =
+    new CopyOnWriteArrayList<SoundStopListener>();
+
+  /**
+   * The current playback or null.
+   */
+  private Playback playback;
+
+  /**
+   * Constructor.
+   *
+   * @param chunk the sound chunk
+   */
+  public StreamingSoundEffect(final Chunk chunk) {
+
+    this(chunk, SoundScheduler.getInstance());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param chunk the sound chunk
+   * @param scheduler the scheduler that refills the line
+   */
+  public StreamingSoundEffect(final Chunk chunk,
+                              final SoundScheduler scheduler) {
+
+    this.chunk = chunk;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public synchronized void play(final int number, final int volume) {
+
+    stop();
+    // like Clip.loop(), 0 repeats until the sound is stopped
+    playback = new Playback(number <= 0 ? Integer.MAX_VALUE : number, volume);
+    playback.start();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public synchronized void stop() {
+
+    if (playback != null) {
+
+      playback.stop();
+      playback = null;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void release() {
+
+    stop();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void addSoundStopListener(final SoundStopListener l) {
+
+    listeners.add(l);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void removeSoundStopListener(final SoundStopListener l) {
+
+    listeners.remove(l);
+  }
+
+  /**
+   * Opens a decoding stream on the chunk data. Compressed sounds are
+   * converted to 16 bit PCM.
+   *
+   * @return the audio stream
+   * @throws IOException if the data could not be read
+   * @throws UnsupportedAudioFileException if the format is not supported
+   */
+  private AudioInputStream openStream()
+      throws IOException, UnsupportedAudioFileException {
+
+    // an AIFF sound is a FORM chunk and read with its header, other formats
+    // start after the chunk header
+    final int offset = "FORM".equals(chunk.getId()) ? 0
+        : Chunk.CHUNK_HEADER_LENGTH;
+    final InputStream input = new MemoryInputStream(chunk.getMemory(), offset,
+        chunk.getSize() + Chunk.CHUNK_HEADER_LENGTH);
+    final AudioInputStream stream = AudioSystem.getAudioInputStream(input);
+    final AudioFormat format = stream.getFormat();
+    if (AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())
+        || AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding())) {
+
+      return stream;
+    }
+    final AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+        format.getSampleRate(), 16, format.getChannels(),
+        format.getChannels() * 2, format.getSampleRate(), false);
+    return AudioSystem.getAudioInputStream(pcm, stream);
+  }
+
+  /**
+   * Notify all listeners that the sound has stopped.
+   */
+  private void notifySoundStopped() {
+
+    for (SoundStopListener l : listeners) {
+
+      l.soundStopped(this);
+    }
+  }
+
+  /**
+   * A single playback of the sound. Each run refills the line and schedules
+   * the next run until all repeats were written and the line played them.
+   * Runs and stop() are synchronized, a run never blocks, so stop() returns
+   * after at most one refill.
+   */
+  private class Playback implements Runnable {
+
+    private int repeats;
+    private int volume;
+    private int numPlayed;
+    private boolean finished;
+    private Future<?> future;
+    private AudioInputStream stream;
+    private SourceDataLine line;
+    private int frameSize;
+    private byte[] buffer;
+
+    /**
+     * Constructor.
+     *
+     * @param repeats the number of times to play
+     * @param volume the volume
+     */
+    public Playback(final int repeats, final int volume) {
+
+      this.repeats = repeats;
+      this.volume = volume;
+    }
+
+    /**
+     * Schedules the first run.
+     */
+    public synchronized void start() {
+
+      future = scheduler.submit(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void run() {
+
+      synchronized (this) {
+
+        if (finished) {
+
+          return;
+        }
+        try {
+
+          if (feed()) {
+
+            future = scheduler.schedule(this, FEED_INTERVAL_MILLIS);
+            return;
+          }
+        } catch (Exception ex) {
+
+          LOG.warning("could not play sound: " + ex.getMessage());
+        }
+        finish();
+      }
+      notifySoundStopped();
+    }
+
+    /**
+     * Writes as much of the sound to the line as it accepts without
+     * blocking. The line is opened on the first call.
+     *
+     * @return true if the sound still plays, false if it ended
+     * @throws IOException if decoding failed
+     * @throws UnsupportedAudioFileException if the format is not supported
+     * @throws LineUnavailableException if no line is available
+     */
+    private boolean feed() throws IOException, UnsupportedAudioFileException,
+        LineUnavailableException {
+
+      if (line == null) {
+
+        open();
+      }
+      int available = line.available() / frameSize * frameSize;
+      while (stream != null && available > 0) {
+
+        final int numBytes = stream.read(buffer, 0,
+            Math.min(buffer.length, available));
+        if (numBytes > 0) {
+
+          line.write(buffer, 0, numBytes);
+          available -= numBytes;
+
+        } else {
+
+          stream.close();
+          stream = null;
+          if (++numPlayed < repeats) {
+
+            stream = openStream();
+          }
+        }
+      }
+      // after the last repeat was written, wait until the line played it
+      return stream != null || line.available() < line.getBufferSize();
+    }
+
+    /**
+     * Opens the first stream and a line for its format.
+     *
+     * @throws IOException if decoding failed
+     * @throws UnsupportedAudioFileException if the format is not supported
+     * @throws LineUnavailableException if no line is available
+     */
+    private void open() throws IOException, UnsupportedAudioFileException,
+        LineUnavailableException {
+
+      stream = openStream();
+      final AudioFormat format = stream.getFormat();
+      frameSize = Math.max(1, format.getFrameSize());
+      final int bufferSize = Math.max(frameSize, (int) (format.getFrameRate()
+          * LINE_BUFFER_MILLIS / 1000) * frameSize);
+      buffer = new byte[bufferSize];
+      line = AudioSystem.getSourceDataLine(format);
+      line.open(format, bufferSize);
+      DefaultSoundEffect.setVolume(line, volume);
+      line.start();
+    }
+
+    /**
+     * Stops the playback, the listeners are notified unless it already
+     * ended.
+     */
+    public void stop() {
+
+      synchronized (this) {
+
+        if (finished) {
+
+          return;
+        }
+        if (future != null) {
+
+          future.cancel(false);
+        }
+        finish();
+      }
+      notifySoundStopped();
+    }
+
+    /**
+     * Closes the stream and the line.
+     */
+    private void finish() {
+
+      finished = true;
+      if (stream != null) {
+
+        try {
+
+          stream.close();
+
+        } catch (IOException ex) {
+
+          LOG.throwing("StreamingSoundEffect", "finish", ex);
+        }
+        stream = null;
+      }
+      if (line != null) {
+
+        line.stop();
+        line.flush();
+        line.close();
+      }
+    }
+  }
+}
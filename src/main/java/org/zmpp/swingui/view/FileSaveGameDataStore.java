@@ -20,6 +20,7 @@ package org.zmpp.swingui.view;
 
 import java.awt.Component;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 
@@ -58,16 +59,16 @@ public class FileSaveGameDataStore implements SaveGameDataStore {
 
     if (fileChooser.showSaveDialog(parent) == JFileChooser.APPROVE_OPTION) {
       File savefile = fileChooser.getSelectedFile();
-      RandomAccessFile raf = null;
+      FileOutputStream out = null;
       try {
-        raf = new RandomAccessFile(savefile, "rw");
-        byte[] data = formchunk.getBytes();
-        raf.write(data);
+        // the chunks are written straight to the file channel
+        out = new FileOutputStream(savefile);
+        formchunk.writeTo(out.getChannel());
         return true;
       } catch (IOException ex) {
         ex.printStackTrace();
       } finally {
-        if (raf != null) try { raf.close(); } catch (Exception ex) {
+        if (out != null) try { out.close(); } catch (Exception ex) {
           ex.printStackTrace();
         }
       }
@@ -74,4 +74,9 @@ public class Abbreviations implements AbbreviationsTable {
 	public int getWordAddress(final int entryNum) {
 		return memory.readUnsigned16(address + entryNum * 2) * 2;
 	}
+
+	/** {@inheritDoc} */
+	public int getTableAddress() {
+		return address;
+	}
 }
@@ -32,17 +32,24 @@ import static org.zmpp.base.MemoryUtil.unsignedToSigned16;
 
 import org.zmpp.base.DefaultMemory;
 import org.zmpp.base.Memory;
+import org.zmpp.base.MemoryWriteListener;
 import org.zmpp.encoding.DictionarySizes;
 import org.zmpp.encoding.ZCharDecoder;
 import org.zmpp.encoding.ZCharEncoder;
 
 /**
- * Abstract super class of dictionaries.
+ * Abstract super class of dictionaries. Lookups go through a hash index which
+ * is built on the first lookup, separators are classified by a table. Since
+ * the dictionary may reside in dynamic memory, both are dropped when the story
+ * writes to the dictionary table and rebuilt when they are needed next.
  * 
  * @author Wei-ju Wu
  * @version 1.5
  */
-public abstract class AbstractDictionary implements Dictionary {
+public abstract class AbstractDictionary implements Dictionary, MemoryWriteListener {
+
+	/** The token cache has 2^TOKEN_CACHE_BITS sets of two entries. */
+	private static final int TOKEN_CACHE_BITS = 8;
 
 	private Memory memory;
 
@@ -54,6 +61,20 @@ public abstract class AbstractDictionary implements Dictionary {
 	/** A sizes object. */
 	private DictionarySizes sizes;
 
+	/** The entry index, null if it needs to be built. */
+	private DictionaryIndex index;
+
+	/** Separator flags indexed by ZSCII code, null if it needs to be built. */
+	private boolean[] separators;
+
+	/**
+	 * Recently looked up tokens and their encoded keys. This is a two way set
+	 * associative cache, the set is selected by the token's hash code and
+	 * within a set, the more recently added entry comes first.
+	 */
+	private String[] cachedTokens = new String[2 << TOKEN_CACHE_BITS];
+	private long[] cachedKeys = new long[2 << TOKEN_CACHE_BITS];
+
 	/**
 	 * Constructor.
 	 * 
@@ -77,6 +98,100 @@ public abstract class AbstractDictionary implements Dictionary {
 		this.sizes = sizes;
 	}
 
+	/** {@inheritDoc} */
+	public int lookup(final String token) {
+		return getIndex().lookup(encodeToken(token));
+	}
+
+	/** {@inheritDoc} */
+	public int lookup(final int tokenAddress, final int length) {
+		// Computes the hash code of the token as String.hashCode() would, so
+		// both lookup methods share the token cache
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + memory.readUnsigned8(tokenAddress + i);
+		}
+		final int slot = firstSlot(hash);
+		for (int i = slot; i < slot + 2; i++) {
+			if (cachedTokens[i] != null && tokenEquals(cachedTokens[i], tokenAddress, length)) {
+				return getIndex().lookup(cachedKeys[i]);
+			}
+		}
+		final StringBuilder token = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			token.append(memory.readUnsigned8(tokenAddress + i));
+		}
+		return lookup(token.toString());
+	}
+
+	/** {@inheritDoc} */
+	public boolean isSeparator(final char zsciiChar) {
+		if (separators == null) {
+			final boolean[] table = new boolean[256];
+			for (int i = 0, n = getNumberOfSeparators(); i < n; i++) {
+				table[getSeparator(i) & 0xff] = true;
+			}
+			separators = table;
+		}
+		return zsciiChar < separators.length && separators[zsciiChar];
+	}
+
+	/** {@inheritDoc} */
+	public void memoryWritten(final int writeAddress, final int numBytes) {
+		if (index != null && index.overlaps(writeAddress, numBytes)) {
+			index = null;
+		}
+		// the separators are at most 256 bytes into the table
+		if (separators != null && writeAddress <= address + separators.length
+				&& writeAddress + numBytes > address) {
+			separators = null;
+		}
+	}
+
+	/**
+	 * Returns the entry index, building it if necessary.
+	 * 
+	 * @return the index
+	 */
+	private DictionaryIndex getIndex() {
+		if (index == null) {
+			index = new DictionaryIndex(memory, this, sizes.getNumEntryBytes(), address);
+		}
+		return index;
+	}
+
+	/**
+	 * Compares a token with the ZSCII characters at the specified address.
+	 * 
+	 * @param token
+	 *            the token
+	 * @param tokenAddress
+	 *            the address of the characters
+	 * @param length
+	 *            the number of characters
+	 * @return true if equal, false otherwise
+	 */
+	private boolean tokenEquals(final String token, final int tokenAddress, final int length) {
+		if (token.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (token.charAt(i) != memory.readUnsigned8(tokenAddress + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the start address of the dictionary table.
+	 * 
+	 * @return the start address
+	 */
+	public int getAddress() {
+		return address;
+	}
+
 	/** {@inheritDoc} */
 	public int getNumberOfSeparators() {
 		return memory.readUnsigned8(address);
@@ -146,6 +261,47 @@ public abstract class AbstractDictionary implements Dictionary {
 		return token.length() > sizes.getMaxEntryChars() ? token.substring(0, sizes.getMaxEntryChars()) : token;
 	}
 
+	/**
+	 * Encodes the specified token and returns the encoded bytes as an index
+	 * key. Results are cached, since players tend to use the same words over
+	 * and over again.
+	 * 
+	 * @param token
+	 *            the token
+	 * @return the encoded token
+	 */
+	private long encodeToken(final String token) {
+		final int slot = firstSlot(token.hashCode());
+		for (int i = slot; i < slot + 2; i++) {
+			if (token.equals(cachedTokens[i])) {
+				return cachedKeys[i];
+			}
+		}
+		final byte[] tokenBytes = truncateTokenToBytes(token);
+		long key = 0;
+		for (int i = 0; i < tokenBytes.length; i++) {
+			key = (key << 8) | (tokenBytes[i] & 0xff);
+		}
+		cachedTokens[slot + 1] = cachedTokens[slot];
+		cachedKeys[slot + 1] = cachedKeys[slot];
+		cachedTokens[slot] = token;
+		cachedKeys[slot] = key;
+		return key;
+	}
+
+	/**
+	 * Returns the first token cache slot of the set for the specified hash
+	 * code. The hash code is scrambled, since the lower bits of String hash
+	 * codes of short words are not well distributed.
+	 * 
+	 * @param hash
+	 *            the hash code of a token
+	 * @return the first slot of the set
+	 */
+	private static int firstSlot(final int hash) {
+		return ((hash * 0x9e3779b9) >>> (32 - TOKEN_CACHE_BITS)) << 1;
+	}
+
 	/**
 	 * Truncates the specified token and returns a dictionary encoded byte
 	 * array.
@@ -161,28 +317,6 @@ public abstract class AbstractDictionary implements Dictionary {
 		return result;
 	}
 
-	/**
-	 * Lexicographical comparison of the input word and the dictionary entry at
-	 * the specified address.
-	 * 
-	 * @param tokenBytes
-	 *            input word bytes
-	 * @param entryAddress
-	 *            dictionary entry address
-	 * @return comparison value, 0 if match, &lt; 0 if lexicographical smaller,
-	 *         &lt; 0 if lexicographical greater
-	 */
-	protected int tokenMatch(byte[] tokenBytes, int entryAddress) {
-		for (int i = 0; i < tokenBytes.length; i++) {
-			int tokenByte = tokenBytes[i] & 0xff;
-			int c = (getMemory().readUnsigned8(entryAddress + i) & 0xff);
-			if (tokenByte != c) {
-				return tokenByte - c;
-			}
-		}
-		return 0;
-	}
-
 	/**
 	 * Creates a string presentation of this dictionary.
 	 * 
@@ -29,19 +29,47 @@
 package org.zmpp.vm;
 
 import org.zmpp.base.Memory;
+import org.zmpp.base.MemoryWriteListener;
 import static org.zmpp.base.MemoryUtil.toUnsigned16;
 
 /**
  * This class is the abstract super class of object trees.
  *
+ * Property lookups go through a property index per object, which is built
+ * when a property of the object is accessed for the first time. The layout of
+ * a property list does not change while a game is running, property values
+ * do. Therefore an object's index is only dropped when the story writes to
+ * its property table pointer or to a property list byte that is not property
+ * data.
+ *
  * @author Wei-ju Wu
  * @version 1.5
  */
-public abstract class AbstractObjectTree implements ObjectTree {
+public abstract class AbstractObjectTree implements ObjectTree, MemoryWriteListener {
+
+	// Layout of a property index entry: the data address, the data length
+	// and the number of the following property. Entry 0 of an index holds
+	// the number of the first property, an entry of 0 means the object does
+	// not have the property and the default applies. The last two elements
+	// hold the start and end address of the property table.
+	private static final int NEXT_MASK = 0x7f;
+	private static final int LENGTH_SHIFT = 7;
+	private static final int LENGTH_MASK = 0x7f;
+	private static final int ADDRESS_SHIFT = 14;
 
 	private Memory memory;
 	private int address;
 
+	/** The property indexes, indexed by object number. */
+	private int[][] propertyIndexes = new int[256][];
+
+	/** The numbers of the objects which have a property index. */
+	private int[] indexedObjects = new int[64];
+	private int numIndexedObjects;
+
+	/** The highest end address of an indexed property table. */
+	private int indexedHigh;
+
 	/**
 	 * Constructor.
 	 * 
@@ -215,17 +243,8 @@ public abstract class AbstractObjectTree implements ObjectTree {
 	 * {@inheritDoc}
 	 */
 	public int getPropertyAddress(final int objectNum, final int property) {
-		int propAddr = getPropertyEntriesStart(objectNum);
-		while (true) {
-			int propnum = getPropertyNum(propAddr);
-			if (propnum == 0)
-				return 0; // not found
-			if (propnum == property) {
-				return propAddr + getNumPropertySizeBytes(propAddr);
-			}
-			int numPropBytes = getNumPropertySizeBytes(propAddr);
-			propAddr += numPropBytes + getPropertyLength(propAddr + numPropBytes);
-		}
+		final int entry = getPropertyIndexEntry(objectNum, property);
+		return entry == 0 ? 0 : entry >>> ADDRESS_SHIFT;
 	}
 
 	/**
@@ -233,15 +252,14 @@ public abstract class AbstractObjectTree implements ObjectTree {
 	 */
 	public int getNextProperty(final int objectNum, final int property) {
 		if (property == 0) {
-			final int addr = getPropertyEntriesStart(objectNum);
-			return getPropertyNum(addr);
+			return getPropertyIndex(objectNum)[0];
 		}
-		int propDataAddr = getPropertyAddress(objectNum, property);
-		if (propDataAddr == 0) {
+		final int entry = getPropertyIndexEntry(objectNum, property);
+		if (entry == 0) {
 			reportPropertyNotAvailable(objectNum, property);
 			return 0;
 		} else {
-			return getPropertyNum(propDataAddr + getPropertyLength(propDataAddr));
+			return entry & NEXT_MASK;
 		}
 	}
 
@@ -259,11 +277,12 @@ public abstract class AbstractObjectTree implements ObjectTree {
 
 	/** {@inheritDoc} */
 	public char getProperty(int objectNum, int property) {
-		int propertyDataAddress = getPropertyAddress(objectNum, property);
-		if (propertyDataAddress == 0) {
+		final int entry = getPropertyIndexEntry(objectNum, property);
+		if (entry == 0) {
 			return getPropertyDefault(property);
 		}
-		final int numBytes = getPropertyLength(propertyDataAddress);
+		final int propertyDataAddress = entry >>> ADDRESS_SHIFT;
+		final int numBytes = (entry >>> LENGTH_SHIFT) & LENGTH_MASK;
 		int value;
 		if (numBytes == 1) {
 			value = memory.readUnsigned8(propertyDataAddress) & 0xff;
@@ -279,12 +298,12 @@ public abstract class AbstractObjectTree implements ObjectTree {
 	 * {@inheritDoc}
 	 */
 	public void setProperty(int objectNum, int property, char value) {
-
-		int propertyDataAddress = getPropertyAddress(objectNum, property);
-		if (propertyDataAddress == 0) {
+		final int entry = getPropertyIndexEntry(objectNum, property);
+		if (entry == 0) {
 			reportPropertyNotAvailable(objectNum, property);
 		} else {
-			int propsize = getPropertyLength(propertyDataAddress);
+			final int propertyDataAddress = entry >>> ADDRESS_SHIFT;
+			final int propsize = (entry >>> LENGTH_SHIFT) & LENGTH_MASK;
 			if (propsize == 1) {
 				memory.writeUnsigned8(propertyDataAddress, (char) (value & 0xff));
 			} else {
@@ -293,6 +312,152 @@ public abstract class AbstractObjectTree implements ObjectTree {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void memoryWritten(final int writeAddress, final int numBytes) {
+		if (numIndexedObjects == 0 || writeAddress >= indexedHigh
+				|| writeAddress + numBytes <= getObjectTreeStart()) {
+			return;
+		}
+		int numRemaining = 0;
+		for (int i = 0; i < numIndexedObjects; i++) {
+			final int objectNum = indexedObjects[i];
+			if (changesPropertyLayout(objectNum, writeAddress, numBytes)) {
+				propertyIndexes[objectNum] = null;
+			} else {
+				indexedObjects[numRemaining++] = objectNum;
+			}
+		}
+		numIndexedObjects = numRemaining;
+		if (numIndexedObjects == 0) {
+			indexedHigh = 0;
+		}
+	}
+
+	/**
+	 * Determines whether the specified write could change the property layout
+	 * of an indexed object. This is the case if it hits the object's property
+	 * table pointer or any byte of its property table outside of the property
+	 * data.
+	 * 
+	 * @param objectNum
+	 *            the object number
+	 * @param writeAddress
+	 *            the start address of the write
+	 * @param numBytes
+	 *            the number of bytes written
+	 * @return true if the layout might have changed, false otherwise
+	 */
+	private boolean changesPropertyLayout(final int objectNum, final int writeAddress, final int numBytes) {
+		final int[] index = propertyIndexes[objectNum];
+		final int writeEnd = writeAddress + numBytes;
+
+		// the property table pointer is the last word of an object entry
+		final int pointerAddress = getObjectAddress(objectNum) + getObjectEntrySize() - 2;
+		if (writeAddress < pointerAddress + 2 && writeEnd > pointerAddress) {
+			return true;
+		}
+		final int numProperties = index.length - 3;
+		if (writeAddress >= index[numProperties + 2] || writeEnd <= index[numProperties + 1]) {
+			return false;
+		}
+		for (int property = 1; property <= numProperties; property++) {
+			final int entry = index[property];
+			if (entry != 0) {
+				final int dataAddress = entry >>> ADDRESS_SHIFT;
+				if (writeAddress >= dataAddress && writeEnd <= dataAddress + ((entry >>> LENGTH_SHIFT) & LENGTH_MASK)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the property index entry of the specified property.
+	 * 
+	 * @param objectNum
+	 *            the object number
+	 * @param property
+	 *            the property number
+	 * @return the index entry, 0 if the object does not have the property
+	 */
+	private int getPropertyIndexEntry(final int objectNum, final int property) {
+		final int[] index = getPropertyIndex(objectNum);
+		return property > 0 && property < index.length - 2 ? index[property] : 0;
+	}
+
+	/**
+	 * Returns the property index of the specified object, building it if
+	 * necessary.
+	 * 
+	 * @param objectNum
+	 *            the object number
+	 * @return the property index
+	 */
+	private int[] getPropertyIndex(final int objectNum) {
+		if (objectNum < propertyIndexes.length) {
+			final int[] index = propertyIndexes[objectNum];
+			if (index != null) {
+				return index;
+			}
+		}
+		return buildPropertyIndex(objectNum);
+	}
+
+	/**
+	 * Walks the property list of the specified object and creates its
+	 * property index. If a property occurs more than once, the first
+	 * occurrence is used.
+	 * 
+	 * @param objectNum
+	 *            the object number
+	 * @return the property index
+	 */
+	private int[] buildPropertyIndex(final int objectNum) {
+		final int numProperties = getPropertyDefaultsSize() / 2;
+		final int[] index = new int[numProperties + 3];
+		int propAddr = getPropertyEntriesStart(objectNum);
+		index[0] = getPropertyNum(propAddr);
+		int previous = 0;
+		while (true) {
+			final int propnum = getPropertyNum(propAddr);
+			if (previous > 0) {
+				index[previous] |= propnum;
+			}
+			if (propnum == 0) {
+				break;
+			}
+			final int propDataAddr = propAddr + getNumPropertySizeBytes(propAddr);
+			final int propLength = getPropertyLength(propDataAddr);
+			if (index[propnum] == 0) {
+				index[propnum] = propDataAddr << ADDRESS_SHIFT | propLength << LENGTH_SHIFT;
+				previous = propnum;
+			} else {
+				previous = 0;
+			}
+			propAddr = propDataAddr + propLength;
+		}
+		index[numProperties + 1] = getPropertyTableAddress(objectNum);
+		index[numProperties + 2] = propAddr + 1;
+
+		if (objectNum >= propertyIndexes.length) {
+			final int[][] newIndexes = new int[Math.max(objectNum + 1, propertyIndexes.length * 2)][];
+			System.arraycopy(propertyIndexes, 0, newIndexes, 0, propertyIndexes.length);
+			propertyIndexes = newIndexes;
+		}
+		if (numIndexedObjects == indexedObjects.length) {
+			final int[] newObjects = new int[indexedObjects.length * 2];
+			System.arraycopy(indexedObjects, 0, newObjects, 0, numIndexedObjects);
+			indexedObjects = newObjects;
+		}
+		propertyIndexes[objectNum] = index;
+		indexedObjects[numIndexedObjects++] = objectNum;
+		indexedHigh = Math.max(indexedHigh, propAddr + 1);
+		return index;
+	}
+
 	/**
 	 * Returns the property number at the specified table index.
 	 * 
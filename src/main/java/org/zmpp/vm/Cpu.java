@@ -197,7 +197,8 @@ public interface Cpu {
 	/**
 	 * Returns the state of the current routine context stack as a non-
 	 * modifiable List. This is exposed to PortableGameState to take a machine
-	 * state snapshot.
+	 * state snapshot. The returned elements are copies, modifying them does
+	 * not change the machine state.
 	 *
 	 * @return the list of routine contexts
 	 */
@@ -213,13 +214,28 @@ public interface Cpu {
 	void setRoutineContexts(List<RoutineContext> contexts);
 
 	/**
-	 * Returns the current routine context without affecting the state of the
-	 * machine.
+	 * Discards the evaluation stack and all routine contexts without touching
+	 * the program counter.
+	 */
+	void resetStack();
+
+	/**
+	 * Returns a copy of the current routine context without affecting the
+	 * state of the machine.
 	 *
 	 * @return the current routine context
 	 */
 	RoutineContext getCurrentRoutineContext();
 
+	/**
+	 * Returns the number of arguments passed to the current routine.
+	 *
+	 * @return the number of arguments
+	 * @throws IllegalStateException
+	 *             if no RoutineContext exists
+	 */
+	int getCurrentNumArguments();
+
 	/**
 	 * Performs a routine call.
 	 *
@@ -231,7 +247,24 @@ public interface Cpu {
 	 *            the argument list
 	 * @param returnVariable
 	 *            the return variable or DISCARD_RESULT
-	 * @return the routine context created
 	 */
-	RoutineContext call(char routineAddress, int returnAddress, char[] args, char returnVariable);
+	void call(char routineAddress, int returnAddress, char[] args, char returnVariable);
+
+	/**
+	 * Sets the listener that is notified when a routine was entered
+	 * threshold times. Entries are only counted while a listener is set.
+	 *
+	 * @param listener
+	 *            the listener, null to stop counting
+	 * @param threshold
+	 *            the number of entries after which a routine is hot
+	 */
+	void setHotRoutineListener(HotRoutineListener listener, int threshold);
+
+	/**
+	 * Returns the value passed to the most recent returnWith() call.
+	 *
+	 * @return the last return value
+	 */
+	char getLastReturnValue();
 }
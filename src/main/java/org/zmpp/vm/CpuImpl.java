@@ -29,8 +29,8 @@
 package org.zmpp.vm;
 
 import org.zmpp.base.StoryFileHeader;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
 import java.util.logging.Logger;
@@ -50,6 +50,21 @@ public class CpuImpl implements Cpu {
 	/** The stack size is now 64 K. */
 	private static final char STACKSIZE = 32768;
 
+	/** Initial capacity of the frame array, grown on demand. */
+	private static final int INITIAL_FRAME_CAPACITY = 1024;
+
+	/** Initial number of frames, grown on demand. */
+	private static final int INITIAL_NUM_FRAMES = 64;
+
+	// Layout of a call frame within the frames array. The frame header is
+	// followed by the routine's local variables.
+	private static final int FRAME_RETURN_ADDRESS = 0;
+	private static final int FRAME_RETURN_VARIABLE = 1;
+	private static final int FRAME_INVOCATION_SP = 2;
+	private static final int FRAME_NUM_ARGS = 3;
+	private static final int FRAME_NUM_LOCALS = 4;
+	private static final int FRAME_LOCALS = 5;
+
 	/** The machine object. */
 	private Machine machine;
 
@@ -59,12 +74,45 @@ public class CpuImpl implements Cpu {
 	/** This machine's global stack. */
 	private FastShortStack stack;
 
-	/** The routine info. */
-	private List<RoutineContext> routineContextStack;
+	/**
+	 * The call frames, stored back to back: a fixed size header followed by
+	 * the local variables of the routine.
+	 */
+	private int[] frames;
+
+	/** The start index of each active frame within the frames array. */
+	private int[] frameStarts;
+
+	/** The number of active frames. */
+	private int numFrames;
+
+	/** Start index of the current frame, -1 if no routine is active. */
+	private int currentFrame;
+
+	/** The value returned by the most recent return. */
+	private char lastReturnValue;
+
+	/** Read-only view on the call frames. */
+	private final List<RoutineContext> routineContextView = new RoutineContextView();
 
 	/** The start of global variables. */
 	private int globalsAddress;
 
+	/** Notified when a routine becomes hot, null if entries are not counted. */
+	private HotRoutineListener hotRoutineListener;
+
+	/** The number of entries after which a routine is hot. */
+	private int hotThreshold;
+
+	/**
+	 * Saturating entry counters, indexed by the routine address divided by the
+	 * routine alignment. Allocated on the first counted call.
+	 */
+	private char[] entryCounts;
+
+	/** The number of address bits the routine alignment makes zero. */
+	private int alignmentBits;
+
 	/**
 	 * Constructor.
 	 * 
@@ -79,8 +127,7 @@ public class CpuImpl implements Cpu {
 	 * @{inheritDoc}
 	 */
 	public void reset() {
-		stack = new FastShortStack(STACKSIZE);
-		routineContextStack = new ArrayList<RoutineContext>();
+		resetStack();
 		globalsAddress = machine.readUnsigned16(StoryFileHeader.GLOBALS);
 
 		if (machine.getVersion() == 6) {
@@ -219,11 +266,7 @@ public class CpuImpl implements Cpu {
 	 *            the new stack pointer value
 	 */
 	private void setSP(final char stackpointer) {
-		// remove the last diff elements
-		final int diff = stack.getStackPointer() - stackpointer;
-		for (int i = 0; i < diff; i++) {
-			stack.pop();
-		}
+		stack.setStackPointer(stackpointer);
 	}
 
 	/** {@inheritDoc} */
@@ -306,7 +349,7 @@ public class CpuImpl implements Cpu {
 		} else if (varType == Cpu.VariableType.LOCAL) {
 			final char localVarNumber = getLocalVariableNumber(variableNumber);
 			checkLocalVariableAccess(localVarNumber);
-			return getCurrentRoutineContext().getLocalVariable(localVarNumber);
+			return (char) frames[currentFrame + FRAME_LOCALS + localVarNumber];
 		} else { // GLOBAL
 			return machine.readUnsigned16(globalsAddress + (getGlobalVariableNumber(variableNumber) * 2));
 		}
@@ -318,7 +361,7 @@ public class CpuImpl implements Cpu {
 	 * @return the invocation stack pointer
 	 */
 	private char getInvocationStackPointer() {
-		return (char) (getCurrentRoutineContext() == null ? 0 : getCurrentRoutineContext().getInvocationStackPointer());
+		return (char) (currentFrame < 0 ? 0 : frames[currentFrame + FRAME_INVOCATION_SP]);
 	}
 
 	/** {@inheritDoc} */
@@ -329,7 +372,7 @@ public class CpuImpl implements Cpu {
 		} else if (varType == Cpu.VariableType.LOCAL) {
 			final char localVarNumber = getLocalVariableNumber(variableNumber);
 			checkLocalVariableAccess(localVarNumber);
-			getCurrentRoutineContext().setLocalVariable(localVarNumber, value);
+			frames[currentFrame + FRAME_LOCALS + localVarNumber] = value;
 		} else {
 			machine.writeUnsigned16(globalsAddress + (getGlobalVariableNumber(variableNumber) * 2), value);
 		}
@@ -354,25 +397,31 @@ public class CpuImpl implements Cpu {
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Pushes a copy of the specified routine context onto the frame stack and
+	 * sets the context's invocation stack pointer to the current stack
+	 * pointer. Exposed for testing.
+	 *
+	 * @param routineContext
+	 *            the routine context
 	 */
 	public void pushRoutineContext(final RoutineContext routineContext) {
 		routineContext.setInvocationStackPointer(getSP());
-		routineContextStack.add(routineContext);
+		pushContext(routineContext);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public void returnWith(final char returnValue) {
-		if (routineContextStack.size() > 0) {
-			final RoutineContext popped = routineContextStack.remove(routineContextStack.size() - 1);
-			popped.setReturnValue(returnValue);
+		if (numFrames > 0) {
+			final int frame = currentFrame;
+			popFrame();
+			lastReturnValue = returnValue;
 
 			// Restore stack pointer and pc
-			setSP(popped.getInvocationStackPointer());
-			setPC(popped.getReturnAddress());
-			final char returnVariable = popped.getReturnVariable();
+			setSP((char) frames[frame + FRAME_INVOCATION_SP]);
+			setPC(frames[frame + FRAME_RETURN_ADDRESS]);
+			final char returnVariable = (char) frames[frame + FRAME_RETURN_VARIABLE];
 			if (returnVariable != RoutineContext.DISCARD_RESULT) {
 				setVariable(returnVariable, returnValue);
 			}
@@ -381,81 +430,135 @@ public class CpuImpl implements Cpu {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public char getLastReturnValue() {
+		return lastReturnValue;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	public RoutineContext getCurrentRoutineContext() {
-		if (routineContextStack.size() == 0) {
+		if (numFrames == 0) {
 			return null;
 		}
-		return routineContextStack.get(routineContextStack.size() - 1);
+		return createRoutineContext(currentFrame);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getCurrentNumArguments() {
+		if (numFrames == 0) {
+			throw new IllegalStateException("no routine context active");
+		}
+		return frames[currentFrame + FRAME_NUM_ARGS];
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public List<RoutineContext> getRoutineContexts() {
-		return Collections.unmodifiableList(routineContextStack);
+		return routineContextView;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public void setRoutineContexts(final List<RoutineContext> contexts) {
-		routineContextStack.clear();
+		numFrames = 0;
+		currentFrame = -1;
 		for (RoutineContext context : contexts) {
-			routineContextStack.add(context);
+			pushContext(context);
 		}
 	}
 
+	/** {@inheritDoc} */
+	public void resetStack() {
+		stack = new FastShortStack(STACKSIZE);
+		frames = new int[INITIAL_FRAME_CAPACITY];
+		frameStarts = new int[INITIAL_NUM_FRAMES];
+		numFrames = 0;
+		currentFrame = -1;
+	}
+
 	/**
 	 * This function is basically exposed to the debug application.
-	 * 
+	 *
 	 * @return the current routine stack pointer
 	 */
 	public char getRoutineStackPointer() {
-		return (char) routineContextStack.size();
+		return (char) numFrames;
 	}
 
 	/** {@inheritDoc} */
-	public RoutineContext call(final char packedRoutineAddress, final int returnAddress, final char[] args,
+	public void call(final char packedRoutineAddress, final int returnAddress, final char[] args,
 			final char returnVariable) {
 		final int routineAddress = unpackRoutineAddress(packedRoutineAddress);
 		final int numArgs = args == null ? 0 : args.length;
-		final RoutineContext routineContext = decodeRoutine(routineAddress);
-
-		// Sets the number of arguments
-		routineContext.setNumArguments(numArgs);
-
-		// Save return parameters
-		routineContext.setReturnAddress(returnAddress);
+		final int numLocals = machine.readUnsigned8(routineAddress);
+		if (hotRoutineListener != null) {
+			countEntry(routineAddress);
+		}
+		final int frame = pushFrame(returnAddress, returnVariable, getSP(), numArgs, numLocals);
+		final int locals = frame + FRAME_LOCALS;
+		final boolean storesDefaults = machine.getVersion() <= 4;
 
-		// Only if this instruction stores a result
-		if (returnVariable == RoutineContext.DISCARD_RESULT) {
-			routineContext.setReturnVariable(RoutineContext.DISCARD_RESULT);
+		if (storesDefaults) {
+			// Only story files <= 4 actually store default values here,
+			// after V5 they are assumed as being 0 (standard document 1.0,
+			// S.5.2.1)
+			for (int i = 0; i < numLocals; i++) {
+				frames[locals + i] = machine.readUnsigned16(routineAddress + 1 + 2 * i);
+			}
 		} else {
-			routineContext.setReturnVariable(returnVariable);
+			Arrays.fill(frames, locals, locals + numLocals, 0);
 		}
 
 		// Set call parameters into the local variables
 		// if there are more parameters than local variables,
 		// those are thrown away
-		final int numToCopy = Math.min(routineContext.getNumLocalVariables(), numArgs);
-
+		final int numToCopy = Math.min(numLocals, numArgs);
 		for (int i = 0; i < numToCopy; i++) {
-			routineContext.setLocalVariable((char) i, args[i]);
+			frames[locals + i] = args[i];
 		}
 
-		// save invocation stack pointer
-		routineContext.setInvocationStackPointer(getSP());
+		// Jump to the address
+		setPC(storesDefaults ? routineAddress + 1 + 2 * numLocals : routineAddress + 1);
+	}
 
-		// Pushes the routine context onto the routine stack
-		pushRoutineContext(routineContext);
+	/** {@inheritDoc} */
+	public void setHotRoutineListener(final HotRoutineListener listener, final int threshold) {
+		hotRoutineListener = listener;
+		hotThreshold = Math.min(threshold, Character.MAX_VALUE);
+		entryCounts = null;
+	}
 
-		// Jump to the address
-		setPC(machine.getVersion() >= 5 ? routineAddress + 1
-				: routineAddress + 1 + 2 * routineContext.getNumLocalVariables());
-		return routineContext;
+	/**
+	 * Counts an entry into the specified routine and notifies the hot routine
+	 * listener when the count reaches the threshold. The counter saturates at
+	 * the threshold, so every routine is reported at most once.
+	 *
+	 * @param routineAddress
+	 *            the unpacked routine address
+	 */
+	private void countEntry(final int routineAddress) {
+		if (entryCounts == null) {
+			final int version = machine.getVersion();
+			alignmentBits = version <= 3 ? 1 : version == 8 ? 3 : 2;
+			entryCounts = new char[(machine.getFileHeader().getFileLength() >>> alignmentBits) + 1];
+		}
+		final int index = routineAddress >>> alignmentBits;
+		if (index >= entryCounts.length) {
+			// the header length can be 0 or too small, grow geometrically so
+			// entering higher routines does not copy the table every time
+			entryCounts = Arrays.copyOf(entryCounts, Math.max(index + 1, entryCounts.length * 2));
+		}
+		if (entryCounts[index] < hotThreshold && ++entryCounts[index] == hotThreshold) {
+			hotRoutineListener.routineHot(routineAddress);
+		}
 	}
 
 	// ************************************************************************
@@ -463,29 +566,104 @@ public class CpuImpl implements Cpu {
 	// ************************************************
 
 	/**
-	 * Decodes the routine at the specified address.
-	 * 
-	 * @param routineAddress
-	 *            the routine address
+	 * Reserves a new frame on top of the frame stack and fills in its header.
+	 * The local variables are left for the caller to initialize.
+	 *
+	 * @param returnAddress
+	 *            the return address
+	 * @param returnVariable
+	 *            the return variable or DISCARD_RESULT
+	 * @param invocationStackPointer
+	 *            the stack pointer at invocation time
+	 * @param numArgs
+	 *            the number of arguments
+	 * @param numLocals
+	 *            the number of local variables
+	 * @return the start index of the new frame
+	 */
+	private int pushFrame(final int returnAddress, final char returnVariable, final char invocationStackPointer,
+			final int numArgs, final int numLocals) {
+		final int frame = numFrames == 0 ? 0 : currentFrame + FRAME_LOCALS + frames[currentFrame + FRAME_NUM_LOCALS];
+		if (frame + FRAME_LOCALS + numLocals > frames.length) {
+			frames = Arrays.copyOf(frames, Math.max(frames.length * 2, frame + FRAME_LOCALS + numLocals));
+		}
+		if (numFrames == frameStarts.length) {
+			frameStarts = Arrays.copyOf(frameStarts, frameStarts.length * 2);
+		}
+		frames[frame + FRAME_RETURN_ADDRESS] = returnAddress;
+		frames[frame + FRAME_RETURN_VARIABLE] = returnVariable;
+		frames[frame + FRAME_INVOCATION_SP] = invocationStackPointer;
+		frames[frame + FRAME_NUM_ARGS] = numArgs;
+		frames[frame + FRAME_NUM_LOCALS] = numLocals;
+		frameStarts[numFrames++] = frame;
+		currentFrame = frame;
+		return frame;
+	}
+
+	/**
+	 * Removes the top frame from the frame stack.
+	 */
+	private void popFrame() {
+		numFrames--;
+		currentFrame = numFrames == 0 ? -1 : frameStarts[numFrames - 1];
+	}
+
+	/**
+	 * Copies the specified routine context onto the frame stack.
+	 *
+	 * @param context
+	 *            the routine context
+	 */
+	private void pushContext(final RoutineContext context) {
+		final int numLocals = context.getNumLocalVariables();
+		final int frame = pushFrame(context.getReturnAddress(), context.getReturnVariable(),
+				context.getInvocationStackPointer(), context.getNumArguments(), numLocals);
+		for (int i = 0; i < numLocals; i++) {
+			frames[frame + FRAME_LOCALS + i] = context.getLocalVariable((char) i);
+		}
+	}
+
+	/**
+	 * Creates a RoutineContext snapshot of the frame starting at the
+	 * specified index.
+	 *
+	 * @param frame
+	 *            the start index of the frame
 	 * @return a RoutineContext object
 	 */
-	private RoutineContext decodeRoutine(final int routineAddress) {
-		final int numLocals = machine.readUnsigned8(routineAddress);
-		final char[] locals = new char[numLocals];
+	private RoutineContext createRoutineContext(final int frame) {
+		final int numLocals = frames[frame + FRAME_NUM_LOCALS];
+		final RoutineContext context = new RoutineContext(numLocals);
+		context.setReturnAddress(frames[frame + FRAME_RETURN_ADDRESS]);
+		context.setReturnVariable((char) frames[frame + FRAME_RETURN_VARIABLE]);
+		context.setInvocationStackPointer((char) frames[frame + FRAME_INVOCATION_SP]);
+		context.setNumArguments(frames[frame + FRAME_NUM_ARGS]);
+		for (int i = 0; i < numLocals; i++) {
+			context.setLocalVariable((char) i, (char) frames[frame + FRAME_LOCALS + i]);
+		}
+		return context;
+	}
 
-		if (machine.getVersion() <= 4) {
-			// Only story files <= 4 actually store default values here,
-			// after V5 they are assumed as being 0 (standard document 1.0,
-			// S.5.2.1)
-			for (int i = 0; i < numLocals; i++) {
-				locals[i] = machine.readUnsigned16(routineAddress + 1 + 2 * i);
+	/**
+	 * Read-only List view on the frame stack. Elements are snapshots which are
+	 * created on access, so changing them does not affect the machine.
+	 */
+	private class RoutineContextView extends AbstractList<RoutineContext> {
+
+		/** {@inheritDoc} */
+		@Override
+		public RoutineContext get(final int index) {
+			if (index < 0 || index >= numFrames) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numFrames);
 			}
+			return createRoutineContext(frameStarts[index]);
 		}
-		final RoutineContext info = new RoutineContext(numLocals);
-		for (int i = 0; i < numLocals; i++) {
-			info.setLocalVariable((char) i, locals[i]);
+
+		/** {@inheritDoc} */
+		@Override
+		public int size() {
+			return numFrames;
 		}
-		return info;
 	}
 
 	/**
@@ -519,11 +697,11 @@ public class CpuImpl implements Cpu {
 	 *            the local variable number
 	 */
 	private void checkLocalVariableAccess(final char localVariableNumber) {
-		if (routineContextStack.size() == 0) {
+		if (currentFrame < 0) {
 			throw new IllegalStateException("no routine context set");
 		}
 
-		if (localVariableNumber >= getCurrentRoutineContext().getNumLocalVariables()) {
+		if (localVariableNumber >= frames[currentFrame + FRAME_NUM_LOCALS]) {
 			throw new IllegalStateException("access to non-existent local variable: " + (int) localVariableNumber);
 		}
 	}
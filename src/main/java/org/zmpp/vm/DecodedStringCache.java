@@ -0,0 +1,216 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.vm;
+
+import java.util.BitSet;
+
+import org.zmpp.base.Memory;
+import org.zmpp.base.MemoryWriteListener;
+import org.zmpp.encoding.ZCharDecoder;
+import org.zmpp.encoding.ZCharDecoder.ZsciiSink;
+import org.zmpp.vmutil.LruCache;
+
+/**
+ * A cache for decoded Z strings, indexed by their address. Story text is
+ * mostly printed from static and high memory, which never changes, so a
+ * string there only needs to be decoded once. The cache is bounded by the
+ * total number of cached characters and evicts the least recently used
+ * strings.
+ * 
+ * Strings in dynamic memory, e.g. object names, are held separately and
+ * dropped when the story writes to the memory of a cached string.
+ * Abbreviation expansions are part of the cached characters, so all strings
+ * are dropped when the decoder's abbreviations version changes.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class DecodedStringCache implements MemoryWriteListener {
+
+	/** The default capacity in characters. */
+	public static final int DEFAULT_CAPACITY = 32768;
+
+	private Memory memory;
+	private ZCharDecoder decoder;
+	private int staticMemStart;
+	private LruCache<Integer, char[]> staticStrings;
+	private LruCache<Integer, char[]> dynamicStrings;
+
+	/** The dynamic memory bytes covered by cached strings. */
+	private BitSet dynamicCoverage = new BitSet();
+	private int dynamicLow = Integer.MAX_VALUE, dynamicHigh = 0;
+	private int abbreviationsVersion;
+
+	private long numHits, numMisses;
+	private StringBuilder builder = new StringBuilder();
+	private ZsciiSink builderSink = new ZsciiSink() {
+		public void append(final char zsciiChar) {
+			builder.append(zsciiChar);
+		}
+	};
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param memory
+	 *            the Memory object
+	 * @param decoder
+	 *            the decoder to fill the cache with
+	 * @param staticMemStart
+	 *            the start address of static memory
+	 * @param capacity
+	 *            the maximum number of cached characters
+	 */
+	public DecodedStringCache(final Memory memory, final ZCharDecoder decoder, final int staticMemStart,
+			final int capacity) {
+		this.memory = memory;
+		this.decoder = decoder;
+		this.staticMemStart = staticMemStart;
+		this.abbreviationsVersion = decoder.getAbbreviationsVersion();
+		staticStrings = new LruCache<Integer, char[]>(capacity);
+		dynamicStrings = new LruCache<Integer, char[]>(capacity / 4);
+	}
+
+	/**
+	 * Returns the decoded characters of the string at the specified address.
+	 * The returned array must not be modified.
+	 * 
+	 * @param address
+	 *            the string address
+	 * @return the decoded characters
+	 */
+	public char[] getChars(final int address) {
+		if (abbreviationsVersion != decoder.getAbbreviationsVersion()) {
+			clear();
+			abbreviationsVersion = decoder.getAbbreviationsVersion();
+		}
+		final Integer key = address;
+		final boolean isStatic = address >= staticMemStart;
+		char[] chars = isStatic ? staticStrings.get(key) : dynamicStrings.get(key);
+		if (chars != null) {
+			numHits++;
+			return chars;
+		}
+		numMisses++;
+		builder.setLength(0);
+		decoder.decode(memory, address, 0, builderSink);
+		chars = new char[builder.length()];
+		builder.getChars(0, chars.length, chars, 0);
+		if (isStatic) {
+			staticStrings.put(key, chars, chars.length);
+		} else {
+			dynamicStrings.put(key, chars, chars.length);
+			final int end = address + decoder.getNumZEncodedBytes(memory, address);
+			dynamicCoverage.set(address, end);
+			dynamicLow = Math.min(dynamicLow, address);
+			dynamicHigh = Math.max(dynamicHigh, end);
+		}
+		return chars;
+	}
+
+	/**
+	 * Decodes the string at the specified address into a ZsciiSink.
+	 * 
+	 * @param address
+	 *            the string address
+	 * @param sink
+	 *            the sink that receives the decoded characters
+	 */
+	public void decode(final int address, final ZsciiSink sink) {
+		final char[] chars = getChars(address);
+		for (int i = 0; i < chars.length; i++) {
+			sink.append(chars[i]);
+		}
+	}
+
+	/**
+	 * Removes all cached strings.
+	 */
+	public void clear() {
+		staticStrings.clear();
+		clearDynamic();
+	}
+
+	/**
+	 * Removes the cached strings in dynamic memory.
+	 */
+	private void clearDynamic() {
+		dynamicStrings.clear();
+		dynamicCoverage.clear();
+		dynamicLow = Integer.MAX_VALUE;
+		dynamicHigh = 0;
+	}
+
+	/** {@inheritDoc} */
+	public void memoryWritten(final int address, final int numBytes) {
+		if (address < dynamicHigh && address + numBytes > dynamicLow) {
+			final int covered = dynamicCoverage.nextSetBit(address);
+			if (covered >= 0 && covered < address + numBytes) {
+				clearDynamic();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of lookups that were served from the cache.
+	 * 
+	 * @return the number of hits
+	 */
+	public long getNumHits() {
+		return numHits;
+	}
+
+	/**
+	 * Returns the number of lookups that required decoding.
+	 * 
+	 * @return the number of misses
+	 */
+	public long getNumMisses() {
+		return numMisses;
+	}
+
+	/**
+	 * Returns the ratio of hits to lookups.
+	 * 
+	 * @return the hit rate between 0 and 1, 0 if there were no lookups
+	 */
+	public double getHitRate() {
+		final long numLookups = numHits + numMisses;
+		return numLookups == 0 ? 0 : (double) numHits / numLookups;
+	}
+
+	/**
+	 * Returns the number of cached strings.
+	 * 
+	 * @return the number of cached strings
+	 */
+	public int getNumEntries() {
+		return staticStrings.getNumEntries() + dynamicStrings.getNumEntries();
+	}
+}
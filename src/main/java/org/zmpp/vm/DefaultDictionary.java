@@ -64,39 +64,6 @@ public class DefaultDictionary extends AbstractDictionary {
 		super(memory, address, decoder, encoder, sizes);
 	}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	public int lookup(final String token) {
-		return lookupBinary(truncateTokenToBytes(token), 0, getNumberOfEntries() - 1);
-	}
-
-	/**
-	 * Recursive binary search to find an input word in the dictionary.
-	 * 
-	 * @param tokenBytes
-	 *            the byte array containing the input word
-	 * @param left
-	 *            the left index
-	 * @param right
-	 *            the right index
-	 * @return the entry address
-	 */
-	private int lookupBinary(byte[] tokenBytes, int left, int right) {
-		if (left > right)
-			return 0;
-		int middle = left + (right - left) / 2;
-		int entryAddress = getEntryAddress(middle);
-		int res = tokenMatch(tokenBytes, entryAddress);
-		if (res < 0) {
-			return lookupBinary(tokenBytes, left, middle - 1);
-		} else if (res > 0) {
-			return lookupBinary(tokenBytes, middle + 1, right);
-		} else {
-			return entryAddress;
-		}
-	}
-
 	/**
 	 * {@inheritDoc}
 	 */
@@ -85,4 +85,26 @@ public interface Dictionary {
 	 * @return the address of the token or 0
 	 */
 	int lookup(String token);
+
+	/**
+	 * Looks up the token stored as ZSCII characters at the specified address,
+	 * without creating a String for tokens that were looked up recently.
+	 * 
+	 * @param tokenAddress
+	 *            the address of the token
+	 * @param length
+	 *            the number of characters in the token
+	 * @return the address of the token or 0
+	 */
+	int lookup(int tokenAddress, int length);
+
+	/**
+	 * Determines whether the specified ZSCII character is one of the
+	 * dictionary's word separators.
+	 * 
+	 * @param zsciiChar
+	 *            a ZSCII character
+	 * @return true if separator, false otherwise
+	 */
+	boolean isSeparator(char zsciiChar);
 }
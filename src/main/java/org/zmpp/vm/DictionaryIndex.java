@@ -0,0 +1,166 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.vm;
+
+import org.zmpp.base.Memory;
+
+/**
+ * A hash index over the entries of a dictionary table. The encoded bytes of
+ * an entry (4 bytes up to version 3, 6 bytes after) fit into a long, which is
+ * used as the key of an open addressing table. Keys and entry addresses are
+ * held in primitive arrays, so a lookup neither allocates nor reads the
+ * dictionary header.
+ *
+ * If an unordered dictionary contains an entry more than once, the first one
+ * is found, which matches a linear search.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+class DictionaryIndex {
+
+	private long[] keys;
+	private int[] addresses;
+	private int mask;
+
+	/** The address range covered by the dictionary table. */
+	private int startAddress, endAddress;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param memory
+	 *            the Memory object
+	 * @param dictionary
+	 *            the dictionary to index
+	 * @param numKeyBytes
+	 *            the number of encoded bytes per entry
+	 * @param startAddress
+	 *            the start address of the dictionary table
+	 */
+	public DictionaryIndex(final Memory memory, final Dictionary dictionary, final int numKeyBytes,
+			final int startAddress) {
+		final int numEntries = Math.abs(dictionary.getNumberOfEntries());
+		int capacity = 2;
+		while (capacity < numEntries * 2) {
+			capacity <<= 1;
+		}
+		keys = new long[capacity];
+		addresses = new int[capacity];
+		mask = capacity - 1;
+		for (int i = 0; i < numEntries; i++) {
+			final int entryAddress = dictionary.getEntryAddress(i);
+			insert(readKey(memory, entryAddress, numKeyBytes), entryAddress);
+		}
+		this.startAddress = startAddress;
+		this.endAddress = dictionary.getEntryAddress(numEntries);
+	}
+
+	/**
+	 * Packs the specified number of bytes at the given address into a key.
+	 * 
+	 * @param memory
+	 *            the Memory object
+	 * @param address
+	 *            the address of the encoded bytes
+	 * @param numBytes
+	 *            the number of bytes
+	 * @return the key
+	 */
+	public static long readKey(final Memory memory, final int address, final int numBytes) {
+		long key = 0;
+		for (int i = 0; i < numBytes; i++) {
+			// masked like the lookup this index replaces, so keys do not rely
+			// on the memory clearing the upper bits of the char
+			key = (key << 8) | (memory.readUnsigned8(address + i) & 0xff);
+		}
+		return key;
+	}
+
+	/**
+	 * Returns the address of the entry with the specified key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the entry address or 0 if there is no such entry
+	 */
+	public int lookup(final long key) {
+		for (int slot = slotFor(key);; slot = (slot + 1) & mask) {
+			if (addresses[slot] == 0 || keys[slot] == key) {
+				return addresses[slot];
+			}
+		}
+	}
+
+	/**
+	 * Determines whether the specified memory area overlaps the dictionary
+	 * table.
+	 * 
+	 * @param address
+	 *            the start address of the area
+	 * @param numBytes
+	 *            the size of the area
+	 * @return true if the area overlaps, false otherwise
+	 */
+	public boolean overlaps(final int address, final int numBytes) {
+		return address < endAddress && address + numBytes > startAddress;
+	}
+
+	/**
+	 * Adds an entry unless the key is already present.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param entryAddress
+	 *            the entry address
+	 */
+	private void insert(final long key, final int entryAddress) {
+		int slot = slotFor(key);
+		while (addresses[slot] != 0) {
+			if (keys[slot] == key) {
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		addresses[slot] = entryAddress;
+	}
+
+	/**
+	 * Returns the home slot of the specified key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the slot
+	 */
+	private int slotFor(final long key) {
+		final long hash = key * 0x9e3779b97f4a7c15L;
+		return (int) (hash >>> 32) & mask;
+	}
+}
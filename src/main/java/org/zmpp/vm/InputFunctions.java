@@ -30,12 +30,6 @@ package org.zmpp.vm;
 
 import static org.zmpp.base.MemoryUtil.toUnsigned16;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.StringTokenizer;
-
 import org.zmpp.encoding.ZsciiEncoding;
 
 /**
@@ -179,113 +173,103 @@ public class InputFunctions {
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Tokenizes the text buffer and fills the parse buffer. The text is read
+	 * from memory in a single pass, whitespace separates tokens implicitly and
+	 * dictionary separators explicitly, the latter are tokens themselves.
+	 * Each token is looked up where it is stored, and its position is the
+	 * position where the scan found it.
+	 * 
+	 * @param textbuffer
+	 *            the text buffer address
+	 * @param parsebuffer
+	 *            the parse buffer address
+	 * @param dictionaryAddress
+	 *            the dictionary address, 0 for the story's dictionary
+	 * @param flag
+	 *            if set, only recognized tokens are written
 	 */
 	public void tokenize(final int textbuffer, final int parsebuffer, final int dictionaryAddress, final boolean flag) {
 		final int version = machine.getVersion();
 		final int bufferlen = machine.readUnsigned8(textbuffer);
 		final int textbufferstart = determineTextBufferStart(version);
 		final int charsTyped = version >= 5 ? machine.readUnsigned8(textbuffer + 1) : 0;
-
-		// from version 5, text starts at position 2
-		final String input = bufferToZscii(textbuffer + textbufferstart, bufferlen, charsTyped);
-		final List<String> tokens = tokenize(input);
-		final Map<String, Integer> parsedTokens = new HashMap<String, Integer>();
+		// If charsTyped is set, use that value as the limit
+		final int numChars = (charsTyped > 0) ? charsTyped : bufferlen;
+		final int textStart = textbuffer + textbufferstart;
 		final int maxTokens = machine.readUnsigned8(parsebuffer);
-		final int numTokens = Math.min(maxTokens, tokens.size());
 
-		// Write the number of parsed tokens into byte 1 of the parse buffer
-		machine.writeUnsigned8(parsebuffer + 1, (char) numTokens);
-
-		int parseaddr = parsebuffer + 2;
-
-		for (int i = 0; i < numTokens; i++) {
-			String token = tokens.get(i);
-			final int entryAddress = machine.lookupToken(dictionaryAddress, token);
-			int startIndex = 0;
-			if (parsedTokens.containsKey(token)) {
-				final int timesContained = parsedTokens.get(token);
-				parsedTokens.put(token, timesContained + 1);
-				for (int j = 0; j < timesContained; j++) {
-					final int found = input.indexOf(token, startIndex);
-					startIndex = found + token.length();
+		int numTokens = 0;
+		int tokenStart = -1;
+		for (int i = 0; i <= numChars && numTokens < maxTokens; i++) {
+			// the end of the text is treated as a 0 terminator
+			final char zsciiChar = i < numChars ? machine.readUnsigned8(textStart + i) : 0;
+			if (zsciiChar != 0 && !isWhitespace(zsciiChar) && !machine.isDictionarySeparator(zsciiChar)) {
+				if (tokenStart < 0) {
+					tokenStart = i;
 				}
-			} else {
-				parsedTokens.put(token, 1);
+				continue;
 			}
-			int tokenIndex = input.indexOf(token, startIndex);
-			tokenIndex++; // adjust by the buffer length byte
-
-			if (version >= 5) {
-				// if version >= 5, there is also numbers typed byte
-				tokenIndex++;
+			if (tokenStart >= 0) {
+				writeParseEntry(parsebuffer, numTokens++, dictionaryAddress, textbuffer, textStart + tokenStart,
+						i - tokenStart, flag);
+				tokenStart = -1;
 			}
-
-			// if the tokenize flag is not set, write out the entry to the
-			// parse buffer, if it is set then, only write the token position
-			// if the token was recognized
-			if (!flag || flag && entryAddress > 0) {
-				// This is one slot
-				machine.writeUnsigned16(parseaddr, toUnsigned16(entryAddress));
-				machine.writeUnsigned8(parseaddr + 2, (char) token.length());
-				machine.writeUnsigned8(parseaddr + 3, (char) tokenIndex);
+			if (zsciiChar == 0) {
+				break;
+			}
+			if (!isWhitespace(zsciiChar) && numTokens < maxTokens) {
+				// dictionary separators are tokens
+				writeParseEntry(parsebuffer, numTokens++, dictionaryAddress, textbuffer, textStart + i, 1, flag);
 			}
-			parseaddr += 4;
 		}
+		// Write the number of parsed tokens into byte 1 of the parse buffer
+		machine.writeUnsigned8(parsebuffer + 1, (char) numTokens);
 	}
 
 	/**
-	 * Turns the buffer into a ZSCII string. This function reads at most
-	 * |bufferlen| bytes and treats each byte as an ASCII character. The
-	 * characters will be concatenated to the result string.
-	 *
-	 * @param address
-	 *            the buffer address
-	 * @param bufferlen
-	 *            the buffer length
-	 * @param charsTyped
-	 *            from version 5, this is the number of characters to include in
-	 *            the input
-	 * @return the string contained in the buffer
+	 * Looks up a token and writes its entry into the parse buffer.
+	 * 
+	 * @param parsebuffer
+	 *            the parse buffer address
+	 * @param tokenNum
+	 *            the number of the token
+	 * @param dictionaryAddress
+	 *            the dictionary address
+	 * @param textbuffer
+	 *            the text buffer address
+	 * @param tokenAddress
+	 *            the address of the token in the text buffer
+	 * @param length
+	 *            the token length
+	 * @param flag
+	 *            if set, only recognized tokens are written
 	 */
-	private String bufferToZscii(final int address, final int bufferlen, final int charsTyped) {
-		// If charsTyped is set, use that value as the limit
-		final int numChars = (charsTyped > 0) ? charsTyped : bufferlen;
+	private void writeParseEntry(final int parsebuffer, final int tokenNum, final int dictionaryAddress,
+			final int textbuffer, final int tokenAddress, final int length, final boolean flag) {
+		final int entryAddress = machine.lookupToken(dictionaryAddress, tokenAddress, length);
 
-		// read input from text buffer
-		final StringBuilder buffer = new StringBuilder();
-		for (int i = 0; i < numChars; i++) {
-			final char charByte = (char) machine.readUnsigned8(address + i);
-			if (charByte == 0) {
-				break;
-			}
-			buffer.append(charByte);
+		// if the tokenize flag is not set, write out the entry to the
+		// parse buffer, if it is set then, only write the token position
+		// if the token was recognized
+		if (!flag || entryAddress > 0) {
+			// This is one slot
+			final int parseaddr = parsebuffer + 2 + 4 * tokenNum;
+			machine.writeUnsigned16(parseaddr, toUnsigned16(entryAddress));
+			machine.writeUnsigned8(parseaddr + 2, (char) length);
+			machine.writeUnsigned8(parseaddr + 3, (char) (tokenAddress - textbuffer));
 		}
-		return buffer.toString();
 	}
 
 	/**
-	 * Turns the specified input string into tokens. It will take whitespace
-	 * implicitly and dictionary separators explicitly to tokenize the stream,
-	 * dictionary specified separators are included in the result list.
-	 *
-	 * @param input
-	 *            the input string
-	 * @return the tokens
+	 * Determines whether the specified character separates tokens without
+	 * being a token itself.
+	 * 
+	 * @param zsciiChar
+	 *            the character
+	 * @return true if whitespace, false otherwise
 	 */
-	private List<String> tokenize(final String input) {
-		final List<String> result = new ArrayList<String>();
-		// The tokenizer will also return the delimiters
-		final String delim = machine.getDictionaryDelimiters();
-		// include dictionary delimiters as tokens
-		final StringTokenizer tok = new StringTokenizer(input, delim, true);
-		while (tok.hasMoreTokens()) {
-			final String token = tok.nextToken();
-			if (!Character.isWhitespace(token.charAt(0))) {
-				result.add(token);
-			}
-		}
-		return result;
+	private static boolean isWhitespace(final char zsciiChar) {
+		return zsciiChar == ' ' || zsciiChar == '\n' || zsciiChar == '\t' || zsciiChar == '\r';
 	}
 
 	/**
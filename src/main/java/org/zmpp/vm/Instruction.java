@@ -197,4 +197,11 @@ public interface Instruction {
 	 * @return true if prints output, false otherwise
 	 */
 	boolean isOutput();
+
+	/**
+	 * Returns the length of this instruction in memory.
+	 * 
+	 * @return the length in bytes
+	 */
+	int getLength();
 }
@@ -28,11 +28,14 @@
  */
 package org.zmpp.vm;
 
+import java.io.Closeable;
 import java.io.Serializable;
 
 import org.zmpp.base.Memory;
+import org.zmpp.base.MemoryWriteListener;
 import org.zmpp.base.StoryFileHeader;
 import org.zmpp.encoding.IZsciiEncoding;
+import org.zmpp.encoding.ZCharDecoder.ZsciiSink;
 import org.zmpp.media.PictureManager;
 import org.zmpp.media.Resources;
 import org.zmpp.media.SoundSystem;
@@ -48,7 +51,7 @@ import org.zmpp.windowing.StatusLine;
  * @author Wei-ju Wu
  * @version 1.5
  */
-public interface Machine extends ObjectTree, Input, Output, Cpu, Memory, IZsciiEncoding, Serializable {
+public interface Machine extends ObjectTree, Input, Output, Cpu, Memory, IZsciiEncoding, Serializable, Closeable {
 
 	/**
 	 * Initialization function.
@@ -60,6 +63,17 @@ public interface Machine extends ObjectTree, Input, Output, Cpu, Memory, IZsciiE
 	 */
 	void initialize(byte[] data, Resources resources);
 
+	/**
+	 * Initialization function. The story data is only read, so it can be a
+	 * read-only mapping of the story file.
+	 *
+	 * @param storyData
+	 *            the story data
+	 * @param resources
+	 *            Blorb resources
+	 */
+	void initialize(Memory storyData, Resources resources);
+
 	/**
 	 * Returns the story file version.
 	 * 
@@ -92,12 +106,30 @@ public interface Machine extends ObjectTree, Input, Output, Cpu, Memory, IZsciiE
 	 */
 	StoryFileHeader getFileHeader();
 
+	/**
+	 * Returns the original story file. It is shared with the other machines
+	 * running the same story and never modified, static and high memory can
+	 * be read from it directly.
+	 * 
+	 * @return the story image
+	 */
+	Memory getStoryImage();
+
 	/**
 	 * Returns story resources.
 	 * 
 	 * @return story resources
 	 */
 	Resources getResources();
+
+	/**
+	 * Registers a listener that is notified whenever dynamic memory is
+	 * modified through this machine.
+	 * 
+	 * @param listener
+	 *            the listener to add
+	 */
+	void addMemoryWriteListener(MemoryWriteListener listener);
 	// **********************************************************************
 	// **** Tokenizing functions
 	// **** We could refine this by exposing the tokenizers
@@ -115,6 +147,29 @@ public interface Machine extends ObjectTree, Input, Output, Cpu, Memory, IZsciiE
 	 */
 	int lookupToken(int dictionaryAddress, String token);
 
+	/**
+	 * Looks up the token stored in memory in a dictionary.
+	 * 
+	 * @param dictionaryAddress
+	 *            address of dictionary, 0 for the story's dictionary
+	 * @param tokenAddress
+	 *            the address of the token's ZSCII characters
+	 * @param length
+	 *            the number of characters in the token
+	 * @return index in dictionary
+	 */
+	int lookupToken(int dictionaryAddress, int tokenAddress, int length);
+
+	/**
+	 * Determines whether the specified ZSCII character is a word separator of
+	 * the story's dictionary.
+	 * 
+	 * @param zsciiChar
+	 *            a ZSCII character
+	 * @return true if separator, false otherwise
+	 */
+	boolean isDictionarySeparator(char zsciiChar);
+
 	/**
 	 * Returns the dictionary delimiters.
 	 * 
@@ -149,6 +204,18 @@ public interface Machine extends ObjectTree, Input, Output, Cpu, Memory, IZsciiE
 	 */
 	String decode2Zscii(int address, int length);
 
+	/**
+	 * Decodes the string at the memory address into a sink.
+	 * 
+	 * @param address
+	 *            memory address
+	 * @param length
+	 *            length in bytes or 0 for unspecified
+	 * @param sink
+	 *            the sink that receives the ZSCII characters
+	 */
+	void decode2Zscii(int address, int length, ZsciiSink sink);
+
 	/**
 	 * Returns the number of Z-encoded bytes at the specified address.
 	 * 
@@ -200,6 +267,13 @@ public interface Machine extends ObjectTree, Input, Output, Cpu, Memory, IZsciiE
 	 */
 	void quit();
 
+	/**
+	 * Releases the resources the machine shares with other machines, such as
+	 * the story image. It has to be called when the machine is no longer used,
+	 * whether it quit or not. Calling it more than once has no effect.
+	 */
+	void close();
+
 	/**
 	 * Outputs a warning message.
 	 * 
@@ -344,4 +418,16 @@ public interface Machine extends ObjectTree, Input, Output, Cpu, Memory, IZsciiE
 	 * @return the portable game state
 	 */
 	PortableGameState restore_undo();
+
+	/**
+	 * Sets the limits for undo. The oldest undo steps are discarded when there
+	 * are more than depth steps or the steps hold more than budget bytes of
+	 * saved memory, but the most recent step is always kept.
+	 * 
+	 * @param depth
+	 *            the maximum number of undo steps, 0 disables undo
+	 * @param budget
+	 *            the maximum number of bytes held by the undo steps
+	 */
+	void setUndoLimits(int depth, int budget);
 }
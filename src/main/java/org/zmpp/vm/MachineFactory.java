@@ -33,16 +33,17 @@ import org.zmpp.windowing.ScreenModel;
 import java.io.IOException;
 import java.net.URL;
 
-import org.zmpp.base.DefaultMemory;
+import org.zmpp.base.Memory;
+import org.zmpp.base.MemoryWriteListener;
 import org.zmpp.blorb.BlorbResources;
 import org.zmpp.blorb.BlorbFile;
 import org.zmpp.blorb.NativeImageFactory;
 import org.zmpp.blorb.SoundEffectFactory;
-import org.zmpp.iff.DefaultFormChunk;
 import org.zmpp.iff.FormChunk;
 import org.zmpp.io.FileInputStream;
 import org.zmpp.io.InputStream;
 import org.zmpp.io.IOSystem;
+import org.zmpp.io.OutputStream;
 import org.zmpp.io.TranscriptOutputStream;
 import org.zmpp.media.Resources;
 import org.zmpp.vmutil.FileUtils;
@@ -97,10 +98,18 @@ public class MachineFactory {
 	public Machine buildMachine() throws IOException, InvalidStoryException {
 		final MachineImpl machine = new MachineImpl();
 		machine.initialize(readStoryData(), readResources());
-		if (isInvalidStory(machine.getVersion())) {
-			throw new InvalidStoryException();
+		boolean built = false;
+		try {
+			if (isInvalidStory(machine.getVersion())) {
+				throw new InvalidStoryException();
+			}
+			initIOSystem(machine);
+			built = true;
+		} finally {
+			if (!built) {
+				machine.close();
+			}
 		}
-		initIOSystem(machine);
 		return machine;
 	}
 
@@ -108,13 +117,14 @@ public class MachineFactory {
 	// ****** Helpers
 	// *****************************
 	/**
-	 * Reads the story data.
+	 * Reads the story data. Story and Blorb files are mapped into memory
+	 * instead of being read if they are given as file input streams.
 	 * 
 	 * @return the story data
 	 * @throws IOException
 	 *             if reading story file revealed an error
 	 */
-	private byte[] readStoryData() throws IOException {
+	private Memory readStoryData() throws IOException {
 		if (initStruct.storyFile != null || initStruct.blorbFile != null)
 			return readStoryDataFromFile();
 		if (initStruct.storyURL != null || initStruct.blorbURL != null)
@@ -129,7 +139,7 @@ public class MachineFactory {
 	 * @throws IOException
 	 *             if i/o error occurred
 	 */
-	private byte[] readStoryDataFromUrl() throws IOException {
+	private Memory readStoryDataFromUrl() throws IOException {
 		java.io.InputStream storyis = null, blorbis = null;
 		try {
 			if (initStruct.storyURL != null) {
@@ -143,9 +153,9 @@ public class MachineFactory {
 		}
 
 		if (storyis != null) {
-			return FileUtils.readFileBytes(storyis);
+			return FileUtils.readMemory(storyis);
 		} else {
-			return new BlorbFile(readBlorb(blorbis)).getStoryData();
+			return new BlorbFile(readBlorb(blorbis)).getStoryMemory();
 		}
 	}
 
@@ -156,13 +166,13 @@ public class MachineFactory {
 	 * @throws IOException
 	 *             if i/o error occurred
 	 */
-	private byte[] readStoryDataFromFile() throws IOException {
+	private Memory readStoryDataFromFile() throws IOException {
 		if (initStruct.storyFile != null) {
-			return FileUtils.readFileBytes(initStruct.storyFile);
+			return FileUtils.readMemory(initStruct.storyFile);
 		} else {
 			// Read from Z BLORB
 			FormChunk formchunk = readBlorbFromFile();
-			return formchunk != null ? new BlorbFile(formchunk).getStoryData() : null;
+			return formchunk != null ? new BlorbFile(formchunk).getStoryMemory() : null;
 		}
 	}
 
@@ -190,12 +200,9 @@ public class MachineFactory {
 	 */
 	private FormChunk readBlorbFromFile() throws IOException {
 		if (blorbchunk == null) {
-			byte[] data = FileUtils.readFileBytes(initStruct.blorbFile);
-			if (data != null) {
-				blorbchunk = new DefaultFormChunk(new DefaultMemory(data));
-				if (!"IFRS".equals(blorbchunk.getSubId())) {
-					throw new IOException("not a valid Blorb file");
-				}
+			blorbchunk = FileUtils.readFormChunk(initStruct.blorbFile);
+			if (blorbchunk != null && !"IFRS".equals(blorbchunk.getSubId())) {
+				throw new IOException("not a valid Blorb file");
 			}
 		}
 		return blorbchunk;
@@ -225,10 +232,7 @@ public class MachineFactory {
 	 */
 	private FormChunk readBlorb(java.io.InputStream blorbis) throws IOException {
 		if (blorbchunk == null) {
-			byte[] data = FileUtils.readFileBytes(blorbis);
-			if (data != null) {
-				blorbchunk = new DefaultFormChunk(new DefaultMemory(data));
-			}
+			blorbchunk = FileUtils.readFormChunk(blorbis);
 		}
 		return blorbchunk;
 	}
@@ -294,7 +298,12 @@ public class MachineFactory {
 	 *            the machine object
 	 */
 	private void initOutputStreams(final MachineImpl machine) {
-		machine.setOutputStream(1, initStruct.screenModel.getOutputStream());
+		final OutputStream screenOutput = initStruct.screenModel.getOutputStream();
+		machine.setOutputStream(1, screenOutput);
+		if (screenOutput instanceof MemoryWriteListener) {
+			// the screen keeps header flags and needs to see header writes
+			machine.addMemoryWriteListener((MemoryWriteListener) screenOutput);
+		}
 		machine.selectOutputStream(1, true);
 		machine.setOutputStream(2, new TranscriptOutputStream(initStruct.ioSystem, machine));
 		machine.selectOutputStream(2, false);
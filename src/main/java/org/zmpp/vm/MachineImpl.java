@@ -33,10 +33,15 @@ import org.zmpp.windowing.StatusLine;
 import org.zmpp.media.Resolution;
 import org.zmpp.windowing.ScreenModel6;
 import org.zmpp.windowing.ScreenModel;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 import org.zmpp.base.DefaultMemory;
 import org.zmpp.base.Memory;
+import org.zmpp.base.MemoryWriteListener;
+import org.zmpp.base.SnapshotMemory;
+import org.zmpp.base.StoryImages;
+import org.zmpp.base.StoryMemory;
 import org.zmpp.base.StoryFileHeader;
 import org.zmpp.encoding.AccentTable;
 import org.zmpp.encoding.AlphabetTable;
@@ -50,6 +55,7 @@ import org.zmpp.encoding.DefaultZCharDecoder;
 import org.zmpp.encoding.DefaultZCharTranslator;
 import org.zmpp.encoding.DictionarySizes;
 import org.zmpp.encoding.ZCharDecoder;
+import org.zmpp.encoding.ZCharDecoder.ZsciiSink;
 import org.zmpp.encoding.ZCharEncoder;
 import org.zmpp.encoding.ZCharTranslator;
 import org.zmpp.encoding.ZsciiEncoding;
@@ -69,7 +75,6 @@ import org.zmpp.media.ZmppImage;
 import org.zmpp.base.StoryFileHeader.Attribute;
 import org.zmpp.vmutil.PredictableRandomGenerator;
 import org.zmpp.vmutil.RandomGenerator;
-import org.zmpp.vmutil.RingBuffer;
 import org.zmpp.vmutil.UnpredictableRandomGenerator;
 
 /**
@@ -84,15 +89,23 @@ public class MachineImpl implements Machine, DrawingArea {
 
 	private static final Logger LOG = Logger.getLogger("org.zmpp");
 
-	/** Number of undo steps. */
-	private static final int NUM_UNDO = 5;
+	/** The maximum number of bytes written by encode_text. */
+	private static final int MAX_ENCODED_BYTES = 6;
+
+	/** Default number of undo steps. */
+	public static final int DEFAULT_UNDO_DEPTH = 100;
+
+	/** Default number of bytes the undo steps may hold. */
+	public static final int DEFAULT_UNDO_BUDGET = 1024 * 1024;
 
 	private MachineRunState runstate;
 	private RandomGenerator random;
 	private StatusLine statusLine;
 	private ScreenModel screenModel;
 	private SaveGameDataStore datastore;
-	private RingBuffer<PortableGameState> undostates;
+	private List<PortableGameState> undostates;
+	private int undoDepth = DEFAULT_UNDO_DEPTH;
+	private int undoBudget = DEFAULT_UNDO_BUDGET;
 	private InputFunctions inputFunctions;
 	private SoundSystem soundSystem;
 	private PictureManager pictureManager;
@@ -103,15 +116,21 @@ public class MachineImpl implements Machine, DrawingArea {
 	// Formerly GameData
 	private StoryFileHeader fileheader;
 	private Memory memory;
-	private Dictionary dictionary;
-	private ObjectTree objectTree;
+	private SnapshotMemory dynamicMemory;
+	private AbstractDictionary dictionary;
+	private List<AbstractDictionary> userDictionaries = new ArrayList<AbstractDictionary>();
+	private AbstractObjectTree objectTree;
 	private ZsciiEncoding encoding;
-	private ZCharDecoder decoder;
+	private DefaultZCharDecoder decoder;
+	private DecodedStringCache stringCache;
 	private ZCharEncoder encoder;
 	private AlphabetTable alphabetTable;
 	private Resources resources;
-	private byte[] storyfileData;
+	private Memory storyImage;
+	private boolean storyImageAcquired;
 	private int checksum;
+	private int staticMemStart;
+	private List<MemoryWriteListener> writeListeners = new ArrayList<MemoryWriteListener>();
 
 	/**
 	 * Constructor.
@@ -125,10 +144,19 @@ public class MachineImpl implements Machine, DrawingArea {
 	// **************************************
 	/** {@inheritDoc} */
 	public void initialize(final byte[] data, Resources aResources) {
-		this.storyfileData = data;
+		initialize(new DefaultMemory(data), aResources);
+	}
+
+	/** {@inheritDoc} */
+	public void initialize(final Memory storyData, Resources aResources) {
+		releaseStoryImage();
+		// machines running the same story share the story image
+		this.storyImage = StoryImages.acquire(storyData);
+		this.storyImageAcquired = true;
 		this.resources = aResources;
 		this.random = new UnpredictableRandomGenerator();
-		this.undostates = new RingBuffer<PortableGameState>(NUM_UNDO);
+		this.undostates = new ArrayList<PortableGameState>();
+		this.memory = null;
 
 		cpu = new CpuImpl(this);
 		output = new OutputImpl(this);
@@ -154,13 +182,26 @@ public class MachineImpl implements Machine, DrawingArea {
 	 * Resets the data.
 	 */
 	public final void resetGameData() {
-		// Make a copy and initialize from the copy
-		final byte[] data = new byte[storyfileData.length];
-		System.arraycopy(storyfileData, 0, data, 0, storyfileData.length);
-
-		memory = new DefaultMemory(data);
-		fileheader = new DefaultStoryFileHeader(memory);
-		checksum = calculateChecksum();
+		if (memory == null) {
+			// Only dynamic memory is copied, static and high memory are read
+			// from the story image, which is never modified
+			staticMemStart = storyImage.readUnsigned16(StoryFileHeader.STATIC_MEM);
+			final byte[] data = new byte[staticMemStart];
+			storyImage.copyBytesToArray(data, 0, 0, staticMemStart);
+
+			dynamicMemory = new SnapshotMemory(data, staticMemStart);
+			memory = new StoryMemory(dynamicMemory, staticMemStart, storyImage);
+			fileheader = new DefaultStoryFileHeader(memory);
+			checksum = calculateChecksum();
+		} else {
+			// Static memory can not be modified, so it is sufficient to restore
+			// dynamic memory. Writing it through the memory object keeps the
+			// undo snapshots valid.
+			dynamicMemory.copyBytesFromMemory(storyImage, 0, 0, staticMemStart);
+			fileheader = new DefaultStoryFileHeader(memory);
+		}
+		// dynamic memory was replaced by the original contents
+		fireMemoryWritten(0, staticMemStart);
 
 		final DictionarySizes dictionarySizes = (fileheader.getVersion() <= 3) ? new DictionarySizesV1ToV3()
 				: new DictionarySizesV4ToV8();
@@ -179,6 +220,7 @@ public class MachineImpl implements Machine, DrawingArea {
 		// to a different position
 		dictionary = new DefaultDictionary(memory, memory.readUnsigned16(StoryFileHeader.DICTIONARY), decoder, encoder,
 				dictionarySizes);
+		userDictionaries.clear();
 	}
 
 	/**
@@ -211,6 +253,7 @@ public class MachineImpl implements Machine, DrawingArea {
 		final Abbreviations abbreviations = new Abbreviations(memory,
 				memory.readUnsigned16(StoryFileHeader.ABBREVIATIONS));
 		decoder = new DefaultZCharDecoder(encoding, translator, abbreviations);
+		stringCache = new DecodedStringCache(memory, decoder, staticMemStart, DecodedStringCache.DEFAULT_CAPACITY);
 		encoder = new ZCharEncoder(translator, dictionarySizes);
 	}
 
@@ -248,11 +291,54 @@ public class MachineImpl implements Machine, DrawingArea {
 		return fileheader;
 	}
 
+	/** {@inheritDoc} */
+	public Memory getStoryImage() {
+		return storyImage;
+	}
+
 	/** {@inheritDoc} */
 	public Resources getResources() {
 		return resources;
 	}
 
+	/** {@inheritDoc} */
+	public void addMemoryWriteListener(MemoryWriteListener listener) {
+		writeListeners.add(listener);
+	}
+
+	/**
+	 * Notifies the write listeners if the specified area lies in dynamic
+	 * memory.
+	 * 
+	 * @param address
+	 *            the start address
+	 * @param numBytes
+	 *            the number of bytes written
+	 */
+	private void fireMemoryWritten(int address, int numBytes) {
+		if (address < staticMemStart) {
+			output.memoryWritten(address, numBytes);
+			for (int i = 0, n = writeListeners.size(); i < n; i++) {
+				writeListeners.get(i).memoryWritten(address, numBytes);
+			}
+			if (dictionary != null) {
+				dictionary.memoryWritten(address, numBytes);
+			}
+			if (objectTree != null) {
+				objectTree.memoryWritten(address, numBytes);
+			}
+			if (decoder != null) {
+				decoder.memoryWritten(address, numBytes);
+			}
+			if (stringCache != null) {
+				stringCache.memoryWritten(address, numBytes);
+			}
+			for (int i = 0, n = userDictionaries.size(); i < n; i++) {
+				userDictionaries.get(i).memoryWritten(address, numBytes);
+			}
+		}
+	}
+
 	// **********************************************************************
 	// ***** Memory interface functionality
 	// **********************************************************************
@@ -278,11 +364,13 @@ public class MachineImpl implements Machine, DrawingArea {
 	/** {@inheritDoc} */
 	public void writeUnsigned16(int address, char value) {
 		getMemory().writeUnsigned16(address, value);
+		fireMemoryWritten(address, 2);
 	}
 
 	/** {@inheritDoc} */
 	public void writeUnsigned8(int address, char value) {
 		getMemory().writeUnsigned8(address, value);
+		fireMemoryWritten(address, 1);
 	}
 
 	/** {@inheritDoc} */
@@ -293,16 +381,19 @@ public class MachineImpl implements Machine, DrawingArea {
 	/** {@inheritDoc} */
 	public void copyBytesFromArray(byte[] srcData, int srcOffset, int dstOffset, int numBytes) {
 		getMemory().copyBytesFromArray(srcData, srcOffset, dstOffset, numBytes);
+		fireMemoryWritten(dstOffset, numBytes);
 	}
 
 	/** {@inheritDoc} */
 	public void copyBytesFromMemory(Memory srcMem, int srcOffset, int dstOffset, int numBytes) {
 		getMemory().copyBytesFromMemory(srcMem, srcOffset, dstOffset, numBytes);
+		fireMemoryWritten(dstOffset, numBytes);
 	}
 
 	/** {@inheritDoc} */
 	public void copyArea(int src, int dst, int numBytes) {
 		getMemory().copyArea(src, dst, numBytes);
+		fireMemoryWritten(dst, numBytes);
 	}
 
 	// **********************************************************************
@@ -382,6 +473,11 @@ public class MachineImpl implements Machine, DrawingArea {
 		getCpu().setRoutineContexts(routineContexts);
 	}
 
+	/** {@inheritDoc} */
+	public void resetStack() {
+		getCpu().resetStack();
+	}
+
 	/** {@inheritDoc} */
 	public void returnWith(char returnValue) {
 		getCpu().returnWith(returnValue);
@@ -392,14 +488,29 @@ public class MachineImpl implements Machine, DrawingArea {
 		return getCpu().getCurrentRoutineContext();
 	}
 
+	/** {@inheritDoc} */
+	public int getCurrentNumArguments() {
+		return getCpu().getCurrentNumArguments();
+	}
+
 	/** {@inheritDoc} */
 	public int unpackStringAddress(char packedAddress) {
 		return getCpu().unpackStringAddress(packedAddress);
 	}
 
 	/** {@inheritDoc} */
-	public RoutineContext call(char packedAddress, int returnAddress, char[] args, char returnVar) {
-		return getCpu().call(packedAddress, returnAddress, args, returnVar);
+	public void call(char packedAddress, int returnAddress, char[] args, char returnVar) {
+		getCpu().call(packedAddress, returnAddress, args, returnVar);
+	}
+
+	/** {@inheritDoc} */
+	public void setHotRoutineListener(HotRoutineListener listener, int threshold) {
+		getCpu().setHotRoutineListener(listener, threshold);
+	}
+
+	/** {@inheritDoc} */
+	public char getLastReturnValue() {
+		return getCpu().getLastReturnValue();
 	}
 
 	/** {@inheritDoc} */
@@ -426,7 +537,41 @@ public class MachineImpl implements Machine, DrawingArea {
 		if (dictionaryAddress == 0) {
 			return getDictionary().lookup(token);
 		}
-		return new UserDictionary(getMemory(), dictionaryAddress, getZCharDecoder(), encoder).lookup(token);
+		return getUserDictionary(dictionaryAddress).lookup(token);
+	}
+
+	/** {@inheritDoc} */
+	public int lookupToken(int dictionaryAddress, int tokenAddress, int length) {
+		if (dictionaryAddress == 0) {
+			return getDictionary().lookup(tokenAddress, length);
+		}
+		return getUserDictionary(dictionaryAddress).lookup(tokenAddress, length);
+	}
+
+	/** {@inheritDoc} */
+	public boolean isDictionarySeparator(char zsciiChar) {
+		return getDictionary().isSeparator(zsciiChar);
+	}
+
+	/**
+	 * Returns the user dictionary at the specified address. User dictionaries
+	 * are created once and kept for the rest of the session, so their index
+	 * survives between tokenise calls.
+	 * 
+	 * @param dictionaryAddress
+	 *            the dictionary address
+	 * @return the user dictionary
+	 */
+	private Dictionary getUserDictionary(final int dictionaryAddress) {
+		for (int i = 0, n = userDictionaries.size(); i < n; i++) {
+			if (userDictionaries.get(i).getAddress() == dictionaryAddress) {
+				return userDictionaries.get(i);
+			}
+		}
+		final AbstractDictionary userDictionary = new UserDictionary(getMemory(), dictionaryAddress,
+				getZCharDecoder(), encoder);
+		userDictionaries.add(userDictionary);
+		return userDictionary;
 	}
 
 	/** {@inheritDoc} */
@@ -470,6 +615,7 @@ public class MachineImpl implements Machine, DrawingArea {
 	/** {@inheritDoc} */
 	public void encode(int source, int length, int destination) {
 		getZCharEncoder().encode(getMemory(), source, length, destination);
+		fireMemoryWritten(destination, MAX_ENCODED_BYTES);
 	}
 
 	/** {@inheritDoc} */
@@ -479,9 +625,30 @@ public class MachineImpl implements Machine, DrawingArea {
 
 	/** {@inheritDoc} */
 	public String decode2Zscii(int address, int length) {
+		if (length == 0) {
+			return new String(stringCache.getChars(address));
+		}
 		return getZCharDecoder().decode2Zscii(getMemory(), address, length);
 	}
 
+	/** {@inheritDoc} */
+	public void decode2Zscii(int address, int length, ZsciiSink sink) {
+		if (length == 0) {
+			stringCache.decode(address, sink);
+		} else {
+			getZCharDecoder().decode(getMemory(), address, length, sink);
+		}
+	}
+
+	/**
+	 * Returns the cache for decoded strings.
+	 * 
+	 * @return the DecodedStringCache
+	 */
+	public DecodedStringCache getDecodedStringCache() {
+		return stringCache;
+	}
+
 	/** {@inheritDoc} */
 	public char getUnicodeChar(char zsciiChar) {
 		return encoding.getUnicodeChar(zsciiChar);
@@ -623,6 +790,24 @@ public class MachineImpl implements Machine, DrawingArea {
 		// On quit, close the streams
 		output.print("*Game ended*");
 		closeStreams();
+		soundSystem.reset();
+		releaseStoryImage();
+	}
+
+	/** {@inheritDoc} */
+	public void close() {
+		releaseStoryImage();
+	}
+
+	/**
+	 * Releases the shared story image. The machine keeps using the image, but
+	 * it is no longer registered for sharing once all machines released it.
+	 */
+	private void releaseStoryImage() {
+		if (storyImageAcquired) {
+			StoryImages.release(storyImage);
+			storyImageAcquired = false;
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -654,6 +839,16 @@ public class MachineImpl implements Machine, DrawingArea {
 		return soundSystem;
 	}
 
+	/**
+	 * Replaces the sound system that was created from the resources.
+	 * 
+	 * @param soundSystem
+	 *            the sound system
+	 */
+	public void setSoundSystem(final SoundSystem soundSystem) {
+		this.soundSystem = soundSystem;
+	}
+
 	/** {@inheritDoc} */
 	public PictureManager getPictureManager() {
 		return pictureManager;
@@ -668,8 +863,7 @@ public class MachineImpl implements Machine, DrawingArea {
 	public void updateStatusLine() {
 		if (getFileHeader().getVersion() <= 3 && statusLine != null) {
 			final int objNum = cpu.getVariable((char) 0x10);
-			final String objectName = getZCharDecoder().decode2Zscii(getMemory(),
-					getObjectTree().getPropertiesDescriptionAddress(objNum), 0);
+			final String objectName = decode2Zscii(getObjectTree().getPropertiesDescriptionAddress(objNum), 0);
 			final int global2 = cpu.getVariable((char) 0x11);
 			final int global3 = cpu.getVariable((char) 0x12);
 			if (getFileHeader().isEnabled(Attribute.SCORE_GAME)) {
@@ -705,7 +899,8 @@ public class MachineImpl implements Machine, DrawingArea {
 		if (datastore != null) {
 			final PortableGameState gamestate = new PortableGameState();
 			gamestate.captureMachineState(this, savepc);
-			final WritableFormChunk formChunk = gamestate.exportToFormChunk();
+			// dynamic memory is stored relative to the unmodified story image
+			final WritableFormChunk formChunk = gamestate.exportToFormChunk(storyImage);
 			return datastore.saveFormChunk(formChunk);
 		}
 		return false;
@@ -713,18 +908,33 @@ public class MachineImpl implements Machine, DrawingArea {
 
 	/** {@inheritDoc} */
 	public boolean save_undo(final int savepc) {
+		if (undoDepth <= 0) {
+			return false;
+		}
+		// dynamic memory is preserved by the snapshot, the game state only
+		// holds the stack and the program counter
 		final PortableGameState undoGameState = new PortableGameState();
-		undoGameState.captureMachineState(this, savepc);
+		undoGameState.captureExecutionState(this, savepc);
+		dynamicMemory.takeSnapshot();
 		undostates.add(undoGameState);
+		trimUndoStates();
 		return true;
 	}
 
+	/** {@inheritDoc} */
+	public void setUndoLimits(final int depth, final int budget) {
+		this.undoDepth = depth;
+		this.undoBudget = budget;
+		trimUndoStates();
+	}
+
 	/** {@inheritDoc} */
 	public PortableGameState restore() {
 		if (datastore != null) {
 			final PortableGameState gamestate = new PortableGameState();
 			final FormChunk formchunk = datastore.retrieveFormChunk();
 			gamestate.readSaveGame(formchunk);
+			gamestate.decompressDynamicMem(storyImage, staticMemStart);
 
 			// verification has to be here
 			if (verifySaveGame(gamestate)) {
@@ -745,7 +955,9 @@ public class MachineImpl implements Machine, DrawingArea {
 		// current window state
 		if (undostates.size() > 0) {
 			final PortableGameState undoGameState = undostates.remove(undostates.size() - 1);
-			restart(false);
+			dynamicMemory.restoreSnapshot();
+			fireMemoryWritten(0, staticMemStart);
+			resetStack();
 			undoGameState.transferStateToMachine(this);
 			LOG.info(String.format("restore(), pc is: %4x\n", cpu.getPC()));
 			return undoGameState;
@@ -773,6 +985,18 @@ public class MachineImpl implements Machine, DrawingArea {
 				&& gamestate.getSerialNumber().equals(getFileHeader().getSerialNumber());
 	}
 
+	/**
+	 * Discards the oldest undo states until both the depth and the memory
+	 * budget are respected. The newest state is always kept.
+	 */
+	private void trimUndoStates() {
+		while (undostates.size() > Math.max(undoDepth, 0)
+				|| (undostates.size() > 1 && dynamicMemory.getSnapshotBytes() > undoBudget)) {
+			undostates.remove(0);
+			dynamicMemory.discardOldestSnapshot();
+		}
+	}
+
 	/**
 	 * Returns the checksum.
 	 * 
@@ -839,6 +1063,7 @@ public class MachineImpl implements Machine, DrawingArea {
 		}
 		fileHeader.setEnabled(Attribute.TRANSCRIPTING, transcripting);
 		fileHeader.setEnabled(Attribute.FORCE_FIXED_FONT, fixedFontForced);
+		fireMemoryWritten(StoryFileHeader.FLAGS2, 2);
 	}
 
 	// ***********************************************************************
@@ -153,6 +153,13 @@ public final class MachineRunState implements Serializable {
 	 */
 	public static final MachineRunState STOPPED = new MachineRunState();
 
+	/**
+	 * Yielded state. This state is only returned by the budgeted execution
+	 * loop when its budget was spent, the machine itself is still running and
+	 * continues at the current program counter.
+	 */
+	public static final MachineRunState YIELDED = new MachineRunState();
+
 	/**
 	 * Creates a read line mode object with the specified interrup data.
 	 * 
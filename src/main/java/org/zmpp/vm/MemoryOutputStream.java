@@ -72,6 +72,9 @@ public class MemoryOutputStream implements OutputStream {
 	/** Support nested selections. */
 	private List<TablePosition> tableStack;
 
+	/** Holds the bytes of a character run. */
+	private byte[] runBytes = new byte[256];
+
 	/**
 	 * Constructor.
 	 * 
@@ -91,6 +94,19 @@ public class MemoryOutputStream implements OutputStream {
 		tablePos.bytesWritten++;
 	}
 
+	/** {@inheritDoc} */
+	public void print(final char[] zsciiChars, final int offset, final int length) {
+		if (length > runBytes.length) {
+			runBytes = new byte[Math.max(length, runBytes.length * 2)];
+		}
+		for (int i = 0; i < length; i++) {
+			runBytes[i] = (byte) zsciiChars[offset + i];
+		}
+		final TablePosition tablePos = tableStack.get(tableStack.size() - 1);
+		machine.copyBytesFromArray(runBytes, 0, tablePos.tableAddress + 2 + tablePos.bytesWritten, length);
+		tablePos.bytesWritten += length;
+	}
+
 	/** {@inheritDoc} */
 	public void flush() {
 		// intentionally left empty
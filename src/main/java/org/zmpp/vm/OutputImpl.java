@@ -29,17 +29,22 @@
 package org.zmpp.vm;
 
 import java.io.Closeable;
+import org.zmpp.base.MemoryWriteListener;
+import org.zmpp.base.StoryFileHeader;
+import org.zmpp.encoding.ZCharDecoder.ZsciiSink;
 import org.zmpp.encoding.ZsciiEncoding;
 import org.zmpp.io.OutputStream;
 import org.zmpp.base.StoryFileHeader.Attribute;
 
 /**
- * Output implementation.
+ * Output implementation. Output is handed to the streams in runs of
+ * characters. The transcript flag of the story file header is read once and
+ * then kept until the header flags are written.
  * 
  * @author Wei-ju Wu
  * @version 1.5
  */
-public class OutputImpl implements Output, Closeable {
+public class OutputImpl implements Output, Closeable, MemoryWriteListener {
 
 	private Machine machine;
 
@@ -48,6 +53,26 @@ public class OutputImpl implements Output, Closeable {
 	 */
 	private OutputStream[] outputStream;
 
+	/** The characters of the run that is printed next. */
+	private char[] run = new char[256];
+	private int runLength;
+	private char[] singleChar = new char[1];
+
+	private boolean transcripting;
+	private boolean transcriptFlagValid;
+
+	/**
+	 * Collects decoded strings in the run buffer.
+	 */
+	private ZsciiSink runSink = new ZsciiSink() {
+		public void append(final char zsciiChar) {
+			if (runLength == run.length) {
+				growRun(runLength + 1);
+			}
+			run[runLength++] = zsciiChar;
+		}
+	};
+
 	/**
 	 * Constructor.
 	 * 
@@ -76,14 +101,33 @@ public class OutputImpl implements Output, Closeable {
 	 * {@inheritDoc}
 	 */
 	public void printZString(final int address) {
-		print(machine.decode2Zscii(address, 0));
+		runLength = 0;
+		machine.decode2Zscii(address, 0, runSink);
+		printZsciiChars(run, 0, runLength);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public void print(final String str) {
-		printZsciiChars(str);
+		final int length = str.length();
+		if (length > run.length) {
+			growRun(length);
+		}
+		str.getChars(0, length, run, 0);
+		printZsciiChars(run, 0, length);
+	}
+
+	/**
+	 * Enlarges the run buffer.
+	 * 
+	 * @param minLength
+	 *            the minimum length of the buffer
+	 */
+	private void growRun(final int minLength) {
+		final char[] newRun = new char[Math.max(minLength, run.length * 2)];
+		System.arraycopy(run, 0, newRun, 0, runLength);
+		run = newRun;
 	}
 
 	/**
@@ -97,28 +141,33 @@ public class OutputImpl implements Output, Closeable {
 	 * {@inheritDoc}
 	 */
 	public void printZsciiChar(final char zchar) {
-		printZsciiChars(String.valueOf(zchar));
+		singleChar[0] = zchar;
+		printZsciiChars(singleChar, 0, 1);
 	}
 
 	/**
-	 * Prints the specified array of ZSCII characters. This is the only function
-	 * that communicates with the output streams directly.
+	 * Prints the specified run of ZSCII characters. This is the only function
+	 * that communicates with the output streams directly. If the memory stream
+	 * is selected, it receives all output.
 	 *
-	 * @param zsciiString
-	 *            the array of ZSCII characters.
+	 * @param zsciiChars
+	 *            the array of ZSCII characters
+	 * @param offset
+	 *            the index of the first character
+	 * @param length
+	 *            the number of characters
 	 */
-	private void printZsciiChars(final String zsciiString) {
+	private void printZsciiChars(final char[] zsciiChars, final int offset, final int length) {
 		checkTranscriptFlag();
+		if (length == 0) {
+			return;
+		}
 		if (outputStream[OUTPUTSTREAM_MEMORY - 1].isSelected()) {
-			for (int i = 0, n = zsciiString.length(); i < n; i++) {
-				outputStream[OUTPUTSTREAM_MEMORY - 1].print(zsciiString.charAt(i));
-			}
+			outputStream[OUTPUTSTREAM_MEMORY - 1].print(zsciiChars, offset, length);
 		} else {
 			for (int i = 0; i < outputStream.length; i++) {
 				if (outputStream[i] != null && outputStream[i].isSelected()) {
-					for (int j = 0, n = zsciiString.length(); j < n; j++) {
-						outputStream[i].print(zsciiString.charAt(j));
-					}
+					outputStream[i].print(zsciiChars, offset, length);
 				}
 			}
 		}
@@ -147,9 +196,17 @@ public class OutputImpl implements Output, Closeable {
 	 * address. Enable the transcript depending on the status of that flag.
 	 */
 	private void checkTranscriptFlag() {
-		if (outputStream[OUTPUTSTREAM_TRANSCRIPT - 1] != null) {
-			outputStream[OUTPUTSTREAM_TRANSCRIPT - 1]
-					.select(machine.getFileHeader().isEnabled(Attribute.TRANSCRIPTING));
+		if (!transcriptFlagValid && outputStream[OUTPUTSTREAM_TRANSCRIPT - 1] != null) {
+			transcripting = machine.getFileHeader().isEnabled(Attribute.TRANSCRIPTING);
+			transcriptFlagValid = true;
+			outputStream[OUTPUTSTREAM_TRANSCRIPT - 1].select(transcripting);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void memoryWritten(final int address, final int numBytes) {
+		if (address < StoryFileHeader.FLAGS2 + 2 && address + numBytes > StoryFileHeader.FLAGS2) {
+			transcriptFlagValid = false;
 		}
 	}
 
@@ -160,6 +217,8 @@ public class OutputImpl implements Output, Closeable {
 		// Sets the tranxdQscript flag if the transcipt is specified
 		if (streamnumber == OUTPUTSTREAM_TRANSCRIPT) {
 			machine.getFileHeader().setEnabled(Attribute.TRANSCRIPTING, flag);
+			transcripting = flag;
+			transcriptFlagValid = true;
 		} else if (streamnumber == OUTPUTSTREAM_MEMORY && flag) {
 			machine.halt("invalid selection of memory stream");
 		}
@@ -30,8 +30,10 @@ package org.zmpp.vm;
 
 import static org.zmpp.base.MemoryUtil.toUnsigned16;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.zmpp.base.Memory;
@@ -333,6 +335,8 @@ public class PortableGameState implements Serializable {
 	 */
 	public boolean readSaveGame(final FormChunk formChunk) {
 		stackFrames.clear();
+		dynamicMem = null;
+		delta = null;
 		if (formChunk != null && "IFZS".equals(formChunk.getSubId())) {
 			readIfhdChunk(formChunk);
 			readStacksChunk(formChunk);
@@ -452,35 +456,57 @@ public class PortableGameState implements Serializable {
 	}
 
 	/**
-	 * Decompresses and reads the dynamic memory state.
+	 * Decompresses and reads the dynamic memory state. The chunk is read
+	 * twice, the first pass determines the size of the delta, the second one
+	 * fills in the non-zero bytes.
 	 * 
 	 * @param cmemChunk
 	 *            the CMem chunk
 	 */
 	private void readCMemChunk(final Chunk cmemChunk) {
 		final Memory chunkMem = cmemChunk.getMemory();
-		int offset = Chunk.CHUNK_HEADER_LENGTH;
-		final int chunksize = cmemChunk.getSize() + Chunk.CHUNK_HEADER_LENGTH;
-		final List<Byte> byteBuffer = new ArrayList<Byte>();
-		char b;
-
-		while (offset < chunksize) {
-			b = chunkMem.readUnsigned8(offset++);
-			if (b == 0) {
-				final char runlength = chunkMem.readUnsigned8(offset++);
-				for (int r = 0; r <= runlength; r++) { // (runlength + 1)
-														// iterations
-					byteBuffer.add((byte) 0);
-				}
+		final byte[] data = new byte[cmemChunk.getSize()];
+		chunkMem.copyBytesToArray(data, 0, Chunk.CHUNK_HEADER_LENGTH, data.length);
+
+		int length = 0;
+		for (int offset = 0; offset < data.length; offset++) {
+			// a zero byte is followed by the number of additional zeros
+			if (data[offset] == 0 && offset + 1 < data.length) {
+				length += (data[++offset] & 0xff) + 1;
+			} else {
+				length++;
+			}
+		}
+		delta = new byte[length];
+		int pos = 0;
+		for (int offset = 0; offset < data.length; offset++) {
+			if (data[offset] == 0 && offset + 1 < data.length) {
+				pos += (data[++offset] & 0xff) + 1;
 			} else {
-				byteBuffer.add((byte) (b & 0xff));
+				delta[pos++] = data[offset];
 			}
 		}
+	}
 
-		// Copy the results to the delta array
-		delta = new byte[byteBuffer.size()];
-		for (int i = 0; i < delta.length; i++) {
-			delta[i] = byteBuffer.get(i);
+	/**
+	 * Reconstructs the dynamic memory from the delta read from a CMem chunk.
+	 * The delta is relative to the original story file, so this needs to be
+	 * done before the state is transferred to a machine. If the state already
+	 * has uncompressed dynamic memory, nothing is done.
+	 * 
+	 * @param originalMem
+	 *            the unmodified story memory
+	 * @param dynamicSize
+	 *            the size of dynamic memory
+	 */
+	public void decompressDynamicMem(final Memory originalMem, final int dynamicSize) {
+		if (dynamicMem == null && delta != null) {
+			dynamicMem = new byte[dynamicSize];
+			originalMem.copyBytesToArray(dynamicMem, 0, 0, dynamicSize);
+			final int numBytes = Math.min(delta.length, dynamicSize);
+			for (int i = 0; i < numBytes; i++) {
+				dynamicMem[i] ^= delta[i];
+			}
 		}
 	}
 
@@ -511,11 +537,7 @@ public class PortableGameState implements Serializable {
 	 *            the program counter restore value
 	 */
 	public void captureMachineState(final Machine machine, final int savePc) {
-		final StoryFileHeader fileheader = machine.getFileHeader();
-		release = machine.getRelease();
-		checksum = machine.readUnsigned16(StoryFileHeader.CHECKSUM);
-		serialBytes = fileheader.getSerialNumber().getBytes();
-		pc = savePc;
+		captureExecutionState(machine, savePc);
 
 		// capture dynamic memory which ends at address(staticsMem) - 1
 		// uncompressed
@@ -523,6 +545,24 @@ public class PortableGameState implements Serializable {
 		dynamicMem = new byte[staticMemStart];
 		// Save the state of dynamic memory
 		machine.copyBytesToArray(dynamicMem, 0, 0, staticMemStart);
+	}
+
+	/**
+	 * Makes a snapshot of the current machine state without the dynamic
+	 * memory, which is left to the caller. This is used for undo, where the
+	 * memory is preserved by snapshots of the story memory itself.
+	 * 
+	 * @param machine
+	 *            a Machine
+	 * @param savePc
+	 *            the program counter restore value
+	 */
+	public void captureExecutionState(final Machine machine, final int savePc) {
+		final StoryFileHeader fileheader = machine.getFileHeader();
+		release = machine.getRelease();
+		checksum = machine.readUnsigned16(StoryFileHeader.CHECKSUM);
+		serialBytes = fileheader.getSerialNumber().getBytes();
+		pc = savePc;
 		captureStackFrames(machine);
 	}
 
@@ -610,15 +650,29 @@ public class PortableGameState implements Serializable {
 	// *****************************************
 
 	/**
-	 * Exports the current object state to a FormChunk.
+	 * Exports the current object state to a FormChunk. Dynamic memory is
+	 * stored uncompressed in a UMem chunk.
 	 * 
 	 * @return the state as a FormChunk
 	 */
 	public WritableFormChunk exportToFormChunk() {
+		return exportToFormChunk(null);
+	}
+
+	/**
+	 * Exports the current object state to a FormChunk. If the original story
+	 * memory is given, dynamic memory is stored as a compressed CMem chunk,
+	 * otherwise as an uncompressed UMem chunk.
+	 * 
+	 * @param originalMem
+	 *            the unmodified story memory or null
+	 * @return the state as a FormChunk
+	 */
+	public WritableFormChunk exportToFormChunk(final Memory originalMem) {
 		final byte[] id = "IFZS".getBytes();
 		final WritableFormChunk formChunk = new WritableFormChunk(id);
 		formChunk.addChunk(createIfhdChunk());
-		formChunk.addChunk(createUMemChunk());
+		formChunk.addChunk(originalMem == null ? createUMemChunk() : createCMemChunk(originalMem));
 		formChunk.addChunk(createStksChunk());
 
 		return formChunk;
@@ -658,6 +712,42 @@ public class PortableGameState implements Serializable {
 		return new DefaultChunk(id, dynamicMem);
 	}
 
+	/**
+	 * Creates the CMem chunk. Dynamic memory is XOR'ed with the original
+	 * memory, runs of zeros in the result are stored as a zero byte followed
+	 * by the number of additional zeros (at most 255) and trailing zeros are
+	 * omitted, as described in the Quetzal specification.
+	 * 
+	 * @param originalMem
+	 *            the unmodified story memory
+	 * @return CMem chunk
+	 */
+	private Chunk createCMemChunk(final Memory originalMem) {
+		final byte[] id = "CMem".getBytes();
+		final byte[] original = new byte[dynamicMem.length];
+		originalMem.copyBytesToArray(original, 0, 0, original.length);
+
+		// worst case is every other byte being unchanged
+		final byte[] data = new byte[dynamicMem.length + dynamicMem.length / 2 + 2];
+		int length = 0;
+		int numZeros = 0;
+		for (int i = 0; i < dynamicMem.length; i++) {
+			final byte b = (byte) (dynamicMem[i] ^ original[i]);
+			if (b == 0) {
+				numZeros++;
+			} else {
+				// a run is a zero byte and the number of additional zeros
+				for (; numZeros > 0; numZeros -= 256) {
+					data[length++] = 0;
+					data[length++] = (byte) (Math.min(numZeros, 256) - 1);
+				}
+				numZeros = 0;
+				data[length++] = b;
+			}
+		}
+		return new DefaultChunk(id, Arrays.copyOf(data, length));
+	}
+
 	/**
 	 * Creates the Stks chunk.
 	 * 
@@ -665,16 +755,12 @@ public class PortableGameState implements Serializable {
 	 */
 	private Chunk createStksChunk() {
 		final byte[] id = "Stks".getBytes();
-		final List<Byte> byteBuffer = new ArrayList<Byte>();
+		final ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
 
 		for (StackFrame stackFrame : stackFrames) {
 			writeStackFrameToByteBuffer(byteBuffer, stackFrame);
 		}
-		final byte[] data = new byte[byteBuffer.size()];
-		for (int i = 0; i < data.length; i++) {
-			data[i] = byteBuffer.get(i);
-		}
-		return new DefaultChunk(id, data);
+		return new DefaultChunk(id, byteBuffer.toByteArray());
 	}
 
 	/**
@@ -685,11 +771,11 @@ public class PortableGameState implements Serializable {
 	 * @param stackFrame
 	 *            the stack frame
 	 */
-	public void writeStackFrameToByteBuffer(final List<Byte> byteBuffer, final StackFrame stackFrame) {
+	public void writeStackFrameToByteBuffer(final ByteArrayOutputStream byteBuffer, final StackFrame stackFrame) {
 		final int returnPC = stackFrame.pc;
-		byteBuffer.add((byte) ((returnPC >>> 16) & 0xff));
-		byteBuffer.add((byte) ((returnPC >>> 8) & 0xff));
-		byteBuffer.add((byte) (returnPC & 0xff));
+		byteBuffer.write((returnPC >>> 16) & 0xff);
+		byteBuffer.write((returnPC >>> 8) & 0xff);
+		byteBuffer.write(returnPC & 0xff);
 
 		// locals flag, is simply the number of local variables
 		final boolean discardResult = stackFrame.returnVariable == DISCARD_RESULT;
@@ -697,13 +783,13 @@ public class PortableGameState implements Serializable {
 		if (discardResult) {
 			pvFlag |= 0x10;
 		}
-		byteBuffer.add(pvFlag);
+		byteBuffer.write(pvFlag);
 
 		// returnvar
-		byteBuffer.add((byte) (discardResult ? 0 : stackFrame.returnVariable));
+		byteBuffer.write(discardResult ? 0 : stackFrame.returnVariable);
 
 		// argspec
-		byteBuffer.add(createArgSpecByte(stackFrame.args));
+		byteBuffer.write(createArgSpecByte(stackFrame.args));
 
 		// eval stack size
 		final int stacksize = stackFrame.evalStack.length;
@@ -728,9 +814,9 @@ public class PortableGameState implements Serializable {
 	 * @param value
 	 *            unsigned 16 bit value
 	 */
-	private void addUnsigned16ToByteBuffer(final List<Byte> buffer, final char value) {
-		buffer.add((byte) ((value & 0xff00) >>> 8));
-		buffer.add((byte) (value & 0xff));
+	private void addUnsigned16ToByteBuffer(final ByteArrayOutputStream buffer, final char value) {
+		buffer.write((value & 0xff00) >>> 8);
+		buffer.write(value & 0xff);
 	}
 
 	/**
@@ -755,13 +841,17 @@ public class PortableGameState implements Serializable {
 	/**
 	 * Transfers the current object state to the specified Machine object. The
 	 * machine needs to be in a reset state in order to function correctly.
+	 * If the state was captured without dynamic memory, the machine's memory
+	 * is left untouched.
 	 *
 	 * @param machine
 	 *            a Machine object
 	 */
 	public void transferStateToMachine(final Machine machine) {
 		// Copy dynamic memory
-		machine.copyBytesFromArray(dynamicMem, 0, 0, dynamicMem.length);
+		if (dynamicMem != null) {
+			machine.copyBytesFromArray(dynamicMem, 0, 0, dynamicMem.length);
+		}
 
 		// Stack frames
 		final List<RoutineContext> contexts = new ArrayList<RoutineContext>();
@@ -793,6 +883,7 @@ public class PortableGameState implements Serializable {
 			}
 
 			// Stack
+			context.setInvocationStackPointer(machine.getSP());
 			for (int s = 0; s < stackFrame.evalStack.length; s++) {
 				machine.setVariable((char) 0, stackFrame.evalStack[s]);
 			}
@@ -28,6 +28,8 @@
  */
 package org.zmpp.vm;
 
+import java.util.Arrays;
+
 /**
  * This class holds information about a subroutine.
  *
@@ -195,4 +197,36 @@ public class RoutineContext {
 	public void setReturnValue(final char value) {
 		returnValue = value;
 	}
+
+	/**
+	 * Two routine contexts are equal if they describe the same call frame.
+	 * The return value is not part of the frame and not compared.
+	 *
+	 * @param obj
+	 *            the object to compare with
+	 * @return true if equal, false otherwise
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof RoutineContext)) {
+			return false;
+		}
+		final RoutineContext other = (RoutineContext) obj;
+		return returnAddress == other.returnAddress && returnVarNum == other.returnVarNum
+				&& invocationStackPointer == other.invocationStackPointer && numArgs == other.numArgs
+				&& Arrays.equals(locals, other.locals);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int hashCode() {
+		int result = Arrays.hashCode(locals);
+		result = 31 * result + returnAddress;
+		result = 31 * result + returnVarNum;
+		result = 31 * result + invocationStackPointer;
+		return 31 * result + numArgs;
+	}
 }
@@ -36,7 +36,8 @@ import org.zmpp.encoding.ZCharEncoder;
  * This class implements a user dictionary. The specification suggests that
  * lookup is implemented using linear search in case the user dictionary is
  * specified as unordered (negative number of entries) and in case of ordered a
- * binary search will be performed.
+ * binary search will be performed. Both cases are served by the hash index,
+ * which finds the first matching entry just like a linear search would.
  * 
  * @author Wei-ju Wu
  * @version 1.5
@@ -58,18 +59,4 @@ public class UserDictionary extends AbstractDictionary {
 	public UserDictionary(Memory memory, int address, ZCharDecoder decoder, ZCharEncoder encoder) {
 		super(memory, address, decoder, encoder, new DictionarySizesV4ToV8());
 	}
-
-	/** {@inheritDoc} */
-	public int lookup(final String token) {
-		// We only implement linear search for user dictionaries
-		final int n = Math.abs(getNumberOfEntries());
-		final byte[] tokenBytes = truncateTokenToBytes(token);
-		for (int i = 0; i < n; i++) {
-			final int entryAddress = getEntryAddress(i);
-			if (tokenMatch(tokenBytes, entryAddress) == 0) {
-				return entryAddress;
-			}
-		}
-		return 0;
-	}
 }
@@ -60,6 +60,16 @@ public final class FastShortStack {
 		return stackpointer;
 	}
 
+	/**
+	 * Sets the stack pointer, discarding all values above it.
+	 * 
+	 * @param stackpointer
+	 *            the new stack pointer, must not exceed the current one
+	 */
+	public void setStackPointer(final char stackpointer) {
+		this.stackpointer = stackpointer;
+	}
+
 	/**
 	 * Pushes a value on the stack and increases the stack pointer.
 	 * 
@@ -29,17 +29,20 @@
 package org.zmpp.vmutil;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 
 import java.util.logging.Logger;
 import org.zmpp.base.DefaultMemory;
+import org.zmpp.base.MappedMemory;
 import org.zmpp.base.Memory;
 import org.zmpp.blorb.BlorbResources;
 import org.zmpp.blorb.NativeImageFactory;
@@ -79,10 +82,7 @@ public final class FileUtils {
 		RandomAccessFile raf = null;
 		try {
 			raf = new RandomAccessFile(blorbfile, "r");
-			final byte[] data = new byte[(int) raf.length()];
-			raf.readFully(data);
-			final Memory memory = new DefaultMemory(data);
-			final FormChunk formchunk = new DefaultFormChunk(memory);
+			final FormChunk formchunk = new DefaultFormChunk(raf.getChannel());
 			return new BlorbResources(imageFactory, soundEffectFactory, formchunk);
 		} catch (IOException ex) {
 			ex.printStackTrace();
@@ -98,6 +98,57 @@ public final class FileUtils {
 		return null;
 	}
 
+	/**
+	 * Maps the remaining contents of the specified file channel read-only into
+	 * memory. The mapping stays valid after the channel was closed.
+	 * 
+	 * @param channel
+	 *            the file channel
+	 * @return the mapped memory
+	 * @throws IOException
+	 *             if the file could not be mapped
+	 */
+	public static Memory mapChannel(final FileChannel channel) throws IOException {
+		final long position = channel.position();
+		return new MappedMemory(channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position));
+	}
+
+	/**
+	 * Reads the contents of the specified input stream into a Memory object.
+	 * File input streams are mapped instead of read.
+	 * 
+	 * @param inputstream
+	 *            the input stream
+	 * @return the memory object or null if inputstream is null
+	 * @throws IOException
+	 *             if the file could not be mapped
+	 */
+	public static Memory readMemory(final InputStream inputstream) throws IOException {
+		if (inputstream instanceof FileInputStream) {
+			return mapChannel(((FileInputStream) inputstream).getChannel());
+		}
+		final byte[] data = readFileBytes(inputstream);
+		return data == null ? null : new DefaultMemory(data);
+	}
+
+	/**
+	 * Reads a FORM chunk from the specified input stream. For file input
+	 * streams, only the chunk headers are read and the data is mapped.
+	 * 
+	 * @param inputstream
+	 *            the input stream
+	 * @return the form chunk or null if inputstream is null
+	 * @throws IOException
+	 *             if the data is not a valid FORM chunk
+	 */
+	public static FormChunk readFormChunk(final InputStream inputstream) throws IOException {
+		if (inputstream instanceof FileInputStream) {
+			return new DefaultFormChunk(((FileInputStream) inputstream).getChannel());
+		}
+		final Memory memory = readMemory(inputstream);
+		return memory == null ? null : new DefaultFormChunk(memory);
+	}
+
 	/**
 	 * Reads an array of bytes from the given input stream.
 	 * 
@@ -0,0 +1,198 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.zmpp.vmutil;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least recently used cache that is bounded by the total size of its
+ * entries rather than by their number. The size of an entry is supplied by the
+ * caller, e.g. the number of bytes a decoded image occupies. When the capacity
+ * is exceeded, the least recently used entries are evicted, but the most
+ * recently added entry is always kept. Subclasses can override evicted() to
+ * release the resources of evicted values.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public class LruCache<K, V> {
+
+	/**
+	 * A cache entry.
+	 * 
+	 * @param <V>
+	 *            value type
+	 */
+	private static class Entry<V> {
+		private V value;
+		private int size;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param value
+		 *            the value
+		 * @param size
+		 *            the size
+		 */
+		public Entry(final V value, final int size) {
+			this.value = value;
+			this.size = size;
+		}
+	}
+
+	private Map<K, Entry<V>> entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+	private long capacity;
+	private long size;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacity
+	 *            the maximum total size of the entries
+	 */
+	public LruCache(final long capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the value for the specified key and marks it as recently used.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the value or null if not cached
+	 */
+	public V get(final K key) {
+		final Entry<V> entry = entries.get(key);
+		return entry == null ? null : entry.value;
+	}
+
+	/**
+	 * Determines whether the cache holds a value for the specified key without
+	 * marking it as recently used.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return true if cached, false otherwise
+	 */
+	public boolean containsKey(final K key) {
+		return entries.containsKey(key);
+	}
+
+	/**
+	 * Adds a value to the cache and evicts the least recently used entries if
+	 * the capacity is exceeded.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @param entrySize
+	 *            the size of the value
+	 */
+	public void put(final K key, final V value, final int entrySize) {
+		remove(key);
+		entries.put(key, new Entry<V>(value, entrySize));
+		size += entrySize;
+		while (size > capacity && entries.size() > 1) {
+			final Map.Entry<K, Entry<V>> eldest = entries.entrySet().iterator().next();
+			size -= eldest.getValue().size;
+			entries.remove(eldest.getKey());
+			evicted(eldest.getKey(), eldest.getValue().value);
+		}
+	}
+
+	/**
+	 * Called after a value was evicted because the capacity was exceeded. The
+	 * default implementation does nothing.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the evicted value
+	 */
+	protected void evicted(final K key, final V value) {
+	}
+
+	/**
+	 * Removes the value for the specified key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the removed value or null if it was not cached
+	 */
+	public V remove(final K key) {
+		final Entry<V> entry = entries.remove(key);
+		if (entry == null) {
+			return null;
+		}
+		size -= entry.size;
+		return entry.value;
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of cached values.
+	 * 
+	 * @return the number of values
+	 */
+	public int getNumEntries() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the total size of the cached values.
+	 * 
+	 * @return the total size
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the capacity.
+	 * 
+	 * @return the capacity
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+}
@@ -33,6 +33,7 @@ import java.util.List;
 import java.util.logging.Logger;
 import org.zmpp.base.DefaultStoryFileHeader;
 import org.zmpp.base.Memory;
+import org.zmpp.base.MemoryWriteListener;
 import org.zmpp.base.StoryFileHeader;
 import org.zmpp.base.StoryFileHeader.Attribute;
 import org.zmpp.encoding.IZsciiEncoding;
@@ -45,10 +46,14 @@ import org.zmpp.io.OutputStream;
  * writes to. It is intended to provide interfaces to both Glk and Z-machine and
  * to combine the abilities of both.
  *
+ * The force fixed font flag of the story file header is read once and then
+ * kept until the header flags are written, so the model has to be registered
+ * as a MemoryWriteListener with the machine.
+ *
  * @author Wei-ju Wu
  * @version 1.5
  */
-public class BufferedScreenModel implements ScreenModel, StatusLine, OutputStream {
+public class BufferedScreenModel implements ScreenModel, StatusLine, OutputStream, MemoryWriteListener {
 	private static final Logger LOG = Logger.getLogger("org.zmpp.screen");
 
 	private int current = WINDOW_BOTTOM;
@@ -59,6 +64,11 @@ public class BufferedScreenModel implements ScreenModel, StatusLine, OutputStrea
 	private IZsciiEncoding encoding;
 	private Memory memory;
 	private StoryFileHeader fileheader;
+	private boolean fixedFontForced;
+	private boolean headerFlagsValid;
+
+	/** Holds the Unicode characters of a character run. */
+	private char[] unicodeRun = new char[256];
 
 	/**
 	 * Status line listener.
@@ -108,6 +118,14 @@ public class BufferedScreenModel implements ScreenModel, StatusLine, OutputStrea
 		this.memory = aMemory;
 		this.fileheader = new DefaultStoryFileHeader(memory);
 		this.encoding = anEncoding;
+		headerFlagsValid = false;
+	}
+
+	/** {@inheritDoc} */
+	public void memoryWritten(final int address, final int numBytes) {
+		if (address < StoryFileHeader.FLAGS2 + 2 && address + numBytes > StoryFileHeader.FLAGS2) {
+			headerFlagsValid = false;
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -284,9 +302,13 @@ public class BufferedScreenModel implements ScreenModel, StatusLine, OutputStrea
 	 * This checks the fixed font flag and adjust the font if necessary.
 	 */
 	private void checkFixedFontFlag() {
-		if (fileheader.isEnabled(Attribute.FORCE_FIXED_FONT) && current == WINDOW_BOTTOM) {
+		if (!headerFlagsValid) {
+			fixedFontForced = fileheader.isEnabled(Attribute.FORCE_FIXED_FONT);
+			headerFlagsValid = true;
+		}
+		if (fixedFontForced && current == WINDOW_BOTTOM) {
 			bottomWindow.setCurrentFont(ScreenModel.FONT_FIXED);
-		} else if (!fileheader.isEnabled(Attribute.FORCE_FIXED_FONT) && current == WINDOW_BOTTOM) {
+		} else if (!fixedFontForced && current == WINDOW_BOTTOM) {
 			bottomWindow.setCurrentFont(ScreenModel.FONT_NORMAL);
 		}
 	}
@@ -308,6 +330,30 @@ public class BufferedScreenModel implements ScreenModel, StatusLine, OutputStrea
 		}
 	}
 
+	/** {@inheritDoc} */
+	public void print(final char[] zsciiChars, final int offset, final int length) {
+		checkFixedFontFlag();
+		if (length > unicodeRun.length) {
+			unicodeRun = new char[Math.max(length, unicodeRun.length * 2)];
+		}
+		for (int i = 0; i < length; i++) {
+			unicodeRun[i] = encoding.getUnicodeChar(zsciiChars[offset + i]);
+		}
+		if (current == WINDOW_BOTTOM) {
+			bottomWindow.printChars(unicodeRun, 0, length);
+			if (!bottomWindow.isBuffered()) {
+				flush();
+			}
+		} else if (current == WINDOW_TOP) {
+			for (int i = 0; i < length; i++) {
+				for (ScreenModelListener l : screenModelListeners) {
+					topWindow.notifyChange(l, unicodeRun[i]);
+					topWindow.incrementCursorXPos();
+				}
+			}
+		}
+	}
+
 	/** {@inheritDoc} */
 	public void close() {
 	}
@@ -176,6 +176,20 @@ public class BufferedTextWindow {
 		currentRun.append(zchar);
 	}
 
+	/**
+	 * Appends a run of characters to the current text run.
+	 * 
+	 * @param chars
+	 *            the array holding the characters
+	 * @param offset
+	 *            the index of the first character
+	 * @param length
+	 *            the number of characters
+	 */
+	public void printChars(char[] chars, int offset, int length) {
+		currentRun.append(chars, offset, length);
+	}
+
 	/**
 	 * Returns this window's buffer.
 	 * 
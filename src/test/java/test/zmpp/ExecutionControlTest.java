@@ -0,0 +1,223 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.ExecutionControl;
+import org.zmpp.base.StoryFileHeader;
+import org.zmpp.media.SoundSystem;
+import org.zmpp.vm.MachineImpl;
+import org.zmpp.vm.MachineFactory.MachineInitStruct;
+import org.zmpp.vm.MachineRunState;
+import org.zmpp.windowing.BufferedScreenModel;
+
+import test.zmpp.testutil.TestUtil;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for ExecutionControl's budgeted execution loop and the
+ * compiled routines.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class ExecutionControlTest {
+
+	private ExecutionControl control;
+
+	@Before
+	public void setUp() throws Exception {
+		control = createExecutionControl();
+	}
+
+	private ExecutionControl createExecutionControl() throws Exception {
+		BufferedScreenModel screenModel = new BufferedScreenModel();
+		MachineInitStruct initStruct = new MachineInitStruct();
+		initStruct.screenModel = screenModel;
+		initStruct.statusLine = screenModel;
+		InputStream storyFile = new FileInputStream(TestUtil.loadResource("minizork.z3"));
+		try {
+			initStruct.storyFile = storyFile;
+			ExecutionControl result = new ExecutionControl(initStruct);
+			screenModel.init(result.getMachine(), result.getZsciiEncoding());
+			return result;
+		} finally {
+			storyFile.close();
+		}
+	}
+
+	@Test
+	public void testYield() {
+		int step = control.getStep();
+		assertSame(MachineRunState.YIELDED, control.run(10));
+		assertEquals(step + 10, control.getStep());
+		assertSame(MachineRunState.RUNNING, control.getMachine().getRunState());
+
+		assertSame(MachineRunState.YIELDED, control.run(0));
+		assertEquals(step + 10, control.getStep());
+	}
+
+	@Test
+	public void testResumeAfterYield() throws Exception {
+		ExecutionControl reference = createExecutionControl();
+		MachineRunState referenceState = reference.run();
+		assertTrue(referenceState.isReadLine());
+
+		MachineRunState runState;
+		do {
+			runState = control.run(7);
+		} while (runState == MachineRunState.YIELDED);
+		assertTrue(runState.isReadLine());
+		assertEquals(reference.getStep(), control.getStep());
+		assertEquals(reference.getMachine().getPC(), control.getMachine().getPC());
+	}
+
+	@Test
+	public void testTimeSlice() {
+		// minizork reaches its first input well within the time slice
+		MachineRunState runState = control.run(Integer.MAX_VALUE, 60000);
+		assertTrue(runState.isReadLine());
+		assertTrue(control.resumeWithInput("look", 5, 60000) == MachineRunState.YIELDED);
+	}
+
+	@Test
+	public void testCompiledRoutines() throws Exception {
+		ExecutionControl reference = createExecutionControl();
+		reference.setCompileThreshold(0);
+		control.setCompileThreshold(1);
+		MachineRunState referenceState = reference.run();
+		MachineRunState runState = control.run();
+		for (String input : new String[] { "open mailbox", "read leaflet", "north", "east", "inventory" }) {
+			assertTrue(referenceState.isReadLine());
+			assertTrue(runState.isReadLine());
+			assertEquals(reference.getStep(), control.getStep());
+			assertEquals(reference.getMachine().getPC(), control.getMachine().getPC());
+			assertEquals(reference.getMachine().getSP(), control.getMachine().getSP());
+			final int staticMemStart = reference.getMachine().readUnsigned16(StoryFileHeader.STATIC_MEM);
+			for (int address = 0; address < staticMemStart; address++) {
+				assertEquals(reference.getMachine().readUnsigned8(address), control.getMachine().readUnsigned8(address));
+			}
+			referenceState = reference.resumeWithInput(input);
+			runState = control.resumeWithInput(input);
+		}
+		assertTrue(control.getNumCompiledRoutines() > 0);
+		assertEquals(0, reference.getNumCompiledRoutines());
+	}
+
+	@Test
+	public void testCompiledRoutinesUseStepBudget() throws Exception {
+		ExecutionControl reference = createExecutionControl();
+		reference.setCompileThreshold(0);
+		control.setCompileThreshold(1);
+		MachineRunState referenceState = reference.run();
+		MachineRunState runState = control.run();
+		for (String input : new String[] { "open mailbox", "read leaflet", "north" }) {
+			assertTrue(referenceState.isReadLine());
+			assertTrue(runState.isReadLine());
+			assertEquals(reference.getStep(), control.getStep());
+			referenceState = reference.resumeWithInput(input);
+			int step = control.getStep();
+			runState = control.resumeWithInput(input, 100);
+			while (runState == MachineRunState.YIELDED) {
+				// a compiled routine can only overrun the budget by the
+				// instructions it runs until its next backward jump
+				assertTrue(control.getStep() - step >= 100);
+				assertTrue(control.getStep() - step < 100 + 1024 + 200);
+				step = control.getStep();
+				runState = control.run(100);
+			}
+		}
+		assertTrue(control.getNumCompiledRoutines() > 0);
+		assertEquals(reference.getStep(), control.getStep());
+	}
+
+	@Test
+	public void testDirectDispatch() throws Exception {
+		ExecutionControl reference = createExecutionControl();
+		reference.setCompileThreshold(0);
+		control.setDirectDispatch(true);
+		assertTrue(control.isDirectDispatch());
+		assertFalse(reference.isDirectDispatch());
+		MachineRunState referenceState = reference.run();
+		MachineRunState runState = control.run(100);
+		assertEquals(MachineRunState.YIELDED, runState);
+		runState = control.run();
+		for (String input : new String[] { "open mailbox", "read leaflet", "north", "east", "inventory" }) {
+			assertTrue(referenceState.isReadLine());
+			assertTrue(runState.isReadLine());
+			assertEquals(reference.getStep(), control.getStep());
+			assertEquals(reference.getMachine().getPC(), control.getMachine().getPC());
+			assertEquals(reference.getMachine().getSP(), control.getMachine().getSP());
+			final int staticMemStart = reference.getMachine().readUnsigned16(StoryFileHeader.STATIC_MEM);
+			for (int address = 0; address < staticMemStart; address++) {
+				assertEquals(reference.getMachine().readUnsigned8(address), control.getMachine().readUnsigned8(address));
+			}
+			referenceState = reference.resumeWithInput(input);
+			runState = control.resumeWithInput(input);
+		}
+		assertEquals(0, control.getNumCompiledRoutines());
+	}
+
+	@Test
+	public void testSoundInterruptDuringRun() throws Exception {
+		ExecutionControl reference = createExecutionControl();
+		assertTrue(reference.run().isReadLine());
+		assertTrue(control.run().isReadLine());
+		final int[] numPolls = new int[1];
+		final boolean[] fired = new boolean[1];
+		((MachineImpl) control.getMachine()).setSoundSystem(new SoundSystem() {
+			public void play(int number, int effect, int volume, int repeats, int routine) {
+			}
+
+			public int nextInterruptRoutine() {
+				// the sound finishes after the run started, the routine at
+				// $3b96 returns right away
+				if (++numPolls[0] == 2) {
+					fired[0] = true;
+					return 0x3b96 / 2;
+				}
+				return 0;
+			}
+
+			public void reset() {
+			}
+		});
+		// the command runs long enough for the queue to be polled while it
+		// runs
+		assertTrue(control.resumeWithInput("open mailbox").isReadLine());
+		assertTrue(fired[0]);
+		assertTrue(reference.resumeWithInput("open mailbox").isReadLine());
+		assertEquals(reference.getMachine().getPC(), control.getMachine().getPC());
+		assertEquals(reference.getMachine().getSP(), control.getMachine().getSP());
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.base;
+
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.base.MappedMemory;
+import org.zmpp.base.Memory;
+import org.zmpp.vmutil.FileUtils;
+
+import test.zmpp.testutil.TestUtil;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for MappedMemory.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class MappedMemoryTest {
+
+	private MappedMemory memory;
+	private byte[] data = { 0x03, 0x00, 0x37, 0x09, (byte) 0xff, (byte) 0xff };
+
+	@Before
+	public void setUp() throws Exception {
+		memory = new MappedMemory(ByteBuffer.wrap(data).asReadOnlyBuffer());
+	}
+
+	@Test
+	public void testRead() {
+		assertEquals(6, memory.getSize());
+		assertEquals(3, memory.readUnsigned8(0x00));
+		assertEquals(0x3709, memory.readUnsigned16(0x02));
+		assertEquals(0xffff, memory.readUnsigned16(0x04));
+	}
+
+	@Test
+	public void testCopyBytesToArray() {
+		byte[] dst = new byte[4];
+		memory.copyBytesToArray(dst, 1, 2, 3);
+		assertEquals(0, dst[0]);
+		assertEquals(0x37, dst[1]);
+		assertEquals(0x09, dst[2]);
+		assertEquals((byte) 0xff, dst[3]);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testWriteIsRejected() {
+		memory.writeUnsigned8(0, (char) 1);
+	}
+
+	@Test
+	public void testMapFile() throws Exception {
+		byte[] fileData = FileUtils.readFileBytes(TestUtil.loadResource("minizork.z3"));
+		FileInputStream is = new FileInputStream(TestUtil.loadResource("minizork.z3"));
+		Memory mapped;
+		try {
+			mapped = FileUtils.readMemory(is);
+		} finally {
+			is.close();
+		}
+		assertTrue(mapped instanceof MappedMemory);
+		assertEquals(fileData.length, ((MappedMemory) mapped).getSize());
+		byte[] mappedData = new byte[fileData.length];
+		mapped.copyBytesToArray(mappedData, 0, 0, fileData.length);
+		assertArrayEquals(fileData, mappedData);
+	}
+}
@@ -28,10 +28,14 @@
  */
 package test.zmpp.base;
 
+import java.nio.ByteBuffer;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.zmpp.base.DefaultMemory;
 import org.zmpp.base.Memory;
+import org.zmpp.base.MemorySection;
+import org.zmpp.base.MemoryUtil;
 import static org.junit.Assert.*;
 
 /**
@@ -131,4 +135,21 @@ public class MemoryTest {
 		assertEquals(0x00, memory.readUnsigned8(3));
 		assertEquals(0x37, memory.readUnsigned8(4));
 	}
+
+	@Test
+	public void testGetByteBuffer() {
+		ByteBuffer view = ((DefaultMemory) memory).getByteBuffer(2, 3);
+		assertEquals(0, view.position());
+		assertEquals(3, view.remaining());
+		assertTrue(view.isReadOnly());
+		assertEquals(0x37, view.get(0));
+		// the view shares the data
+		memory.writeUnsigned8(3, (char) 0x42);
+		assertEquals(0x42, view.get(1));
+
+		ByteBuffer sectionView = new MemorySection(memory, 1, 4).getByteBuffer(1, 2);
+		assertEquals(2, sectionView.remaining());
+		assertEquals(0x37, sectionView.get(0));
+		assertEquals(0x42, MemoryUtil.toByteBuffer(memory, 3, 1).get(0));
+	}
 }
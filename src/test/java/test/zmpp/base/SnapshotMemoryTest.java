@@ -0,0 +1,134 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.base;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.base.DefaultMemory;
+import org.zmpp.base.SnapshotMemory;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for SnapshotMemory.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class SnapshotMemoryTest {
+
+	private static final int TRACKED_SIZE = 3 * SnapshotMemory.PAGE_SIZE + 16;
+
+	private SnapshotMemory memory;
+
+	@Before
+	public void setUp() throws Exception {
+		memory = new SnapshotMemory(new byte[TRACKED_SIZE + SnapshotMemory.PAGE_SIZE], TRACKED_SIZE);
+	}
+
+	@Test
+	public void testNoSnapshot() {
+		memory.writeUnsigned8(0, (char) 1);
+		assertEquals(0, memory.getNumSnapshots());
+		assertEquals(0, memory.getSnapshotBytes());
+		assertFalse(memory.restoreSnapshot());
+		assertEquals(1, memory.readUnsigned8(0));
+	}
+
+	@Test
+	public void testSavesOnlyWrittenPages() {
+		memory.takeSnapshot();
+		assertEquals(0, memory.getSnapshotBytes());
+		memory.writeUnsigned8(1, (char) 1);
+		memory.writeUnsigned16(2, (char) 0x1234);
+		assertEquals(SnapshotMemory.PAGE_SIZE, memory.getSnapshotBytes());
+
+		// a word write across a page boundary saves both pages
+		memory.writeUnsigned16(2 * SnapshotMemory.PAGE_SIZE - 1, (char) 0xffff);
+		assertEquals(3 * SnapshotMemory.PAGE_SIZE, memory.getSnapshotBytes());
+
+		// the last page is only partially tracked
+		memory.copyBytesFromArray(new byte[] { 5 }, 0, TRACKED_SIZE - 1, 1);
+		assertEquals(TRACKED_SIZE, memory.getSnapshotBytes());
+
+		// writes outside of the tracked region are not saved
+		memory.writeUnsigned8(TRACKED_SIZE, (char) 7);
+		assertEquals(TRACKED_SIZE, memory.getSnapshotBytes());
+	}
+
+	@Test
+	public void testRestoreSnapshots() {
+		memory.writeUnsigned16(0, (char) 1);
+		memory.takeSnapshot();
+		memory.writeUnsigned16(0, (char) 2);
+		memory.takeSnapshot();
+		memory.writeUnsigned16(0, (char) 3);
+		memory.copyArea(0, SnapshotMemory.PAGE_SIZE, 2);
+		memory.copyBytesFromMemory(new DefaultMemory(new byte[] { 9 }), 0, 2 * SnapshotMemory.PAGE_SIZE, 1);
+
+		assertTrue(memory.restoreSnapshot());
+		assertEquals(1, memory.getNumSnapshots());
+		assertEquals(2, memory.readUnsigned16(0));
+		assertEquals(0, memory.readUnsigned16(SnapshotMemory.PAGE_SIZE));
+		assertEquals(0, memory.readUnsigned8(2 * SnapshotMemory.PAGE_SIZE));
+
+		// writing after a restore continues with the previous snapshot
+		memory.writeUnsigned16(SnapshotMemory.PAGE_SIZE, (char) 4);
+		assertTrue(memory.restoreSnapshot());
+		assertEquals(1, memory.readUnsigned16(0));
+		assertEquals(0, memory.readUnsigned16(SnapshotMemory.PAGE_SIZE));
+		assertEquals(0, memory.getSnapshotBytes());
+		assertFalse(memory.restoreSnapshot());
+	}
+
+	@Test
+	public void testDiscardOldestSnapshot() {
+		memory.takeSnapshot();
+		memory.writeUnsigned8(0, (char) 1);
+		memory.takeSnapshot();
+		memory.writeUnsigned8(SnapshotMemory.PAGE_SIZE, (char) 2);
+		memory.discardOldestSnapshot();
+		assertEquals(1, memory.getNumSnapshots());
+		assertEquals(SnapshotMemory.PAGE_SIZE, memory.getSnapshotBytes());
+
+		assertTrue(memory.restoreSnapshot());
+		assertEquals(1, memory.readUnsigned8(0));
+		assertEquals(0, memory.readUnsigned8(SnapshotMemory.PAGE_SIZE));
+	}
+
+	@Test
+	public void testClearSnapshots() {
+		memory.takeSnapshot();
+		memory.writeUnsigned8(0, (char) 1);
+		memory.clearSnapshots();
+		assertEquals(0, memory.getNumSnapshots());
+		assertEquals(0, memory.getSnapshotBytes());
+		assertFalse(memory.restoreSnapshot());
+		assertEquals(1, memory.readUnsigned8(0));
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.base;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.base.DefaultMemory;
+import org.zmpp.base.Memory;
+import org.zmpp.base.StoryFileHeader;
+import org.zmpp.base.StoryImages;
+import org.zmpp.vm.Machine;
+import org.zmpp.vm.MachineImpl;
+import org.zmpp.vmutil.FileUtils;
+
+import test.zmpp.testutil.TestUtil;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for StoryImages.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class StoryImagesTest {
+
+	private static int release = 0x7f00;
+	private byte[] data;
+
+	@Before
+	public void setUp() throws Exception {
+		data = FileUtils.readFileBytes(TestUtil.loadResource("curses.z5"));
+		// make the story distinct from the ones other tests use
+		release++;
+		data[StoryFileHeader.RELEASE] = (byte) (release >> 8);
+		data[StoryFileHeader.RELEASE + 1] = (byte) release;
+	}
+
+	@Test
+	public void testSharedImage() {
+		Memory image1 = StoryImages.acquire(new DefaultMemory(data.clone()));
+		Memory image2 = StoryImages.acquire(new DefaultMemory(data.clone()));
+		assertSame(image1, image2);
+		assertEquals(2, StoryImages.getReferenceCount(image1));
+
+		StoryImages.release(image1);
+		assertEquals(1, StoryImages.getReferenceCount(image1));
+		StoryImages.release(image2);
+		assertEquals(0, StoryImages.getReferenceCount(image1));
+
+		// a new image is registered once all references are released
+		Memory image3 = StoryImages.acquire(new DefaultMemory(data.clone()));
+		assertNotSame(image1, image3);
+		StoryImages.release(image3);
+	}
+
+	@Test
+	public void testDifferentStories() {
+		byte[] other = data.clone();
+		other[StoryFileHeader.CHECKSUM] ^= 0xff;
+		Memory image1 = StoryImages.acquire(new DefaultMemory(data));
+		Memory image2 = StoryImages.acquire(new DefaultMemory(other));
+		assertNotSame(image1, image2);
+		assertEquals(1, StoryImages.getReferenceCount(image1));
+		assertEquals(1, StoryImages.getReferenceCount(image2));
+		StoryImages.release(image1);
+		StoryImages.release(image2);
+	}
+
+	@Test
+	public void testMachinesShareImage() {
+		Memory image = StoryImages.acquire(new DefaultMemory(data.clone()));
+		Machine machine1 = new MachineImpl();
+		machine1.initialize(data.clone(), null);
+		Machine machine2 = new MachineImpl();
+		machine2.initialize(data.clone(), null);
+		assertEquals(3, StoryImages.getReferenceCount(image));
+
+		// dynamic memory is private to each machine
+		int globals = machine1.readUnsigned16(StoryFileHeader.GLOBALS);
+		machine1.writeUnsigned16(globals, (char) 4711);
+		assertEquals(4711, machine1.readUnsigned16(globals));
+		assertFalse(machine2.readUnsigned16(globals) == 4711);
+
+		machine1.initialize(data.clone(), null);
+		assertEquals(3, StoryImages.getReferenceCount(image));
+		StoryImages.release(image);
+	}
+
+	@Test
+	public void testSameHeaderDifferentContents() {
+		byte[] patched = data.clone();
+		patched[patched.length / 2] ^= 0xff;
+		Memory image1 = StoryImages.acquire(new DefaultMemory(data));
+		Memory image2 = StoryImages.acquire(new DefaultMemory(patched));
+		assertNotSame(image1, image2);
+		assertEquals(1, StoryImages.getReferenceCount(image1));
+		StoryImages.release(image2);
+		assertEquals(1, StoryImages.getReferenceCount(image1));
+		StoryImages.release(image1);
+	}
+
+	@Test
+	public void testCloseReleasesImage() {
+		Memory image = StoryImages.acquire(new DefaultMemory(data.clone()));
+		Machine machine = new MachineImpl();
+		machine.initialize(data.clone(), null);
+		assertEquals(2, StoryImages.getReferenceCount(image));
+		machine.close();
+		assertEquals(1, StoryImages.getReferenceCount(image));
+		machine.close();
+		assertEquals(1, StoryImages.getReferenceCount(image));
+		StoryImages.release(image);
+	}
+
+	@Test
+	public void testHeaderLengthBeyondData() {
+		// the header specifies more bytes than the file contains
+		byte[] truncated = Arrays.copyOf(data, data.length - 100);
+		Memory image1 = StoryImages.acquire(new DefaultMemory(truncated.clone()));
+		Memory image2 = StoryImages.acquire(new DefaultMemory(truncated.clone()));
+		assertSame(image1, image2);
+		StoryImages.release(image1);
+		StoryImages.release(image2);
+	}
+
+	@Test
+	public void testUnspecifiedLength() {
+		data[0x1a] = 0;
+		data[0x1b] = 0;
+		byte[] patched = data.clone();
+		patched[patched.length / 2] ^= 0xff;
+		Memory image1 = StoryImages.acquire(new DefaultMemory(data.clone()));
+		Memory image2 = StoryImages.acquire(new DefaultMemory(data.clone()));
+		Memory image3 = StoryImages.acquire(new DefaultMemory(patched));
+		assertSame(image1, image2);
+		assertNotSame(image1, image3);
+		assertEquals(2, StoryImages.getReferenceCount(image1));
+		StoryImages.release(image1);
+		StoryImages.release(image2);
+		StoryImages.release(image3);
+	}
+}
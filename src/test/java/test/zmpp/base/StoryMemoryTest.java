@@ -0,0 +1,113 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.base;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.base.DefaultMemory;
+import org.zmpp.base.MappedMemory;
+import org.zmpp.base.StoryMemory;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for StoryMemory.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class StoryMemoryTest {
+
+	private StoryMemory memory;
+	private byte[] image = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06 };
+	private byte[] dynamic = { 0x11, 0x12, 0x13 };
+
+	@Before
+	public void setUp() throws Exception {
+		memory = new StoryMemory(new DefaultMemory(dynamic), 3,
+				new MappedMemory(ByteBuffer.wrap(image).asReadOnlyBuffer()));
+	}
+
+	@Test
+	public void testReadRoutesByAddress() {
+		assertEquals(0x11, memory.readUnsigned8(0));
+		assertEquals(0x04, memory.readUnsigned8(3));
+		assertEquals(0x1112, memory.readUnsigned16(0));
+		assertEquals(0x0405, memory.readUnsigned16(3));
+		// spans both segments
+		assertEquals(0x1304, memory.readUnsigned16(2));
+	}
+
+	@Test
+	public void testCopyBytesToArray() {
+		byte[] dst = new byte[4];
+		memory.copyBytesToArray(dst, 0, 1, 4);
+		assertArrayEquals(new byte[] { 0x12, 0x13, 0x04, 0x05 }, dst);
+		memory.copyBytesToArray(dst, 0, 4, 2);
+		assertEquals(0x05, dst[0]);
+		assertEquals(0x06, dst[1]);
+	}
+
+	@Test
+	public void testWriteDynamic() {
+		memory.writeUnsigned16(1, (char) 0xabcd);
+		assertEquals(0xabcd, memory.readUnsigned16(1));
+		assertEquals((byte) 0xab, dynamic[1]);
+		memory.copyArea(3, 0, 2);
+		assertEquals(0x0405, memory.readUnsigned16(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWriteStaticIsRejected() {
+		memory.writeUnsigned16(2, (char) 1);
+	}
+
+	@Test
+	public void testRejectedWriteLeavesMemoryUnchanged() {
+		try {
+			memory.writeUnsigned8(4, (char) 0xff);
+			fail("static write accepted");
+		} catch (IllegalArgumentException expected) {
+			// the standard forbids the write, the shared image is kept intact
+		}
+		assertEquals(0x05, memory.readUnsigned8(4));
+		assertEquals(0x05, image[4]);
+	}
+
+	@Test
+	public void testReadArrayBackedImage() {
+		memory = new StoryMemory(new DefaultMemory(dynamic), 3, new DefaultMemory(image));
+		assertEquals(0x11, memory.readUnsigned8(0));
+		assertEquals(0x06, memory.readUnsigned8(5));
+		assertEquals(0x1213, memory.readUnsigned16(1));
+		assertEquals(0x0506, memory.readUnsigned16(4));
+		assertEquals(0x1304, memory.readUnsigned16(2));
+	}
+}
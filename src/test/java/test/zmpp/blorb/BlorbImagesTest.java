@@ -0,0 +1,153 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.blorb;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.base.DefaultMemory;
+import org.zmpp.blorb.BlorbImage;
+import org.zmpp.blorb.BlorbImages;
+import org.zmpp.blorb.NativeImage;
+import org.zmpp.blorb.NativeImageFactory;
+import org.zmpp.iff.DefaultFormChunk;
+import org.zmpp.iff.FormChunk;
+import org.zmpp.media.Resolution;
+import org.zmpp.vmutil.FileUtils;
+
+import test.zmpp.testutil.TestUtil;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the on demand decoding of Blorb pictures.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class BlorbImagesTest {
+
+	/**
+	 * Counts the decoded images.
+	 */
+	static class CountingImageFactory implements NativeImageFactory {
+		int numDecoded;
+
+		/** {@inheritDoc} */
+		public NativeImage createImage(InputStream inputStream) throws IOException {
+			numDecoded++;
+			final BufferedImage image = ImageIO.read(inputStream);
+			return new NativeImage() {
+				public int getWidth() {
+					return image.getWidth();
+				}
+
+				public int getHeight() {
+					return image.getHeight();
+				}
+			};
+		}
+	}
+
+	private FormChunk formchunk;
+	private CountingImageFactory imageFactory;
+
+	@Before
+	public void setUp() throws Exception {
+		byte[] data = FileUtils.readFileBytes(TestUtil.loadResource("Journey.blb"));
+		formchunk = new DefaultFormChunk(new DefaultMemory(data));
+		imageFactory = new CountingImageFactory();
+	}
+
+	@Test
+	public void testNoDecodingOnLoad() {
+		BlorbImages images = new BlorbImages(imageFactory, formchunk);
+		assertTrue(images.getNumResources() > 0);
+		for (int i = 0; i < images.getNumResources(); i++) {
+			images.getResource(images.getResourceNumber(i)).getSize(640, 480);
+		}
+		assertEquals(0, imageFactory.numDecoded);
+		assertEquals(0, images.getCacheSize());
+	}
+
+	@Test
+	public void testSizeMatchesDecodedImage() {
+		BlorbImages images = new BlorbImages(imageFactory, formchunk);
+		for (int i = 0; i < images.getNumResources(); i++) {
+			BlorbImage image = images.getResource(images.getResourceNumber(i));
+			// Journey's standard resolution is 320x200 with a 1/1 ratio for
+			// all pictures, so this is the unscaled size
+			Resolution size = image.getSize(320, 200);
+			assertEquals(image.getImage().getWidth(), size.getWidth());
+			assertEquals(image.getImage().getHeight(), size.getHeight());
+		}
+	}
+
+	@Test
+	public void testDecodeIsCached() {
+		BlorbImages images = new BlorbImages(imageFactory, formchunk);
+		BlorbImage image = images.getResource(images.getResourceNumber(0));
+		NativeImage decoded = image.getImage();
+		assertSame(decoded, image.getImage());
+		assertEquals(1, imageFactory.numDecoded);
+		assertEquals(decoded.getWidth() * decoded.getHeight() * 4, images.getCacheSize());
+
+		images.unloadResource(images.getResourceNumber(0));
+		assertEquals(0, images.getCacheSize());
+		image.getImage();
+		assertEquals(2, imageFactory.numDecoded);
+	}
+
+	@Test
+	public void testLoadResource() {
+		BlorbImages images = new BlorbImages(imageFactory, formchunk);
+		images.loadResource(images.getResourceNumber(0));
+		assertEquals(1, imageFactory.numDecoded);
+		images.getResource(images.getResourceNumber(0)).getImage();
+		assertEquals(1, imageFactory.numDecoded);
+	}
+
+	@Test
+	public void testEviction() {
+		// room for a single image only
+		BlorbImages images = new BlorbImages(imageFactory, formchunk, 1);
+		BlorbImage image0 = images.getResource(images.getResourceNumber(0));
+		BlorbImage image1 = images.getResource(images.getResourceNumber(1));
+		image0.getImage();
+		image1.getImage();
+		image1.getImage();
+		assertEquals(2, imageFactory.numDecoded);
+		image0.getImage();
+		assertEquals(3, imageFactory.numDecoded);
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.blorb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.base.DefaultMemory;
+import org.zmpp.blorb.BlorbSounds;
+import org.zmpp.blorb.SoundEffectFactory;
+import org.zmpp.iff.Chunk;
+import org.zmpp.iff.DefaultFormChunk;
+import org.zmpp.iff.FormChunk;
+import org.zmpp.media.SoundEffect;
+import org.zmpp.media.SoundStopListener;
+import org.zmpp.vmutil.FileUtils;
+
+import test.zmpp.testutil.TestUtil;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the on demand creation of Blorb sounds.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class BlorbSoundsTest {
+
+	/**
+	 * A sound effect that records whether it was released.
+	 */
+	static class TestSoundEffect implements SoundEffect {
+		boolean released;
+
+		/** {@inheritDoc} */
+		public void play(int number, int volume) {
+		}
+
+		/** {@inheritDoc} */
+		public void stop() {
+		}
+
+		/** {@inheritDoc} */
+		public void release() {
+			released = true;
+		}
+
+		/** {@inheritDoc} */
+		public void addSoundStopListener(SoundStopListener l) {
+		}
+
+		/** {@inheritDoc} */
+		public void removeSoundStopListener(SoundStopListener l) {
+		}
+	}
+
+	/**
+	 * Records the created sound effects.
+	 */
+	static class CountingSoundEffectFactory implements SoundEffectFactory {
+		List<TestSoundEffect> created = new ArrayList<TestSoundEffect>();
+
+		/** {@inheritDoc} */
+		public SoundEffect createSoundEffect(Chunk chunk) throws IOException {
+			TestSoundEffect sound = new TestSoundEffect();
+			created.add(sound);
+			return sound;
+		}
+	}
+
+	private FormChunk formchunk;
+	private CountingSoundEffectFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		byte[] data = FileUtils.readFileBytes(TestUtil.loadResource("Lurking.blb"));
+		formchunk = new DefaultFormChunk(new DefaultMemory(data));
+		factory = new CountingSoundEffectFactory();
+	}
+
+	@Test
+	public void testNoSoundsCreatedOnLoad() {
+		BlorbSounds sounds = new BlorbSounds(factory, formchunk);
+		assertTrue(sounds.getNumResources() > 0);
+		assertEquals(0, factory.created.size());
+		assertEquals(0, sounds.getCacheSize());
+	}
+
+	@Test
+	public void testSoundIsCached() {
+		BlorbSounds sounds = new BlorbSounds(factory, formchunk);
+		int resnum = sounds.getResourceNumber(0);
+		SoundEffect sound = sounds.getResource(resnum);
+		assertNotNull(sound);
+		assertSame(sound, sounds.getResource(resnum));
+		assertEquals(1, factory.created.size());
+		assertTrue(sounds.getCacheSize() > 0);
+		assertNull(sounds.getResource(4711));
+	}
+
+	@Test
+	public void testLoadAndUnload() {
+		BlorbSounds sounds = new BlorbSounds(factory, formchunk);
+		int resnum = sounds.getResourceNumber(0);
+		sounds.loadResource(resnum);
+		assertEquals(1, factory.created.size());
+		sounds.getResource(resnum);
+		assertEquals(1, factory.created.size());
+		sounds.unloadResource(resnum);
+		assertTrue(factory.created.get(0).released);
+		assertEquals(0, sounds.getCacheSize());
+		assertNotSame(factory.created.get(0), sounds.getResource(resnum));
+	}
+
+	@Test
+	public void testCacheSizeIsBounded() {
+		// the cache only holds a single sound of Lurking.blb
+		BlorbSounds sounds = new BlorbSounds(factory, formchunk, 1);
+		for (int i = 0; i < sounds.getNumResources(); i++) {
+			sounds.getResource(sounds.getResourceNumber(i));
+		}
+		int numCreated = factory.created.size();
+		assertEquals(sounds.getNumResources(), numCreated);
+		for (int i = 0; i < numCreated - 1; i++) {
+			assertTrue(factory.created.get(i).released);
+		}
+		assertFalse(factory.created.get(numCreated - 1).released);
+	}
+
+	@Test
+	public void testClearReleasesSounds() {
+		BlorbSounds sounds = new BlorbSounds(factory, formchunk);
+		sounds.getResource(sounds.getResourceNumber(0));
+		sounds.clear();
+		assertTrue(factory.created.get(0).released);
+		assertEquals(0, sounds.getNumResources());
+		assertEquals(0, sounds.getCacheSize());
+	}
+}
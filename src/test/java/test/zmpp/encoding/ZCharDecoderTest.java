@@ -53,6 +53,7 @@ import org.zmpp.encoding.DefaultZCharDecoder;
 import org.zmpp.encoding.DefaultZCharTranslator;
 import org.zmpp.encoding.ZCharDecoder;
 import org.zmpp.encoding.ZCharDecoder.AbbreviationsTable;
+import org.zmpp.encoding.ZCharDecoder.ZsciiSink;
 import org.zmpp.encoding.ZCharTranslator;
 import org.zmpp.encoding.ZsciiEncoding;
 import org.zmpp.vm.Abbreviations;
@@ -125,6 +126,21 @@ public class ZCharDecoderTest {
 		ZCharDecoder dec = new DefaultZCharDecoder(encoding, translator, abbr);
 		assertEquals("The Great Underground Empire", dec.decode2Zscii(mem, 0xc120, 0).toString());
 		assertEquals("[I don't understand that sentence.]", dec.decode2Zscii(mem, 0x3e6d, 0).toString());
+
+		// decoding into a sink yields the same characters, abbreviations
+		// included
+		final StringBuilder builder = new StringBuilder();
+		ZsciiSink sink = new ZsciiSink() {
+			public void append(char zsciiChar) {
+				builder.append(zsciiChar);
+			}
+		};
+		dec.decode(mem, 0xc120, 0, sink);
+		assertEquals("The Great Underground Empire", builder.toString());
+		builder.setLength(0);
+		dec.decode(mem, 0x3e6d, 0, sink);
+		dec.decode(mem, 0x3e6d, 0, sink);
+		assertEquals("[I don't understand that sentence.][I don't understand that sentence.]", builder.toString());
 	}
 
 	/**
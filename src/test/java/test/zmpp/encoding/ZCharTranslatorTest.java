@@ -209,6 +209,16 @@ public class ZCharTranslatorTest {
 		assertEquals(7, newline.getZCharCode());
 	}
 
+	@Test
+	public void testGetAlphabetCode() {
+		assertEquals(Alphabet.A0.ordinal() << 5 | 8, translator.getAlphabetCodeFor('c'));
+		assertEquals(Alphabet.A1.ordinal() << 5 | 8, translator.getAlphabetCodeFor('C'));
+		assertEquals(Alphabet.A2.ordinal() << 5 | 23, translator.getAlphabetCodeFor('#'));
+		assertEquals(Alphabet.A2.ordinal() << 5 | 7, translator.getAlphabetCodeFor('\n'));
+		assertEquals(-1, translator.getAlphabetCodeFor('@'));
+		assertEquals(-1, translator.getAlphabetCodeFor((char) 0x152));
+	}
+
 	// **********************************************************************
 	// ***** Shifting in V2
 	// ******************************************
@@ -107,6 +107,17 @@ public class ZsciiEncodingTest {
 		assertEquals(0, encoding.getZsciiChar('\07'));
 	}
 
+	@Test
+	public void testGetZCharAccents() {
+		assertEquals(155, encoding.getZsciiChar('\u00e4'));
+		assertEquals(221, encoding.getZsciiChar('\u0152'));
+		assertEquals(ZsciiEncoding.NEWLINE, encoding.getZsciiChar('\n'));
+		assertEquals(0, encoding.getZsciiChar('\u0151'));
+		assertEquals(0, encoding.getZsciiChar('\u20ac'));
+		assertEquals("h\u00e4\u0153", encoding.getUnicodeChar('h') + "" + encoding.getUnicodeChar((char) 155)
+				+ encoding.getUnicodeChar((char) 220));
+	}
+
 	@Test
 	public void testIsCursorKey() {
 		assertTrue(ZsciiEncoding.isCursorKey(ZsciiEncoding.CURSOR_UP));
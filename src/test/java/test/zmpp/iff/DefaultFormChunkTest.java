@@ -27,9 +27,12 @@
  */
 package test.zmpp.iff;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -130,4 +133,94 @@ public class DefaultFormChunkTest {
 		assertEquals("Stks", new String(formChunk.getSubChunk(0x018a).getId()));
 		assertNull(formChunk.getSubChunk(0x1234));
 	}
+
+	@Test
+	public void testGetSubChunkWithIllegalId() {
+		assertNull(formChunk.getSubChunk("IFh"));
+		assertNull(formChunk.getSubChunk("IFhdx"));
+		assertNull(formChunk.getSubChunk((String) null));
+	}
+
+	@Test
+	public void testReadFromChannel() throws Exception {
+		RandomAccessFile saveFile = new RandomAccessFile(TestUtil.loadResource("leathersave.ifzs"), "r");
+		FormChunk channelChunk = new DefaultFormChunk(saveFile.getChannel());
+		saveFile.close();
+		assertEquals("FORM", channelChunk.getId());
+		assertEquals("IFZS", channelChunk.getSubId());
+		assertEquals(512, channelChunk.getSize());
+		assertSameSubChunks(formChunk, channelChunk);
+	}
+
+	@Test
+	public void testReadBlorbFromChannel() throws Exception {
+		RandomAccessFile blorbFile = new RandomAccessFile(TestUtil.loadResource("Journey.blb"), "r");
+		byte[] data = new byte[(int) blorbFile.length()];
+		blorbFile.readFully(data);
+		FormChunk memoryChunk = new DefaultFormChunk(new DefaultMemory(data));
+		blorbFile.seek(0);
+		FormChunk channelChunk = new DefaultFormChunk(blorbFile.getChannel());
+		blorbFile.close();
+		assertEquals("IFRS", channelChunk.getSubId());
+		assertSameSubChunks(memoryChunk, channelChunk);
+	}
+
+	@Test
+	public void testInvalidIffChannel() throws Exception {
+		File file = File.createTempFile("zmpp", ".iff");
+		file.deleteOnExit();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.write(new byte[] { 'F', 'O', 'R', 'M' });
+			new DefaultFormChunk(raf.getChannel());
+			fail("IOException should be thrown on a truncated IFF file");
+		} catch (IOException expected) {
+			assertTrue(expected.getMessage() != null);
+		} finally {
+			raf.close();
+		}
+	}
+
+	@Test
+	public void testTruncatedFileFromChannel() throws Exception {
+		RandomAccessFile blorbFile = new RandomAccessFile(TestUtil.loadResource("Journey.blb"), "r");
+		byte[] data = new byte[(int) blorbFile.length() / 2];
+		blorbFile.readFully(data);
+		blorbFile.close();
+		File file = File.createTempFile("zmpp", ".blb");
+		file.deleteOnExit();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.write(data);
+			raf.seek(0);
+			// the form header specifies more data than the file contains
+			FormChunk channelChunk = new DefaultFormChunk(raf.getChannel());
+			Iterator<Chunk> iter = channelChunk.getSubChunks();
+			assertTrue(iter.hasNext());
+			while (iter.hasNext()) {
+				assertTrue(iter.next().getAddress() + Chunk.CHUNK_HEADER_LENGTH <= data.length);
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void assertSameSubChunks(FormChunk expected, FormChunk actual) {
+		Iterator<Chunk> expectedIter = expected.getSubChunks();
+		Iterator<Chunk> actualIter = actual.getSubChunks();
+		while (expectedIter.hasNext()) {
+			Chunk expectedChunk = expectedIter.next();
+			Chunk actualChunk = actualIter.next();
+			assertEquals(expectedChunk.getId(), actualChunk.getId());
+			assertEquals(expectedChunk.getSize(), actualChunk.getSize());
+			assertEquals(expectedChunk.getAddress(), actualChunk.getAddress());
+			assertSame(actualChunk, actual.getSubChunk(actualChunk.getAddress()));
+			byte[] expectedData = new byte[expectedChunk.getSize()];
+			byte[] actualData = new byte[actualChunk.getSize()];
+			expectedChunk.getMemory().copyBytesToArray(expectedData, 0, Chunk.CHUNK_HEADER_LENGTH, expectedData.length);
+			actualChunk.getMemory().copyBytesToArray(actualData, 0, Chunk.CHUNK_HEADER_LENGTH, actualData.length);
+			assertArrayEquals(expectedData, actualData);
+		}
+		assertFalse(actualIter.hasNext());
+	}
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.iff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.base.DefaultMemory;
+import org.zmpp.iff.DefaultChunk;
+import org.zmpp.iff.DefaultFormChunk;
+import org.zmpp.iff.FormChunk;
+import org.zmpp.iff.IffWriter;
+import org.zmpp.iff.WritableFormChunk;
+
+/**
+ * Test class for IffWriter.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class IffWriterTest {
+
+	private WritableFormChunk formChunk;
+
+	@Before
+	public void setUp() throws Exception {
+		formChunk = new WritableFormChunk("IFZS".getBytes());
+		formChunk.addChunk(new DefaultChunk("IFhd".getBytes(), new byte[] { 1, 2, 3 }));
+		formChunk.addChunk(new DefaultChunk("Stks".getBytes(), new byte[] { 4, 5, 6, 7 }));
+	}
+
+	@Test
+	public void testWriteToStream() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long numWritten = new IffWriter(Channels.newChannel(out)).write(formChunk);
+		byte[] expected = { 'F', 'O', 'R', 'M', 0, 0, 0, 28, 'I', 'F', 'Z', 'S',
+				'I', 'F', 'h', 'd', 0, 0, 0, 3, 1, 2, 3, 0,
+				'S', 't', 'k', 's', 0, 0, 0, 4, 4, 5, 6, 7 };
+		assertEquals(expected.length, numWritten);
+		assertTrue(Arrays.equals(expected, out.toByteArray()));
+		assertTrue(Arrays.equals(expected, formChunk.getBytes()));
+	}
+
+	@Test
+	public void testWriteReadChunksToFile() throws Exception {
+		// chunks read from a file are sections of the file's memory
+		FormChunk readChunk = new DefaultFormChunk(new DefaultMemory(formChunk.getBytes()));
+		WritableFormChunk copy = new WritableFormChunk("IFZS".getBytes());
+		copy.addChunk(readChunk.getSubChunk("IFhd"));
+		copy.addChunk(readChunk.getSubChunk("Stks"));
+
+		File file = File.createTempFile("zmpp", ".sav");
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				copy.writeTo(out.getChannel());
+			} finally {
+				out.close();
+			}
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			byte[] data = new byte[(int) raf.length()];
+			raf.readFully(data);
+			raf.close();
+			assertTrue(Arrays.equals(formChunk.getBytes(), data));
+		} finally {
+			file.delete();
+		}
+	}
+}
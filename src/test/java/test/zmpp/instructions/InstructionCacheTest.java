@@ -0,0 +1,99 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.instructions;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.base.StoryFileHeader;
+import org.zmpp.instructions.InstructionCache;
+import org.zmpp.instructions.InstructionDecoder;
+import org.zmpp.vm.Instruction;
+
+import test.zmpp.vm.MiniZorkSetup;
+
+/**
+ * Test class for InstructionCache.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class InstructionCacheTest extends MiniZorkSetup {
+
+	private InstructionCache cache;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		InstructionDecoder decoder = new InstructionDecoder();
+		decoder.initialize(machine);
+		cache = new InstructionCache(decoder, machine.readUnsigned16(StoryFileHeader.STATIC_MEM));
+		machine.addMemoryWriteListener(cache);
+	}
+
+	@Test
+	public void testStaticInstructionIsCached() {
+		Instruction instr = cache.getInstruction(0x37d9);
+		assertEquals(9, instr.getLength());
+		assertSame(instr, cache.getInstruction(0x37d9));
+	}
+
+	@Test
+	public void testStaticInstructionSurvivesDynamicWrite() {
+		Instruction instr = cache.getInstruction(0x3773);
+		machine.writeUnsigned16(0x100, (char) 0x1234);
+		assertSame(instr, cache.getInstruction(0x3773));
+	}
+
+	@Test
+	public void testDynamicInstructionIsInvalidated() {
+		// rtrue in dynamic memory
+		machine.writeUnsigned8(0x100, (char) 0xb0);
+		Instruction rtrue = cache.getInstruction(0x100);
+		assertEquals("RTRUE", rtrue.toString().trim());
+		assertSame(rtrue, cache.getInstruction(0x100));
+
+		// writes outside the cached code do not invalidate
+		machine.writeUnsigned8(0x200, (char) 0);
+		assertSame(rtrue, cache.getInstruction(0x100));
+
+		// overwrite with rfalse
+		machine.writeUnsigned8(0x100, (char) 0xb1);
+		assertEquals("RFALSE", cache.getInstruction(0x100).toString().trim());
+	}
+
+	@Test
+	public void testClear() {
+		Instruction instr = cache.getInstruction(0x3788);
+		cache.clear();
+		assertNotSame(instr, cache.getInstruction(0x3788));
+	}
+}
@@ -28,7 +28,10 @@
  */
 package test.zmpp.io;
 
+import static org.junit.Assert.assertEquals;
+
 import java.io.FileWriter;
+import java.io.StringWriter;
 import java.io.Writer;
 
 import org.jmock.Expectations;
@@ -85,4 +88,20 @@ public class FileOutputStreamTest {
 		outstream.print('b');
 		outstream.print(ZsciiEncoding.NEWLINE);
 	}
+
+	@Test
+	public void testLinesWrittenAtClose() {
+		final StringWriter transcript = new StringWriter();
+		context.checking(new Expectations() {
+			{
+				one(iosys).getTranscriptWriter();
+				will(returnValue(transcript));
+			}
+		});
+		outstream.print(new char[] { 'a', 'b', 'c', ZsciiEncoding.NEWLINE, 'd', 'x', ZsciiEncoding.DELETE }, 0, 7);
+		outstream.flush();
+		outstream.print('e');
+		outstream.close();
+		assertEquals("abc\nde", transcript.toString());
+	}
 }
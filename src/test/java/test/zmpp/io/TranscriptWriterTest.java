@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+import org.zmpp.io.TranscriptWriter;
+
+/**
+ * Test class for TranscriptWriter.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class TranscriptWriterTest {
+
+	@Test
+	public void testCloseWritesPending() {
+		StringWriter target = new StringWriter();
+		TranscriptWriter writer = new TranscriptWriter(target);
+		writer.write("first line\n");
+		writer.write("second line\n");
+		writer.close();
+		assertEquals("first line\nsecond line\n", target.toString());
+		assertEquals(0, writer.getNumPending());
+	}
+
+	@Test
+	public void testFullQueueKeepsAllText() {
+		StringWriter target = new StringWriter();
+		TranscriptWriter writer = new TranscriptWriter(target, 2, 10);
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			writer.write(i + "\n");
+			expected.append(i).append('\n');
+		}
+		writer.close();
+		assertEquals(expected.toString(), target.toString());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testWriteAfterClose() {
+		TranscriptWriter writer = new TranscriptWriter(new StringWriter());
+		writer.close();
+		writer.write("late");
+	}
+}
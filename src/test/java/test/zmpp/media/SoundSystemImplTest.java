@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.media;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.media.HeadlessSoundEffect;
+import org.zmpp.media.LurkingHorrorSoundSystem;
+import org.zmpp.media.MediaCollection;
+import org.zmpp.media.SoundEffect;
+import org.zmpp.media.SoundScheduler;
+import org.zmpp.media.SoundSystem;
+import org.zmpp.media.SoundSystemImpl;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the sound system with headless sounds.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class SoundSystemImplTest {
+
+	private static final long TIMEOUT = 5000;
+
+	/**
+	 * A collection of headless sounds.
+	 */
+	static class HeadlessSounds implements MediaCollection<SoundEffect> {
+		Map<Integer, HeadlessSoundEffect> sounds = new HashMap<Integer, HeadlessSoundEffect>();
+
+		/** {@inheritDoc} */
+		public void clear() {
+			sounds.clear();
+		}
+
+		/** {@inheritDoc} */
+		public SoundEffect getResource(int number) {
+			return sounds.get(number);
+		}
+
+		/** {@inheritDoc} */
+		public void loadResource(int number) {
+		}
+
+		/** {@inheritDoc} */
+		public void unloadResource(int number) {
+		}
+
+		/** {@inheritDoc} */
+		public int getNumResources() {
+			return sounds.size();
+		}
+	}
+
+	private SoundScheduler scheduler;
+	private HeadlessSounds sounds;
+	private HeadlessSoundEffect shortSound;
+	private HeadlessSoundEffect longSound;
+
+	@Before
+	public void setUp() {
+		scheduler = new SoundScheduler(1);
+		sounds = new HeadlessSounds();
+		shortSound = new HeadlessSoundEffect(10, scheduler);
+		longSound = new HeadlessSoundEffect(60000, scheduler);
+		sounds.sounds.put(3, shortSound);
+		sounds.sounds.put(4, longSound);
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.shutdown();
+	}
+
+	/**
+	 * Waits for the next interrupt routine of the sound system.
+	 * 
+	 * @param soundSystem
+	 *            the sound system
+	 * @return the routine or 0 if none was queued before the timeout
+	 */
+	private int waitForInterrupt(SoundSystem soundSystem) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		int routine;
+		while ((routine = soundSystem.nextInterruptRoutine()) == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		return routine;
+	}
+
+	/**
+	 * Waits until the specified sound was started the specified number of
+	 * times.
+	 */
+	private void waitForPlays(HeadlessSoundEffect sound, int numPlays) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (sound.getNumPlays() < numPlays && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(numPlays, sound.getNumPlays());
+	}
+
+	@Test
+	public void testFinishedSoundQueuesInterrupt() throws Exception {
+		SoundSystem soundSystem = new SoundSystemImpl(sounds, scheduler);
+		assertEquals(0, soundSystem.nextInterruptRoutine());
+		soundSystem.play(3, SoundSystem.EFFECT_START, SoundSystem.VOLUME_DEFAULT, 2, 0x1234);
+		assertEquals(0x1234, waitForInterrupt(soundSystem));
+		assertEquals(0, soundSystem.nextInterruptRoutine());
+		assertFalse(shortSound.isPlaying());
+	}
+
+	@Test
+	public void testStoppedSoundQueuesNoInterrupt() throws Exception {
+		SoundSystem soundSystem = new SoundSystemImpl(sounds, scheduler);
+		soundSystem.play(4, SoundSystem.EFFECT_START, SoundSystem.VOLUME_DEFAULT, 1, 0x1234);
+		waitForPlays(longSound, 1);
+		soundSystem.play(4, SoundSystem.EFFECT_STOP, SoundSystem.VOLUME_DEFAULT, 1, 0);
+		assertFalse(longSound.isPlaying());
+		assertEquals(0, soundSystem.nextInterruptRoutine());
+	}
+
+	@Test
+	public void testStartStopsPreviousSound() throws Exception {
+		SoundSystem soundSystem = new SoundSystemImpl(sounds, scheduler);
+		soundSystem.play(4, SoundSystem.EFFECT_START, SoundSystem.VOLUME_DEFAULT, 1, 0);
+		waitForPlays(longSound, 1);
+		soundSystem.play(3, SoundSystem.EFFECT_START, SoundSystem.VOLUME_DEFAULT, 1, 0x42);
+		assertFalse(longSound.isPlaying());
+		assertEquals(0x42, waitForInterrupt(soundSystem));
+	}
+
+	@Test
+	public void testLurkingHorrorWaitsForPreviousSound() throws Exception {
+		SoundSystem soundSystem = new LurkingHorrorSoundSystem(sounds);
+		soundSystem.play(3, SoundSystem.EFFECT_START, SoundSystem.VOLUME_DEFAULT, 3, 0);
+		soundSystem.play(3, SoundSystem.EFFECT_START, SoundSystem.VOLUME_DEFAULT, 1, 0x42);
+		assertEquals(0x42, waitForInterrupt(soundSystem));
+		assertEquals(2, shortSound.getNumPlays());
+	}
+
+	@Test
+	public void testResetStopsSoundAndClearsInterrupts() throws Exception {
+		SoundSystem soundSystem = new SoundSystemImpl(sounds, scheduler);
+		soundSystem.play(3, SoundSystem.EFFECT_START, SoundSystem.VOLUME_DEFAULT, 1, 0x42);
+		waitForPlays(shortSound, 1);
+		Thread.sleep(100);
+		soundSystem.play(4, SoundSystem.EFFECT_START, SoundSystem.VOLUME_DEFAULT, 1, 0x43);
+		waitForPlays(longSound, 1);
+		soundSystem.reset();
+		assertFalse(longSound.isPlaying());
+		assertEquals(0, soundSystem.nextInterruptRoutine());
+	}
+
+	@Test
+	public void testResetWhileSoundFinishes() throws Exception {
+		HeadlessSoundEffect instantSound = new HeadlessSoundEffect(0, scheduler);
+		sounds.sounds.put(5, instantSound);
+		SoundSystem soundSystem = new SoundSystemImpl(sounds, scheduler);
+		for (int i = 0; i < 100; i++) {
+			soundSystem.play(5, SoundSystem.EFFECT_START, SoundSystem.VOLUME_DEFAULT, 1, 0x42);
+			soundSystem.reset();
+			// a routine that was about to be queued must not show up later
+			Thread.sleep(2);
+			assertEquals(0, soundSystem.nextInterruptRoutine());
+		}
+	}
+
+	@Test
+	public void testSessionsShareBoundedThreads() throws Exception {
+		SoundSystem[] soundSystems = new SoundSystem[20];
+		for (int i = 0; i < soundSystems.length; i++) {
+			soundSystems[i] = new SoundSystemImpl(sounds, scheduler);
+			soundSystems[i].play(4, SoundSystem.EFFECT_START, SoundSystem.VOLUME_DEFAULT, 1, 0);
+		}
+		waitForPlays(longSound, soundSystems.length);
+		// no thread waits for a playing sound
+		assertEquals(1, scheduler.getNumThreads());
+		for (SoundSystem soundSystem : soundSystems) {
+			soundSystem.reset();
+		}
+	}
+}
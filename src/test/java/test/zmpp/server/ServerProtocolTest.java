@@ -0,0 +1,158 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.server;
+
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.server.ServerProtocol;
+import org.zmpp.server.SessionServer;
+
+import test.zmpp.testutil.TestUtil;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for ServerProtocol.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class ServerProtocolTest {
+
+	private SessionServer server;
+	private StringWriter out;
+
+	@Before
+	public void setUp() {
+		server = new SessionServer(1, SessionServer.DEFAULT_STEP_BUDGET);
+		out = new StringWriter();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.shutdown();
+	}
+
+	private ServerProtocol createProtocol(String requests) {
+		return new ServerProtocol(server, new BufferedReader(new StringReader(requests)), new PrintWriter(out));
+	}
+
+	@Test
+	public void testInvalidRequests() throws Exception {
+		createProtocol("bogus\nfoo bar\ninput none look\nclose none\nstats none\n").serve();
+		String[] lines = out.toString().split("\r?\n");
+		assertEquals(5, lines.length);
+		assertEquals("ERROR invalid request: bogus", lines[0]);
+		assertEquals("ERROR invalid request: foo bar", lines[1]);
+		assertEquals("ERROR unknown session: none", lines[2]);
+		assertEquals("ERROR unknown session: none", lines[3]);
+		assertEquals("ERROR unknown session: none", lines[4]);
+	}
+
+	@Test
+	public void testOpenMissingFile() throws Exception {
+		createProtocol("open s1 /nonexistent/story.z3\n").serve();
+		assertTrue(out.toString().startsWith("ERROR"));
+		assertEquals(0, server.getNumSessions());
+	}
+
+	@Test
+	public void testQuit() throws Exception {
+		ServerProtocol protocol = createProtocol("");
+		assertFalse(protocol.processRequest("quit"));
+		assertTrue(protocol.processRequest(""));
+		assertEquals("", out.toString());
+	}
+
+	@Test
+	public void testOpenAndWait() throws Exception {
+		ServerProtocol protocol = createProtocol("");
+		String path = TestUtil.loadResource("minizork.z3").getPath();
+		assertTrue(protocol.processRequest("open s1 " + path));
+		long deadline = System.currentTimeMillis() + 30000;
+		while (!out.toString().contains("WAITING s1 line") && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		String[] lines = out.toString().split("\r?\n");
+		assertEquals("OK open s1", lines[0]);
+		assertTrue(lines[1].startsWith("OUTPUT s1 "));
+		assertEquals("WAITING s1 line", lines[lines.length - 1]);
+
+		assertTrue(protocol.processRequest("stats s1"));
+		assertTrue(out.toString().matches("(?s).*\nSTATS s1 \\d+ 1 0\r?\n"));
+	}
+
+	@Test
+	public void testDuplicateOpenKeepsSession() throws Exception {
+		ServerProtocol protocol = createProtocol("");
+		String path = TestUtil.loadResource("minizork.z3").getPath();
+		assertTrue(protocol.processRequest("open s1 " + path));
+		assertTrue(protocol.processRequest("open s1 " + path));
+		assertTrue(out.toString().contains("ERROR session exists: s1"));
+		assertEquals(1, server.getNumSessions());
+
+		// the session is still closed with the connection
+		protocol.serve();
+		long deadline = System.currentTimeMillis() + 30000;
+		while (server.getNumSessions() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, server.getNumSessions());
+	}
+
+	@Test
+	public void testOtherConnectionCannotUseSession() throws Exception {
+		ServerProtocol owner = createProtocol("");
+		String path = TestUtil.loadResource("minizork.z3").getPath();
+		assertTrue(owner.processRequest("open s1 " + path));
+
+		StringWriter otherOut = new StringWriter();
+		ServerProtocol other = new ServerProtocol(server, new BufferedReader(new StringReader("")),
+				new PrintWriter(otherOut));
+		assertTrue(other.processRequest("input s1 look"));
+		assertTrue(other.processRequest("stats s1"));
+		assertTrue(other.processRequest("close s1"));
+		String[] lines = otherOut.toString().split("\r?\n");
+		assertEquals(3, lines.length);
+		for (String line : lines) {
+			assertEquals("ERROR unknown session: s1", line);
+		}
+		assertEquals(1, server.getNumSessions());
+		assertFalse(server.getSession("s1").isEnded());
+
+		// the owner still controls the session
+		assertTrue(owner.processRequest("stats s1"));
+		assertTrue(out.toString().contains("STATS s1 "));
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.server;
+
+import java.io.File;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.server.Session;
+import org.zmpp.server.SessionListener;
+import org.zmpp.server.SessionServer;
+import org.zmpp.vm.MachineRunState;
+
+import test.zmpp.testutil.TestUtil;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for SessionServer.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class SessionServerTest {
+
+	private SessionServer server;
+	private File story;
+	private BlockingQueue<String> events;
+	private StringBuffer output;
+
+	private class RecordingListener implements SessionListener {
+		public void sessionOutput(Session session, String text) {
+			output.append(text);
+		}
+
+		public void sessionWaiting(Session session, MachineRunState runState) {
+			events.add("waiting " + session.getId());
+		}
+
+		public void sessionEnded(Session session) {
+			events.add("ended " + session.getId());
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		// a small budget makes the sessions go through many slices
+		server = new SessionServer(2, 100);
+		story = TestUtil.loadResource("minizork.z3");
+		events = new LinkedBlockingQueue<String>();
+		output = new StringBuffer();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.shutdown();
+	}
+
+	private String nextEvent() throws InterruptedException {
+		String event = events.poll(30, TimeUnit.SECONDS);
+		assertNotNull("timeout", event);
+		return event;
+	}
+
+	@Test
+	public void testRunUntilInput() throws Exception {
+		server.openSession("s1", story, new RecordingListener());
+		assertEquals("waiting s1", nextEvent());
+		assertTrue(output.toString().contains("West of House"));
+		Session session = server.getSession("s1");
+		assertTrue(session.getExecutionControl().getMachine().getRunState().isWaitingForInput());
+		assertEquals(session.getExecutionControl().getStep(), session.getNumSteps());
+		assertTrue(session.getNumYields() > 0);
+		assertEquals(session.getNumYields() + 1, session.getNumSlices());
+
+		output.setLength(0);
+		assertTrue(server.sendInput("s1", "open mailbox"));
+		assertEquals("waiting s1", nextEvent());
+		assertTrue(output.toString().contains("leaflet"));
+	}
+
+	@Test
+	public void testConcurrentSessions() throws Exception {
+		server.openSession("s1", story, new RecordingListener());
+		server.openSession("s2", story, new RecordingListener());
+		assertEquals(2, server.getNumSessions());
+		assertTrue(nextEvent().startsWith("waiting"));
+		assertTrue(nextEvent().startsWith("waiting"));
+	}
+
+	@Test
+	public void testCloseSession() throws Exception {
+		server.openSession("s1", story, new RecordingListener());
+		assertEquals("waiting s1", nextEvent());
+		assertTrue(server.closeSession("s1"));
+		assertEquals("ended s1", nextEvent());
+		assertNull(server.getSession("s1"));
+		assertEquals(0, server.getNumSessions());
+	}
+
+	@Test
+	public void testUnknownSession() {
+		assertFalse(server.sendInput("none", "look"));
+		assertFalse(server.closeSession("none"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateSession() throws Exception {
+		server.openSession("s1", story, new RecordingListener());
+		server.openSession("s1", story, new RecordingListener());
+	}
+}
@@ -40,6 +40,7 @@ import org.junit.runner.RunWith;
 import static org.junit.Assert.*;
 import org.zmpp.vm.Cpu;
 import org.zmpp.vm.CpuImpl;
+import org.zmpp.vm.HotRoutineListener;
 import org.zmpp.vm.Machine;
 import org.zmpp.vm.RoutineContext;
 import org.zmpp.base.StoryFileHeader;
@@ -300,6 +301,82 @@ public class CpuTest {
 		assertEquals(oldSp, cpu.getSP());
 	}
 
+	@Test
+	public void testNestedCallsAndReturns() {
+		final int numCalls = 500;
+		context.checking(new Expectations() {
+			{
+				atLeast(1).of(machine).getVersion();
+				will(returnValue(5));
+				atLeast(1).of(machine).readUnsigned8(400);
+				will(returnValue((char) 15));
+			}
+		});
+		for (int i = 0; i < numCalls; i++) {
+			cpu.setVariable((char) 0, (char) i);
+			cpu.call((char) 100, 2000 + i, new char[] { (char) i }, RoutineContext.DISCARD_RESULT);
+		}
+		assertEquals(401, cpu.getPC());
+		assertEquals(numCalls, cpu.getRoutineStackPointer());
+
+		List<RoutineContext> contexts = cpu.getRoutineContexts();
+		assertEquals(numCalls, contexts.size());
+		RoutineContext first = contexts.get(0);
+		assertEquals(2000, first.getReturnAddress());
+		assertEquals(1, first.getInvocationStackPointer());
+		assertEquals(1, first.getNumArguments());
+		assertEquals(15, first.getNumLocalVariables());
+		RoutineContext last = contexts.get(numCalls - 1);
+		assertEquals(numCalls - 1, last.getLocalVariable((char) 0));
+		assertEquals(0, last.getLocalVariable((char) 14));
+		assertEquals(numCalls, last.getInvocationStackPointer());
+		assertEquals(last, cpu.getCurrentRoutineContext());
+		assertEquals(1, cpu.getCurrentNumArguments());
+
+		// contexts are copies, changing them leaves the machine alone
+		last.setLocalVariable((char) 0, (char) 4711);
+		assertEquals(numCalls - 1, cpu.getVariable((char) 1));
+
+		for (int i = numCalls - 1; i >= 0; i--) {
+			cpu.setVariable((char) 0, (char) 42);
+			cpu.returnWith((char) i);
+			assertEquals(2000 + i, cpu.getPC());
+			assertEquals(i + 1, cpu.getSP());
+			assertEquals(i, cpu.getLastReturnValue());
+		}
+		assertEquals(0, contexts.size());
+		assertNull(cpu.getCurrentRoutineContext());
+	}
+
+	@Test
+	public void testHotRoutineListener() {
+		final HotRoutineListener listener = context.mock(HotRoutineListener.class);
+		final StoryFileHeader fileHeader = context.mock(StoryFileHeader.class);
+		context.checking(new Expectations() {
+			{
+				atLeast(1).of(machine).getVersion();
+				will(returnValue(5));
+				atLeast(1).of(machine).readUnsigned8(400);
+				will(returnValue((char) 0));
+				atLeast(1).of(machine).readUnsigned8(404);
+				will(returnValue((char) 0));
+				one(machine).getFileHeader();
+				will(returnValue(fileHeader));
+				one(fileHeader).getFileLength();
+				will(returnValue(1024));
+				// notified exactly once per routine
+				one(listener).routineHot(400);
+			}
+		});
+		cpu.setHotRoutineListener(listener, 3);
+		for (int i = 0; i < 10; i++) {
+			cpu.call((char) 100, 2000, new char[0], RoutineContext.DISCARD_RESULT);
+			cpu.returnWith((char) 0);
+		}
+		cpu.call((char) 101, 2000, new char[0], RoutineContext.DISCARD_RESULT);
+		cpu.returnWith((char) 0);
+	}
+
 	@Test
 	public void testTranslatePackedAddressV3() {
 		context.checking(new Expectations() {
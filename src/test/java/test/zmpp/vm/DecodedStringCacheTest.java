@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.vm;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.base.StoryFileHeader;
+import org.zmpp.vm.DecodedStringCache;
+
+/**
+ * Tests for the DecodedStringCache class with the Minizork data.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class DecodedStringCacheTest extends MiniZorkSetup {
+
+	private DecodedStringCache cache;
+	private int forestAddress;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		forestAddress = machine.getPropertiesDescriptionAddress(1);
+		cache = new DecodedStringCache(minizorkmap, converter, machine.readUnsigned16(StoryFileHeader.STATIC_MEM),
+				DecodedStringCache.DEFAULT_CAPACITY);
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		assertEquals(0.0, cache.getHitRate(), 0.001);
+		assertEquals("forest", new String(cache.getChars(forestAddress)));
+		assertSame(cache.getChars(forestAddress), cache.getChars(forestAddress));
+		assertEquals(2, cache.getNumHits());
+		assertEquals(1, cache.getNumMisses());
+		assertEquals(2.0 / 3, cache.getHitRate(), 0.001);
+		assertEquals(1, cache.getNumEntries());
+	}
+
+	@Test
+	public void testWriteToStringDropsIt() {
+		cache.getChars(forestAddress);
+
+		// a single padded end word is an empty string
+		minizorkmap.writeUnsigned16(forestAddress, (char) 0x94a5);
+		cache.memoryWritten(forestAddress, 2);
+		assertEquals(0, cache.getChars(forestAddress).length);
+		assertEquals(2, cache.getNumMisses());
+	}
+
+	@Test
+	public void testWriteBesideStringKeepsIt() {
+		final char[] chars = cache.getChars(forestAddress);
+		cache.memoryWritten(forestAddress - 2, 2);
+		cache.memoryWritten(forestAddress + minizorkmap.readUnsigned8(forestAddress - 1) * 2, 1);
+		assertSame(chars, cache.getChars(forestAddress));
+		assertEquals(1, cache.getNumMisses());
+	}
+
+	@Test
+	public void testMachineDecodesThroughCache() {
+		assertEquals("forest", machine.decode2Zscii(forestAddress, 0));
+		assertEquals("forest", machine.decode2Zscii(forestAddress, 0));
+		assertEquals(1, machine.getDecodedStringCache().getNumHits());
+	}
+
+	@Test
+	public void testRewrittenAbbreviationIsExpandedAgain() {
+		final int messageAddress = 0x3e6d;
+		final String message = "[I don't understand that sentence.]";
+		assertEquals(message, machine.decode2Zscii(messageAddress, 0));
+
+		// Let every abbreviation expand to the first one, like Inform's
+		// dynamic strings do
+		final int tableAddress = machine.readUnsigned16(StoryFileHeader.ABBREVIATIONS);
+		final char firstEntry = machine.readUnsigned16(tableAddress);
+		for (int i = 1; i < 96; i++) {
+			machine.writeUnsigned16(tableAddress + 2 * i, firstEntry);
+		}
+		final String rewritten = machine.decode2Zscii(messageAddress, 0);
+		assertFalse(message.equals(rewritten));
+		assertEquals(converter.decode2Zscii(minizorkmap, messageAddress, 0), rewritten);
+	}
+}
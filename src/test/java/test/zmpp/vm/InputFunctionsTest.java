@@ -137,14 +137,21 @@ public class InputFunctionsTest {
 				will(returnValue('i'));
 				one(machine).readUnsigned8(textbuffer + 4);
 				will(returnValue('t'));
-				one(machine).getDictionaryDelimiters();
-				will(returnValue(", \t\n"));
+				// none of the characters is a separator
+				one(machine).isDictionarySeparator('w');
+				will(returnValue(false));
+				one(machine).isDictionarySeparator('a');
+				will(returnValue(false));
+				one(machine).isDictionarySeparator('i');
+				will(returnValue(false));
+				one(machine).isDictionarySeparator('t');
+				will(returnValue(false));
 				// filling parse buffer
 				one(machine).readUnsigned8(parsebuffer);
 				will(returnValue((char) 10));
 				one(machine).writeUnsigned8(parsebuffer + 1, (char) 1);
 				// lookup
-				one(machine).lookupToken(dictionaryAddress, "wait");
+				one(machine).lookupToken(dictionaryAddress, textbuffer + 1, 4);
 				will(returnValue(987));
 				// write parse buffer
 				one(machine).writeUnsigned16(parsebuffer + 2, (char) 987);
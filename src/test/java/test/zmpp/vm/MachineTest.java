@@ -28,6 +28,9 @@
  */
 package test.zmpp.vm;
 
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.TypeSafeMatcher;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
 import org.jmock.integration.junit4.JMock;
@@ -47,7 +50,10 @@ import org.zmpp.vm.Output;
 import org.zmpp.vm.SaveGameDataStore;
 import org.zmpp.windowing.ScreenModel;
 import org.zmpp.windowing.StatusLine;
+import org.zmpp.base.SnapshotMemory;
+import org.zmpp.base.StoryFileHeader;
 import org.zmpp.base.StoryFileHeader.Attribute;
+import org.zmpp.vm.MachineImpl;
 
 /**
  * Tests the external i/o of the machine.
@@ -107,15 +113,33 @@ public class MachineTest extends MiniZorkSetup {
 				will(returnValue(false));
 				atLeast(1).of(outputStream3).isSelected();
 				will(returnValue(false));
-				exactly(2).of(outputStream1).print('t');
-				one(outputStream1).print('e');
-				one(outputStream1).print('s');
+				one(outputStream1).print(with(charsStartingWith("test")), with(equal(0)), with(equal(4)));
 			}
 		});
 		machine.selectOutputStream(1, true);
 		machine.print("test");
 	}
 
+	/**
+	 * Matches character arrays that start with the specified characters.
+	 * 
+	 * @param prefix
+	 *            the expected characters
+	 * @return the matcher
+	 */
+	private static Matcher<char[]> charsStartingWith(final String prefix) {
+		return new TypeSafeMatcher<char[]>() {
+			@Override
+			public boolean matchesSafely(char[] chars) {
+				return chars.length >= prefix.length() && new String(chars, 0, prefix.length()).equals(prefix);
+			}
+
+			public void describeTo(Description description) {
+				description.appendText("characters starting with ").appendValue(prefix);
+			}
+		};
+	}
+
 	@Test
 	public void testSelectOutputStream() {
 		context.checking(new Expectations() {
@@ -142,6 +166,37 @@ public class MachineTest extends MiniZorkSetup {
 		assertEquals(inputStream0, machine.getSelectedInputStream());
 	}
 
+	@Test
+	public void testTokenize() {
+		final String input = "take lamp, take lamp";
+		final int parsebuffer = machine.readUnsigned16(StoryFileHeader.STATIC_MEM) - 30;
+		final int textbuffer = parsebuffer - 30;
+		machine.writeUnsigned8(textbuffer, (char) 25);
+		for (int i = 0; i < input.length(); i++) {
+			machine.writeUnsigned8(textbuffer + 1 + i, input.charAt(i));
+		}
+		machine.writeUnsigned8(textbuffer + 1 + input.length(), (char) 0);
+		machine.writeUnsigned8(parsebuffer, (char) 6);
+		machine.tokenize(textbuffer, parsebuffer, 0, false);
+
+		final String[] tokens = { "take", "lamp", ",", "take", "lamp" };
+		final int[] positions = { 1, 6, 10, 12, 17 };
+		assertTrue(machine.isDictionarySeparator(','));
+		assertTrue(machine.lookupToken(0, "take") > 0);
+		assertEquals(tokens.length, machine.readUnsigned8(parsebuffer + 1));
+		for (int i = 0; i < tokens.length; i++) {
+			final int entry = parsebuffer + 2 + 4 * i;
+			assertEquals(machine.lookupToken(0, tokens[i]), machine.readUnsigned16(entry));
+			assertEquals(tokens[i].length(), machine.readUnsigned8(entry + 2));
+			assertEquals(positions[i], machine.readUnsigned8(entry + 3));
+		}
+
+		// the parse buffer only has room for two tokens
+		machine.writeUnsigned8(parsebuffer, (char) 2);
+		machine.tokenize(textbuffer, parsebuffer, 0, false);
+		assertEquals(2, machine.readUnsigned8(parsebuffer + 1));
+	}
+
 	@Test
 	public void testRandom() {
 		char random1 = machine.random((short) 23);
@@ -194,7 +249,7 @@ public class MachineTest extends MiniZorkSetup {
 				will(returnValue(false));
 				atLeast(1).of(outputStream3).isSelected();
 				will(returnValue(false));
-				atLeast(1).of(outputStream1).print(with(any(char.class)));
+				atLeast(1).of(outputStream1).print(with(any(char[].class)), with(any(int.class)), with(any(int.class)));
 				atLeast(1).of(outputStream1).flush();
 				one(outputStream1).close();
 				atLeast(1).of(outputStream2).flush();
@@ -253,7 +308,7 @@ public class MachineTest extends MiniZorkSetup {
 				will(returnValue(false));
 				atLeast(1).of(outputStream3).isSelected();
 				will(returnValue(false));
-				allowing(outputStream1).print(with(any(char.class)));
+				allowing(outputStream1).print(with(any(char[].class)), with(any(int.class)), with(any(int.class)));
 			}
 		});
 		machine.start();
@@ -311,7 +366,7 @@ public class MachineTest extends MiniZorkSetup {
 				atLeast(1).of(outputStream3).isSelected();
 				will(returnValue(false));
 				// error message
-				allowing(outputStream1).print(with(any(char.class)));
+				allowing(outputStream1).print(with(any(char[].class)), with(any(int.class)), with(any(int.class)));
 			}
 		});
 		machine.selectOutputStream(Output.OUTPUTSTREAM_MEMORY, true);
@@ -333,4 +388,73 @@ public class MachineTest extends MiniZorkSetup {
 
 		assertEquals(4711, tableAddress);
 	}
+
+	@Test
+	public void testRestoreUndo() {
+		final int globals = machine.readUnsigned16(StoryFileHeader.GLOBALS);
+		machine.writeUnsigned16(globals, (char) 1);
+		machine.setVariable((char) 0, (char) 42);
+		assertTrue(machine.save_undo(4711));
+
+		machine.writeUnsigned16(globals, (char) 2);
+		machine.setVariable((char) 0, (char) 43);
+		machine.insertObject(1, 2);
+		assertTrue(machine.save_undo(4711));
+
+		machine.writeUnsigned16(globals, (char) 3);
+		machine.removeObject(2);
+
+		assertNotNull(machine.restore_undo());
+		assertEquals(2, machine.readUnsigned16(globals));
+		assertEquals(1, machine.getParent(2));
+		assertEquals(2, machine.getSP());
+		assertEquals(43, machine.getStackTop());
+
+		assertNotNull(machine.restore_undo());
+		assertEquals(1, machine.readUnsigned16(globals));
+		assertEquals(1, machine.getSP());
+		assertEquals(42, machine.getStackTop());
+		assertNull(machine.restore_undo());
+	}
+
+	@Test
+	public void testUndoDepth() {
+		final int globals = machine.readUnsigned16(StoryFileHeader.GLOBALS);
+		machine.setUndoLimits(2, MachineImpl.DEFAULT_UNDO_BUDGET);
+		for (int i = 1; i <= 3; i++) {
+			machine.writeUnsigned16(globals, (char) i);
+			assertTrue(machine.save_undo(4711));
+		}
+		machine.writeUnsigned16(globals, (char) 4);
+		assertNotNull(machine.restore_undo());
+		assertEquals(3, machine.readUnsigned16(globals));
+		assertNotNull(machine.restore_undo());
+		assertEquals(2, machine.readUnsigned16(globals));
+		assertNull(machine.restore_undo());
+	}
+
+	@Test
+	public void testUndoBudget() {
+		final int globals = machine.readUnsigned16(StoryFileHeader.GLOBALS);
+		// every step dirties a single page
+		machine.setUndoLimits(MachineImpl.DEFAULT_UNDO_DEPTH, SnapshotMemory.PAGE_SIZE);
+		for (int i = 1; i <= 3; i++) {
+			machine.writeUnsigned16(globals, (char) i);
+			assertTrue(machine.save_undo(4711));
+		}
+		machine.writeUnsigned16(globals, (char) 4);
+		// the budget is enforced when saving, so only the oldest step is gone
+		assertNotNull(machine.restore_undo());
+		assertEquals(3, machine.readUnsigned16(globals));
+		assertNotNull(machine.restore_undo());
+		assertEquals(2, machine.readUnsigned16(globals));
+		assertNull(machine.restore_undo());
+	}
+
+	@Test
+	public void testUndoDisabled() {
+		machine.setUndoLimits(0, MachineImpl.DEFAULT_UNDO_BUDGET);
+		assertFalse(machine.save_undo(4711));
+		assertNull(machine.restore_undo());
+	}
 }
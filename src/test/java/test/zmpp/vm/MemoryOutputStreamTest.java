@@ -73,6 +73,25 @@ public class MemoryOutputStreamTest {
 		output.select(false);
 	}
 
+	@Test
+	public void testPrintRun() {
+		context.checking(new Expectations() {
+			{
+				one(machine).copyBytesFromArray(with(any(byte[].class)), with(equal(0)), with(equal(4713)),
+						with(equal(3)));
+				one(machine).copyBytesFromArray(with(any(byte[].class)), with(equal(0)), with(equal(4716)),
+						with(equal(1)));
+				one(machine).getVersion();
+				will(returnValue(5));
+				one(machine).writeUnsigned16(4711, (char) 4);
+			}
+		});
+		output.select(4711, 0);
+		output.print("xabcx".toCharArray(), 1, 3);
+		output.print("d".toCharArray(), 0, 1);
+		output.select(false);
+	}
+
 	@Test
 	public void testIsSelected() {
 		output.select(4711, 0);
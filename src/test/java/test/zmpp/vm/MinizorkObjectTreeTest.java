@@ -31,8 +31,8 @@ package test.zmpp.vm;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
+import org.zmpp.vm.AbstractObjectTree;
 import org.zmpp.vm.ClassicObjectTree;
-import org.zmpp.vm.ObjectTree;
 import org.zmpp.base.StoryFileHeader;
 
 /**
@@ -43,7 +43,7 @@ import org.zmpp.base.StoryFileHeader;
  */
 public class MinizorkObjectTreeTest extends MiniZorkSetup {
 
-	private ObjectTree objectTree;
+	private AbstractObjectTree objectTree;
 	private static final int OBJECT1 = 1;
 	private static final int OBJECT2 = 2;
 
@@ -138,6 +138,32 @@ public class MinizorkObjectTreeTest extends MiniZorkSetup {
 		assertEquals(0, objectTree.getNextProperty(OBJECT1, 17));
 	}
 
+	@Test
+	public void testPropertyLayoutChange() {
+		assertEquals(2645, objectTree.getPropertyAddress(OBJECT1, 18));
+
+		// the size byte of property 18 now describes property 19
+		minizorkmap.writeUnsigned8(2644, (char) (32 + 19));
+		objectTree.memoryWritten(2644, 1);
+		assertEquals(0, objectTree.getPropertyAddress(OBJECT1, 18));
+		assertEquals(2645, objectTree.getPropertyAddress(OBJECT1, 19));
+		assertEquals(19, objectTree.getNextProperty(OBJECT1, 0));
+		assertEquals(17, objectTree.getNextProperty(OBJECT1, 19));
+	}
+
+	@Test
+	public void testPropertyDataWriteKeepsLayout() {
+		assertEquals(2645, objectTree.getPropertyAddress(OBJECT1, 18));
+
+		// a write into the property data does not require a new index, so
+		// the unannounced size byte change is not seen
+		minizorkmap.writeUnsigned8(2644, (char) (32 + 19));
+		minizorkmap.writeUnsigned16(2645, (char) 0xcafe);
+		objectTree.memoryWritten(2645, 2);
+		assertEquals(2645, objectTree.getPropertyAddress(OBJECT1, 18));
+		assertEquals(0xcafe, objectTree.getProperty(OBJECT1, 18));
+	}
+
 	@Test
 	public void testGetObject() {
 		assertEquals(36, objectTree.getParent(1));
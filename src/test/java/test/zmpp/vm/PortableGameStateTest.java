@@ -31,8 +31,10 @@ package test.zmpp.vm;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
@@ -432,49 +434,8 @@ public class PortableGameStateTest {
 		assertEquals(3, stackFrame.getArgs().length);
 	}
 
-	@SuppressWarnings("unchecked")
 	@Test
 	public void testWriteStackFrameToChunkDiscardResult() {
-		final List<Byte> byteBuffer = (List<Byte>) context.mock(List.class);
-		context.checking(new Expectations() {
-			{
-				// pc
-				one(byteBuffer).add((byte) 0x00);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x12);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x20);
-				will(returnValue(true));
-				// pvflag
-				one(byteBuffer).add((byte) 0x11);
-				will(returnValue(true));
-				// return var
-				one(byteBuffer).add((byte) 0x00);
-				will(returnValue(true));
-				// argspec
-				one(byteBuffer).add((byte) 0x03);
-				will(returnValue(true));
-				// stack size
-				one(byteBuffer).add((byte) 0x00);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x02);
-				will(returnValue(true));
-				// locals
-				one(byteBuffer).add((byte) 0x00);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x01);
-				will(returnValue(true));
-				// stack
-				one(byteBuffer).add((byte) 0x00);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x05);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x00);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x06);
-				will(returnValue(true));
-			}
-		});
 		char[] args = { 0, 1 };
 		char[] locals = { (short) 1 };
 		char[] stack = { (short) 5, (short) 6 };
@@ -486,53 +447,23 @@ public class PortableGameStateTest {
 		stackFrame.setLocals(locals);
 		stackFrame.setEvalStack(stack);
 
+		ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
 		PortableGameState gamestate = new PortableGameState();
 		gamestate.writeStackFrameToByteBuffer(byteBuffer, stackFrame);
+		byte[] expected = {
+				0x00, 0x12, 0x20, // pc
+				0x11, // pvflag
+				0x00, // return var
+				0x03, // argspec
+				0x00, 0x02, // stack size
+				0x00, 0x01, // locals
+				0x00, 0x05, 0x00, 0x06 // stack
+		};
+		assertTrue(Arrays.equals(expected, byteBuffer.toByteArray()));
 	}
 
-	@SuppressWarnings("unchecked")
 	@Test
 	public void testWriteStackFrameToChunkWithReturnVar() {
-		final List<Byte> byteBuffer = (List<Byte>) context.mock(List.class);
-		context.checking(new Expectations() {
-			{
-				// pc
-				one(byteBuffer).add((byte) 0x00);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x12);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x21);
-				will(returnValue(true));
-				// pvflag
-				one(byteBuffer).add((byte) 0x01);
-				will(returnValue(true));
-				// return var
-				one(byteBuffer).add((byte) 0x06);
-				will(returnValue(true));
-				// argspec
-				one(byteBuffer).add((byte) 0x03);
-				will(returnValue(true));
-				// stack size
-				one(byteBuffer).add((byte) 0x00);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x02);
-				will(returnValue(true));
-				// locals
-				one(byteBuffer).add((byte) 0x00);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x01);
-				will(returnValue(true));
-				// stack
-				one(byteBuffer).add((byte) 0x00);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x05);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x00);
-				will(returnValue(true));
-				one(byteBuffer).add((byte) 0x06);
-				will(returnValue(true));
-			}
-		});
 		char[] args = { 0, 1 };
 		char[] locals = { (short) 1 };
 		char[] stack = { (short) 5, (short) 6 };
@@ -544,7 +475,56 @@ public class PortableGameStateTest {
 		stackFrame.setLocals(locals);
 		stackFrame.setEvalStack(stack);
 
+		ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
 		PortableGameState gamestate = new PortableGameState();
 		gamestate.writeStackFrameToByteBuffer(byteBuffer, stackFrame);
+		byte[] expected = {
+				0x00, 0x12, 0x21, // pc
+				0x01, // pvflag
+				0x06, // return var
+				0x03, // argspec
+				0x00, 0x02, // stack size
+				0x00, 0x01, // locals
+				0x00, 0x05, 0x00, 0x06 // stack
+		};
+		assertTrue(Arrays.equals(expected, byteBuffer.toByteArray()));
+	}
+
+	@Test
+	public void testExportCompressedMemory() throws Exception {
+		byte[] original = new byte[600];
+		byte[] current = new byte[600];
+		for (int i = 0; i < original.length; i++) {
+			original[i] = (byte) i;
+			current[i] = (byte) i;
+		}
+		current[1] = 0x55;
+		current[400] = 0x66;
+		StackFrame dummyFrame = new StackFrame();
+		dummyFrame.setArgs(new char[0]);
+		dummyFrame.setEvalStack(new char[0]);
+		dummyFrame.setLocals(new char[0]);
+		gameState.setDynamicMem(current);
+		gameState.getStackFrames().add(dummyFrame);
+
+		WritableFormChunk exportFormChunk = gameState.exportToFormChunk(new DefaultMemory(original));
+		assertNull(exportFormChunk.getSubChunk("UMem"));
+		Chunk cmemChunk = exportFormChunk.getSubChunk("CMem");
+		// 1 changed byte, zero runs of 256 and 142, 1 changed byte
+		byte[] expected = { 0x00, 0x00, 0x55 ^ 1, 0x00, (byte) 0xff, 0x00, (byte) 141, 0x66 ^ (byte) 400 };
+		byte[] data = new byte[cmemChunk.getSize()];
+		cmemChunk.getMemory().copyBytesToArray(data, 0, Chunk.CHUNK_HEADER_LENGTH, data.length);
+		assertTrue(Arrays.equals(expected, data));
+
+		PortableGameState gameState2 = new PortableGameState();
+		gameState2.readSaveGame(new DefaultFormChunk(new DefaultMemory(exportFormChunk.getBytes())));
+		byte[] delta = gameState2.getDeltaBytes();
+		assertEquals(401, delta.length);
+		for (int i = 0; i < delta.length; i++) {
+			assertEquals(current[i] ^ original[i], delta[i]);
+		}
+		assertNull(gameState2.getDynamicMemoryDump());
+		gameState2.decompressDynamicMem(new DefaultMemory(original), original.length);
+		assertTrue(Arrays.equals(current, gameState2.getDynamicMemoryDump()));
 	}
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.vm;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.base.DefaultMemory;
+import org.zmpp.base.Memory;
+import org.zmpp.encoding.DefaultAlphabetTable;
+import org.zmpp.encoding.DefaultZCharTranslator;
+import org.zmpp.encoding.ZCharEncoder;
+import org.zmpp.vm.DictionarySizesV4ToV8;
+import org.zmpp.vm.UserDictionary;
+
+/**
+ * Tests lookups in an unordered user dictionary, using a real encoder and
+ * memory.
+ *
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class UserDictionaryTest {
+
+	private static final int ENTRY_LENGTH = 7;
+	private static final int FIRST_ENTRY = 5;
+
+	private Memory memory;
+	private ZCharEncoder encoder;
+	private UserDictionary dictionary;
+
+	@Before
+	public void setUp() throws Exception {
+		memory = new DefaultMemory(new byte[FIRST_ENTRY + 4 * ENTRY_LENGTH]);
+		encoder = new ZCharEncoder(new DefaultZCharTranslator(new DefaultAlphabetTable()),
+				new DictionarySizesV4ToV8());
+		// one separator, entry length, negative count means unordered
+		memory.writeUnsigned8(0, (char) 1);
+		memory.writeUnsigned8(1, ',');
+		memory.writeUnsigned8(2, (char) ENTRY_LENGTH);
+		memory.writeUnsigned16(3, (char) -4);
+		writeEntry(0, "zebra");
+		writeEntry(1, "apple");
+		writeEntry(2, "zebra");
+		writeEntry(3, "dictionar");
+		dictionary = new UserDictionary(memory, 0, null, encoder);
+	}
+
+	private int entryAddress(int entryNum) {
+		return FIRST_ENTRY + entryNum * ENTRY_LENGTH;
+	}
+
+	private void writeEntry(int entryNum, String word) {
+		encoder.encode(word, memory, entryAddress(entryNum));
+	}
+
+	@Test
+	public void testLookup() {
+		assertEquals(entryAddress(1), dictionary.lookup("apple"));
+		assertEquals(entryAddress(1), dictionary.lookup("apple"));
+		assertEquals(0, dictionary.lookup("banana"));
+		assertEquals(0, dictionary.lookup(""));
+	}
+
+	@Test
+	public void testLookupFindsFirstDuplicate() {
+		assertEquals(entryAddress(0), dictionary.lookup("zebra"));
+	}
+
+	@Test
+	public void testLookupTruncatesToken() {
+		assertEquals(entryAddress(3), dictionary.lookup("dictionary"));
+		assertEquals(entryAddress(3), dictionary.lookup("dictionaries"));
+	}
+
+	@Test
+	public void testLookupAfterWrite() {
+		assertEquals(0, dictionary.lookup("mango"));
+		writeEntry(1, "mango");
+		dictionary.memoryWritten(entryAddress(1), ENTRY_LENGTH);
+		assertEquals(entryAddress(1), dictionary.lookup("mango"));
+		assertEquals(0, dictionary.lookup("apple"));
+
+		// shrinking the dictionary through its header
+		memory.writeUnsigned16(3, (char) -1);
+		dictionary.memoryWritten(3, 2);
+		assertEquals(0, dictionary.lookup("mango"));
+		assertEquals(entryAddress(0), dictionary.lookup("zebra"));
+	}
+
+	@Test
+	public void testWriteOutsideKeepsIndex() {
+		assertEquals(entryAddress(1), dictionary.lookup("apple"));
+		writeEntry(1, "mango");
+		dictionary.memoryWritten(entryAddress(4), 10);
+		assertEquals(entryAddress(1), dictionary.lookup("apple"));
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Created on 2026/10/18
+ * Copyright (c) 2005-2010, Wei-ju Wu.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of Wei-ju Wu nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.zmpp.vmutil;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zmpp.vmutil.LruCache;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for LruCache.
+ * 
+ * @author Wei-ju Wu
+ * @version 1.5
+ */
+public class LruCacheTest {
+
+	private LruCache<String, String> cache;
+
+	@Before
+	public void setUp() throws Exception {
+		cache = new LruCache<String, String>(10);
+	}
+
+	@Test
+	public void testInitial() {
+		assertEquals(0, cache.getNumEntries());
+		assertEquals(0, cache.getSize());
+		assertEquals(10, cache.getCapacity());
+		assertNull(cache.get("a"));
+	}
+
+	@Test
+	public void testPutGetRemove() {
+		cache.put("a", "A", 4);
+		cache.put("b", "B", 4);
+		assertEquals("A", cache.get("a"));
+		assertEquals(8, cache.getSize());
+		cache.put("a", "A2", 2);
+		assertEquals("A2", cache.get("a"));
+		assertEquals(6, cache.getSize());
+		assertEquals("B", cache.remove("b"));
+		assertNull(cache.remove("b"));
+		assertEquals(2, cache.getSize());
+		cache.clear();
+		assertEquals(0, cache.getNumEntries());
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		cache.put("a", "A", 4);
+		cache.put("b", "B", 4);
+		cache.get("a");
+		cache.put("c", "C", 4);
+		assertFalse(cache.containsKey("b"));
+		assertTrue(cache.containsKey("a"));
+		assertTrue(cache.containsKey("c"));
+		assertEquals(8, cache.getSize());
+	}
+
+	@Test
+	public void testKeepsOversizedEntry() {
+		cache.put("a", "A", 4);
+		cache.put("b", "B", 20);
+		assertEquals(1, cache.getNumEntries());
+		assertEquals("B", cache.get("b"));
+		assertEquals(20, cache.getSize());
+	}
+
+	@Test
+	public void testEvictedIsCalled() {
+		final StringBuilder evicted = new StringBuilder();
+		cache = new LruCache<String, String>(10) {
+			@Override
+			protected void evicted(String key, String value) {
+				evicted.append(key).append(value);
+			}
+		};
+		cache.put("a", "A", 4);
+		cache.put("b", "B", 4);
+		cache.remove("b");
+		cache.put("b", "B", 4);
+		assertEquals("", evicted.toString());
+		cache.put("c", "C", 4);
+		assertEquals("aA", evicted.toString());
+	}
+}